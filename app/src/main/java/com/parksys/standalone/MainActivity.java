@@ -8,14 +8,13 @@ import android.app.admin.DevicePolicyManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.os.PowerManager;
 import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.widget.Button;
@@ -26,7 +25,15 @@ import android.net.Uri;
 
 import com.parksys.standalone.receiver.StandaloneDeviceAdminReceiver;
 import com.parksys.standalone.service.StandaloneSecurityService;
+import com.parksys.standalone.service.StatusSnapshot;
 import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.manager.PolicyState;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.startup.StartupPipeline;
+import com.parksys.standalone.state.AppStateHolder;
+import com.parksys.standalone.ui.StatusView;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Parksys Standalone Security App
@@ -42,33 +49,127 @@ public class MainActivity extends Activity {
 
     private static final int REQUEST_CODE_ENABLE_ADMIN = 1001;
     private static final int REQUEST_CODE_BATTERY_OPTIMIZATION = 1002;
-    private static final String PREFS_NAME = "StandaloneSecurityPrefs";
-    private static final String KEY_SETUP_COMPLETE = "setup_complete";
     private static final String CHANNEL_ID = "standalone_security_channel";
+    private static final String TAG = "MainActivity";
 
     private DevicePolicyManager devicePolicyManager;
     private ComponentName adminComponent;
     private EmbeddedPolicyManager policyManager;
-    private SharedPreferences prefs;
+    private AppState appState;
+    private StartupPipeline startup;
+    private boolean startupComplete = false;
+    private boolean resumed = false;
 
     private LinearLayout mainLayout;
     private TextView statusText;
     private TextView bannerText;
     private ProgressBar progressBar;
     private Button actionButton;
+    private StatusView statusView;
+
+    private final StatusSnapshot.Listener statusListener = snapshot -> runOnUiThread(() -> {
+        if (statusView != null && statusView.getVisibility() == View.VISIBLE) {
+            statusView.bind(snapshot);
+        }
+    });
+
+    /**
+     * ポリシー状態の変化（同期したポリシーのバナー・適用状況など）をポーリングせずに反映する
+     */
+    private final PolicyState.Listener policyStateListener = state -> runOnUiThread(() -> {
+        if (resumed && startupComplete && isSetupComplete()) {
+            showActiveState();
+        }
+    });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        
-        devicePolicyManager = (DevicePolicyManager) getSystemService(Context.DEVICE_POLICY_SERVICE);
+
+        startup = new StartupPipeline("MainActivity.startup");
         adminComponent = new ComponentName(this, StandaloneDeviceAdminReceiver.class);
-        policyManager = EmbeddedPolicyManager.getInstance(this);
-        prefs = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
 
-        createNotificationChannel();
-        createUI();
+        // 既知の状態を即座に描画
+        startup.runOnCaller("startup.render", () -> {
+            createUI();
+            renderCachedState();
+        });
+
+        // 互いに独立した初期化を並行に実行
+        final Context appContext = getApplicationContext();
+        CompletableFuture<Void> channelStage =
+            startup.stage("startup.notification_channel", this::createNotificationChannel);
+        CompletableFuture<DevicePolicyManager> dpmStage = startup.stage("startup.dpm_lookup",
+            () -> (DevicePolicyManager) appContext.getSystemService(Context.DEVICE_POLICY_SERVICE));
+        CompletableFuture<Boolean> adminStage = startup.then(dpmStage, "startup.admin_check",
+            dpm -> dpm != null && dpm.isAdminActive(adminComponent));
+        CompletableFuture<EmbeddedPolicyManager> stateStage = startup.stage("startup.state_load", () -> {
+            AppStateHolder.get(appContext);
+            EmbeddedPolicyManager manager = EmbeddedPolicyManager.getInstance(appContext);
+            manager.getPolicyDocument();
+            return manager;
+        });
+        CompletableFuture<Void> serviceStage = startup.then(stateStage, "startup.service_start", manager -> {
+            if (manager.isPolicyApplied() && AppStateHolder.get(appContext).isSetupComplete()) {
+                startSecurityService();
+            }
+            return null;
+        });
+
+        CompletableFuture.allOf(channelStage, adminStage, stateStage, serviceStage)
+            .whenComplete((ignored, error) -> runOnUiThread(() -> {
+                try {
+                    onStartupComplete(error, dpmStage.getNow(null), stateStage.getNow(null));
+                } finally {
+                    // 途中で戻った場合もスレッドプールを解放する
+                    startup.shutdown();
+                }
+            }));
+    }
+
+    /**
+     * 並行初期化の完了後の処理（UI スレッド）
+     */
+    private void onStartupComplete(Throwable error, DevicePolicyManager dpm, EmbeddedPolicyManager manager) {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        if (error != null) {
+            Log.e(TAG, "Startup failed", error);
+        }
+        devicePolicyManager = dpm;
+        policyManager = manager;
+        appState = AppStateHolder.get(this);
+        if (devicePolicyManager == null || policyManager == null) {
+            updateStatus("初期化に失敗しました");
+            progressBar.setVisibility(View.GONE);
+            return;
+        }
+        startupComplete = true;
+        if (resumed) {
+            policyManager.addStateListener(policyStateListener);
+        }
         checkAndStartSetup();
+        startup.markInteractive();
+        reportFullyDrawn();
+    }
+
+    /**
+     * 読み込み済みの状態があれば初期化完了を待たずに表示する
+     */
+    private void renderCachedState() {
+        AppState cached = AppStateHolder.peek();
+        if (cached != null && cached.isSetupComplete()) {
+            statusText.setText("セキュリティ保護: 有効");
+            statusText.setTextColor(Color.parseColor("#2E7D32"));
+        } else {
+            updateStatus("初期化中...");
+        }
+    }
+
+    /** 起動処理の計測結果（段階ごとの所要時間と操作可能までの時間） */
+    public StartupPipeline getStartupPipeline() {
+        return startup;
     }
 
     private void createNotificationChannel() {
@@ -132,6 +233,11 @@ public class MainActivity extends Activity {
         actionButton.setVisibility(View.GONE);
         mainLayout.addView(actionButton);
 
+        // ステータス詳細（1つのビューを再利用）
+        statusView = new StatusView(this);
+        statusView.setVisibility(View.GONE);
+        mainLayout.addView(statusView);
+
         // セキュリティバナー
         bannerText = new TextView(this);
         bannerText.setBackgroundColor(Color.parseColor("#1565C0"));
@@ -153,19 +259,15 @@ public class MainActivity extends Activity {
     }
 
     private void checkAndStartSetup() {
-        updateStatus("初期化中...");
-
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            if (isSetupComplete()) {
-                showActiveState();
-            } else {
-                startSetupProcess();
-            }
-        }, 500);
+        if (isSetupComplete()) {
+            showActiveState();
+        } else {
+            startSetupProcess();
+        }
     }
 
     private boolean isSetupComplete() {
-        return prefs.getBoolean(KEY_SETUP_COMPLETE, false) && isDeviceAdminActive();
+        return appState.isSetupComplete() && isDeviceAdminActive();
     }
 
     private boolean isDeviceAdminActive() {
@@ -230,16 +332,14 @@ public class MainActivity extends Activity {
     private void applyPoliciesAndStart() {
         updateStatus("セキュリティポリシーを適用中...");
 
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            policyManager.applyEmbeddedPolicy();
-            
+        policyManager.requestApply("setup", result -> runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
             updateStatus("セキュリティサービスを開始中...");
             startSecurityService();
-
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                requestBatteryOptimizationExemption();
-            }, 500);
-        }, 500);
+            requestBatteryOptimizationExemption();
+        }));
     }
 
     private void startSecurityService() {
@@ -270,7 +370,7 @@ public class MainActivity extends Activity {
     }
 
     private void completeSetup() {
-        prefs.edit().putBoolean(KEY_SETUP_COMPLETE, true).apply();
+        appState.setSetupComplete(true, System.currentTimeMillis());
         
         updateStatus("セットアップ完了");
         progressBar.setVisibility(View.GONE);
@@ -282,40 +382,33 @@ public class MainActivity extends Activity {
         progressBar.setVisibility(View.GONE);
         actionButton.setVisibility(View.GONE);
 
-        statusText.setText("セキュリティ保護: 有効");
+        setTextIfChanged(statusText, "セキュリティ保護: 有効");
         statusText.setTextColor(Color.parseColor("#2E7D32"));
 
-        String bannerMessage = policyManager.getBannerText();
-        bannerText.setText(bannerMessage);
+        setTextIfChanged(bannerText, policyManager.getBannerText());
         bannerText.setVisibility(View.VISIBLE);
 
-        // ステータス詳細を追加
-        addStatusDetails();
+        // ステータス詳細を更新（変化した行のみ）
+        statusView.setVisibility(View.VISIBLE);
+        bindStatus();
     }
 
-    private void addStatusDetails() {
-        LinearLayout detailsLayout = new LinearLayout(this);
-        detailsLayout.setOrientation(LinearLayout.VERTICAL);
-        detailsLayout.setPadding(0, 32, 0, 0);
-
-        String[] statusItems = {
-            "デバイス管理者: 有効",
-            "セキュリティサービス: 稼働中",
-            "ポリシー適用: 完了",
-            "バックグラウンド保護: 有効"
-        };
-
-        for (String item : statusItems) {
-            TextView itemView = new TextView(this);
-            itemView.setText("✓ " + item);
-            itemView.setTextSize(14);
-            itemView.setTextColor(Color.parseColor("#388E3C"));
-            itemView.setPadding(0, 8, 0, 8);
-            itemView.setGravity(Gravity.CENTER);
-            detailsLayout.addView(itemView);
+    private void bindStatus() {
+        StatusSnapshot snapshot = StandaloneSecurityService.getStatusSnapshot();
+        if (snapshot == null) {
+            // サービス未起動時は手元の状態から組み立てる
+            PolicyState state = policyManager.getState();
+            snapshot = new StatusSnapshot(isDeviceAdminActive(), false,
+                state.policyApplied, state.getPolicyVersion(), state.disallowedApps, state.integrityFlags,
+                state.networkViolations, null, 0);
         }
+        statusView.bind(snapshot);
+    }
 
-        mainLayout.addView(detailsLayout, mainLayout.getChildCount() - 1);
+    private static void setTextIfChanged(TextView view, CharSequence text) {
+        if (!TextUtils.equals(view.getText(), text)) {
+            view.setText(text);
+        }
     }
 
     private void updateStatus(String message) {
@@ -328,8 +421,29 @@ public class MainActivity extends Activity {
     @Override
     protected void onResume() {
         super.onResume();
-        if (isSetupComplete()) {
+        resumed = true;
+        if (startupComplete) {
+            policyManager.addStateListener(policyStateListener);
+        }
+        StandaloneSecurityService.addStatusListener(statusListener);
+        if (startupComplete && isSetupComplete()) {
             showActiveState();
         }
     }
+
+    @Override
+    protected void onDestroy() {
+        startup.shutdown();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onPause() {
+        resumed = false;
+        if (policyManager != null) {
+            policyManager.removeStateListener(policyStateListener);
+        }
+        StandaloneSecurityService.removeStatusListener(statusListener);
+        super.onPause();
+    }
 }
@@ -0,0 +1,73 @@
+package com.parksys.standalone.audit;
+
+/**
+ * 監査イベントの種類
+ * 値はログファイルに記録されるため、既存の値は変更しないこと
+ */
+public final class AuditEvent {
+
+    public static final int POLICY_APPLIED = 1;
+    public static final int POLICY_DRIFT = 2;
+    public static final int ADMIN_ENABLED = 3;
+    public static final int ADMIN_DISABLED = 4;
+    public static final int PASSWORD_FAILED = 5;
+    public static final int PASSWORD_CHANGED = 6;
+    public static final int SERVICE_STARTED = 7;
+    /** value: 連続した再起動の回数, aux: 再起動までの待ち時間（ミリ秒） */
+    public static final int SERVICE_RESTART = 8;
+    public static final int BOOT_COMPLETED = 9;
+    /** value: 時間枠内の失敗回数, aux: 実行したアクション */
+    public static final int LOGIN_THRESHOLD = 10;
+    /** value: ロックアウト段階, aux: ロックアウト時間（秒） */
+    public static final int LOGIN_LOCKOUT = 11;
+    public static final int PASSWORD_SUCCEEDED = 12;
+    /** value: 差分で取得した場合 1, aux: 署名付きポリシーのバイト数 */
+    public static final int POLICY_SYNCED = 13;
+    /** 署名を検証できないポリシー。value: 差分で取得した場合 1, aux: バイト数（起動時の読み込みでは 0） */
+    public static final int POLICY_REJECTED = 14;
+    /** ブート後の最初のポリシー適用完了。value: 起動からの時間（ミリ秒）, aux: 起動からブート完了通知までの時間（ミリ秒、未受信は -1） */
+    public static final int BOOT_ENFORCED = 15;
+    /** 禁止アプリのインストールを検出。value: インストールされている禁止アプリの数, aux: パッケージ追加の通知の場合 1（全走査は 0） */
+    public static final int APP_DISALLOWED = 16;
+    /** 完全性の検査で root 化・改ざんの兆候を検出。value: 検出した項目, aux: 検査できなかった項目（{@code IntegrityReport.FLAG_*}） */
+    public static final int INTEGRITY_FAILED = 17;
+    /** 接続中のネットワークがルールに違反。value: 違反（{@code NetworkCompliance.VIOLATION_*}）, aux: 直前の違反 */
+    public static final int NETWORK_NONCOMPLIANT = 18;
+    /** 時間帯により有効な制限が変わった。value: 有効な種類, aux: 変わった種類（{@code 1 << RestrictionType.id}） */
+    public static final int SCHEDULE_CHANGED = 19;
+
+    private static final String[] NAMES = {
+        "unknown",
+        "policy_applied",
+        "policy_drift",
+        "admin_enabled",
+        "admin_disabled",
+        "password_failed",
+        "password_changed",
+        "service_started",
+        "service_restart",
+        "boot_completed",
+        "login_threshold",
+        "login_lockout",
+        "password_succeeded",
+        "policy_synced",
+        "policy_rejected",
+        "boot_enforced",
+        "app_disallowed",
+        "integrity_failed",
+        "network_noncompliant",
+        "schedule_changed",
+    };
+
+    private AuditEvent() {
+    }
+
+    /** 種類ごとのビットマスク（{@link AuditLog#query} の絞り込み用） */
+    public static long mask(int type) {
+        return 1L << type;
+    }
+
+    public static String name(int type) {
+        return type > 0 && type < NAMES.length ? NAMES[type] : NAMES[0] + "(" + type + ")";
+    }
+}
@@ -0,0 +1,585 @@
+package com.parksys.standalone.audit;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端末内の監査ログ
+ *
+ * 追記は事前確保したプリミティブ配列のリングバッファに書き込むだけで、オブジェクトを生成しない。
+ * 一定数たまるか、最初の追記から一定時間が経つとバックグラウンドでまとめてセグメントファイルに書き出す。
+ * イベントはファイルへの書き出しと force が成功するまでバッファに残し、書き出しに失敗した場合は次回に持ち越す。
+ * セグメントごとの時刻範囲と含まれる種類を小さな索引ファイルに保持し、
+ * 期間・種類で絞り込んだ検索では該当するセグメントだけを読む。
+ *
+ * <pre>
+ * seg-NNNNNNNN.log   レコード列 { time i64, type u16, 予約 u16, value i32, aux i64 }
+ * audit.idx          { magic u32, count u32, count × { seq i32, first i64, last i64, records i32, types i64, monotonic u8 } }
+ * </pre>
+ */
+public final class AuditLog implements Closeable {
+
+    /**
+     * 検索結果の受け取り
+     */
+    public interface Visitor {
+        void onEvent(long timeMillis, int type, int value, long aux);
+    }
+
+    public static final int RECORD_SIZE = 24;
+
+    private static final int INDEX_MAGIC = 0x50414958; // "PAIX"
+    private static final String INDEX_FILE = "audit.idx";
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int QUERY_CHUNK_RECORDS = 512;
+
+    private final File directory;
+    private final int ringCapacity;
+    private final int flushThreshold;
+    private final int segmentMaxRecords;
+    private final int maxSegments;
+    private final Executor flushExecutor;
+    private final ScheduledExecutorService delayedExecutor;
+    private final long flushDelayMillis;
+    private final Runnable flushTask = this::flushQuietly;
+
+    // リングバッファ（ringLock で保護）
+    private final Object ringLock = new Object();
+    private final long[] ringTime;
+    private final int[] ringType;
+    private final int[] ringValue;
+    private final long[] ringAux;
+    private int ringStart;
+    private int ringSize;
+    // ringStart のイベントの通し番号と、書き出し中のイベントの終わりの通し番号
+    private long ringHeadSeq;
+    private long flushingUntil;
+    private long dropped;
+    private boolean flushScheduled;
+    private boolean delayedFlushScheduled;
+    private volatile IOException lastFlushError;
+
+    // セグメント（fileLock で保護）
+    private final Object fileLock = new Object();
+    private final ByteBuffer ioBuffer;
+    private final ByteBuffer queryBuffer = ByteBuffer.allocate(QUERY_CHUNK_RECORDS * RECORD_SIZE);
+    private final List<Segment> segments = new ArrayList<>();
+    private FileChannel currentChannel;
+
+    private static final class Segment {
+        final int seq;
+        long firstTime = Long.MAX_VALUE;
+        long lastTime = Long.MIN_VALUE;
+        int records;
+        long typeMask;
+        boolean monotonic = true;
+
+        Segment(int seq) {
+            this.seq = seq;
+        }
+
+        void add(long time, int type) {
+            if (records > 0 && time < lastTime) {
+                monotonic = false;
+            }
+            firstTime = Math.min(firstTime, time);
+            lastTime = records == 0 ? time : Math.max(lastTime, time);
+            typeMask |= AuditEvent.mask(type);
+            records++;
+        }
+    }
+
+    public AuditLog(File directory, int ringCapacity, int flushThreshold,
+                    int segmentMaxRecords, int maxSegments, Executor flushExecutor) throws IOException {
+        this(directory, ringCapacity, flushThreshold, segmentMaxRecords, maxSegments, flushExecutor, null, 0);
+    }
+
+    /**
+     * @param flushDelayMillis 最初の追記から書き出しまでの最大の待ち時間（件数がたまらなくても書き出す）
+     */
+    public AuditLog(File directory, int ringCapacity, int flushThreshold, int segmentMaxRecords, int maxSegments,
+                    ScheduledExecutorService flushExecutor, long flushDelayMillis) throws IOException {
+        this(directory, ringCapacity, flushThreshold, segmentMaxRecords, maxSegments, flushExecutor, flushExecutor,
+            flushDelayMillis);
+    }
+
+    private AuditLog(File directory, int ringCapacity, int flushThreshold, int segmentMaxRecords, int maxSegments,
+                     Executor flushExecutor, ScheduledExecutorService delayedExecutor, long flushDelayMillis)
+            throws IOException {
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.ringCapacity = ringCapacity;
+        this.flushThreshold = Math.min(flushThreshold, ringCapacity);
+        this.segmentMaxRecords = segmentMaxRecords;
+        this.maxSegments = maxSegments;
+        this.flushExecutor = flushExecutor;
+        this.delayedExecutor = delayedExecutor;
+        this.flushDelayMillis = flushDelayMillis;
+        this.ringTime = new long[ringCapacity];
+        this.ringType = new int[ringCapacity];
+        this.ringValue = new int[ringCapacity];
+        this.ringAux = new long[ringCapacity];
+        this.ioBuffer = ByteBuffer.allocateDirect(ringCapacity * RECORD_SIZE);
+        if (directory != null) {
+            synchronized (fileLock) {
+                loadIndex();
+            }
+        }
+    }
+
+    /**
+     * ファイルに書き出さないメモリ上のログ（ディレクトリが使えない場合の代替）
+     * 書き出し時には未書き出しのイベントを破棄する。
+     */
+    public static AuditLog inMemory(int ringCapacity) {
+        try {
+            return new AuditLog(null, ringCapacity, ringCapacity, 0, 0, Runnable::run);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * イベントを追記する（オブジェクトを生成しない）
+     * バッファが満杯の場合は最も古い未書き出しイベントを捨てる。
+     * 書き出しの待ち時間の予約（最初の追記のみ）を除き、オブジェクトを生成しない。
+     */
+    public void append(int type, int value, long aux) {
+        long now = System.currentTimeMillis();
+        boolean schedule = false;
+        boolean scheduleDelayed = false;
+        synchronized (ringLock) {
+            if (ringSize == ringCapacity) {
+                // 書き出し中のイベントは書き出しに失敗した場合のみ失われたものとして数える
+                if (ringHeadSeq >= flushingUntil) {
+                    dropped++;
+                }
+                ringStart = (ringStart + 1) % ringCapacity;
+                ringSize--;
+                ringHeadSeq++;
+            }
+            int index = (ringStart + ringSize) % ringCapacity;
+            ringTime[index] = now;
+            ringType[index] = type;
+            ringValue[index] = value;
+            ringAux[index] = aux;
+            ringSize++;
+            if (ringSize >= flushThreshold && !flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+            if (delayedExecutor != null && !delayedFlushScheduled) {
+                delayedFlushScheduled = true;
+                scheduleDelayed = true;
+            }
+        }
+        if (schedule) {
+            flushExecutor.execute(flushTask);
+        }
+        if (scheduleDelayed) {
+            delayedExecutor.schedule(flushTask, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 未書き出しのイベントがあればバックグラウンドで書き出す（適用・再適用の完了時など）
+     */
+    public void requestFlush() {
+        synchronized (ringLock) {
+            if (ringSize == 0 || flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        flushExecutor.execute(flushTask);
+    }
+
+    /** バッファ溢れで失われたイベント数 */
+    public long getDroppedCount() {
+        synchronized (ringLock) {
+            return dropped;
+        }
+    }
+
+    /**
+     * 未書き出しのイベントをセグメントファイルに書き出す
+     * イベントは force が成功した分だけバッファから取り除く。失敗した場合は書きかけの分を捨て、
+     * 残りはバッファに残して次回の書き出しに持ち越す。
+     */
+    public void flush() throws IOException {
+        synchronized (fileLock) {
+            int count;
+            long firstSeq;
+            synchronized (ringLock) {
+                count = ringSize;
+                firstSeq = ringHeadSeq;
+                ioBuffer.clear();
+                for (int i = 0; i < count; i++) {
+                    int index = (ringStart + i) % ringCapacity;
+                    ioBuffer.putLong(ringTime[index]);
+                    ioBuffer.putShort((short) ringType[index]);
+                    ioBuffer.putShort((short) 0);
+                    ioBuffer.putInt(ringValue[index]);
+                    ioBuffer.putLong(ringAux[index]);
+                }
+                flushScheduled = false;
+                delayedFlushScheduled = false;
+                flushingUntil = firstSeq + count;
+            }
+            if (count == 0) {
+                return;
+            }
+            if (directory == null) {
+                consume(firstSeq + count);
+                return;
+            }
+            ioBuffer.flip();
+
+            int written = 0;
+            try {
+                while (written < count) {
+                    Segment segment = currentSegment();
+                    int batch = Math.min(count - written, segmentMaxRecords - segment.records);
+                    int start = ioBuffer.position();
+                    int limit = ioBuffer.limit();
+                    ioBuffer.limit(start + batch * RECORD_SIZE);
+                    while (ioBuffer.hasRemaining()) {
+                        currentChannel.write(ioBuffer);
+                    }
+                    currentChannel.force(false);
+                    // 索引はディスクに届いた分だけ進める
+                    for (int i = 0; i < batch; i++) {
+                        int offset = start + i * RECORD_SIZE;
+                        segment.add(ioBuffer.getLong(offset), ioBuffer.getShort(offset + 8) & 0xFFFF);
+                    }
+                    ioBuffer.limit(limit);
+                    written += batch;
+                    consume(firstSeq + written);
+                }
+            } catch (IOException e) {
+                // 書きかけのレコードは次に開くときに索引の長さまで切り詰める
+                closeCurrentQuietly();
+                synchronized (ringLock) {
+                    long lost = Math.min(ringHeadSeq, flushingUntil) - (firstSeq + written);
+                    if (lost > 0) {
+                        dropped += lost;
+                    }
+                }
+                throw e;
+            } finally {
+                synchronized (ringLock) {
+                    flushingUntil = 0;
+                }
+            }
+            writeIndex();
+        }
+    }
+
+    /**
+     * 通し番号 end より前のイベントをバッファから取り除く（書き出し中に溢れて捨てた分は除く）
+     */
+    private void consume(long end) {
+        synchronized (ringLock) {
+            if (end > ringHeadSeq) {
+                int n = (int) Math.min(end - ringHeadSeq, ringSize);
+                ringStart = (ringStart + n) % ringCapacity;
+                ringSize -= n;
+                ringHeadSeq += n;
+            }
+        }
+    }
+
+    private void closeCurrentQuietly() {
+        if (currentChannel != null) {
+            try {
+                currentChannel.close();
+            } catch (IOException ignored) {
+                // 閉じられなくても次は開き直す
+            }
+            currentChannel = null;
+        }
+    }
+
+    /**
+     * 期間と種類で絞り込んでイベントを列挙する（古い順）
+     *
+     * @param typeMask {@link AuditEvent#mask} の論理和
+     * @return 該当したイベント数
+     */
+    public int query(long typeMask, long fromMillis, long toMillis, Visitor visitor) throws IOException {
+        int matched = 0;
+        synchronized (fileLock) {
+            for (Segment segment : segments) {
+                if (segment.records == 0 || (segment.typeMask & typeMask) == 0
+                        || segment.lastTime < fromMillis || segment.firstTime > toMillis) {
+                    continue;
+                }
+                matched += scanSegment(segment, typeMask, fromMillis, toMillis, visitor);
+            }
+            // 書き出しと同じロックの中で読み、バッファからファイルへ移る途中のイベントを重複・欠落させない
+            synchronized (ringLock) {
+                for (int i = 0; i < ringSize; i++) {
+                    int index = (ringStart + i) % ringCapacity;
+                    long time = ringTime[index];
+                    int type = ringType[index];
+                    if (time >= fromMillis && time <= toMillis && (AuditEvent.mask(type) & typeMask) != 0) {
+                        visitor.onEvent(time, type, ringValue[index], ringAux[index]);
+                        matched++;
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        synchronized (fileLock) {
+            if (currentChannel != null) {
+                currentChannel.close();
+                currentChannel = null;
+            }
+        }
+    }
+
+    /** 直近のバックグラウンド書き出しで発生したエラー（なければ null） */
+    public IOException getLastFlushError() {
+        return lastFlushError;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+            lastFlushError = null;
+        } catch (IOException e) {
+            lastFlushError = e;
+            boolean retry;
+            synchronized (ringLock) {
+                flushScheduled = false;
+                // 待ち時間を空けて再試行する
+                retry = delayedExecutor != null && !delayedFlushScheduled;
+                delayedFlushScheduled |= retry;
+            }
+            if (retry) {
+                delayedExecutor.schedule(flushTask, flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private int scanSegment(Segment segment, long typeMask, long from, long to, Visitor visitor) throws IOException {
+        int matched = 0;
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(segment.seq), "r")) {
+            FileChannel channel = file.getChannel();
+            int records = (int) Math.min(segment.records, channel.size() / RECORD_SIZE);
+            int start = segment.monotonic ? lowerBound(channel, records, from) : 0;
+            for (int base = start; base < records; base += QUERY_CHUNK_RECORDS) {
+                int chunk = Math.min(QUERY_CHUNK_RECORDS, records - base);
+                queryBuffer.clear();
+                queryBuffer.limit(chunk * RECORD_SIZE);
+                long position = (long) base * RECORD_SIZE;
+                while (queryBuffer.hasRemaining()) {
+                    if (channel.read(queryBuffer, position + queryBuffer.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = 0; i < chunk; i++) {
+                    int offset = i * RECORD_SIZE;
+                    long time = queryBuffer.getLong(offset);
+                    if (segment.monotonic && time > to) {
+                        return matched;
+                    }
+                    int type = queryBuffer.getShort(offset + 8) & 0xFFFF;
+                    if (time >= from && time <= to && (AuditEvent.mask(type) & typeMask) != 0) {
+                        visitor.onEvent(time, type, queryBuffer.getInt(offset + 12), queryBuffer.getLong(offset + 16));
+                        matched++;
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 時刻が from 以上となる最初のレコード位置（二分探索）
+     */
+    private int lowerBound(FileChannel channel, int records, long from) throws IOException {
+        int low = 0;
+        int high = records;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            queryBuffer.clear();
+            queryBuffer.limit(8);
+            channel.read(queryBuffer, (long) mid * RECORD_SIZE);
+            if (queryBuffer.getLong(0) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Segment currentSegment() throws IOException {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.records < segmentMaxRecords && currentChannel != null) {
+            return last;
+        }
+        if (last != null && last.records < segmentMaxRecords) {
+            currentChannel = openForAppend(last);
+            return last;
+        }
+        if (currentChannel != null) {
+            currentChannel.close();
+        }
+        Segment segment = new Segment(last == null ? 1 : last.seq + 1);
+        segments.add(segment);
+        currentChannel = openForAppend(segment);
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            //noinspection ResultOfMethodCallIgnored
+            segmentFile(oldest.seq).delete();
+        }
+        return segment;
+    }
+
+    private FileChannel openForAppend(Segment segment) throws IOException {
+        FileChannel channel = new RandomAccessFile(segmentFile(segment.seq), "rw").getChannel();
+        long length = (long) segment.records * RECORD_SIZE;
+        channel.truncate(length);
+        channel.position(length);
+        return channel;
+    }
+
+    private File segmentFile(int seq) {
+        return new File(directory, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private void writeIndex() throws IOException {
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeInt(segment.seq);
+                out.writeLong(segment.firstTime);
+                out.writeLong(segment.lastTime);
+                out.writeInt(segment.records);
+                out.writeLong(segment.typeMask);
+                out.writeBoolean(segment.monotonic);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, INDEX_FILE))) {
+            throw new IOException("Cannot replace audit index");
+        }
+    }
+
+    /**
+     * 索引を読み込む。索引がない・壊れている場合や、索引の後に書かれたレコードがある場合は
+     * セグメントを走査して復元する。
+     */
+    private void loadIndex() throws IOException {
+        segments.clear();
+        File indexFile = new File(directory, INDEX_FILE);
+        boolean loaded = false;
+        if (indexFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+                if (in.readInt() == INDEX_MAGIC) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Segment segment = new Segment(in.readInt());
+                        segment.firstTime = in.readLong();
+                        segment.lastTime = in.readLong();
+                        segment.records = in.readInt();
+                        segment.typeMask = in.readLong();
+                        segment.monotonic = in.readBoolean();
+                        segments.add(segment);
+                    }
+                    loaded = true;
+                }
+            } catch (IOException e) {
+                segments.clear();
+            }
+        }
+
+        if (!loaded) {
+            File[] files = directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+            if (files != null) {
+                List<Integer> seqs = new ArrayList<>();
+                for (File file : files) {
+                    String name = file.getName();
+                    try {
+                        seqs.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // 無関係なファイル
+                    }
+                }
+                Collections.sort(seqs);
+                for (int seq : seqs) {
+                    segments.add(new Segment(seq));
+                }
+            }
+        }
+
+        boolean repaired = false;
+        for (Segment segment : segments) {
+            repaired |= reconcileSegment(segment);
+        }
+        if (repaired || !loaded) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * 索引とファイルの内容を一致させる（索引更新前の中断に対応）
+     */
+    private boolean reconcileSegment(Segment segment) throws IOException {
+        File file = segmentFile(segment.seq);
+        long fileRecords = file.isFile() ? file.length() / RECORD_SIZE : 0;
+        if (fileRecords == segment.records && file.length() % RECORD_SIZE == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(fileRecords * RECORD_SIZE);
+            if (fileRecords < segment.records) {
+                // 索引より短い場合は全体を数え直す
+                segment.records = 0;
+                segment.firstTime = Long.MAX_VALUE;
+                segment.lastTime = Long.MIN_VALUE;
+                segment.typeMask = 0;
+                segment.monotonic = true;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            FileChannel channel = raf.getChannel();
+            for (long i = segment.records; i < fileRecords; i++) {
+                record.clear();
+                channel.read(record, i * RECORD_SIZE);
+                segment.add(record.getLong(0), record.getShort(8) & 0xFFFF);
+            }
+        }
+        return true;
+    }
+}
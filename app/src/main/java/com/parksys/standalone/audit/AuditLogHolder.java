@@ -0,0 +1,100 @@
+package com.parksys.standalone.audit;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 監査ログの共有インスタンス
+ * デバイス保護ストレージに置き、ロック解除前のブート時イベントも記録できるようにする。
+ * イベントは件数がたまらなくても最初の追記から {@link #FLUSH_DELAY_MILLIS} 以内に書き出す。
+ */
+public final class AuditLogHolder {
+
+    private static final String TAG = "AuditLog";
+    private static final String DIRECTORY = "audit";
+
+    private static final int RING_CAPACITY = 256;
+    private static final int FLUSH_THRESHOLD = 32;
+    /** 頻度の低いイベントがメモリ上に残る最大の時間 */
+    static final long FLUSH_DELAY_MILLIS = 5_000;
+    private static final int SEGMENT_MAX_RECORDS = 16 * 1024; // 384KB
+    private static final int MAX_SEGMENTS = 16;
+
+    private static volatile AuditLog instance;
+    private static ScheduledExecutorService flushExecutor;
+
+    private AuditLogHolder() {
+    }
+
+    public static AuditLog get(Context context) {
+        AuditLog current = instance;
+        if (current == null) {
+            synchronized (AuditLogHolder.class) {
+                current = instance;
+                if (current == null) {
+                    current = open(context.getApplicationContext());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 未書き出しのイベントをバックグラウンドで書き出す
+     */
+    public static void flushAsync() {
+        flushAsync(null);
+    }
+
+    /**
+     * 未書き出しのイベントをバックグラウンドで書き出し、完了後に onDone を呼ぶ（終了時の BroadcastReceiver など）
+     */
+    public static void flushAsync(Runnable onDone) {
+        AuditLog current = instance;
+        if (current == null) {
+            if (onDone != null) {
+                onDone.run();
+            }
+            return;
+        }
+        flushExecutor().execute(() -> {
+            try {
+                current.flush();
+            } catch (IOException e) {
+                Log.w(TAG, "Audit flush failed: " + e.getMessage());
+            } finally {
+                if (onDone != null) {
+                    onDone.run();
+                }
+            }
+        });
+    }
+
+    private static AuditLog open(Context context) {
+        File directory = new File(context.createDeviceProtectedStorageContext().getFilesDir(), DIRECTORY);
+        try {
+            return new AuditLog(directory, RING_CAPACITY, FLUSH_THRESHOLD,
+                SEGMENT_MAX_RECORDS, MAX_SEGMENTS, flushExecutor(), FLUSH_DELAY_MILLIS);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open audit log in " + directory + " - events will not persist", e);
+            return AuditLog.inMemory(RING_CAPACITY);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService flushExecutor() {
+        if (flushExecutor == null) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "AuditFlush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushExecutor;
+    }
+}
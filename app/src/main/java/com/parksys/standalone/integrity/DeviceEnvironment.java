@@ -0,0 +1,64 @@
+package com.parksys.standalone.integrity;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 実機の {@link IntegrityChecker.Environment}
+ * システムプロパティは android.os.SystemProperties（非公開 API）をリフレクションで参照し、
+ * 参照できない場合は未設定として扱う。
+ */
+public final class DeviceEnvironment implements IntegrityChecker.Environment {
+
+    private static final Method GET_PROPERTY = findGetProperty();
+
+    private final Predicate<String> packageInstalled;
+
+    /**
+     * @param packageInstalled パッケージがインストールされているか
+     */
+    public DeviceEnvironment(Predicate<String> packageInstalled) {
+        this.packageInstalled = packageInstalled;
+    }
+
+    private static Method findGetProperty() {
+        try {
+            return Class.forName("android.os.SystemProperties").getMethod("get", String.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getProperty(String key) {
+        if (GET_PROPERTY == null) {
+            return "";
+        }
+        try {
+            Object value = GET_PROPERTY.invoke(null, key);
+            return value != null ? value.toString() : "";
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return "";
+        }
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return new File(path).exists();
+    }
+
+    @Override
+    public List<String> readLines(String path) throws IOException {
+        return Files.readAllLines(new File(path).toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean isPackageInstalled(String packageName) {
+        return packageInstalled.test(packageName);
+    }
+}
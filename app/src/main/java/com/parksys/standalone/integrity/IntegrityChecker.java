@@ -0,0 +1,305 @@
+package com.parksys.standalone.integrity;
+
+import com.parksys.standalone.state.StateStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 端末の完全性の検査（root 化・改ざんの兆候）
+ * 互いに独立したファイル・プロパティの検査を小さなスレッドプールで並行に実行する。
+ * 結果はブートセッションごとに {@link StateStore} のスロットへ保存し、同じセッションではプロセスが再起動しても再検査しない。
+ * 再起動（セッションの変化）と {@link #invalidate()}（パッケージの変更）でのみ破棄する。
+ *
+ * <pre>
+ * sessionKey     i64  ブートセッションの識別子
+ * flags          i32  検出した項目
+ * inconclusive   i32  検査できなかった項目
+ * checkedAt      i64
+ * durationNanos  i64
+ * </pre>
+ */
+public final class IntegrityChecker {
+
+    /**
+     * 検査対象の端末（Android 以外ではテスト用の実装に差し替える）
+     */
+    public interface Environment {
+        /** システムプロパティ（未設定・取得できない場合は空文字列） */
+        String getProperty(String key);
+
+        boolean exists(String path);
+
+        /** ファイルの各行（/proc/mounts など） */
+        List<String> readLines(String path) throws IOException;
+
+        boolean isPackageInstalled(String packageName);
+    }
+
+    private interface Probe {
+        boolean detect() throws IOException;
+    }
+
+    static final String[] SU_PATHS = {
+        "/system/bin/su",
+        "/system/xbin/su",
+        "/system/sbin/su",
+        "/sbin/su",
+        "/vendor/bin/su",
+        "/su/bin/su",
+        "/data/local/su",
+        "/data/local/bin/su",
+        "/data/local/xbin/su",
+        "/system/app/Superuser.apk",
+    };
+
+    static final String[] ROOT_PACKAGES = {
+        "com.topjohnwu.magisk",
+        "eu.chainfire.supersu",
+        "com.koushikdutta.superuser",
+        "com.noshufou.android.su",
+        "me.weishu.kernelsu",
+    };
+
+    static final String[] SYSTEM_MOUNT_POINTS = {"/", "/system", "/vendor", "/product"};
+
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_SIZE = 16;
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 8 + 8;
+
+    private final StateStore store;
+    private final int slot;
+    private final Environment environment;
+    private final Executor executor;
+    private final LongSupplier sessionKey;
+    private final int[] probeFlags;
+    private final Probe[] probes;
+
+    private final byte[] record = new byte[StateStore.MAX_PAYLOAD];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+
+    private volatile IntegrityReport report;
+    // 以下は this で保護
+    private CompletableFuture<IntegrityReport> pending;
+    private int generation;
+
+    /**
+     * @param executor   検査の実行先（{@link #newProbeExecutor()}）
+     * @param sessionKey 現在のブートセッションの識別子
+     */
+    public IntegrityChecker(StateStore store, int slot, Environment environment, Executor executor,
+                            LongSupplier sessionKey) {
+        this.store = store;
+        this.slot = slot;
+        this.environment = environment;
+        this.executor = executor;
+        this.sessionKey = sessionKey;
+        this.probeFlags = new int[] {
+            IntegrityReport.FLAG_SU_BINARY,
+            IntegrityReport.FLAG_TEST_KEYS,
+            IntegrityReport.FLAG_DEBUGGABLE,
+            IntegrityReport.FLAG_BOOT_UNVERIFIED,
+            IntegrityReport.FLAG_WRITABLE_SYSTEM,
+            IntegrityReport.FLAG_ROOT_APP,
+        };
+        this.probes = new Probe[] {
+            this::hasSuBinary,
+            this::isTestKeysBuild,
+            this::isDebuggable,
+            this::isBootUnverified,
+            this::hasWritableSystem,
+            this::hasRootApp,
+        };
+        load();
+    }
+
+    /**
+     * 検査用のスレッドプール（スレッド数・待ち行列とも上限あり、待ち行列が溢れた場合は呼び出し元で実行）
+     * 検査はブートごとに1回程度のため、使用していないスレッドは終了させる。
+     */
+    public static ThreadPoolExecutor newProbeExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                Thread thread = new Thread(r, "Integrity-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private synchronized void load() {
+        if (store.read(slot, record) < RECORD_SIZE) {
+            return;
+        }
+        recordBuffer.clear();
+        long session = recordBuffer.getLong();
+        int flags = recordBuffer.getInt();
+        int inconclusive = recordBuffer.getInt();
+        long checkedAt = recordBuffer.getLong();
+        long duration = recordBuffer.getLong();
+        if (session == sessionKey.getAsLong()) {
+            report = new IntegrityReport(flags, inconclusive, session, checkedAt, duration);
+        }
+    }
+
+    /**
+     * 現在のセッションで有効な検査結果（未検査・破棄後は null）
+     * ロックもファイルアクセスも行わないため、定期チェックごとに呼んでよい。
+     */
+    public IntegrityReport getReport() {
+        return report;
+    }
+
+    /**
+     * 有効な結果があればそれを、なければ全項目の検査を開始して完了時に結果を返す
+     * 実行中の検査があればそれを共有する。呼び出し元はブロックしない。
+     */
+    public synchronized CompletableFuture<IntegrityReport> check() {
+        IntegrityReport current = report;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        if (pending != null) {
+            return pending;
+        }
+        int startGeneration = generation;
+        long session = sessionKey.getAsLong();
+        long start = System.nanoTime();
+        CompletableFuture<IntegrityReport> result = new CompletableFuture<>();
+        pending = result;
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(probes.length);
+        for (Probe probe : probes) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return probe.detect();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            int flags = 0;
+            int inconclusive = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    if (futures.get(i).join()) {
+                        flags |= probeFlags[i];
+                    }
+                } catch (RuntimeException e) {
+                    // SecurityException・読み取りの失敗など
+                    inconclusive |= probeFlags[i];
+                }
+            }
+            IntegrityReport checked = new IntegrityReport(flags, inconclusive, session,
+                System.currentTimeMillis(), System.nanoTime() - start);
+            finish(result, startGeneration, checked);
+            result.complete(checked);
+        });
+        return result;
+    }
+
+    /**
+     * 結果を破棄する（パッケージの変更時など）。実行中の検査の結果は保存されない。
+     */
+    public synchronized void invalidate() {
+        generation++;
+        pending = null;
+        if (report != null) {
+            report = null;
+            store.write(slot, record, 0);
+        }
+    }
+
+    private synchronized void finish(CompletableFuture<IntegrityReport> future, int startGeneration,
+                                     IntegrityReport checked) {
+        if (pending == future) {
+            pending = null;
+        }
+        if (startGeneration != generation) {
+            // 検査中に破棄された（次の check() で再検査する）
+            return;
+        }
+        report = checked;
+        recordBuffer.clear();
+        recordBuffer.putLong(checked.sessionKey);
+        recordBuffer.putInt(checked.flags);
+        recordBuffer.putInt(checked.inconclusive);
+        recordBuffer.putLong(checked.checkedAtMillis);
+        recordBuffer.putLong(checked.durationNanos);
+        store.write(slot, record, recordBuffer.position());
+    }
+
+    private boolean hasSuBinary() {
+        for (String path : SU_PATHS) {
+            if (environment.exists(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTestKeysBuild() {
+        return environment.getProperty("ro.build.tags").contains("test-keys");
+    }
+
+    private boolean isDebuggable() {
+        return "1".equals(environment.getProperty("ro.debuggable"))
+            || "0".equals(environment.getProperty("ro.secure"));
+    }
+
+    private boolean isBootUnverified() {
+        String state = environment.getProperty("ro.boot.verifiedbootstate");
+        return (!state.isEmpty() && !"green".equals(state))
+            || "0".equals(environment.getProperty("ro.boot.flash.locked"))
+            || "unlocked".equals(environment.getProperty("ro.boot.vbmeta.device_state"));
+    }
+
+    /**
+     * /proc/mounts の各行: デバイス マウント先 種類 オプション ...
+     */
+    private boolean hasWritableSystem() throws IOException {
+        for (String line : environment.readLines("/proc/mounts")) {
+            String[] fields = line.split(" ");
+            if (fields.length < 4 || !isSystemMountPoint(fields[1])) {
+                continue;
+            }
+            for (String option : fields[3].split(",")) {
+                if ("rw".equals(option)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSystemMountPoint(String mountPoint) {
+        for (String candidate : SYSTEM_MOUNT_POINTS) {
+            if (candidate.equals(mountPoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasRootApp() {
+        for (String packageName : ROOT_PACKAGES) {
+            if (environment.isPackageInstalled(packageName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package com.parksys.standalone.integrity;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import com.parksys.standalone.startup.BootCoordinator;
+import com.parksys.standalone.startup.BootCoordinatorHolder;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+
+/**
+ * 完全性の検査の共有インスタンス
+ * 結果はアプリ状態と同じ状態ファイルの専用スロットに、ブートセッションと対にして保存する。
+ */
+public final class IntegrityCheckerHolder {
+
+    private static volatile IntegrityChecker instance;
+
+    private IntegrityCheckerHolder() {
+    }
+
+    public static IntegrityChecker get(Context context) {
+        IntegrityChecker current = instance;
+        if (current == null) {
+            synchronized (IntegrityCheckerHolder.class) {
+                current = instance;
+                if (current == null) {
+                    Context appContext = context.getApplicationContext();
+                    AppState state = AppStateHolder.get(appContext);
+                    BootCoordinator boot = BootCoordinatorHolder.get(appContext);
+                    PackageManager packageManager = appContext.getPackageManager();
+                    current = new IntegrityChecker(state.getStore(), AppState.SLOT_INTEGRITY,
+                        new DeviceEnvironment(packageName -> isInstalled(packageManager, packageName)),
+                        IntegrityChecker.newProbeExecutor(), boot::getSessionKey);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static boolean isInstalled(PackageManager packageManager, String packageName) {
+        try {
+            packageManager.getApplicationInfo(packageName, 0);
+            return true;
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+    }
+}
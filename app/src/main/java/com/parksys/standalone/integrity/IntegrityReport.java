@@ -0,0 +1,71 @@
+package com.parksys.standalone.integrity;
+
+/**
+ * 端末の完全性の検査結果（不変）
+ * 検出した項目と、検査できなかった項目をそれぞれビットで保持する。
+ */
+public final class IntegrityReport {
+
+    /** su バイナリが存在する */
+    public static final int FLAG_SU_BINARY = 1;
+    /** テスト鍵で署名されたビルド（ro.build.tags に test-keys） */
+    public static final int FLAG_TEST_KEYS = 1 << 1;
+    /** デバッグ可能なビルド（ro.debuggable=1 または ro.secure=0） */
+    public static final int FLAG_DEBUGGABLE = 1 << 2;
+    /** ブートローダーのロック解除・検証済みブートが green 以外 */
+    public static final int FLAG_BOOT_UNVERIFIED = 1 << 3;
+    /** システム領域が書き込み可能でマウントされている */
+    public static final int FLAG_WRITABLE_SYSTEM = 1 << 4;
+    /** root 管理アプリがインストールされている */
+    public static final int FLAG_ROOT_APP = 1 << 5;
+
+    private static final String[] NAMES = {
+        "su", "test-keys", "debuggable", "boot-unverified", "writable-system", "root-app",
+    };
+
+    /** 検出した項目（FLAG_*） */
+    public final int flags;
+    /** 例外などで検査できなかった項目（FLAG_*） */
+    public final int inconclusive;
+    /** 検査したブートセッション */
+    public final long sessionKey;
+    public final long checkedAtMillis;
+    /** 検査の所要時間（全項目の完了まで） */
+    public final long durationNanos;
+
+    public IntegrityReport(int flags, int inconclusive, long sessionKey, long checkedAtMillis, long durationNanos) {
+        this.flags = flags;
+        this.inconclusive = inconclusive;
+        this.sessionKey = sessionKey;
+        this.checkedAtMillis = checkedAtMillis;
+        this.durationNanos = durationNanos;
+    }
+
+    /** 改ざん・root 化の兆候があるか */
+    public boolean isCompromised() {
+        return flags != 0;
+    }
+
+    /**
+     * 項目名のカンマ区切り（該当なしは空文字列）
+     */
+    public static String describe(int flags) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++) {
+            if ((flags & (1 << i)) != 0) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(NAMES[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "IntegrityReport{" + (flags == 0 ? "ok" : describe(flags))
+            + (inconclusive != 0 ? " inconclusive=" + describe(inconclusive) : "")
+            + " took=" + durationNanos / 1000 + "us}";
+    }
+}
@@ -0,0 +1,125 @@
+package com.parksys.standalone.inventory;
+
+import com.parksys.standalone.policy.PackageIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * インストール済みアプリのうち、ポリシーで禁止されたものの一覧
+ * 全パッケージの走査は初回とポリシーのリストが変わった時のみ行い、
+ * 以降はパッケージの追加・削除の通知ごとに該当の1件だけを判定する。
+ * 更新はポリシー実行スレッドからのみ行うこと（参照は任意のスレッドから可）。
+ */
+public final class AppInventory {
+
+    // 走査に使用したリスト（未走査の場合は null）
+    private volatile PackageIndex index;
+    private final HashSet<String> disallowed = new HashSet<>();
+    private volatile List<String> snapshot = Collections.emptyList();
+    private volatile long fullScans;
+    private volatile long events;
+
+    /**
+     * 指定したリストでの全走査が必要か（未走査・リストの変更）
+     */
+    public boolean needsScan(PackageIndex index) {
+        return this.index != index;
+    }
+
+    /**
+     * インストール済みの全パッケージを判定し直す
+     *
+     * @return 禁止アプリの一覧が変わった場合 true
+     */
+    public boolean rescan(PackageIndex index, Iterable<String> installed) {
+        this.index = index;
+        fullScans++;
+        HashSet<String> found = new HashSet<>();
+        if (!index.isEmpty()) {
+            for (String packageName : installed) {
+                if (index.isDisallowed(packageName)) {
+                    found.add(packageName);
+                }
+            }
+        }
+        if (found.equals(disallowed)) {
+            return false;
+        }
+        disallowed.clear();
+        disallowed.addAll(found);
+        publish();
+        return true;
+    }
+
+    /**
+     * 禁止されたパッケージか（未走査の場合は false）
+     */
+    public boolean isDisallowed(String packageName) {
+        return index != null && index.isDisallowed(packageName);
+    }
+
+    /**
+     * パッケージの追加（更新を含む）を反映する
+     *
+     * @return 禁止アプリが増えた場合 true
+     */
+    public boolean onPackageAdded(String packageName) {
+        events++;
+        if (!isDisallowed(packageName) || !disallowed.add(packageName)) {
+            return false;
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * パッケージの削除を反映する
+     *
+     * @return 禁止アプリが減った場合 true
+     */
+    public boolean onPackageRemoved(String packageName) {
+        events++;
+        if (!disallowed.remove(packageName)) {
+            return false;
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * インストールされている禁止アプリ（パッケージ名順、不変）
+     */
+    public List<String> getDisallowed() {
+        return snapshot;
+    }
+
+    public int getDisallowedCount() {
+        return snapshot.size();
+    }
+
+    public long getFullScans() {
+        return fullScans;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    private void publish() {
+        List<String> sorted = new ArrayList<>(disallowed);
+        Collections.sort(sorted);
+        snapshot = Collections.unmodifiableList(sorted);
+    }
+
+    @Override
+    public String toString() {
+        PackageIndex current = index;
+        return (current != null ? current.toString() : "unscanned")
+            + " scans=" + fullScans
+            + " events=" + events
+            + " disallowed=" + snapshot;
+    }
+}
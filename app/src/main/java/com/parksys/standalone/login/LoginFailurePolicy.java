@@ -0,0 +1,113 @@
+package com.parksys.standalone.login;
+
+/**
+ * ログイン失敗のしきい値設定
+ * 時間枠内の失敗回数がしきい値に達したときに実行するアクションを定める。
+ */
+public final class LoginFailurePolicy {
+
+    final long windowMillis;
+    final int[] thresholdCounts;
+    final int[] thresholdActions;
+    final long lockoutBaseMillis;
+    final long lockoutMaxMillis;
+
+    private LoginFailurePolicy(Builder builder) {
+        this.windowMillis = builder.windowMillis;
+        this.thresholdCounts = new int[builder.thresholdSize];
+        this.thresholdActions = new int[builder.thresholdSize];
+        System.arraycopy(builder.counts, 0, thresholdCounts, 0, builder.thresholdSize);
+        System.arraycopy(builder.actions, 0, thresholdActions, 0, builder.thresholdSize);
+        this.lockoutBaseMillis = builder.lockoutBaseMillis;
+        this.lockoutMaxMillis = builder.lockoutMaxMillis;
+    }
+
+    /**
+     * 既定の設定（15分間に3回で記録、5回で即時ロック、上限回数でロックアウト）
+     *
+     * @param maxFailedAttempts ポリシーの連続失敗上限（0 以下の場合は 10）
+     */
+    public static LoginFailurePolicy defaults(int maxFailedAttempts) {
+        int max = maxFailedAttempts > 0 ? Math.min(maxFailedAttempts, LoginFailureTracker.CAPACITY) : 10;
+        Builder builder = builder()
+            .window(15 * 60 * 1000)
+            .lockout(60 * 1000, 60 * 60 * 1000);
+        if (max > 3) {
+            builder.threshold(3, LoginFailureTracker.ACTION_AUDIT);
+        }
+        if (max > 5) {
+            builder.threshold(5, LoginFailureTracker.ACTION_AUDIT | LoginFailureTracker.ACTION_LOCK_NOW);
+        }
+        return builder
+            .threshold(max, LoginFailureTracker.ACTION_AUDIT | LoginFailureTracker.ACTION_LOCKOUT)
+            .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * ロックアウト段階に応じた時間（段階ごとに倍、上限あり）
+     */
+    public long getLockoutMillis(int level) {
+        long millis = lockoutBaseMillis << Math.min(level, 20);
+        return Math.min(millis, lockoutMaxMillis);
+    }
+
+    public static final class Builder {
+        private long windowMillis = 15 * 60 * 1000;
+        private final int[] counts = new int[LoginFailureTracker.CAPACITY];
+        private final int[] actions = new int[LoginFailureTracker.CAPACITY];
+        private int thresholdSize;
+        private long lockoutBaseMillis = 60 * 1000;
+        private long lockoutMaxMillis = 60 * 60 * 1000;
+
+        private Builder() {
+        }
+
+        public Builder window(long millis) {
+            if (millis <= 0) {
+                throw new IllegalArgumentException("window must be positive");
+            }
+            this.windowMillis = millis;
+            return this;
+        }
+
+        /**
+         * 時間枠内の失敗回数が count に達したときのアクション（ACTION_* の組み合わせ）
+         */
+        public Builder threshold(int count, int actionMask) {
+            if (count <= 0 || count > LoginFailureTracker.CAPACITY) {
+                throw new IllegalArgumentException("threshold must be 1.." + LoginFailureTracker.CAPACITY + ": " + count);
+            }
+            for (int i = 0; i < thresholdSize; i++) {
+                if (counts[i] == count) {
+                    actions[i] |= actionMask;
+                    return this;
+                }
+            }
+            counts[thresholdSize] = count;
+            actions[thresholdSize] = actionMask;
+            thresholdSize++;
+            return this;
+        }
+
+        public Builder lockout(long baseMillis, long maxMillis) {
+            if (baseMillis <= 0 || maxMillis < baseMillis) {
+                throw new IllegalArgumentException("Invalid lockout bounds");
+            }
+            this.lockoutBaseMillis = baseMillis;
+            this.lockoutMaxMillis = maxMillis;
+            return this;
+        }
+
+        public LoginFailurePolicy build() {
+            return new LoginFailurePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.parksys.standalone.login;
+
+import com.parksys.standalone.state.StateStore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ログイン失敗の時間枠カウンタ
+ * 直近の失敗時刻を固定長のリングに保持し、{@link StateStore} のスロットに保存してプロセス終了後も引き継ぐ。
+ * 記録はオブジェクトを生成せず、しきい値に達した時点で実行すべきアクションを返す。
+ * ロックアウトの開始・解除以外の記録はディスクへの書き出しを遅らせる（プロセスの終了では失われない）。
+ *
+ * <pre>
+ * size          u8
+ * lockoutLevel  u8
+ * lockoutUntil  i64
+ * timestamps    size × i64  古い順
+ * </pre>
+ */
+public final class LoginFailureTracker {
+
+    /** 監査ログに記録する */
+    public static final int ACTION_AUDIT = 1;
+    /** 画面を即時ロックする */
+    public static final int ACTION_LOCK_NOW = 1 << 1;
+    /** 段階的なロックアウトを開始する（期間中の失敗はすべて即時ロック） */
+    public static final int ACTION_LOCKOUT = 1 << 2;
+
+    /** 保持する失敗時刻の数（しきい値の上限） */
+    public static final int CAPACITY = 16;
+    private static final int HEADER_SIZE = 1 + 1 + 8;
+
+    private final StateStore store;
+    private final int slot;
+    private LoginFailurePolicy policy;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private int head; // 最も古い失敗の位置
+    private int size;
+    private int lockoutLevel;
+    private long lockoutUntil;
+    private int lastRecordedCount;
+
+    private final byte[] record = new byte[StateStore.MAX_PAYLOAD];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+
+    public LoginFailureTracker(StateStore store, int slot, LoginFailurePolicy policy) {
+        this.store = store;
+        this.slot = slot;
+        this.policy = policy;
+        load();
+    }
+
+    private synchronized void load() {
+        int length = store.read(slot, record);
+        if (length < HEADER_SIZE) {
+            return;
+        }
+        recordBuffer.clear();
+        int storedSize = recordBuffer.get() & 0xFF;
+        int level = recordBuffer.get() & 0xFF;
+        long until = recordBuffer.getLong();
+        if (storedSize > CAPACITY || HEADER_SIZE + storedSize * 8 > length) {
+            return;
+        }
+        for (int i = 0; i < storedSize; i++) {
+            timestamps[i] = recordBuffer.getLong();
+        }
+        head = 0;
+        size = storedSize;
+        lockoutLevel = level;
+        lockoutUntil = until;
+    }
+
+    /**
+     * しきい値の設定を置き換える（ポリシーの変更時。記録済みの失敗・ロックアウトは引き継ぐ）
+     */
+    public synchronized void setPolicy(LoginFailurePolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 失敗を記録する
+     *
+     * @return 実行すべきアクション（ACTION_* の組み合わせ、なければ 0）
+     */
+    public synchronized int recordFailure(long nowMillis) {
+        evictExpired(nowMillis);
+        if (size == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+            size--;
+        }
+        timestamps[(head + size) % CAPACITY] = nowMillis;
+        size++;
+        lastRecordedCount = size;
+
+        int actions = 0;
+        if (isLockedOut(nowMillis)) {
+            actions |= ACTION_LOCK_NOW;
+        }
+        int[] counts = policy.thresholdCounts;
+        for (int i = 0; i < counts.length; i++) {
+            // しきい値を超えた瞬間のみ発火する
+            if (counts[i] == size) {
+                actions |= policy.thresholdActions[i];
+            }
+        }
+        if ((actions & ACTION_LOCKOUT) != 0) {
+            // ロックアウトごとに時間枠を仕切り直し、再び上限に達したら次の段階に進む
+            lockoutUntil = nowMillis + policy.getLockoutMillis(lockoutLevel);
+            lockoutLevel = Math.min(lockoutLevel + 1, 0xFF);
+            head = 0;
+            size = 0;
+        }
+        persist((actions & ACTION_LOCKOUT) != 0);
+        return actions;
+    }
+
+    /**
+     * 認証成功（またはパスワード変更）で記録を消去する
+     */
+    public synchronized void reset() {
+        if (size == 0 && lockoutLevel == 0 && lockoutUntil == 0) {
+            return;
+        }
+        head = 0;
+        size = 0;
+        lockoutLevel = 0;
+        lockoutUntil = 0;
+        persist(true);
+    }
+
+    /** 時間枠内の失敗回数 */
+    public synchronized int getFailureCount(long nowMillis) {
+        evictExpired(nowMillis);
+        return size;
+    }
+
+    /** 直前の {@link #recordFailure} 時点の時間枠内の失敗回数（ロックアウトによる仕切り直し前） */
+    public synchronized int getLastRecordedCount() {
+        return lastRecordedCount;
+    }
+
+    public synchronized int getLockoutLevel() {
+        return lockoutLevel;
+    }
+
+    public synchronized long getLockoutUntil() {
+        return lockoutUntil;
+    }
+
+    /** 直前に開始したロックアウトの時間 */
+    public synchronized long getLastLockoutMillis() {
+        return lockoutLevel == 0 ? 0 : policy.getLockoutMillis(lockoutLevel - 1);
+    }
+
+    public synchronized boolean isLockedOut(long nowMillis) {
+        // 時計が戻された場合に備え、残り時間が上限を超える値は無効とする
+        long remaining = lockoutUntil - nowMillis;
+        return remaining > 0 && remaining <= policy.lockoutMaxMillis;
+    }
+
+    private void evictExpired(long nowMillis) {
+        long cutoff = nowMillis - policy.windowMillis;
+        while (size > 0 && timestamps[head] <= cutoff) {
+            head = (head + 1) % CAPACITY;
+            size--;
+        }
+    }
+
+    /**
+     * @param durable ディスクへの書き出しまで行うか
+     */
+    private void persist(boolean durable) {
+        recordBuffer.clear();
+        recordBuffer.put((byte) size);
+        recordBuffer.put((byte) lockoutLevel);
+        recordBuffer.putLong(lockoutUntil);
+        for (int i = 0; i < size; i++) {
+            recordBuffer.putLong(timestamps[(head + i) % CAPACITY]);
+        }
+        if (durable) {
+            store.write(slot, record, recordBuffer.position());
+        } else {
+            store.writeDeferred(slot, record, recordBuffer.position());
+        }
+    }
+}
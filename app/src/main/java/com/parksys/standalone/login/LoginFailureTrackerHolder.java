@@ -0,0 +1,46 @@
+package com.parksys.standalone.login;
+
+import android.content.Context;
+
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+
+/**
+ * ログイン失敗カウンタの共有インスタンス
+ * アプリ状態と同じ状態ファイルの専用スロットに保存する。
+ * 呼び出しごとに現在のポリシーの連続失敗上限を渡し、変わっていればしきい値を置き換える。
+ */
+public final class LoginFailureTrackerHolder {
+
+    private static volatile LoginFailureTracker instance;
+    // instance のしきい値の元にした上限（クラスのロックで更新する）
+    private static volatile int appliedMaxFailedAttempts;
+
+    private LoginFailureTrackerHolder() {
+    }
+
+    public static LoginFailureTracker get(Context context, int maxFailedAttempts) {
+        LoginFailureTracker current = instance;
+        if (current == null) {
+            synchronized (LoginFailureTrackerHolder.class) {
+                current = instance;
+                if (current == null) {
+                    AppState state = AppStateHolder.get(context);
+                    current = new LoginFailureTracker(state.getStore(), AppState.SLOT_LOGIN_FAILURES,
+                        LoginFailurePolicy.defaults(maxFailedAttempts));
+                    appliedMaxFailedAttempts = maxFailedAttempts;
+                    instance = current;
+                }
+            }
+        }
+        if (appliedMaxFailedAttempts != maxFailedAttempts) {
+            synchronized (LoginFailureTrackerHolder.class) {
+                if (appliedMaxFailedAttempts != maxFailedAttempts) {
+                    current.setPolicy(LoginFailurePolicy.defaults(maxFailedAttempts));
+                    appliedMaxFailedAttempts = maxFailedAttempts;
+                }
+            }
+        }
+        return current;
+    }
+}
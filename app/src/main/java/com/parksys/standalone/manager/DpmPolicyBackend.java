@@ -0,0 +1,80 @@
+package com.parksys.standalone.manager;
+
+import android.app.admin.DevicePolicyManager;
+import android.content.ComponentName;
+
+import com.parksys.standalone.policy.PolicyBackend;
+
+/**
+ * DevicePolicyManager によるポリシー操作
+ */
+final class DpmPolicyBackend implements PolicyBackend {
+
+    private final DevicePolicyManager devicePolicyManager;
+    private final ComponentName adminComponent;
+
+    DpmPolicyBackend(DevicePolicyManager devicePolicyManager, ComponentName adminComponent) {
+        this.devicePolicyManager = devicePolicyManager;
+        this.adminComponent = adminComponent;
+    }
+
+    @Override
+    public boolean isAdminActive() {
+        return devicePolicyManager != null && devicePolicyManager.isAdminActive(adminComponent);
+    }
+
+    @Override
+    public boolean getCameraDisabled() {
+        return devicePolicyManager.getCameraDisabled(adminComponent);
+    }
+
+    @Override
+    public void setCameraDisabled(boolean disabled) {
+        devicePolicyManager.setCameraDisabled(adminComponent, disabled);
+    }
+
+    @Override
+    public int getPasswordQuality() {
+        return devicePolicyManager.getPasswordQuality(adminComponent);
+    }
+
+    @Override
+    public void setPasswordQuality(int quality) {
+        devicePolicyManager.setPasswordQuality(adminComponent, quality);
+    }
+
+    @Override
+    public int getPasswordMinimumLength() {
+        return devicePolicyManager.getPasswordMinimumLength(adminComponent);
+    }
+
+    @Override
+    public void setPasswordMinimumLength(int length) {
+        devicePolicyManager.setPasswordMinimumLength(adminComponent, length);
+    }
+
+    @Override
+    public boolean isActivePasswordSufficient() {
+        return devicePolicyManager.isActivePasswordSufficient();
+    }
+
+    @Override
+    public int getCurrentFailedPasswordAttempts() {
+        return devicePolicyManager.getCurrentFailedPasswordAttempts();
+    }
+
+    @Override
+    public long getMaximumTimeToLock() {
+        return devicePolicyManager.getMaximumTimeToLock(adminComponent);
+    }
+
+    @Override
+    public void setMaximumTimeToLock(long millis) {
+        devicePolicyManager.setMaximumTimeToLock(adminComponent, millis);
+    }
+
+    @Override
+    public int getStorageEncryptionStatus() {
+        return devicePolicyManager.getStorageEncryptionStatus();
+    }
+}
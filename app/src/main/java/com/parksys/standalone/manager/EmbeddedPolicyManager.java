@@ -3,115 +3,493 @@ package com.parksys.standalone.manager;
 import android.app.admin.DevicePolicyManager;
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
 import android.util.Log;
 
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLog;
+import com.parksys.standalone.audit.AuditLogHolder;
+import com.parksys.standalone.integrity.IntegrityReport;
+import com.parksys.standalone.inventory.AppInventory;
+import com.parksys.standalone.metrics.Metrics;
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PackageIndex;
+import com.parksys.standalone.policy.PolicyBundle;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyReconciler;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.policy.ReconcileStats;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.policy.RuleEngine;
 import com.parksys.standalone.receiver.StandaloneDeviceAdminReceiver;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
 
 /**
  * 内蔵ポリシーマネージャー
- * QRコード不要・アプリ内蔵のセキュリティポリシーを管理・適用
+ * QRコード不要・アプリに同梱したポリシー文書を管理・適用
+ * 状態は {@link PolicyState} のスナップショットとして公開し、読み取りはロックを取らない。
  */
 public class EmbeddedPolicyManager {
 
     private static final String TAG = "EmbeddedPolicyMgr";
-    private static final String PREFS_NAME = "EmbeddedPolicyPrefs";
-    private static final String KEY_POLICY_APPLIED = "policy_applied";
-
-    // 内蔵ポリシー設定
-    private static final boolean CAMERA_ENABLED = false;
-    private static final boolean MICROPHONE_ENABLED = false;
-    private static final boolean SCREEN_CAPTURE_DISABLED = true;
-    private static final String BANNER_TEXT = "この端末はParksysセキュリティポリシーにより保護されています";
-    private static final String POLICY_VERSION = "1.0.0";
 
-    private static EmbeddedPolicyManager instance;
+    private static volatile EmbeddedPolicyManager instance;
     private final Context context;
-    private final DevicePolicyManager devicePolicyManager;
-    private final ComponentName adminComponent;
-    private final SharedPreferences prefs;
+    private final PolicyBackend backend;
+    private final PolicyReconciler reconciler;
+    private final AppState appState;
+    private final AuditLog auditLog;
+    private final PolicyExecutor executor;
+    private final AppInventory appInventory = new AppInventory();
+    private final PolicyStatePublisher state = new PolicyStatePublisher();
 
     private EmbeddedPolicyManager(Context context) {
         this.context = context.getApplicationContext();
-        this.devicePolicyManager = (DevicePolicyManager) context.getSystemService(Context.DEVICE_POLICY_SERVICE);
-        this.adminComponent = new ComponentName(context, StandaloneDeviceAdminReceiver.class);
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        DevicePolicyManager devicePolicyManager =
+            (DevicePolicyManager) context.getSystemService(Context.DEVICE_POLICY_SERVICE);
+        ComponentName adminComponent = new ComponentName(context, StandaloneDeviceAdminReceiver.class);
+        this.backend = new DpmPolicyBackend(devicePolicyManager, adminComponent);
+        this.reconciler = new PolicyReconciler(backend);
+        this.appState = AppStateHolder.get(context);
+        this.auditLog = AuditLogHolder.get(context);
+        this.executor = new PolicyExecutor(this);
+    }
+
+    public static EmbeddedPolicyManager getInstance(Context context) {
+        EmbeddedPolicyManager current = instance;
+        if (current == null) {
+            synchronized (EmbeddedPolicyManager.class) {
+                current = instance;
+                if (current == null) {
+                    current = new EmbeddedPolicyManager(context);
+                    instance = current;
+                }
+            }
+        }
+        return current;
     }
 
-    public static synchronized EmbeddedPolicyManager getInstance(Context context) {
-        if (instance == null) {
-            instance = new EmbeddedPolicyManager(context);
+    /**
+     * 現在のポリシーと適用状況（初回アクセス時にポリシー文書を一度だけ読み込み、以降はロックを取らない）
+     */
+    public PolicyState getState() {
+        PolicyState current = state.get();
+        if (current == null) {
+            synchronized (this) {
+                current = state.get();
+                if (current == null) {
+                    PolicySchedule schedule = PolicySchedule.from(PolicyDocumentLoader.load(context));
+                    int active = schedule.activeAt(System.currentTimeMillis(), TimeZone.getDefault());
+                    current = PolicyState.initial(schedule, active, backend.isAdminActive(),
+                        appState.isPolicyApplied(), appState.getAppliedPolicyVersion(), appState.getPolicyAppliedAt());
+                    state.initialize(current);
+                }
+            }
         }
-        return instance;
+        return current;
+    }
+
+    /**
+     * 同梱ポリシー文書（同期したポリシーがあればそちら。時間帯のルールは現在の状態に置き換え済み）
+     */
+    public PolicyDocument getPolicyDocument() {
+        return getState().document;
+    }
+
+    /**
+     * インストールした元のポリシー文書（時間帯のルールを置き換える前。同期の差分の基準に使う）
+     */
+    public PolicyDocument getSourceDocument() {
+        return getState().schedule.getSource();
+    }
+
+    public void addStateListener(PolicyState.Listener listener) {
+        state.addListener(listener);
+    }
+
+    public void removeStateListener(PolicyState.Listener listener) {
+        state.removeListener(listener);
     }
 
-    public void applyEmbeddedPolicy() {
-        Log.i(TAG, "Applying embedded policy v" + POLICY_VERSION);
+    /**
+     * デバイス管理者の有効・無効の通知を反映する（binder 呼び出しなし）
+     */
+    public void onAdminStateChanged(boolean active) {
+        update(current -> current.withAdminActive(active));
+    }
+
+    /**
+     * スナップショットを差し替えて公開し、内容が変わった場合はリスナーに通知する
+     */
+    private PolicyState update(UnaryOperator<PolicyState> change) {
+        getState();
+        return state.update(change);
+    }
+
+    /**
+     * 適用・確認の結果を公開する（ポリシー実行スレッド）
+     */
+    private void publishCheck(boolean adminActive, int drifted) {
+        boolean applied = appState.isPolicyApplied();
+        String appliedVersion = appState.getAppliedPolicyVersion();
+        long appliedAt = appState.getPolicyAppliedAt();
+        int noncompliant = reconciler.getEngine().getNoncompliantCount();
+        long now = System.currentTimeMillis();
+        update(current -> current.withCheck(adminActive, applied, appliedVersion, appliedAt,
+            drifted, noncompliant, now));
+    }
 
-        if (!isDeviceAdminActive()) {
+    /**
+     * 管理サーバーから取得したポリシーの署名を検証して保存し、以降の適用に使用する
+     * 検証結果は記録されるため、次回以降の起動時には署名の検証を省略できる。
+     *
+     * @param encoded   文書のバイナリ形式
+     * @param signature 署名ヘッダーの値（{@link PolicyBundle#signatureHeader} の形式）
+     * @throws com.parksys.standalone.policy.PolicySignatureException 署名を検証できない場合（保存しない）
+     */
+    public void installSyncedPolicy(byte[] encoded, String signature, String etag, boolean delta)
+            throws IOException {
+        byte[] bundle;
+        PolicyDocument document;
+        try {
+            bundle = PolicyBundle.wrap(encoded, signature);
+            document = PolicyDocumentLoader.verifyAndDecode(context, ByteBuffer.wrap(bundle));
+        } catch (IOException e) {
+            auditLog.append(AuditEvent.POLICY_REJECTED, delta ? 1 : 0, encoded.length);
+            throw e;
+        }
+        PolicyDocumentLoader.saveSynced(context, bundle);
+        PolicySchedule schedule = PolicySchedule.from(document);
+        int active = schedule.activeAt(System.currentTimeMillis(), TimeZone.getDefault());
+        update(current -> current.withDocument(schedule, active));
+        appState.markSynced(etag, System.currentTimeMillis());
+        auditLog.append(AuditEvent.POLICY_SYNCED, delta ? 1 : 0, bundle.length);
+        Log.i(TAG, "Synced policy v" + document.getVersion() + " installed");
+        requestApply("policy_sync", null);
+    }
+
+    /**
+     * ポリシー適用をポリシー実行スレッドに要求する（呼び出し元はブロックしない）
+     */
+    public void requestApply(String reason, PolicyExecutor.Callback callback) {
+        executor.submit(PolicyExecutor.KIND_APPLY, reason, callback);
+    }
+
+    /**
+     * ポリシー再適用をポリシー実行スレッドに要求する（呼び出し元はブロックしない）
+     */
+    public void requestEnforce(String reason, PolicyExecutor.Callback callback) {
+        executor.submit(PolicyExecutor.KIND_ENFORCE, reason, callback);
+    }
+
+    /**
+     * 時間帯の状態を現在時刻で解決し直す（呼び出し元はブロックしない）
+     * 時間帯の境界の到来・時刻やタイムゾーンの変更時に呼ぶ。状態が変わった場合は文書を差し替えて再適用する。
+     * 文書は次の境界まで変わらないため、定期チェックでは時間帯を評価しない。
+     *
+     * @param listener 次に状態が変わる時刻（System.currentTimeMillis 基準、変わらない場合は
+     *                 {@link PolicySchedule#NEVER}）の通知（ポリシー実行スレッドで呼ばれる。
+     *                 状態が変わった場合は再適用の完了後）
+     */
+    public void refreshSchedule(String reason, LongConsumer listener) {
+        executor.execute(() -> {
+            long now = System.currentTimeMillis();
+            TimeZone zone = TimeZone.getDefault();
+            PolicyState before = getState();
+            PolicyState after = update(current ->
+                current.withScheduleActive(current.schedule.activeAt(now, zone)));
+            long next = after.schedule.nextTransition(now, zone);
+            if (after.schedule == before.schedule && after.scheduleActive != before.scheduleActive) {
+                Log.i(TAG, "Schedule changed (" + reason + "): active="
+                    + PolicySchedule.describe(after.scheduleActive));
+                auditLog.append(AuditEvent.SCHEDULE_CHANGED, after.scheduleActive,
+                    after.scheduleActive ^ before.scheduleActive);
+                requestEnforce("schedule", result -> listener.accept(next));
+            } else {
+                listener.accept(next);
+            }
+        });
+    }
+
+    /**
+     * 適用・再適用で記録した監査イベントの書き出しを要求する（ポリシー実行スレッドで実行ごとに呼ばれる）
+     */
+    void flushAuditLog() {
+        auditLog.requestFlush();
+    }
+
+    public PolicyExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * ポリシーを同期的に適用する。
+     * DevicePolicyManager を呼ぶため、通常は {@link #requestApply} 経由で実行スレッドから呼ぶこと。
+     *
+     * @return ずれを検出して修正した項目数
+     */
+    public int applyEmbeddedPolicy() {
+        PolicyDocument policy = getPolicyDocument();
+        Log.i(TAG, "Applying embedded policy v" + policy.getVersion());
+        scanAppsIfNeeded(policy);
+
+        if (!backend.isAdminActive()) {
             Log.w(TAG, "Device admin not active - cannot apply policy");
-            return;
+            reconciler.invalidate();
+            publishCheck(false, 0);
+            return 0;
         }
 
+        int drifted = 0;
         try {
-            // カメラ制御
-            applyCameraPolicy();
+            // 端末状態との差分のみ適用
+            drifted = reconcile(policy);
+            if (drifted > 0) {
+                Log.i(TAG, "Policy drift corrected: " + drifted + " item(s)");
+            }
+            auditLog.append(AuditEvent.POLICY_APPLIED, drifted, 0);
 
             // その他のポリシー適用
-            applySecurityPolicies();
+            applySecurityPolicies(policy);
 
-            prefs.edit().putBoolean(KEY_POLICY_APPLIED, true).apply();
+            markApplied(policy.getVersion());
             Log.i(TAG, "Embedded policy applied successfully");
 
         } catch (Exception e) {
             Log.e(TAG, "Failed to apply policy", e);
         }
+        publishCheck(true, drifted);
+        return drifted;
+    }
+
+    private int reconcile(PolicyDocument policy) {
+        try {
+            return reconciler.reconcile(policy);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot reconcile policy: " + e.getMessage());
+            reconciler.invalidate();
+            return 0;
+        }
+    }
+
+    /**
+     * 適用済みバージョンが変わった場合のみ保存する
+     */
+    private void markApplied(String version) {
+        boolean written = appState.markPolicyApplied(version, System.currentTimeMillis());
+        reconciler.getStats().recordStateWrite(written);
+    }
+
+    /**
+     * デバイス管理者では適用できない項目（デバイスオーナー権限が必要）の記録
+     */
+    private void applySecurityPolicies(PolicyDocument policy) {
+        Log.i(TAG, "Policies requiring device owner (not enforced):");
+        Log.i(TAG, "  - Screen capture disabled: " + policy.isRestricted(RestrictionType.SCREEN_CAPTURE_DISABLED));
+        Log.i(TAG, "  - Microphone control: disabled=" + policy.isRestricted(RestrictionType.MICROPHONE_DISABLED));
+    }
+
+    /**
+     * ポリシーを同期的に再適用する（ずれた項目のみ）。通常は {@link #requestEnforce} 経由で呼ぶこと。
+     *
+     * @return ずれを検出して修正した項目数
+     */
+    public int enforcePolicy() {
+        scanAppsIfNeeded(getPolicyDocument());
+        if (!backend.isAdminActive()) {
+            reconciler.invalidate();
+            publishCheck(false, 0);
+            return 0;
+        }
+        int drifted = reconcile(getPolicyDocument());
+        if (drifted > 0) {
+            auditLog.append(AuditEvent.POLICY_DRIFT, drifted, 0);
+            Log.w(TAG, "Policy drift detected and corrected: " + drifted + " item(s)");
+        }
+        publishCheck(true, drifted);
+        return drifted;
     }
 
-    private boolean isDeviceAdminActive() {
-        return devicePolicyManager != null && devicePolicyManager.isAdminActive(adminComponent);
+    /**
+     * アプリのリストが走査時から変わっていればインストール済みの全パッケージを判定し直す（ポリシー実行スレッド）
+     * 以降の変化は {@link #onPackageAdded} / {@link #onPackageRemoved} で1件ずつ反映する。
+     */
+    private void scanAppsIfNeeded(PolicyDocument policy) {
+        PackageIndex packages = policy.getPackages();
+        if (!appInventory.needsScan(packages)) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> installed = packages.isEmpty() ? new ArrayList<>() : getInstalledUserPackages();
+        boolean changed = appInventory.rescan(packages, installed);
+        Metrics.get().recordAppScan(System.nanoTime() - start);
+        Log.i(TAG, "Scanned " + installed.size() + " package(s) against " + packages
+            + ": disallowed=" + appInventory.getDisallowedCount());
+        if (changed) {
+            publishDisallowedApps(0);
+        }
     }
 
-    private void applyCameraPolicy() {
-        if (devicePolicyManager != null && isDeviceAdminActive()) {
-            try {
-                devicePolicyManager.setCameraDisabled(adminComponent, !CAMERA_ENABLED);
-                Log.i(TAG, "Camera policy applied: disabled=" + !CAMERA_ENABLED);
-            } catch (SecurityException e) {
-                Log.w(TAG, "Cannot set camera policy: " + e.getMessage());
+    /**
+     * 利用者がインストールしたアプリ（システムアプリは判定の対象外）
+     */
+    private List<String> getInstalledUserPackages() {
+        List<String> names = new ArrayList<>();
+        for (ApplicationInfo info : context.getPackageManager().getInstalledApplications(0)) {
+            if ((info.flags & ApplicationInfo.FLAG_SYSTEM) == 0) {
+                names.add(info.packageName);
             }
         }
+        return names;
+    }
+
+    private boolean isSystemPackage(String packageName) {
+        try {
+            ApplicationInfo info = context.getPackageManager().getApplicationInfo(packageName, 0);
+            return (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
+        } catch (PackageManager.NameNotFoundException e) {
+            // 通知の処理前に削除された
+            return true;
+        }
     }
 
-    private void applySecurityPolicies() {
-        Log.i(TAG, "Additional security policies applied");
-        Log.i(TAG, "  - Screen capture disabled: " + SCREEN_CAPTURE_DISABLED);
-        Log.i(TAG, "  - Microphone control: disabled=" + !MICROPHONE_ENABLED);
+    /**
+     * パッケージの追加・更新の通知を反映する（呼び出し元はブロックしない）
+     */
+    public void onPackageAdded(String packageName) {
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            // システムアプリの確認（binder 呼び出し）は禁止対象に該当した場合のみ
+            boolean added = appInventory.isDisallowed(packageName) && !isSystemPackage(packageName)
+                && appInventory.onPackageAdded(packageName);
+            Metrics.get().recordPackageEvent(System.nanoTime() - start);
+            if (added) {
+                Log.w(TAG, "Disallowed app installed: " + packageName);
+                publishDisallowedApps(1);
+            }
+        });
     }
 
-    public void enforcePolicy() {
-        if (isDeviceAdminActive()) {
-            applyCameraPolicy();
+    /**
+     * パッケージの削除の通知を反映する（呼び出し元はブロックしない）
+     */
+    public void onPackageRemoved(String packageName) {
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            boolean removed = appInventory.onPackageRemoved(packageName);
+            Metrics.get().recordPackageEvent(System.nanoTime() - start);
+            if (removed) {
+                Log.i(TAG, "Disallowed app removed: " + packageName);
+                publishDisallowedApps(-1);
+            }
+        });
+    }
+
+    /**
+     * @param source 1: パッケージの追加, -1: 削除, 0: 全走査
+     */
+    private void publishDisallowedApps(int source) {
+        int count = appInventory.getDisallowedCount();
+        if (count > 0 && source >= 0) {
+            auditLog.append(AuditEvent.APP_DISALLOWED, count, source);
         }
+        update(current -> current.withDisallowedApps(count));
+    }
+
+    /**
+     * 完全性の検査結果を反映する（呼び出し元はブロックしない）
+     * 監査ログには検出した項目が変わった場合のみ記録する。
+     */
+    public void onIntegrityChecked(IntegrityReport report) {
+        executor.execute(() -> {
+            int previous = getState().integrityFlags;
+            if (report.flags == previous) {
+                return;
+            }
+            if (report.isCompromised()) {
+                Log.w(TAG, "Device integrity check failed: " + report);
+                auditLog.append(AuditEvent.INTEGRITY_FAILED, report.flags, report.inconclusive);
+            } else {
+                Log.i(TAG, "Device integrity check passed: " + report);
+            }
+            update(current -> current.withIntegrity(report.flags));
+        });
+    }
+
+    /**
+     * ネットワークのルール違反の変化を反映する（呼び出し元はブロックしない）
+     * 監査ログには違反が増えた・変わった場合のみ記録する（解消は記録しない）。
+     */
+    public void onNetworkCompliance(int violations) {
+        executor.execute(() -> {
+            int previous = getState().networkViolations;
+            if (violations == previous) {
+                return;
+            }
+            if (violations != 0) {
+                auditLog.append(AuditEvent.NETWORK_NONCOMPLIANT, violations, previous);
+            }
+            update(current -> current.withNetworkViolations(violations));
+        });
     }
 
+    /**
+     * インストールされている禁止アプリ
+     */
+    public AppInventory getAppInventory() {
+        return appInventory;
+    }
+
+    /**
+     * 差分適用の統計（ドリフト検出数・省略/実行した呼び出し数）
+     */
+    public ReconcileStats getReconcileStats() {
+        return reconciler.getStats();
+    }
+
+    /**
+     * ルールごとの評価結果・コスト
+     */
+    public RuleEngine getRuleEngine() {
+        return reconciler.getEngine();
+    }
+
+    /**
+     * デバイス管理者が有効か（binder 呼び出しを伴う）
+     */
+    public boolean isDeviceAdminActive() {
+        return backend.isAdminActive();
+    }
+
+    // 個別の値の参照（複数の値を組み合わせる場合は getState() の同じスナップショットから読むこと）
+
     public boolean isPolicyApplied() {
-        return prefs.getBoolean(KEY_POLICY_APPLIED, false);
+        return getState().policyApplied;
     }
 
     public boolean isCameraEnabled() {
-        return CAMERA_ENABLED;
+        return getState().isCameraEnabled();
     }
 
     public boolean isMicrophoneEnabled() {
-        return MICROPHONE_ENABLED;
+        return getState().isMicrophoneEnabled();
     }
 
     public String getBannerText() {
-        return BANNER_TEXT;
+        return getState().getBannerText();
     }
 
     public String getPolicyVersion() {
-        return POLICY_VERSION;
+        return getState().getPolicyVersion();
     }
 }
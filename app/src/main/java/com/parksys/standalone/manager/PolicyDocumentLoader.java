@@ -0,0 +1,163 @@
+package com.parksys.standalone.manager;
+
+import android.app.admin.DevicePolicyManager;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLogHolder;
+import com.parksys.standalone.policy.PolicyBundle;
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySignatureException;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.state.AppStateHolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ポリシー文書の読み込み
+ * assets/policy/embedded_policy.ppol を非圧縮で同梱し、APK から直接メモリマップする。
+ * 管理サーバーから取得した文書があれば、デバイス保護ストレージの policy/synced.ppol（署名付き）を優先する。
+ * 取得した文書は署名を検証してから使う。検証済みのバイト列であれば署名の検証は省略される。
+ */
+final class PolicyDocumentLoader {
+
+    private static final String TAG = "PolicyDocumentLoader";
+    static final String ASSET_PATH = "policy/embedded_policy.ppol";
+    private static final String SYNCED_DIRECTORY = "policy";
+    private static final String SYNCED_FILE = "synced.ppol";
+
+    private PolicyDocumentLoader() {
+    }
+
+    /**
+     * 取得済みポリシー、なければ同梱ポリシーを読み込む。読み込めない場合は組み込みの既定ポリシーを返す。
+     */
+    static PolicyDocument load(Context context) {
+        long start = System.nanoTime();
+        File synced = syncedFile(context);
+        if (synced.exists()) {
+            try {
+                PolicyDocument document = verifyAndDecode(context, mapFile(synced));
+                Log.i(TAG, "Synced policy v" + document.getVersion() + " loaded: rules=" + document.getRuleCount()
+                    + " time=" + (System.nanoTime() - start) / 1000 + "us");
+                return document;
+            } catch (PolicySignatureException e) {
+                Log.e(TAG, "Synced policy rejected: " + e.getMessage() + " - falling back to bundled policy");
+                AuditLogHolder.get(context).append(AuditEvent.POLICY_REJECTED, 0, 0);
+                discardSynced(context, synced);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot load synced policy - falling back to bundled policy", e);
+                discardSynced(context, synced);
+            }
+        }
+        try {
+            PolicyDocument document = PolicyCodec.decode(mapAsset(context));
+            Log.i(TAG, "Policy v" + document.getVersion() + " loaded: rules=" + document.getRuleCount()
+                + " bytes=" + document.getEncodedSize()
+                + " time=" + (System.nanoTime() - start) / 1000 + "us");
+            return document;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load bundled policy - using built-in default", e);
+            return builtinDefault();
+        }
+    }
+
+    /**
+     * 署名付きポリシーの署名を検証して読み込む
+     *
+     * @throws PolicySignatureException 署名を検証できない場合
+     */
+    static PolicyDocument verifyAndDecode(Context context, ByteBuffer bundleBytes) throws IOException {
+        PolicyBundle bundle = PolicyBundle.parse(bundleBytes);
+        PolicyTrust.verifier(context).verify(bundle, PolicyTrust.cache(context));
+        return PolicyCodec.decode(bundle.getPayload());
+    }
+
+    /**
+     * 取得したポリシー（署名付き）を保存する（一時ファイルに書いてから置き換える）
+     */
+    static void saveSynced(Context context, byte[] encoded) throws IOException {
+        File target = syncedFile(context);
+        File directory = target.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File temp = new File(directory, SYNCED_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(encoded);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    /**
+     * 使えない取得ポリシーを削除し、次回の同期で全体を取り直すよう ETag を消す
+     */
+    private static void discardSynced(Context context, File synced) {
+        if (!synced.delete()) {
+            Log.w(TAG, "Cannot delete " + synced);
+        }
+        AppStateHolder.get(context).markSynced(null, 0);
+    }
+
+    private static File syncedFile(Context context) {
+        Context storageContext = context.createDeviceProtectedStorageContext();
+        return new File(new File(storageContext.getFilesDir(), SYNCED_DIRECTORY), SYNCED_FILE);
+    }
+
+    private static ByteBuffer mapFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+    }
+
+    private static ByteBuffer mapAsset(Context context) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(ASSET_PATH);
+             FileInputStream in = fd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        } catch (FileNotFoundException e) {
+            // 圧縮されて同梱された場合はマップできないため読み込む
+            Log.w(TAG, "Policy asset is compressed - reading into memory");
+            try (InputStream in = context.getAssets().open(ASSET_PATH)) {
+                byte[] bytes = new byte[in.available()];
+                int offset = 0;
+                int read;
+                while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                    offset += read;
+                }
+                return ByteBuffer.wrap(bytes, 0, offset);
+            }
+        }
+    }
+
+    /**
+     * 資産が失われた場合の既定ポリシー（同梱ポリシーと同じ内容）
+     */
+    static PolicyDocument builtinDefault() {
+        return PolicyDocument.builder()
+            .version("1.1.0")
+            .bannerText("この端末はParksysセキュリティポリシーにより保護されています")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .restrict(RestrictionType.MICROPHONE_DISABLED, true)
+            .restrict(RestrictionType.SCREEN_CAPTURE_DISABLED, true)
+            .value(RestrictionType.PASSWORD_QUALITY, DevicePolicyManager.PASSWORD_QUALITY_NUMERIC)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 6)
+            .value(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 10)
+            .value(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 300)
+            .restrict(RestrictionType.STORAGE_ENCRYPTION_REQUIRED, true)
+            .build();
+    }
+}
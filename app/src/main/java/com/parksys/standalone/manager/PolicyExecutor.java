@@ -0,0 +1,181 @@
+package com.parksys.standalone.manager;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.parksys.standalone.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ポリシー実行スレッド
+ * DevicePolicyManager への呼び出しをすべて専用スレッドで直列に実行する。
+ * 実行待ちの要求は1件にまとめられ、適用（APPLY）は再適用（ENFORCE）を包含する。
+ */
+public final class PolicyExecutor {
+
+    private static final String TAG = "PolicyExecutor";
+
+    public static final int KIND_ENFORCE = 1;
+    public static final int KIND_APPLY = 2;
+
+    /**
+     * 要求完了の通知（ポリシー実行スレッド上で呼ばれる）
+     */
+    public interface Callback {
+        void onComplete(Result result);
+    }
+
+    /**
+     * 1回の実行結果と所要時間
+     */
+    public static final class Result {
+        public final int kind;
+        public final String reason;
+        public final long queueNanos;
+        public final long runNanos;
+        public final int coalesced;
+        public final int drifted;
+
+        Result(int kind, String reason, long queueNanos, long runNanos, int coalesced, int drifted) {
+            this.kind = kind;
+            this.reason = reason;
+            this.queueNanos = queueNanos;
+            this.runNanos = runNanos;
+            this.coalesced = coalesced;
+            this.drifted = drifted;
+        }
+
+        public long getTotalMillis() {
+            return (queueNanos + runNanos) / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return (kind == KIND_APPLY ? "apply" : "enforce")
+                + " reason=" + reason
+                + " queue=" + queueNanos / 1000 + "us"
+                + " run=" + runNanos / 1000 + "us"
+                + " coalesced=" + coalesced
+                + " drifted=" + drifted;
+        }
+    }
+
+    private final EmbeddedPolicyManager policyManager;
+    private final Handler handler;
+    private final Object lock = new Object();
+
+    // 実行待ちの要求（lock で保護）
+    private int pendingKind;
+    private String pendingReason;
+    private long pendingEnqueuedAt;
+    private int pendingCoalesced;
+    private final List<Callback> pendingCallbacks = new ArrayList<>();
+
+    private volatile Result lastResult;
+
+    private final Runnable drainRunnable = this::drain;
+
+    PolicyExecutor(EmbeddedPolicyManager policyManager) {
+        this.policyManager = policyManager;
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * 要求を登録する。既に待機中の要求があればそれに統合される。
+     */
+    public void submit(int kind, String reason, Callback callback) {
+        synchronized (lock) {
+            if (pendingKind == 0) {
+                pendingKind = kind;
+                pendingReason = reason;
+                pendingEnqueuedAt = System.nanoTime();
+                pendingCoalesced = 0;
+                handler.post(drainRunnable);
+            } else {
+                if (kind > pendingKind) {
+                    pendingKind = kind;
+                    pendingReason = reason;
+                }
+                pendingCoalesced++;
+            }
+            if (callback != null) {
+                pendingCallbacks.add(callback);
+            }
+        }
+    }
+
+    /**
+     * 軽い処理をポリシー実行スレッドで実行する（要求の統合は行わず、登録順に実行される）
+     */
+    public void execute(Runnable task) {
+        handler.post(task);
+    }
+
+    /** 直近の実行結果（未実行の場合は null） */
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /** 現在のスレッドがポリシー実行スレッドか */
+    public boolean isExecutorThread() {
+        return handler.getLooper().isCurrentThread();
+    }
+
+    private void drain() {
+        int kind;
+        String reason;
+        long enqueuedAt;
+        int coalesced;
+        Callback[] callbacks;
+        synchronized (lock) {
+            kind = pendingKind;
+            reason = pendingReason;
+            enqueuedAt = pendingEnqueuedAt;
+            coalesced = pendingCoalesced;
+            callbacks = pendingCallbacks.toArray(new Callback[0]);
+            pendingKind = 0;
+            pendingReason = null;
+            pendingCallbacks.clear();
+        }
+        if (kind == 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int drifted = 0;
+        try {
+            if (kind == KIND_APPLY) {
+                drifted = policyManager.applyEmbeddedPolicy();
+            } else {
+                drifted = policyManager.enforcePolicy();
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Policy request failed: " + reason, e);
+        }
+        policyManager.flushAuditLog();
+        long end = System.nanoTime();
+
+        Result result = new Result(kind, reason, start - enqueuedAt, end - start, coalesced, drifted);
+        lastResult = result;
+        if (kind == KIND_APPLY) {
+            Metrics.get().recordApply(result.queueNanos, result.runNanos);
+        } else {
+            Metrics.get().recordEnforce(result.queueNanos, result.runNanos);
+        }
+        Log.i(TAG, "Policy request done: " + result);
+
+        for (Callback callback : callbacks) {
+            try {
+                callback.onComplete(result);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Callback failed", e);
+            }
+        }
+    }
+}
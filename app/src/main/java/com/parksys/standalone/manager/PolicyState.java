@@ -0,0 +1,170 @@
+package com.parksys.standalone.manager;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.policy.RestrictionType;
+
+/**
+ * ポリシーと適用状況のスナップショット（不変）
+ * {@link EmbeddedPolicyManager#getState()} はロックを取らずに最新の値を返し、
+ * 同じスナップショットから読んだ値は互いに矛盾しない。
+ */
+public final class PolicyState {
+
+    /**
+     * スナップショット更新の通知（内容が変わった場合のみ、更新したスレッドで呼ばれる）
+     * 複数のスレッドから更新された場合の前後は {@link #sequence} で判断する。
+     */
+    public interface Listener {
+        void onPolicyStateChanged(PolicyState state);
+    }
+
+    /** 現在有効なポリシー文書（同期したポリシーがあればそちら。時間帯のルールは現在の状態に置き換え済み） */
+    public final PolicyDocument document;
+    /** 元のポリシー文書の時間帯スケジュール */
+    public final PolicySchedule schedule;
+    /** 時間帯により現在有効な種類（{@code 1 << RestrictionType.id} の組み合わせ） */
+    public final int scheduleActive;
+    /** 直近の適用・確認時点でデバイス管理者が有効だったか */
+    public final boolean adminActive;
+    public final boolean policyApplied;
+    /** 最後に適用したポリシーのバージョン（未適用の場合は空） */
+    public final String appliedVersion;
+    public final long appliedAtMillis;
+    /** 直近の適用・確認で修正した項目数 */
+    public final int drifted;
+    /** 直近の評価で目標を満たしていなかったルール数 */
+    public final int noncompliant;
+    /** インストールされている禁止アプリの数 */
+    public final int disallowedApps;
+    /** 端末の完全性の検査で検出した項目（{@code IntegrityReport.FLAG_*}、未検査の場合は -1） */
+    public final int integrityFlags;
+    /** 接続中のネットワークのルール違反（{@code NetworkCompliance.VIOLATION_*}） */
+    public final int networkViolations;
+    /** 直近の適用・確認の時刻（未実行の場合は 0） */
+    public final long checkedAtMillis;
+    /** 公開ごとに増える番号 */
+    public final long sequence;
+
+    private PolicyState(PolicyDocument document, PolicySchedule schedule, int scheduleActive, boolean adminActive,
+                        boolean policyApplied, String appliedVersion, long appliedAtMillis, int drifted, int noncompliant,
+                        int disallowedApps, int integrityFlags, int networkViolations, long checkedAtMillis,
+                        long sequence) {
+        this.document = document;
+        this.schedule = schedule;
+        this.scheduleActive = scheduleActive;
+        this.adminActive = adminActive;
+        this.policyApplied = policyApplied;
+        this.appliedVersion = appliedVersion;
+        this.appliedAtMillis = appliedAtMillis;
+        this.drifted = drifted;
+        this.noncompliant = noncompliant;
+        this.disallowedApps = disallowedApps;
+        this.integrityFlags = integrityFlags;
+        this.networkViolations = networkViolations;
+        this.checkedAtMillis = checkedAtMillis;
+        this.sequence = sequence;
+    }
+
+    static PolicyState initial(PolicySchedule schedule, int scheduleActive, boolean adminActive,
+                               boolean policyApplied, String appliedVersion, long appliedAtMillis) {
+        return new PolicyState(schedule.resolve(scheduleActive), schedule, scheduleActive, adminActive,
+            policyApplied, appliedVersion, appliedAtMillis, 0, 0, 0, -1, 0, 0, 0);
+    }
+
+    PolicyState withDocument(PolicySchedule schedule, int scheduleActive) {
+        return new PolicyState(schedule.resolve(scheduleActive), schedule, scheduleActive, adminActive,
+            policyApplied, appliedVersion, appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags,
+            networkViolations, checkedAtMillis, sequence + 1);
+    }
+
+    /**
+     * 時間帯の状態を置き換える（同じ状態の場合は this）
+     */
+    PolicyState withScheduleActive(int scheduleActive) {
+        if (scheduleActive == this.scheduleActive) {
+            return this;
+        }
+        return new PolicyState(schedule.resolve(scheduleActive), schedule, scheduleActive, adminActive,
+            policyApplied, appliedVersion, appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags,
+            networkViolations, checkedAtMillis, sequence + 1);
+    }
+
+    PolicyState withAdminActive(boolean adminActive) {
+        return new PolicyState(document, schedule, scheduleActive, adminActive, policyApplied, appliedVersion,
+            appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags, networkViolations,
+            checkedAtMillis, sequence + 1);
+    }
+
+    PolicyState withCheck(boolean adminActive, boolean policyApplied, String appliedVersion, long appliedAtMillis,
+                          int drifted, int noncompliant, long nowMillis) {
+        return new PolicyState(document, schedule, scheduleActive, adminActive, policyApplied, appliedVersion,
+            appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags, networkViolations, nowMillis,
+            sequence + 1);
+    }
+
+    PolicyState withDisallowedApps(int disallowedApps) {
+        return new PolicyState(document, schedule, scheduleActive, adminActive, policyApplied, appliedVersion,
+            appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags, networkViolations,
+            checkedAtMillis, sequence + 1);
+    }
+
+    PolicyState withIntegrity(int integrityFlags) {
+        return new PolicyState(document, schedule, scheduleActive, adminActive, policyApplied, appliedVersion,
+            appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags, networkViolations,
+            checkedAtMillis, sequence + 1);
+    }
+
+    PolicyState withNetworkViolations(int networkViolations) {
+        return new PolicyState(document, schedule, scheduleActive, adminActive, policyApplied, appliedVersion,
+            appliedAtMillis, drifted, noncompliant, disallowedApps, integrityFlags, networkViolations,
+            checkedAtMillis, sequence + 1);
+    }
+
+    /**
+     * 通知が必要な変化があるか（確認時刻・番号のみの違いは除く）
+     */
+    boolean differsFrom(PolicyState other) {
+        return other == null
+            || document != other.document
+            || adminActive != other.adminActive
+            || policyApplied != other.policyApplied
+            || !appliedVersion.equals(other.appliedVersion)
+            || appliedAtMillis != other.appliedAtMillis
+            || drifted != other.drifted
+            || noncompliant != other.noncompliant
+            || disallowedApps != other.disallowedApps
+            || integrityFlags != other.integrityFlags
+            || networkViolations != other.networkViolations;
+    }
+
+    public String getPolicyVersion() {
+        return document.getVersion();
+    }
+
+    public String getBannerText() {
+        return document.getBannerText();
+    }
+
+    public boolean isCameraEnabled() {
+        return !document.isRestricted(RestrictionType.CAMERA_DISABLED);
+    }
+
+    public boolean isMicrophoneEnabled() {
+        return !document.isRestricted(RestrictionType.MICROPHONE_DISABLED);
+    }
+
+    @Override
+    public String toString() {
+        return "PolicyState{v" + document.getVersion()
+            + " admin=" + adminActive
+            + " applied=" + (policyApplied ? "v" + appliedVersion : "none")
+            + " drifted=" + drifted
+            + " noncompliant=" + noncompliant
+            + " disallowedApps=" + disallowedApps
+            + " integrity=" + integrityFlags
+            + " network=" + networkViolations
+            + " schedule=" + PolicySchedule.describe(scheduleActive)
+            + " seq=" + sequence + "}";
+    }
+}
@@ -0,0 +1,59 @@
+package com.parksys.standalone.manager;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link PolicyState} のスナップショットの公開と通知
+ * 差し替えは compareAndSet で行い、競合した場合は最新のスナップショットから変更をやり直すため、
+ * 複数のスレッドから同時に更新しても変更は失われない。読み取りはロックを取らない。
+ */
+final class PolicyStatePublisher {
+
+    private final AtomicReference<PolicyState> state = new AtomicReference<>();
+    private final CopyOnWriteArrayList<PolicyState.Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 現在のスナップショット（初期化前は null）
+     */
+    PolicyState get() {
+        return state.get();
+    }
+
+    /**
+     * 初期のスナップショットを設定する（初期化は呼び出し元で排他すること）
+     */
+    void initialize(PolicyState initial) {
+        state.set(initial);
+    }
+
+    void addListener(PolicyState.Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(PolicyState.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * スナップショットを差し替えて公開し、内容が変わった場合はリスナーに通知する
+     * change は競合時に再実行されるため、副作用を持たないこと。
+     *
+     * @return 公開したスナップショット
+     */
+    PolicyState update(UnaryOperator<PolicyState> change) {
+        PolicyState previous;
+        PolicyState next;
+        do {
+            previous = state.get();
+            next = change.apply(previous);
+        } while (!state.compareAndSet(previous, next));
+        if (next.differsFrom(previous)) {
+            for (PolicyState.Listener listener : listeners) {
+                listener.onPolicyStateChanged(next);
+            }
+        }
+        return next;
+    }
+}
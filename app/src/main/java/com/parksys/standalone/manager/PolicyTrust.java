@@ -0,0 +1,93 @@
+package com.parksys.standalone.manager;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Base64;
+import android.util.Log;
+
+import com.parksys.standalone.policy.PolicyVerifier;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 取得ポリシーの署名検証に使う鍵と検証結果のキャッシュ
+ * 信頼する公開鍵はマニフェストのメタデータ com.parksys.standalone.POLICY_SIGNING_KEYS
+ * （X.509 形式の Base64、複数の場合はカンマ区切り）で指定する。未設定の場合は取得ポリシーをすべて拒否する。
+ */
+final class PolicyTrust {
+
+    private static final String TAG = "PolicyTrust";
+    private static final String META_SIGNING_KEYS = "com.parksys.standalone.POLICY_SIGNING_KEYS";
+
+    private static PolicyVerifier verifier;
+
+    private PolicyTrust() {
+    }
+
+    static synchronized PolicyVerifier verifier(Context context) {
+        if (verifier == null) {
+            List<byte[]> keys = new ArrayList<>();
+            for (String key : signingKeys(context).split(",")) {
+                if (!key.trim().isEmpty()) {
+                    try {
+                        keys.add(Base64.decode(key.trim(), Base64.DEFAULT));
+                    } catch (IllegalArgumentException e) {
+                        Log.e(TAG, "Ignoring malformed policy signing key");
+                    }
+                }
+            }
+            try {
+                verifier = new PolicyVerifier(keys);
+            } catch (GeneralSecurityException e) {
+                Log.e(TAG, "Invalid policy signing key - synced policies will be rejected", e);
+                verifier = noKeys();
+            }
+        }
+        return verifier;
+    }
+
+    /**
+     * 状態ファイルに保存する検証済みダイジェスト
+     */
+    static PolicyVerifier.Cache cache(Context context) {
+        AppState state = AppStateHolder.get(context);
+        return new PolicyVerifier.Cache() {
+            @Override
+            public boolean isVerified(byte[] digest) {
+                return state.isPolicyVerified(digest);
+            }
+
+            @Override
+            public void markVerified(byte[] digest) {
+                state.markPolicyVerified(digest, System.currentTimeMillis());
+            }
+        };
+    }
+
+    private static String signingKeys(Context context) {
+        try {
+            ApplicationInfo info = context.getPackageManager()
+                .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            Bundle metaData = info.metaData;
+            String keys = metaData != null ? metaData.getString(META_SIGNING_KEYS) : null;
+            return keys != null ? keys : "";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "";
+        }
+    }
+
+    private static PolicyVerifier noKeys() {
+        try {
+            return new PolicyVerifier(Collections.emptyList());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
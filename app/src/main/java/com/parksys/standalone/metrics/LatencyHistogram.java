@@ -0,0 +1,95 @@
+package com.parksys.standalone.metrics;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定バケットのレイテンシヒストグラム
+ * 記録はロックもオブジェクト生成も行わない。
+ */
+public final class LatencyHistogram {
+
+    // バケット上限（マイクロ秒）。最後のバケットはそれ以上すべて
+    private static final long[] BOUNDS_MICROS = {
+        50, 100, 250, 500,
+        1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+        1_000_000, 2_500_000, 5_000_000, 10_000_000, 30_000_000, 60_000_000,
+    };
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int index = 0;
+        while (index < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // 再試行
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : sumNanos.get() / n;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 指定パーセンタイルを含むバケットの上限（マイクロ秒、最後のバケットの場合は最大値）
+     */
+    public long getPercentileMicros(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i < BOUNDS_MICROS.length ? BOUNDS_MICROS[i] : maxNanos.get() / 1000;
+            }
+        }
+        return maxNanos.get() / 1000;
+    }
+
+    public void dump(PrintWriter writer) {
+        writer.printf("  %-16s count=%d mean=%dus p50<=%dus p90<=%dus p99<=%dus max=%dus%n",
+            name, getCount(), getMeanNanos() / 1000,
+            getPercentileMicros(50), getPercentileMicros(90), getPercentileMicros(99),
+            getMaxNanos() / 1000);
+    }
+}
@@ -0,0 +1,213 @@
+package com.parksys.standalone.metrics;
+
+import com.parksys.standalone.policy.ReconcileStats;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 実行時メトリクス（プロセス内で共有）
+ * 記録系のメソッドはロックもオブジェクト生成も行わない。
+ */
+public final class Metrics {
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    private final LatencyHistogram applyLatency = new LatencyHistogram("apply");
+    private final LatencyHistogram enforceLatency = new LatencyHistogram("enforce");
+    private final LatencyHistogram queueLatency = new LatencyHistogram("policy_queue");
+    private final LatencyHistogram checkJitter = new LatencyHistogram("check_jitter");
+    private final LatencyHistogram checkWake = new LatencyHistogram("check_wake");
+    private final LatencyHistogram appScan = new LatencyHistogram("app_scan");
+    private final LatencyHistogram packageEvent = new LatencyHistogram("package_event");
+    private final LatencyHistogram networkEvent = new LatencyHistogram("network_event");
+    private final AtomicLong serviceStarts = new AtomicLong();
+    private final AtomicLong serviceRestarts = new AtomicLong();
+    private final AtomicLong bootToEnforcedMillis = new AtomicLong(-1);
+    private final AtomicLong bootBroadcastMillis = new AtomicLong(-1);
+    private final AtomicLong duplicateBootBroadcasts = new AtomicLong();
+    private final AtomicLong appliesSkipped = new AtomicLong();
+    private final AtomicLong restartsDelayed = new AtomicLong();
+
+    Metrics() {
+    }
+
+    public void recordApply(long queueNanos, long runNanos) {
+        queueLatency.record(queueNanos);
+        applyLatency.record(runNanos);
+    }
+
+    public void recordEnforce(long queueNanos, long runNanos) {
+        queueLatency.record(queueNanos);
+        enforceLatency.record(runNanos);
+    }
+
+    /**
+     * 定期チェックの予定時刻とのずれ
+     */
+    public void recordCheckJitter(long expectedNanos, long actualNanos) {
+        checkJitter.record(Math.abs(actualNanos - expectedNanos));
+    }
+
+    /**
+     * 定期チェック1回あたりのウェイクロック保持時間
+     */
+    public void recordCheckWake(long nanos) {
+        checkWake.record(nanos);
+    }
+
+    /**
+     * インストール済みアプリの全走査（パッケージ一覧の取得を含む）
+     */
+    public void recordAppScan(long nanos) {
+        appScan.record(nanos);
+    }
+
+    /**
+     * パッケージの追加・削除の通知1件の判定
+     */
+    public void recordPackageEvent(long nanos) {
+        packageEvent.record(nanos);
+    }
+
+    /**
+     * ネットワークの変化の通知1件の判定（Wi-Fi の SSID の取得を含む）
+     */
+    public void recordNetworkEvent(long nanos) {
+        networkEvent.record(nanos);
+    }
+
+    public void recordServiceStart(boolean restart) {
+        serviceStarts.incrementAndGet();
+        if (restart) {
+            serviceRestarts.incrementAndGet();
+        }
+    }
+
+    /**
+     * 起動からポリシー適用完了までの時間（ブートごとに最初の1回のみ記録）
+     */
+    public void recordBootToEnforced(long millis) {
+        bootToEnforcedMillis.compareAndSet(-1, millis);
+    }
+
+    /**
+     * 起動から最初のブート完了通知までの時間
+     */
+    public void recordBootBroadcast(long millis) {
+        bootBroadcastMillis.compareAndSet(-1, millis);
+    }
+
+    /** 同じブートで重複したブート完了通知（サービスの起動を省略） */
+    public void recordDuplicateBootBroadcast() {
+        duplicateBootBroadcasts.incrementAndGet();
+    }
+
+    /** 同じブートで適用済みのため省略した全適用 */
+    public void recordApplySkipped() {
+        appliesSkipped.incrementAndGet();
+    }
+
+    /** 連続した再起動のため待ち時間を空けた再起動 */
+    public void recordRestartDelayed() {
+        restartsDelayed.incrementAndGet();
+    }
+
+    public LatencyHistogram getApplyLatency() {
+        return applyLatency;
+    }
+
+    public LatencyHistogram getEnforceLatency() {
+        return enforceLatency;
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public LatencyHistogram getCheckJitter() {
+        return checkJitter;
+    }
+
+    public LatencyHistogram getCheckWake() {
+        return checkWake;
+    }
+
+    public LatencyHistogram getAppScan() {
+        return appScan;
+    }
+
+    public LatencyHistogram getPackageEvent() {
+        return packageEvent;
+    }
+
+    public LatencyHistogram getNetworkEvent() {
+        return networkEvent;
+    }
+
+    public long getServiceStarts() {
+        return serviceStarts.get();
+    }
+
+    public long getServiceRestarts() {
+        return serviceRestarts.get();
+    }
+
+    /** 起動からポリシー適用完了までの時間（未記録の場合は -1） */
+    public long getBootToEnforcedMillis() {
+        return bootToEnforcedMillis.get();
+    }
+
+    /** 起動から最初のブート完了通知までの時間（未記録の場合は -1） */
+    public long getBootBroadcastMillis() {
+        return bootBroadcastMillis.get();
+    }
+
+    public long getDuplicateBootBroadcasts() {
+        return duplicateBootBroadcasts.get();
+    }
+
+    public long getAppliesSkipped() {
+        return appliesSkipped.get();
+    }
+
+    public long getRestartsDelayed() {
+        return restartsDelayed.get();
+    }
+
+    /**
+     * 現在値のスナップショット（読み取り側のみで使用、記録側には影響しない）
+     */
+    public MetricsSnapshot snapshot(ReconcileStats reconcileStats) {
+        return new MetricsSnapshot(this, reconcileStats.getBinderCalls(),
+            reconcileStats.getCallsSkipped(), System.currentTimeMillis());
+    }
+
+    public void dump(PrintWriter writer, ReconcileStats reconcileStats) {
+        writer.println("Latency:");
+        applyLatency.dump(writer);
+        enforceLatency.dump(writer);
+        queueLatency.dump(writer);
+        checkJitter.dump(writer);
+        checkWake.dump(writer);
+        appScan.dump(writer);
+        packageEvent.dump(writer);
+        networkEvent.dump(writer);
+        writer.println("Binder:");
+        writer.println("  calls=" + reconcileStats.getBinderCalls()
+            + " (reads=" + reconcileStats.getReads() + " setters=" + reconcileStats.getCallsIssued() + ")"
+            + " skipped=" + reconcileStats.getCallsSkipped());
+        writer.println("Service:");
+        writer.println("  starts=" + serviceStarts.get() + " restarts=" + serviceRestarts.get()
+            + " restarts_delayed=" + restartsDelayed.get());
+        writer.println("Boot:");
+        writer.println("  boot_to_broadcast=" + bootBroadcastMillis.get() + "ms"
+            + " boot_to_enforced=" + bootToEnforcedMillis.get() + "ms");
+        writer.println("  duplicate_broadcasts=" + duplicateBootBroadcasts.get()
+            + " applies_skipped=" + appliesSkipped.get());
+    }
+}
@@ -0,0 +1,70 @@
+package com.parksys.standalone.metrics;
+
+/**
+ * メトリクスの読み取り専用スナップショット
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * ヒストグラムの要約（マイクロ秒、パーセンタイルはバケット上限）
+     */
+    public static final class Latency {
+        public final String name;
+        public final long count;
+        public final long meanMicros;
+        public final long p50Micros;
+        public final long p90Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+
+        Latency(LatencyHistogram histogram) {
+            this.name = histogram.getName();
+            this.count = histogram.getCount();
+            this.meanMicros = histogram.getMeanNanos() / 1000;
+            this.p50Micros = histogram.getPercentileMicros(50);
+            this.p90Micros = histogram.getPercentileMicros(90);
+            this.p99Micros = histogram.getPercentileMicros(99);
+            this.maxMicros = histogram.getMaxNanos() / 1000;
+        }
+    }
+
+    public final Latency apply;
+    public final Latency enforce;
+    public final Latency queue;
+    public final Latency checkJitter;
+    public final Latency checkWake;
+    public final Latency appScan;
+    public final Latency packageEvent;
+    public final Latency networkEvent;
+    public final long binderCalls;
+    public final long binderCallsSkipped;
+    public final long serviceStarts;
+    public final long serviceRestarts;
+    public final long bootToEnforcedMillis;
+    public final long bootBroadcastMillis;
+    public final long duplicateBootBroadcasts;
+    public final long appliesSkipped;
+    public final long restartsDelayed;
+    public final long capturedAtMillis;
+
+    MetricsSnapshot(Metrics metrics, long binderCalls, long binderCallsSkipped, long nowMillis) {
+        this.apply = new Latency(metrics.getApplyLatency());
+        this.enforce = new Latency(metrics.getEnforceLatency());
+        this.queue = new Latency(metrics.getQueueLatency());
+        this.checkJitter = new Latency(metrics.getCheckJitter());
+        this.checkWake = new Latency(metrics.getCheckWake());
+        this.appScan = new Latency(metrics.getAppScan());
+        this.packageEvent = new Latency(metrics.getPackageEvent());
+        this.networkEvent = new Latency(metrics.getNetworkEvent());
+        this.binderCalls = binderCalls;
+        this.binderCallsSkipped = binderCallsSkipped;
+        this.serviceStarts = metrics.getServiceStarts();
+        this.serviceRestarts = metrics.getServiceRestarts();
+        this.bootToEnforcedMillis = metrics.getBootToEnforcedMillis();
+        this.bootBroadcastMillis = metrics.getBootBroadcastMillis();
+        this.duplicateBootBroadcasts = metrics.getDuplicateBootBroadcasts();
+        this.appliesSkipped = metrics.getAppliesSkipped();
+        this.restartsDelayed = metrics.getRestartsDelayed();
+        this.capturedAtMillis = nowMillis;
+    }
+}
@@ -0,0 +1,226 @@
+package com.parksys.standalone.network;
+
+import java.util.Arrays;
+
+/**
+ * 接続中のネットワークに対するネットワークルールの評価
+ * ConnectivityManager.NetworkCallback の通知ごとに該当ネットワークの状態だけを更新し、
+ * ルールに関係する値が変わった場合のみ評価し直す（信号強度などの変化では評価しない）。
+ * 結果は次の変化まで保持するため、定期チェックからネットワーク状態を問い合わせる必要はない。
+ * 更新は通知を受けるスレッドからのみ行うこと（結果の参照は任意のスレッドから可）。
+ */
+public final class NetworkCompliance {
+
+    public static final int TRANSPORT_WIFI = 1;
+    public static final int TRANSPORT_CELLULAR = 1 << 1;
+    public static final int TRANSPORT_ETHERNET = 1 << 2;
+    public static final int TRANSPORT_VPN = 1 << 3;
+
+    public static final int SECURITY_UNKNOWN = 0;
+    public static final int SECURITY_OPEN = 1;
+    public static final int SECURITY_SECURED = 2;
+
+    /** インターネットに接続しているが全トラフィックを通す VPN がない */
+    public static final int VIOLATION_VPN_MISSING = 1;
+    /** 暗号化されていない Wi-Fi に接続している */
+    public static final int VIOLATION_OPEN_WIFI = 1 << 1;
+    /** 許可されていない（または SSID を確認できない）Wi-Fi に接続している */
+    public static final int VIOLATION_WIFI_NOT_ALLOWED = 1 << 2;
+
+    private static final String[] NAMES = {"vpn-missing", "open-wifi", "wifi-not-allowed"};
+    private static final int INITIAL_CAPACITY = 4;
+
+    private NetworkRules rules = NetworkRules.NONE;
+
+    // 接続中のネットワーク（通常は数件のため配列を線形に探索する）
+    private long[] handles = new long[INITIAL_CAPACITY];
+    private int[] transports = new int[INITIAL_CAPACITY];
+    private int[] security = new int[INITIAL_CAPACITY];
+    private int[] ssidHashes = new int[INITIAL_CAPACITY];
+    private boolean[] ssidKnown = new boolean[INITIAL_CAPACITY];
+    private boolean[] defaultRoute = new boolean[INITIAL_CAPACITY];
+    private int count;
+
+    private volatile int violations;
+    private volatile long events;
+    private volatile long evaluations;
+
+    /**
+     * ルールを置き換える
+     *
+     * @return 違反が変わった場合 true
+     */
+    public boolean setRules(NetworkRules rules) {
+        if (rules == this.rules) {
+            return false;
+        }
+        this.rules = rules;
+        return evaluate();
+    }
+
+    /**
+     * ネットワークの接続・能力の変化（onAvailable・onCapabilitiesChanged）
+     *
+     * @param transports TRANSPORT_* の組み合わせ
+     * @param security   Wi-Fi の場合の SECURITY_*（それ以外は {@link #SECURITY_UNKNOWN}）
+     * @param ssidKnown  Wi-Fi の SSID を取得できた場合 true（ssidHash が有効）
+     * @return 違反が変わった場合 true
+     */
+    public boolean onCapabilitiesChanged(long handle, int transports, int security, int ssidHash,
+                                         boolean ssidKnown) {
+        events++;
+        int index = indexOf(handle);
+        if (index < 0) {
+            index = add(handle);
+        } else if (this.transports[index] == transports && this.security[index] == security
+                && this.ssidKnown[index] == ssidKnown && (!ssidKnown || ssidHashes[index] == ssidHash)) {
+            return false;
+        }
+        this.transports[index] = transports;
+        this.security[index] = security;
+        this.ssidHashes[index] = ssidHash;
+        this.ssidKnown[index] = ssidKnown;
+        return evaluate();
+    }
+
+    /**
+     * 経路の変化（onLinkPropertiesChanged）
+     *
+     * @param defaultRoute デフォルト経路を持つ（トラフィックを通す）場合 true
+     * @return 違反が変わった場合 true
+     */
+    public boolean onLinkPropertiesChanged(long handle, boolean defaultRoute) {
+        events++;
+        int index = indexOf(handle);
+        if (index < 0 || this.defaultRoute[index] == defaultRoute) {
+            return false;
+        }
+        this.defaultRoute[index] = defaultRoute;
+        return evaluate();
+    }
+
+    /**
+     * ネットワークの切断（onLost）
+     *
+     * @return 違反が変わった場合 true
+     */
+    public boolean onLost(long handle) {
+        events++;
+        int index = indexOf(handle);
+        if (index < 0) {
+            return false;
+        }
+        int last = --count;
+        handles[index] = handles[last];
+        transports[index] = transports[last];
+        security[index] = security[last];
+        ssidHashes[index] = ssidHashes[last];
+        ssidKnown[index] = ssidKnown[last];
+        defaultRoute[index] = defaultRoute[last];
+        return evaluate();
+    }
+
+    /**
+     * 現在の違反（VIOLATION_*、なければ 0）
+     */
+    public int getViolations() {
+        return violations;
+    }
+
+    /** 接続中のネットワーク数 */
+    public int getNetworkCount() {
+        return count;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    private int indexOf(long handle) {
+        for (int i = 0; i < count; i++) {
+            if (handles[i] == handle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int add(long handle) {
+        if (count == handles.length) {
+            int capacity = count * 2;
+            handles = Arrays.copyOf(handles, capacity);
+            transports = Arrays.copyOf(transports, capacity);
+            security = Arrays.copyOf(security, capacity);
+            ssidHashes = Arrays.copyOf(ssidHashes, capacity);
+            ssidKnown = Arrays.copyOf(ssidKnown, capacity);
+            defaultRoute = Arrays.copyOf(defaultRoute, capacity);
+        }
+        int index = count++;
+        handles[index] = handle;
+        // 経路は続く onLinkPropertiesChanged で確定するまでトラフィックを通すものとして扱う
+        defaultRoute[index] = true;
+        return index;
+    }
+
+    private boolean evaluate() {
+        int result = 0;
+        if (!rules.isEmpty()) {
+            evaluations++;
+            boolean online = false;
+            boolean tunneled = false;
+            for (int i = 0; i < count; i++) {
+                if ((transports[i] & TRANSPORT_VPN) != 0) {
+                    tunneled |= defaultRoute[i];
+                    continue;
+                }
+                online |= defaultRoute[i];
+                if ((transports[i] & TRANSPORT_WIFI) == 0) {
+                    continue;
+                }
+                if (rules.openWifiForbidden && security[i] == SECURITY_OPEN) {
+                    result |= VIOLATION_OPEN_WIFI;
+                }
+                if (rules.needsSsid() && (!ssidKnown[i] || !rules.isSsidAllowed(ssidHashes[i]))) {
+                    result |= VIOLATION_WIFI_NOT_ALLOWED;
+                }
+            }
+            if (rules.vpnRequired && online && !tunneled) {
+                result |= VIOLATION_VPN_MISSING;
+            }
+        }
+        if (result == violations) {
+            return false;
+        }
+        violations = result;
+        return true;
+    }
+
+    /**
+     * 違反の名前のカンマ区切り（なければ空文字列）
+     */
+    public static String describe(int violations) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++) {
+            if ((violations & (1 << i)) != 0) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(NAMES[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        int current = violations;
+        return rules + " networks=" + count
+            + " violations=" + (current == 0 ? "none" : describe(current))
+            + " events=" + events
+            + " evaluations=" + evaluations;
+    }
+}
@@ -0,0 +1,334 @@
+package com.parksys.standalone.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.net.RouteInfo;
+import android.net.TransportInfo;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.parksys.standalone.metrics.Metrics;
+import com.parksys.standalone.policy.PolicyDocument;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ネットワーク接続の監視（ConnectivityManager.NetworkCallback）
+ * 通知は専用スレッドで受け、{@link NetworkCompliance} を1件ずつ更新する。
+ * Wi-Fi の SSID・暗号化の有無はネットワークごと（接続ごとに新しい Network になる）に1回だけ取得する。
+ * 接続直後で取得できなかった場合（SSID 不明・暗号化の判定不能）は保持せず、次の通知で取得し直す。
+ */
+public final class NetworkMonitor {
+
+    private static final String TAG = "NetworkMonitor";
+
+    /**
+     * 違反の変化の通知（監視スレッドで呼ばれる）
+     */
+    public interface Listener {
+        void onNetworkComplianceChanged(int violations);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final NetworkCompliance compliance = new NetworkCompliance();
+    // 以下は監視スレッドでのみ使用
+    private final HashMap<Long, WifiIdentity> wifiIdentities = new HashMap<>();
+    private PolicyDocument document;
+
+    private HandlerThread thread;
+    private volatile Handler handler;
+    // 最後に反映を依頼した文書（同じ文書の重複した依頼を監視スレッドへ送らない）
+    private volatile PolicyDocument requested;
+    private ConnectivityManager.NetworkCallback callback;
+
+    private static final class WifiIdentity {
+        final int security;
+        final int ssidHash;
+        final boolean ssidKnown;
+
+        WifiIdentity(int security, int ssidHash, boolean ssidKnown) {
+            this.security = security;
+            this.ssidHash = ssidHash;
+            this.ssidKnown = ssidKnown;
+        }
+
+        /** SSID・暗号化の有無がどちらも確定した（以降は同じネットワークで変わらない） */
+        boolean isResolved() {
+            return ssidKnown && security != NetworkCompliance.SECURITY_UNKNOWN;
+        }
+    }
+
+    public NetworkMonitor(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /**
+     * 監視を開始する（VPN・インターネット接続のないネットワークも対象）
+     */
+    public void start(PolicyDocument document) {
+        if (callback != null) {
+            return;
+        }
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        if (connectivity == null) {
+            return;
+        }
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        setPolicy(document);
+        NetworkRequest request = new NetworkRequest.Builder()
+            .removeCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
+            .removeCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build();
+        callback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+            ? new Callback(ConnectivityManager.NetworkCallback.FLAG_INCLUDE_LOCATION_INFO) : new Callback();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                connectivity.registerNetworkCallback(request, callback, handler);
+            } else {
+                // API 24・25 は ConnectivityThread で通知されるため監視スレッドへ移す
+                connectivity.registerNetworkCallback(request, callback);
+            }
+        } catch (RuntimeException e) {
+            // 登録数の上限（TooManyRequestsException）など
+            Log.w(TAG, "Cannot register network callback: " + e.getMessage());
+            callback = null;
+            thread.quitSafely();
+        }
+    }
+
+    public void stop() {
+        if (callback == null) {
+            return;
+        }
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            try {
+                connectivity.unregisterNetworkCallback(callback);
+            } catch (IllegalArgumentException e) {
+                // 登録済みでない
+            }
+        }
+        callback = null;
+        thread.quitSafely();
+    }
+
+    /**
+     * ポリシー文書の変更を反映する（文書が同じ場合は何もしない）
+     */
+    public void setPolicy(PolicyDocument document) {
+        Handler current = handler;
+        if (current == null || document == requested) {
+            return;
+        }
+        requested = document;
+        current.post(() -> {
+            if (document == this.document) {
+                return;
+            }
+            this.document = document;
+            NetworkRules rules = NetworkRules.from(document);
+            if (compliance.setRules(rules)) {
+                notifyChanged();
+            }
+        });
+    }
+
+    /**
+     * 現在の違反（VIOLATION_*）。監視開始前・ルールがない場合は 0。
+     */
+    public int getViolations() {
+        return compliance.getViolations();
+    }
+
+    public NetworkCompliance getCompliance() {
+        return compliance;
+    }
+
+    /**
+     * API 31 以降は SSID を通知に含めるため FLAG_INCLUDE_LOCATION_INFO を指定する
+     */
+    private final class Callback extends ConnectivityManager.NetworkCallback {
+        Callback() {
+        }
+
+        Callback(int flags) {
+            super(flags);
+        }
+
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            if (!onMonitorThread()) {
+                handler.post(() -> onCapabilitiesChanged(network, capabilities));
+                return;
+            }
+            long start = System.nanoTime();
+            boolean changed = updateCapabilities(network, capabilities);
+            Metrics.get().recordNetworkEvent(System.nanoTime() - start);
+            if (changed) {
+                notifyChanged();
+            }
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+            if (!onMonitorThread()) {
+                handler.post(() -> onLinkPropertiesChanged(network, linkProperties));
+                return;
+            }
+            long start = System.nanoTime();
+            boolean changed = compliance.onLinkPropertiesChanged(network.getNetworkHandle(),
+                hasDefaultRoute(linkProperties));
+            Metrics.get().recordNetworkEvent(System.nanoTime() - start);
+            if (changed) {
+                notifyChanged();
+            }
+        }
+
+        @Override
+        public void onLost(Network network) {
+            if (!onMonitorThread()) {
+                handler.post(() -> onLost(network));
+                return;
+            }
+            long handle = network.getNetworkHandle();
+            wifiIdentities.remove(handle);
+            if (compliance.onLost(handle)) {
+                notifyChanged();
+            }
+        }
+    }
+
+    private boolean onMonitorThread() {
+        return Looper.myLooper() == handler.getLooper();
+    }
+
+    private boolean updateCapabilities(Network network, NetworkCapabilities capabilities) {
+        long handle = network.getNetworkHandle();
+        int transports = 0;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transports |= NetworkCompliance.TRANSPORT_WIFI;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transports |= NetworkCompliance.TRANSPORT_CELLULAR;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transports |= NetworkCompliance.TRANSPORT_ETHERNET;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            transports |= NetworkCompliance.TRANSPORT_VPN;
+        }
+        if (transports != NetworkCompliance.TRANSPORT_WIFI) {
+            return compliance.onCapabilitiesChanged(handle, transports, NetworkCompliance.SECURITY_UNKNOWN, 0, false);
+        }
+        WifiIdentity identity = wifiIdentities.get(handle);
+        if (identity == null) {
+            identity = resolveWifi(capabilities);
+            if (identity.isResolved()) {
+                wifiIdentities.put(handle, identity);
+            }
+        }
+        return compliance.onCapabilitiesChanged(handle, transports, identity.security, identity.ssidHash,
+            identity.ssidKnown);
+    }
+
+    /**
+     * 接続中の Wi-Fi の SSID・暗号化の有無
+     * API 29 以降は通知に含まれる WifiInfo を使い、それ以前は WifiManager に問い合わせる（位置情報の権限が必要）。
+     */
+    private WifiIdentity resolveWifi(NetworkCapabilities capabilities) {
+        WifiInfo info = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            TransportInfo transportInfo = capabilities.getTransportInfo();
+            if (transportInfo instanceof WifiInfo) {
+                info = (WifiInfo) transportInfo;
+            }
+        }
+        WifiManager wifi = context.getSystemService(WifiManager.class);
+        if (info == null && wifi != null) {
+            info = wifi.getConnectionInfo();
+        }
+        if (info == null) {
+            return new WifiIdentity(NetworkCompliance.SECURITY_UNKNOWN, 0, false);
+        }
+        String ssid = info.getSSID();
+        boolean ssidKnown = ssid != null && !ssid.isEmpty() && !WifiManager.UNKNOWN_SSID.equals(ssid);
+        return new WifiIdentity(resolveSecurity(info, wifi), ssidKnown ? PolicyDocument.ssidHash(ssid) : 0,
+            ssidKnown);
+    }
+
+    private static int resolveSecurity(WifiInfo info, WifiManager wifi) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            int type = info.getCurrentSecurityType();
+            if (type == WifiInfo.SECURITY_TYPE_UNKNOWN) {
+                return NetworkCompliance.SECURITY_UNKNOWN;
+            }
+            return type == WifiInfo.SECURITY_TYPE_OPEN
+                ? NetworkCompliance.SECURITY_OPEN : NetworkCompliance.SECURITY_SECURED;
+        }
+        // API 30 以前は接続先 BSSID のスキャン結果の capabilities（例: "[WPA2-PSK-CCMP][ESS]"）から判定する
+        String bssid = info.getBSSID();
+        if (wifi == null || bssid == null) {
+            return NetworkCompliance.SECURITY_UNKNOWN;
+        }
+        try {
+            List<ScanResult> results = wifi.getScanResults();
+            for (ScanResult result : results) {
+                if (bssid.equalsIgnoreCase(result.BSSID)) {
+                    return isOpen(result.capabilities)
+                        ? NetworkCompliance.SECURITY_OPEN : NetworkCompliance.SECURITY_SECURED;
+                }
+            }
+        } catch (SecurityException e) {
+            // 位置情報の権限がない
+        }
+        return NetworkCompliance.SECURITY_UNKNOWN;
+    }
+
+    private static boolean isOpen(String capabilities) {
+        return capabilities != null
+            && !capabilities.contains("WEP")
+            && !capabilities.contains("PSK")
+            && !capabilities.contains("EAP")
+            && !capabilities.contains("SAE")
+            && !capabilities.contains("OWE");
+    }
+
+    private static boolean hasDefaultRoute(LinkProperties linkProperties) {
+        for (RouteInfo route : linkProperties.getRoutes()) {
+            if (route.isDefaultRoute()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notifyChanged() {
+        int violations = compliance.getViolations();
+        if (violations != 0) {
+            Log.w(TAG, "Network compliance violation: " + NetworkCompliance.describe(violations));
+        } else if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Network compliance restored");
+        }
+        listener.onNetworkComplianceChanged(violations);
+    }
+
+    @Override
+    public String toString() {
+        return callback == null ? "stopped" : compliance.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.parksys.standalone.network;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+
+import java.util.Arrays;
+
+/**
+ * ポリシー文書のネットワーク接続ルール（不変）
+ * 文書が変わった時に1回だけ組み立て、接続状態の変化ごとの評価ではこちらを参照する。
+ */
+public final class NetworkRules {
+
+    public static final NetworkRules NONE = new NetworkRules(false, false, new int[0]);
+
+    final boolean vpnRequired;
+    final boolean openWifiForbidden;
+    // 昇順の SSID ハッシュ（空の場合は Wi-Fi を制限しない）
+    final int[] allowedSsids;
+
+    private NetworkRules(boolean vpnRequired, boolean openWifiForbidden, int[] allowedSsids) {
+        this.vpnRequired = vpnRequired;
+        this.openWifiForbidden = openWifiForbidden;
+        this.allowedSsids = allowedSsids;
+    }
+
+    public static NetworkRules from(PolicyDocument document) {
+        boolean vpnRequired = document.isRestricted(RestrictionType.VPN_REQUIRED);
+        boolean openWifiForbidden = document.isRestricted(RestrictionType.OPEN_WIFI_FORBIDDEN);
+        int[] allowed = document.getValues(RestrictionType.WIFI_ALLOWED_SSID);
+        if (!vpnRequired && !openWifiForbidden && allowed.length == 0) {
+            return NONE;
+        }
+        Arrays.sort(allowed);
+        return new NetworkRules(vpnRequired, openWifiForbidden, allowed);
+    }
+
+    /** ネットワークの制限がない */
+    public boolean isEmpty() {
+        return !vpnRequired && !openWifiForbidden && allowedSsids.length == 0;
+    }
+
+    boolean isSsidAllowed(int ssidHash) {
+        return allowedSsids.length == 0 || Arrays.binarySearch(allowedSsids, ssidHash) >= 0;
+    }
+
+    /**
+     * Wi-Fi の SSID を参照する必要があるか（位置情報の権限が必要なため、不要であれば取得しない）
+     */
+    public boolean needsSsid() {
+        return allowedSsids.length > 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "none";
+        }
+        return (vpnRequired ? "vpn " : "")
+            + (openWifiForbidden ? "no-open-wifi " : "")
+            + "wifi-allowlist=" + allowedSsids.length;
+    }
+}
@@ -6,11 +6,19 @@ import android.content.Intent;
 import android.os.Build;
 import android.util.Log;
 
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLogHolder;
+import com.parksys.standalone.metrics.Metrics;
 import com.parksys.standalone.service.StandaloneSecurityService;
+import com.parksys.standalone.startup.BootCoordinator;
+import com.parksys.standalone.startup.BootCoordinatorHolder;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
 
 /**
  * ブート完了レシーバー
- * 端末起動時にセキュリティサービスを自動開始
+ * 端末起動時・アプリ更新時にセキュリティサービスを自動開始
+ * 1回の起動で複数届くブート完了通知は {@link BootCoordinator} で1回にまとめる。
  */
 public class BootReceiver extends BroadcastReceiver {
 
@@ -24,14 +32,37 @@ public class BootReceiver extends BroadcastReceiver {
             Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action) ||
             "android.intent.action.QUICKBOOT_POWERON".equals(action)) {
             
-            Log.i(TAG, "Boot completed - starting security service");
+            // ロック解除前でも読めるデバイス保護ストレージから前回の状態を取得
+            long start = System.nanoTime();
+            AppState state = AppStateHolder.get(context);
+            BootCoordinator boot = BootCoordinatorHolder.get(context);
+            if (!boot.onBootBroadcast()) {
+                // 同じブートの2回目以降の通知（LOCKED_BOOT_COMPLETED の後の BOOT_COMPLETED など）
+                Metrics.get().recordDuplicateBootBroadcast();
+                if (boot.getBootToEnforcedMillis() >= 0) {
+                    Log.i(TAG, "Boot completed (" + action + ") - already enforced in this boot");
+                    return;
+                }
+                Log.i(TAG, "Boot completed (" + action + ") - duplicate, service still starting");
+            } else {
+                Metrics.get().recordBootBroadcast(boot.getBootBroadcastMillis());
+                AuditLogHolder.get(context).append(AuditEvent.BOOT_COMPLETED, 0, 0);
+            }
+            Log.i(TAG, "Boot completed (" + action + ") - setup=" + state.isSetupComplete()
+                + " policy=" + (state.isPolicyApplied() ? "v" + state.getAppliedPolicyVersion() : "none")
+                + " read=" + (System.nanoTime() - start) / 1000 + "us");
+            Log.i(TAG, "Starting security service");
             
             Intent serviceIntent = new Intent(context, StandaloneSecurityService.class);
+            serviceIntent.putExtra(StandaloneSecurityService.EXTRA_REASON, StandaloneSecurityService.REASON_BOOT);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 context.startForegroundService(serviceIntent);
             } else {
                 context.startService(serviceIntent);
             }
+        } else if (Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            Log.i(TAG, "Package replaced - re-enforcing policy");
+            StandaloneSecurityService.requestEnforcement(context, "package_replaced");
         }
     }
 }
@@ -3,10 +3,15 @@ package com.parksys.standalone.receiver;
 import android.app.admin.DeviceAdminReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLog;
+import com.parksys.standalone.audit.AuditLogHolder;
+import com.parksys.standalone.login.LoginFailureTracker;
+import com.parksys.standalone.login.LoginFailureTrackerHolder;
+import com.parksys.standalone.policy.RestrictionType;
 import com.parksys.standalone.service.StandaloneSecurityService;
 import com.parksys.standalone.manager.EmbeddedPolicyManager;
 
@@ -22,17 +27,15 @@ public class StandaloneDeviceAdminReceiver extends DeviceAdminReceiver {
     public void onEnabled(Context context, Intent intent) {
         super.onEnabled(context, intent);
         Log.i(TAG, "Device Admin enabled");
+        AuditLogHolder.get(context).append(AuditEvent.ADMIN_ENABLED, 0, 0);
 
-        // ポリシーを即座に適用
-        EmbeddedPolicyManager.getInstance(context).applyEmbeddedPolicy();
+        // ポリシーを即座に適用（onReceive をブロックしないよう非同期で実行）
+        final PendingResult pendingResult = goAsync();
+        EmbeddedPolicyManager.getInstance(context).requestApply("admin_enabled",
+            result -> pendingResult.finish());
 
-        // セキュリティサービスを開始
-        Intent serviceIntent = new Intent(context, StandaloneSecurityService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            context.startForegroundService(serviceIntent);
-        } else {
-            context.startService(serviceIntent);
-        }
+        // セキュリティサービスを開始（稼働中なら再適用イベントとして通知）
+        StandaloneSecurityService.requestEnforcement(context, "admin_enabled");
 
         Toast.makeText(context, "セキュリティ保護が有効になりました", Toast.LENGTH_SHORT).show();
     }
@@ -47,6 +50,9 @@ public class StandaloneDeviceAdminReceiver extends DeviceAdminReceiver {
     public void onDisabled(Context context, Intent intent) {
         super.onDisabled(context, intent);
         Log.w(TAG, "Device Admin disabled");
+        AuditLogHolder.get(context).append(AuditEvent.ADMIN_DISABLED, 0, 0);
+        AuditLogHolder.flushAsync();
+        EmbeddedPolicyManager.getInstance(context).onAdminStateChanged(false);
         Toast.makeText(context, "セキュリティ保護が無効になりました", Toast.LENGTH_LONG).show();
     }
 
@@ -54,11 +60,62 @@ public class StandaloneDeviceAdminReceiver extends DeviceAdminReceiver {
     public void onPasswordChanged(Context context, Intent intent) {
         super.onPasswordChanged(context, intent);
         Log.i(TAG, "Password changed");
+        AuditLogHolder.get(context).append(AuditEvent.PASSWORD_CHANGED, 0, 0);
+        loginFailureTracker(context).reset();
     }
 
     @Override
     public void onPasswordFailed(Context context, Intent intent) {
         super.onPasswordFailed(context, intent);
+        long now = System.currentTimeMillis();
+        LoginFailureTracker tracker = loginFailureTracker(context);
+        int actions = tracker.recordFailure(now);
+        int failures = tracker.getLastRecordedCount();
         Log.w(TAG, "Password attempt failed");
+
+        AuditLog auditLog = AuditLogHolder.get(context);
+        auditLog.append(AuditEvent.PASSWORD_FAILED, failures, 0);
+        if (actions != 0) {
+            onLoginThreshold(context, auditLog, tracker, actions);
+        }
+    }
+
+    @Override
+    public void onPasswordSucceeded(Context context, Intent intent) {
+        super.onPasswordSucceeded(context, intent);
+        LoginFailureTracker tracker = loginFailureTracker(context);
+        if (tracker.getFailureCount(System.currentTimeMillis()) > 0 || tracker.getLockoutLevel() > 0) {
+            AuditLogHolder.get(context).append(AuditEvent.PASSWORD_SUCCEEDED, 0, 0);
+        }
+        tracker.reset();
+    }
+
+    /**
+     * しきい値到達時のアクション（受信処理内で完了する短い処理のみ）
+     */
+    private void onLoginThreshold(Context context, AuditLog auditLog, LoginFailureTracker tracker, int actions) {
+        Log.w(TAG, "Login failure threshold reached: actions=" + actions
+            + " lockoutLevel=" + tracker.getLockoutLevel());
+        if ((actions & LoginFailureTracker.ACTION_AUDIT) != 0) {
+            auditLog.append(AuditEvent.LOGIN_THRESHOLD, tracker.getLastRecordedCount(), actions);
+        }
+        if ((actions & LoginFailureTracker.ACTION_LOCKOUT) != 0) {
+            auditLog.append(AuditEvent.LOGIN_LOCKOUT, tracker.getLockoutLevel(),
+                tracker.getLastLockoutMillis() / 1000);
+        }
+        if ((actions & (LoginFailureTracker.ACTION_LOCK_NOW | LoginFailureTracker.ACTION_LOCKOUT)) != 0) {
+            try {
+                getManager(context).lockNow();
+            } catch (SecurityException e) {
+                Log.e(TAG, "Cannot lock device: " + e.getMessage());
+            }
+        }
+        AuditLogHolder.flushAsync();
+    }
+
+    private static LoginFailureTracker loginFailureTracker(Context context) {
+        int maxFailedAttempts = EmbeddedPolicyManager.getInstance(context).getPolicyDocument()
+            .getValue(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 0);
+        return LoginFailureTrackerHolder.get(context, maxFailedAttempts);
     }
 }
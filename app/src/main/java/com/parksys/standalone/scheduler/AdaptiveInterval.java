@@ -0,0 +1,89 @@
+package com.parksys.standalone.scheduler;
+
+/**
+ * 定期チェック間隔の決定
+ * ずれを検出した直後は最短間隔に戻し、問題がなければ倍々に延ばす。
+ * 上限は画面点灯中・充電中は短く、画面消灯かつ非充電時は長くする。
+ */
+public final class AdaptiveInterval {
+
+    private final long minMillis;
+    private final long activeMaxMillis;
+    private final long idleMaxMillis;
+
+    private long currentMillis;
+    private boolean screenOn = true;
+    private boolean charging;
+
+    public AdaptiveInterval(long minMillis, long activeMaxMillis, long idleMaxMillis) {
+        if (minMillis <= 0 || activeMaxMillis < minMillis || idleMaxMillis < activeMaxMillis) {
+            throw new IllegalArgumentException("Invalid interval bounds");
+        }
+        this.minMillis = minMillis;
+        this.activeMaxMillis = activeMaxMillis;
+        this.idleMaxMillis = idleMaxMillis;
+        this.currentMillis = minMillis;
+    }
+
+    /**
+     * チェック結果を反映して次の間隔を返す
+     *
+     * @param drifted チェックで修正した項目数
+     */
+    public synchronized long onCheck(int drifted) {
+        if (drifted > 0) {
+            currentMillis = minMillis;
+        } else {
+            currentMillis = Math.min(currentMillis * 2, capMillis());
+        }
+        return currentMillis;
+    }
+
+    /**
+     * 画面状態を反映する
+     *
+     * @return 上限が下がり現在の間隔が短縮された場合 true
+     */
+    public synchronized boolean setScreenOn(boolean on) {
+        screenOn = on;
+        return clamp();
+    }
+
+    /**
+     * 充電状態を反映する
+     *
+     * @return 上限が下がり現在の間隔が短縮された場合 true
+     */
+    public synchronized boolean setCharging(boolean value) {
+        charging = value;
+        return clamp();
+    }
+
+    public synchronized long getIntervalMillis() {
+        return currentMillis;
+    }
+
+    /**
+     * 発火時刻の許容幅（他アプリのアラームとまとめて起床できるよう間隔の1/4）
+     */
+    public synchronized long getWindowMillis() {
+        return currentMillis / 4;
+    }
+
+    public synchronized boolean isIdle() {
+        return !screenOn && !charging;
+    }
+
+    private long capMillis() {
+        return screenOn || charging ? activeMaxMillis : idleMaxMillis;
+    }
+
+    private boolean clamp() {
+        long cap = capMillis();
+        if (currentMillis > cap) {
+            currentMillis = cap;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+package com.parksys.standalone.scheduler;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+/**
+ * 定期チェックの起床管理
+ * 非厳密な AlarmManager のウィンドウで起床し（Doze 中はメンテナンス時間帯まで延期される）、
+ * チェック中のみ上限付きの部分ウェイクロックを保持する。
+ */
+public final class AlarmScheduler {
+
+    private static final String ALARM_TAG = "parksys:check";
+    private static final String WAKE_LOCK_TAG = "parksys:check";
+    private static final long WAKE_LOCK_TIMEOUT = 10 * 1000; // チェックが完了しない場合の保険
+
+    /**
+     * チェック時刻の通知（ウェイクロック取得済みの状態で Handler のスレッド上で呼ばれる）
+     */
+    public interface Target {
+        void onCheckDue(long dueAtMillis);
+    }
+
+    private final AlarmManager alarmManager;
+    private final PowerManager.WakeLock wakeLock;
+    private final Handler handler;
+    private final Target target;
+    private final AlarmManager.OnAlarmListener alarmListener = this::onAlarm;
+
+    // 予定時刻（elapsedRealtime、未予約の場合は 0）。Handler のスレッドからのみ更新する
+    private long dueAtMillis;
+    private volatile long wakeAcquiredAtNanos;
+
+    public AlarmScheduler(Context context, Handler handler, Target target) {
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+        this.wakeLock.setReferenceCounted(false);
+        this.handler = handler;
+        this.target = target;
+    }
+
+    /**
+     * 次回チェックを予約する（既存の予約は置き換える）
+     */
+    public void schedule(long delayMillis, long windowMillis) {
+        alarmManager.cancel(alarmListener);
+        dueAtMillis = SystemClock.elapsedRealtime() + delayMillis;
+        alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, dueAtMillis, windowMillis,
+            ALARM_TAG, alarmListener, handler);
+    }
+
+    /**
+     * 予約済みの時刻より早い場合のみ予約し直す
+     */
+    public void scheduleIfSooner(long delayMillis, long windowMillis) {
+        long dueAt = SystemClock.elapsedRealtime() + delayMillis;
+        if (dueAtMillis == 0 || dueAt < dueAtMillis) {
+            schedule(delayMillis, windowMillis);
+        }
+    }
+
+    /**
+     * 予定時刻を過ぎている場合はすぐに実行する（Doze 解除時の取りこぼし対策）
+     *
+     * @return 実行した場合 true
+     */
+    public boolean runIfOverdue() {
+        if (dueAtMillis != 0 && SystemClock.elapsedRealtime() >= dueAtMillis) {
+            alarmManager.cancel(alarmListener);
+            onAlarm();
+            return true;
+        }
+        return false;
+    }
+
+    public void cancel() {
+        alarmManager.cancel(alarmListener);
+        dueAtMillis = 0;
+        releaseWakeLock();
+    }
+
+    /** 予定時刻（elapsedRealtime、未予約の場合は 0） */
+    public long getDueAtMillis() {
+        return dueAtMillis;
+    }
+
+    /**
+     * チェック完了時に呼ぶ（任意のスレッドから可）
+     *
+     * @return ウェイクロックの保持時間（保持していなかった場合は 0）
+     */
+    public long releaseWakeLock() {
+        long acquiredAt = wakeAcquiredAtNanos;
+        wakeAcquiredAtNanos = 0;
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        return acquiredAt == 0 ? 0 : Math.min(System.nanoTime() - acquiredAt, WAKE_LOCK_TIMEOUT * 1_000_000);
+    }
+
+    private void onAlarm() {
+        long dueAt = dueAtMillis;
+        dueAtMillis = 0;
+        // AlarmManager が保持するウェイクロックは onAlarm の間のみ有効なため、チェック完了まで引き継ぐ
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+        wakeAcquiredAtNanos = System.nanoTime();
+        target.onCheckDue(dueAt);
+    }
+}
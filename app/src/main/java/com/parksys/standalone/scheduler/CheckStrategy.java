@@ -0,0 +1,115 @@
+package com.parksys.standalone.scheduler;
+
+/**
+ * 定期チェックの予定の決め方
+ * サービスは端末状態とチェック結果を渡し、次回までの間隔と許容幅を受け取る。
+ * Android に依存しないため、JVM 上のシミュレーション（benchmark モジュール）でも同じ実装を使う。
+ */
+public interface CheckStrategy {
+
+    /** ポーリングモードの間隔・ずれ検出直後の最短間隔（1分） */
+    long MONITOR_INTERVAL = 60 * 1000;
+    /** 画面点灯中・充電中の上限（15分） */
+    long ACTIVE_MAX_INTERVAL = 15 * 60 * 1000;
+    /** 画面消灯・非充電時の上限（1時間） */
+    long SAFETY_NET_INTERVAL = 60 * 60 * 1000;
+    /** 連続するイベントをまとめる猶予 */
+    long EVENT_COALESCE_DELAY = 500;
+
+    /** 次回チェックまでの間隔 */
+    long getIntervalMillis();
+
+    /** 発火時刻の許容幅 */
+    long getWindowMillis();
+
+    /**
+     * チェック結果を反映する
+     *
+     * @return チェック時点から次回を数え直す場合 true
+     */
+    boolean onCheck(int drifted);
+
+    /**
+     * @return 間隔が短縮され、予約済みのチェックを早めるべき場合 true
+     */
+    boolean setScreenOn(boolean on);
+
+    /**
+     * @return 間隔が短縮され、予約済みのチェックを早めるべき場合 true
+     */
+    boolean setCharging(boolean charging);
+
+    /**
+     * イベント駆動（ずれがなければ間隔を延ばし、画面消灯・非充電時は最大1時間）
+     */
+    static CheckStrategy adaptive() {
+        AdaptiveInterval interval = new AdaptiveInterval(MONITOR_INTERVAL, ACTIVE_MAX_INTERVAL, SAFETY_NET_INTERVAL);
+        return new CheckStrategy() {
+            @Override
+            public long getIntervalMillis() {
+                return interval.getIntervalMillis();
+            }
+
+            @Override
+            public long getWindowMillis() {
+                return interval.getWindowMillis();
+            }
+
+            @Override
+            public boolean onCheck(int drifted) {
+                // イベントによる再適用も含め、直近のチェック時点から次回を数え直す
+                interval.onCheck(drifted);
+                return true;
+            }
+
+            @Override
+            public boolean setScreenOn(boolean on) {
+                return interval.setScreenOn(on);
+            }
+
+            @Override
+            public boolean setCharging(boolean charging) {
+                return interval.setCharging(charging);
+            }
+        };
+    }
+
+    /**
+     * 端末状態・チェック結果によらない固定間隔（許容幅は間隔の1/10）
+     */
+    static CheckStrategy fixed(long intervalMillis) {
+        return new CheckStrategy() {
+            @Override
+            public long getIntervalMillis() {
+                return intervalMillis;
+            }
+
+            @Override
+            public long getWindowMillis() {
+                return intervalMillis / 10;
+            }
+
+            @Override
+            public boolean onCheck(int drifted) {
+                return false;
+            }
+
+            @Override
+            public boolean setScreenOn(boolean on) {
+                return false;
+            }
+
+            @Override
+            public boolean setCharging(boolean charging) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * ポーリングモード（1分ごと）
+     */
+    static CheckStrategy polling() {
+        return fixed(MONITOR_INTERVAL);
+    }
+}
@@ -0,0 +1,116 @@
+package com.parksys.standalone.scheduler;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.parksys.standalone.policy.PolicySchedule;
+
+/**
+ * 時間帯スケジュールの次の境界のアラーム（常に1つだけ予約する）
+ * 境界は端末の時計の時刻のため RTC で予約する（時刻の変更に追従する。タイムゾーンの変更時は予約し直すこと）。
+ * 厳密なアラームが許可されていない場合（API 31 以降で SCHEDULE_EXACT_ALARM が未許可）は1分のウィンドウで予約する。
+ * Doze 中は延期されるため、解除時に {@link #runIfOverdue()} を呼ぶこと。
+ * 境界の到来から次の予約（再適用の完了後）まで上限付きの部分ウェイクロックを保持する。
+ */
+public final class ScheduleAlarm {
+
+    private static final String TAG = "ScheduleAlarm";
+    private static final String ALARM_TAG = "parksys:schedule";
+    private static final long WINDOW = 60 * 1000;
+    private static final String WAKE_LOCK_TAG = "parksys:schedule";
+    private static final long WAKE_LOCK_TIMEOUT = 10 * 1000; // 再適用が完了しない場合の保険
+
+    private final AlarmManager alarmManager;
+    private final PowerManager.WakeLock wakeLock;
+    private final Handler handler;
+    private final Runnable target;
+    private final AlarmManager.OnAlarmListener alarmListener = this::onAlarm;
+
+    // 予約した時刻（currentTimeMillis、未予約の場合は 0）。Handler のスレッドからのみ更新する
+    private long dueAtMillis;
+
+    /**
+     * @param target 境界の到来時に Handler のスレッドで呼ばれる
+     */
+    public ScheduleAlarm(Context context, Handler handler, Runnable target) {
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+        this.wakeLock.setReferenceCounted(false);
+        this.handler = handler;
+        this.target = target;
+    }
+
+    /**
+     * 境界の時刻に予約する（既存の予約は置き換える。{@link PolicySchedule#NEVER} の場合は取り消す）
+     * 境界の到来時に取得したウェイクロックはここで解放する。
+     */
+    public void arm(long atMillis) {
+        releaseWakeLock();
+        if (atMillis == dueAtMillis) {
+            return;
+        }
+        alarmManager.cancel(alarmListener);
+        dueAtMillis = 0;
+        if (atMillis == PolicySchedule.NEVER) {
+            return;
+        }
+        dueAtMillis = atMillis;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, atMillis, ALARM_TAG, alarmListener, handler);
+        } else {
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, atMillis, WINDOW, ALARM_TAG, alarmListener, handler);
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Next schedule transition in " + (atMillis - System.currentTimeMillis()) + "ms");
+        }
+    }
+
+    /**
+     * 予約した時刻を過ぎている場合はすぐに実行する（Doze 解除時の取りこぼし対策）
+     *
+     * @return 実行した場合 true
+     */
+    public boolean runIfOverdue() {
+        if (dueAtMillis != 0 && System.currentTimeMillis() >= dueAtMillis) {
+            alarmManager.cancel(alarmListener);
+            onAlarm();
+            return true;
+        }
+        return false;
+    }
+
+    public void cancel() {
+        alarmManager.cancel(alarmListener);
+        dueAtMillis = 0;
+        releaseWakeLock();
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    /** 予約した時刻（currentTimeMillis、未予約の場合は 0） */
+    public long getDueAtMillis() {
+        return dueAtMillis;
+    }
+
+    private void onAlarm() {
+        dueAtMillis = 0;
+        // AlarmManager が保持するウェイクロックは onAlarm の間のみ有効なため、次の予約まで引き継ぐ
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT);
+        target.run();
+    }
+
+    @Override
+    public String toString() {
+        long dueAt = dueAtMillis;
+        return dueAt == 0 ? "none" : "in " + (dueAt - System.currentTimeMillis()) / 1000 + "s";
+    }
+}
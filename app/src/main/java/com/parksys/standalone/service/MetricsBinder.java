@@ -0,0 +1,32 @@
+package com.parksys.standalone.service;
+
+import android.os.Binder;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.metrics.Metrics;
+import com.parksys.standalone.metrics.MetricsSnapshot;
+
+/**
+ * サービスへのバインドで返す読み取り専用インターフェース（同一プロセス内のみ）
+ * 状態・メトリクスの参照のみを提供し、ポリシーの操作は行えない。
+ */
+public final class MetricsBinder extends Binder {
+
+    private final EmbeddedPolicyManager policyManager;
+
+    MetricsBinder(EmbeddedPolicyManager policyManager) {
+        this.policyManager = policyManager;
+    }
+
+    public MetricsSnapshot getMetrics() {
+        return Metrics.get().snapshot(policyManager.getReconcileStats());
+    }
+
+    public StatusSnapshot getStatus() {
+        return StandaloneSecurityService.getStatusSnapshot();
+    }
+
+    public MonitorStats getMonitorStats() {
+        return StandaloneSecurityService.getMonitorStats();
+    }
+}
@@ -0,0 +1,84 @@
+package com.parksys.standalone.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 監視統計
+ * ポーリング方式とイベント駆動方式を比較するための起床回数・適用回数・ウェイクロック保持時間
+ */
+public final class MonitorStats {
+
+    private final AtomicLong wakeups = new AtomicLong();
+    private final AtomicLong enforcements = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong wakeNanos = new AtomicLong();
+    private volatile long startedAtMillis;
+
+    void reset(long nowMillis) {
+        wakeups.set(0);
+        enforcements.set(0);
+        events.set(0);
+        coalescedEvents.set(0);
+        wakeNanos.set(0);
+        startedAtMillis = nowMillis;
+    }
+
+    void recordWakeup() {
+        wakeups.incrementAndGet();
+    }
+
+    void recordEnforcement() {
+        enforcements.incrementAndGet();
+    }
+
+    void recordWakeTime(long nanos) {
+        wakeNanos.addAndGet(nanos);
+    }
+
+    void recordEvent() {
+        events.incrementAndGet();
+    }
+
+    void recordCoalescedEvent() {
+        coalescedEvents.incrementAndGet();
+    }
+
+    /** タイマーによる起床回数 */
+    public long getWakeups() {
+        return wakeups.get();
+    }
+
+    /** ポリシー再適用の実行回数 */
+    public long getEnforcements() {
+        return enforcements.get();
+    }
+
+    /** 受信したポリシー関連イベント数 */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /** 直前の再適用にまとめられたイベント数 */
+    public long getCoalescedEvents() {
+        return coalescedEvents.get();
+    }
+
+    /** 定期チェックでウェイクロックを保持した合計時間 */
+    public long getWakeMillis() {
+        return wakeNanos.get() / 1_000_000;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "wakeups=" + wakeups.get()
+            + " enforcements=" + enforcements.get()
+            + " events=" + events.get()
+            + " coalesced=" + coalescedEvents.get()
+            + " wake=" + wakeNanos.get() / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,155 @@
+package com.parksys.standalone.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.provider.Settings;
+import android.util.Log;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySignatureException;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+import com.parksys.standalone.sync.PolicySyncClient;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 管理サーバーとのポリシー同期ジョブ
+ * ネットワーク接続時のみ定期的に実行し、失敗時は JobScheduler の指数バックオフで再試行する。
+ * サーバー URL（マニフェストの com.parksys.standalone.POLICY_SERVER_URL）が空の場合は同期しない。
+ */
+public class PolicySyncJobService extends JobService {
+
+    private static final String TAG = "PolicySync";
+    private static final String META_SERVER_URL = "com.parksys.standalone.POLICY_SERVER_URL";
+    private static final int JOB_ID = 3001;
+    private static final long SYNC_INTERVAL = 6 * 60 * 60 * 1000; // 6時間
+    private static final long SYNC_FLEX = 60 * 60 * 1000; // 他のジョブとまとめて実行できる幅
+    private static final long INITIAL_BACKOFF = 60 * 1000;
+    private static final int TIMEOUT = 30 * 1000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PolicySync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static PolicySyncClient client;
+
+    /**
+     * 定期同期を登録する（登録済みの場合は何もしない）
+     */
+    public static void schedule(Context context) {
+        if (serverUrl(context).isEmpty()) {
+            return;
+        }
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, PolicySyncJobService.class))
+            .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+            .setPeriodic(SYNC_INTERVAL, SYNC_FLEX)
+            .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+            .setPersisted(true)
+            .build();
+        scheduler.schedule(job);
+        Log.i(TAG, "Policy sync scheduled");
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        String serverUrl = serverUrl(this);
+        if (serverUrl.isEmpty()) {
+            return false;
+        }
+        Context context = getApplicationContext();
+        executor.execute(() -> jobFinished(params, !sync(context, serverUrl)));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // ネットワーク切断などで中断された場合は再試行する
+        return true;
+    }
+
+    /**
+     * @return 成功した場合 true（変更なしを含む）
+     */
+    private static boolean sync(Context context, String serverUrl) {
+        EmbeddedPolicyManager policyManager = EmbeddedPolicyManager.getInstance(context);
+        AppState appState = AppStateHolder.get(context);
+        try {
+            PolicySyncClient syncClient = client(context, serverUrl);
+            PolicyDocument base = policyManager.getSourceDocument();
+            PolicySyncClient.Result result = syncClient.fetch(base, appState.getSyncEtag());
+            try {
+                install(policyManager, appState, result);
+            } catch (PolicySignatureException e) {
+                if (!result.delta) {
+                    throw e;
+                }
+                // 差分の適用結果が署名と一致しない場合は一度だけ全体を取り直す
+                Log.w(TAG, "Delta result rejected, fetching full policy: " + e.getMessage());
+                result = syncClient.fetchFull(base);
+                install(policyManager, appState, result);
+            }
+            Log.i(TAG, "Policy sync done: " + (result.status == PolicySyncClient.STATUS_UPDATED
+                ? "updated" + (result.delta ? " (delta)" : "") : "not modified")
+                + " bytes=" + result.bytesReceived);
+            return true;
+        } catch (PolicySignatureException e) {
+            Log.e(TAG, "Synced policy rejected: " + e.getMessage());
+            return false;
+        } catch (IOException e) {
+            Log.w(TAG, "Policy sync failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void install(EmbeddedPolicyManager policyManager, AppState appState,
+                                PolicySyncClient.Result result) throws IOException {
+        if (result.status == PolicySyncClient.STATUS_UPDATED) {
+            policyManager.installSyncedPolicy(result.encoded, result.signature, result.etag, result.delta);
+        } else {
+            appState.markSynced(result.etag, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 管理サーバーの URL（未設定の場合は空文字列）
+     */
+    static String serverUrl(Context context) {
+        try {
+            ApplicationInfo info = context.getPackageManager()
+                .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            Bundle metaData = info.metaData;
+            String url = metaData != null ? metaData.getString(META_SERVER_URL) : null;
+            return url != null ? url.trim() : "";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "";
+        }
+    }
+
+    private static synchronized PolicySyncClient client(Context context, String serverUrl) throws IOException {
+        if (client == null) {
+            client = new PolicySyncClient(serverUrl, deviceId(context), TIMEOUT);
+        }
+        return client;
+    }
+
+    static String deviceId(Context context) {
+        String deviceId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        return deviceId != null ? deviceId : "";
+    }
+}
@@ -0,0 +1,146 @@
+package com.parksys.standalone.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.manager.PolicyState;
+import com.parksys.standalone.sync.ComplianceReport;
+import com.parksys.standalone.sync.ComplianceReporter;
+import com.parksys.standalone.sync.ReportQueue;
+import com.parksys.standalone.sync.ReportUploader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * コンプライアンス報告の送信ジョブ
+ * チェックごとの報告はファイル上のキューに追加するだけで、送信はネットワーク接続時に
+ * ある程度たまった分をまとめて行う（チェックごとに通信しない）。
+ * サーバー URL が空の場合は報告を記録しない。
+ */
+public class ReportUploadJobService extends JobService {
+
+    private static final String TAG = "ReportUpload";
+    private static final String DIRECTORY = "reports";
+    private static final int JOB_ID = 3002;
+    private static final long BATCH_DELAY = 30 * 60 * 1000; // 報告をためる時間
+    private static final long INITIAL_BACKOFF = 60 * 1000;
+    private static final int TIMEOUT = 30 * 1000;
+
+    private static final long SEGMENT_MAX_BYTES = 64 * 1024;
+    private static final int MAX_SEGMENTS = 32; // 約2MB（1分間隔で数十日分）
+    private static final int MAX_BATCH_RECORDS = 1000;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ReportUpload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static ComplianceReporter reporter;
+    private static ReportUploader uploader;
+
+    /**
+     * チェック結果を報告キューに追加し、送信ジョブを登録する（呼び出し元はブロックしない）
+     */
+    public static void report(Context context, int drifted) {
+        Context appContext = context.getApplicationContext();
+        if (PolicySyncJobService.serverUrl(appContext).isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        executor.execute(() -> {
+            // 同じスナップショットから読み、チェック直後の値を binder 呼び出しなしで報告する
+            PolicyState state = EmbeddedPolicyManager.getInstance(appContext).getState();
+            try {
+                ComplianceReport report = reporter(appContext).record(now,
+                    state.getPolicyVersion(),
+                    state.policyApplied,
+                    state.adminActive,
+                    state.integrityFlags > 0,
+                    state.networkViolations != 0,
+                    drifted,
+                    state.noncompliant,
+                    state.appliedAtMillis);
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "Queued report " + report);
+                }
+                scheduleUpload(appContext);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot queue compliance report: " + e.getMessage());
+            }
+        });
+    }
+
+    private static void scheduleUpload(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, ReportUploadJobService.class))
+            .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+            .setMinimumLatency(BATCH_DELAY)
+            .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+            .setPersisted(true)
+            .build();
+        scheduler.schedule(job);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        String serverUrl = PolicySyncJobService.serverUrl(this);
+        if (serverUrl.isEmpty()) {
+            return false;
+        }
+        Context context = getApplicationContext();
+        executor.execute(() -> jobFinished(params, !upload(context, serverUrl)));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 送信済みのバッチは確認応答済みのため、残りを再試行する
+        return true;
+    }
+
+    /**
+     * @return すべて送信できた場合 true
+     */
+    private static boolean upload(Context context, String serverUrl) {
+        try {
+            ReportQueue queue = reporter(context).getQueue();
+            ReportUploader reportUploader = uploader(context, serverUrl);
+            int sent = reportUploader.uploadAll(queue);
+            Log.i(TAG, "Uploaded " + sent + " report(s), total bytes=" + reportUploader.getBytesSent()
+                + " dropped=" + queue.getDroppedCount());
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Report upload failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static synchronized ComplianceReporter reporter(Context context) throws IOException {
+        if (reporter == null) {
+            File directory = new File(context.createDeviceProtectedStorageContext().getFilesDir(), DIRECTORY);
+            reporter = new ComplianceReporter(new ReportQueue(directory, SEGMENT_MAX_BYTES, MAX_SEGMENTS));
+        }
+        return reporter;
+    }
+
+    private static synchronized ReportUploader uploader(Context context, String serverUrl) throws IOException {
+        if (uploader == null) {
+            uploader = new ReportUploader(serverUrl, PolicySyncJobService.deviceId(context), TIMEOUT,
+                MAX_BATCH_RECORDS, MAX_BATCH_BYTES);
+        }
+        return uploader;
+    }
+}
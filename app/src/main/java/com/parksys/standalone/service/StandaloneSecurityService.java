@@ -1,19 +1,46 @@
 package com.parksys.standalone.service;
 
+import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.app.admin.DevicePolicyManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.parksys.standalone.MainActivity;
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLogHolder;
+import com.parksys.standalone.integrity.IntegrityChecker;
+import com.parksys.standalone.integrity.IntegrityCheckerHolder;
 import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.manager.PolicyExecutor;
+import com.parksys.standalone.manager.PolicyState;
+import com.parksys.standalone.metrics.Metrics;
+import com.parksys.standalone.network.NetworkMonitor;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.scheduler.AlarmScheduler;
+import com.parksys.standalone.scheduler.CheckStrategy;
+import com.parksys.standalone.scheduler.ScheduleAlarm;
+import com.parksys.standalone.startup.BootCoordinator;
+import com.parksys.standalone.startup.BootCoordinatorHolder;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * スタンドアロンセキュリティサービス
@@ -24,22 +51,144 @@ public class StandaloneSecurityService extends Service {
     private static final String TAG = "StandaloneSecurity";
     private static final int NOTIFICATION_ID = 2001;
     private static final String CHANNEL_ID = "standalone_security_fg";
-    private static final long MONITOR_INTERVAL = 60 * 1000; // 1分
+
+    public static final String ACTION_ENFORCE = "com.parksys.standalone.action.ENFORCE";
+    public static final String EXTRA_REASON = "reason";
+    public static final String EXTRA_MONITOR_MODE = "monitor_mode";
+    public static final String MODE_EVENT = "event";
+    public static final String MODE_POLLING = "polling";
+    public static final String REASON_BOOT = "boot";
+    private static final String REASON_RESTART = "restart";
+
+    private static final MonitorStats stats = new MonitorStats();
+    private static final CopyOnWriteArrayList<StatusSnapshot.Listener> statusListeners =
+        new CopyOnWriteArrayList<>();
+    private static volatile StatusSnapshot status;
 
     private Handler handler;
     private EmbeddedPolicyManager policyManager;
-    private boolean isRunning = false;
+    private BootCoordinator bootCoordinator;
+    private IntegrityChecker integrityChecker;
+    private NetworkMonitor networkMonitor;
+    private AlarmScheduler scheduler;
+    private ScheduleAlarm scheduleAlarm;
+    // 次の境界を予約済みの時間帯スケジュール（ポリシーの同期で変わった場合は予約し直す）
+    private volatile PolicySchedule observedSchedule;
+    private final CheckStrategy eventStrategy = CheckStrategy.adaptive();
+    private final CheckStrategy pollingStrategy = CheckStrategy.polling();
+    private volatile boolean isRunning = false;
+    private boolean receiverRegistered = false;
+    private volatile String monitorMode = MODE_EVENT;
+    private String pendingReason;
+    private MetricsBinder binder;
+
+    /**
+     * 定期チェック（ウェイクロック取得済みで呼ばれる）
+     */
+    private final AlarmScheduler.Target checkTarget = dueAtMillis -> {
+        if (!isRunning) {
+            scheduler.releaseWakeLock();
+            return;
+        }
+        stats.recordWakeup();
+        Metrics.get().recordCheckJitter(dueAtMillis * 1_000_000, SystemClock.elapsedRealtime() * 1_000_000);
+        // チェックが完了しない場合も監視が途切れないよう、先に現在の間隔で予約しておく
+        scheduleNextCheck();
+        performSecurityCheck("scheduled", true);
+    };
+
+    /**
+     * チェック以外によるポリシー状態の変化（同期したポリシーの反映・デバイス管理者の無効化など）
+     */
+    private final PolicyState.Listener policyStateListener = state -> {
+        networkMonitor.setPolicy(state.document);
+        if (state.schedule != observedSchedule) {
+            observedSchedule = state.schedule;
+            handler.post(() -> refreshSchedule("policy_changed"));
+        }
+        publishStatus();
+    };
+
+    private final Runnable eventEnforceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            String reason = pendingReason;
+            pendingReason = null;
+            if (isRunning) {
+                performSecurityCheck(reason, false);
+            }
+        }
+    };
 
-    private final Runnable monitorRunnable = new Runnable() {
+    /**
+     * パッケージの変更後の完全性の再検査（連続した変更は1回にまとめる）
+     */
+    private final Runnable integrityRefreshRunnable = new Runnable() {
         @Override
         public void run() {
             if (isRunning) {
-                performSecurityCheck();
-                handler.postDelayed(this, MONITOR_INTERVAL);
+                refreshIntegrity();
             }
         }
     };
 
+    /**
+     * ポリシー状態を変え得るシステムイベントの受信
+     */
+    private final BroadcastReceiver policyEventReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onPolicyEvent(intent.getAction());
+        }
+    };
+
+    /**
+     * アプリのインストール・削除の受信（禁止アプリの一覧を1件ずつ更新する）
+     */
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onPackageChanged(intent);
+        }
+    };
+
+    /**
+     * 時刻・タイムゾーンの変更の受信（時間帯スケジュールの境界を求め直す）
+     */
+    private final BroadcastReceiver timeChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                // 既定のタイムゾーンはシステムからの通知と前後し得るため、ここで読み込み直す
+                TimeZone.setDefault(null);
+                refreshSchedule("timezone_changed");
+            } else {
+                refreshSchedule("time_changed");
+            }
+        }
+    };
+
+    /**
+     * 端末の終了の受信（メモリ上の監査イベントを書き出す。onDestroy は終了時に呼ばれない）
+     */
+    private final BroadcastReceiver shutdownReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            PendingResult pendingResult = goAsync();
+            AuditLogHolder.flushAsync(pendingResult::finish);
+        }
+    };
+
+    /**
+     * チェック間隔に影響する端末状態（画面・充電・Doze）の受信
+     */
+    private final BroadcastReceiver deviceStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onDeviceStateChanged(intent.getAction());
+        }
+    };
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -47,8 +196,55 @@ public class StandaloneSecurityService extends Service {
 
         handler = new Handler(Looper.getMainLooper());
         policyManager = EmbeddedPolicyManager.getInstance(this);
+        bootCoordinator = BootCoordinatorHolder.get(this);
+        integrityChecker = IntegrityCheckerHolder.get(this);
+        // プロセスが再起動した場合も同じブートの記録を引き継ぐ
+        long bootToEnforced = bootCoordinator.getBootToEnforcedMillis();
+        if (bootToEnforced >= 0) {
+            Metrics.get().recordBootToEnforced(bootToEnforced);
+        }
+        long bootBroadcast = bootCoordinator.getBootBroadcastMillis();
+        if (bootBroadcast >= 0) {
+            Metrics.get().recordBootBroadcast(bootBroadcast);
+        }
+        binder = new MetricsBinder(policyManager);
+        // ネットワーク状態は定期チェックで問い合わせず、接続の変化の通知ごとに評価する
+        networkMonitor = new NetworkMonitor(this, policyManager::onNetworkCompliance);
+        networkMonitor.start(policyManager.getState().document);
+        policyManager.addStateListener(policyStateListener);
+        scheduler = new AlarmScheduler(this, handler, checkTarget);
+        scheduleAlarm = new ScheduleAlarm(this, handler, () -> refreshSchedule("schedule"));
+        observedSchedule = policyManager.getState().schedule;
+        initDeviceState();
+        AuditLogHolder.get(this).append(AuditEvent.SERVICE_STARTED, 0, 0);
 
         createNotificationChannel();
+        registerPolicyEventReceiver();
+        PolicySyncJobService.schedule(this);
+        // 同じブートで検査済みであれば保存した結果をそのまま反映する
+        refreshIntegrity();
+    }
+
+    /**
+     * 時間帯スケジュールを現在時刻で解決し、次に状態が変わる時刻のアラームを1つだけ予約する
+     * 定期チェックでは時間帯を評価しないため、境界・時刻の変更・ポリシーの変更時のみ呼ぶ。
+     */
+    private void refreshSchedule(String reason) {
+        if (!isRunning) {
+            return;
+        }
+        policyManager.refreshSchedule(reason, nextMillis -> handler.post(() -> {
+            if (isRunning) {
+                scheduleAlarm.arm(nextMillis);
+            }
+        }));
+    }
+
+    /**
+     * 完全性の検査結果をポリシー状態に反映する（未検査の場合は検査スレッドで検査する）
+     */
+    private void refreshIntegrity() {
+        integrityChecker.check().thenAccept(policyManager::onIntegrityChecked);
     }
 
     @Override
@@ -57,16 +253,287 @@ public class StandaloneSecurityService extends Service {
 
         startForeground(NOTIFICATION_ID, createNotification());
 
+        String requestedMode = intent != null ? intent.getStringExtra(EXTRA_MONITOR_MODE) : null;
+        if (requestedMode != null && !requestedMode.equals(monitorMode)
+                && (MODE_EVENT.equals(requestedMode) || MODE_POLLING.equals(requestedMode))) {
+            Log.i(TAG, "Monitor mode changed: " + monitorMode + " -> " + requestedMode);
+            monitorMode = requestedMode;
+            stats.reset(System.currentTimeMillis());
+            if (isRunning) {
+                scheduler.schedule(currentInterval(), currentWindow());
+            }
+        }
+
         if (!isRunning) {
             isRunning = true;
-            policyManager.applyEmbeddedPolicy();
-            handler.post(monitorRunnable);
-            Log.i(TAG, "Security monitoring started");
+            stats.reset(System.currentTimeMillis());
+            String startReason = intent != null ? intent.getStringExtra(EXTRA_REASON) : null;
+            // intent が null の場合は START_STICKY によるシステムからの再起動
+            Metrics.get().recordServiceStart(intent == null || REASON_RESTART.equals(startReason));
+            if (bootCoordinator.shouldApply()) {
+                policyManager.requestApply("service_start", result -> {
+                    stats.recordEnforcement();
+                    onBootApplied();
+                    publishStatus();
+                });
+            } else {
+                // 同じブートで全適用済み（再起動・重複した起動要求）の場合はずれの確認のみ
+                Metrics.get().recordApplySkipped();
+                Log.i(TAG, "Policy already applied in this boot - checking drift only");
+                performSecurityCheck("service_restart", false);
+            }
+            scheduler.schedule(currentInterval(), currentWindow());
+            refreshSchedule("service_start");
+            Log.i(TAG, "Security monitoring started (mode=" + monitorMode + ")");
+        } else if (intent != null && ACTION_ENFORCE.equals(intent.getAction())) {
+            onPolicyEvent(intent.getStringExtra(EXTRA_REASON));
         }
 
         return START_STICKY;
     }
 
+    /**
+     * サービス開始時の全適用の完了（ポリシー実行スレッド）
+     */
+    private void onBootApplied() {
+        PolicyState state = policyManager.getState();
+        if (!state.policyApplied || !state.adminActive) {
+            // 適用できなかった場合は次の開始時に再び全適用する
+            return;
+        }
+        long bootToEnforced = bootCoordinator.onEnforced();
+        if (bootToEnforced < 0) {
+            return;
+        }
+        Metrics.get().recordBootToEnforced(bootToEnforced);
+        AuditLogHolder.get(this).append(AuditEvent.BOOT_ENFORCED, (int) Math.min(bootToEnforced, Integer.MAX_VALUE),
+            bootCoordinator.getBootBroadcastMillis());
+        Log.i(TAG, "Policy enforced " + bootToEnforced + "ms after boot");
+    }
+
+    /**
+     * 外部イベント（デバイス管理者・パッケージ更新など）からの再適用要求
+     */
+    public static void requestEnforcement(Context context, String reason) {
+        Intent serviceIntent = new Intent(context, StandaloneSecurityService.class);
+        serviceIntent.setAction(ACTION_ENFORCE);
+        serviceIntent.putExtra(EXTRA_REASON, reason);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
+        }
+    }
+
+    /**
+     * 監視統計（起床回数・適用回数）
+     */
+    public static MonitorStats getMonitorStats() {
+        return stats;
+    }
+
+    /**
+     * 直近の状態スナップショット（サービス未起動の場合は null）
+     */
+    public static StatusSnapshot getStatusSnapshot() {
+        return status;
+    }
+
+    public static void addStatusListener(StatusSnapshot.Listener listener) {
+        statusListeners.addIfAbsent(listener);
+    }
+
+    public static void removeStatusListener(StatusSnapshot.Listener listener) {
+        statusListeners.remove(listener);
+    }
+
+    /**
+     * 直近のポリシー状態からスナップショットを公開する（binder 呼び出しなし）
+     */
+    private void publishStatus() {
+        PolicyState state = policyManager.getState();
+        StatusSnapshot snapshot = new StatusSnapshot(state.adminActive, isRunning,
+            state.policyApplied, state.getPolicyVersion(), state.disallowedApps, state.integrityFlags,
+            state.networkViolations, monitorMode,
+            System.currentTimeMillis());
+        status = snapshot;
+        for (StatusSnapshot.Listener listener : statusListeners) {
+            listener.onStatusChanged(snapshot);
+        }
+    }
+
+    private void scheduleNextCheck() {
+        scheduler.schedule(currentInterval(), currentWindow());
+    }
+
+    private CheckStrategy strategy() {
+        return MODE_POLLING.equals(monitorMode) ? pollingStrategy : eventStrategy;
+    }
+
+    private long currentInterval() {
+        return strategy().getIntervalMillis();
+    }
+
+    private long currentWindow() {
+        return strategy().getWindowMillis();
+    }
+
+    /**
+     * チェック結果を間隔に反映する（メインスレッド）
+     */
+    private void onCheckComplete(PolicyExecutor.Result result) {
+        if (isRunning && strategy().onCheck(result.drifted)) {
+            scheduleNextCheck();
+        }
+    }
+
+    private void initDeviceState() {
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        BatteryManager batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
+        setScreenOn(powerManager == null || powerManager.isInteractive());
+        setCharging(batteryManager != null && batteryManager.isCharging());
+    }
+
+    /**
+     * 端末状態は両方のモードに反映し、現在のモードで間隔が短縮されたかを返す
+     */
+    private boolean setScreenOn(boolean on) {
+        boolean eventShortened = eventStrategy.setScreenOn(on);
+        boolean pollingShortened = pollingStrategy.setScreenOn(on);
+        return MODE_POLLING.equals(monitorMode) ? pollingShortened : eventShortened;
+    }
+
+    private boolean setCharging(boolean charging) {
+        boolean eventShortened = eventStrategy.setCharging(charging);
+        boolean pollingShortened = pollingStrategy.setCharging(charging);
+        return MODE_POLLING.equals(monitorMode) ? pollingShortened : eventShortened;
+    }
+
+    private void onDeviceStateChanged(String action) {
+        if (action == null || !isRunning) {
+            return;
+        }
+        boolean shortened = false;
+        switch (action) {
+            case Intent.ACTION_SCREEN_ON:
+                shortened = setScreenOn(true);
+                break;
+            case Intent.ACTION_SCREEN_OFF:
+                setScreenOn(false);
+                break;
+            case Intent.ACTION_POWER_CONNECTED:
+                shortened = setCharging(true);
+                break;
+            case Intent.ACTION_POWER_DISCONNECTED:
+                setCharging(false);
+                break;
+            case PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED:
+                // Doze 中に延期されたチェックは解除時にまとめて実行する
+                PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+                if (powerManager != null && !powerManager.isDeviceIdleMode()) {
+                    scheduler.runIfOverdue();
+                    scheduleAlarm.runIfOverdue();
+                }
+                return;
+            default:
+                return;
+        }
+        if (shortened) {
+            scheduler.scheduleIfSooner(currentInterval(), currentWindow());
+        }
+    }
+
+    private void registerPolicyEventReceiver() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_USER_FOREGROUND);
+        filter.addAction(Intent.ACTION_USER_UNLOCKED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            filter.addAction(DevicePolicyManager.ACTION_DEVICE_POLICY_MANAGER_STATE_CHANGED);
+        }
+
+        IntentFilter stateFilter = new IntentFilter();
+        stateFilter.addAction(Intent.ACTION_SCREEN_ON);
+        stateFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        stateFilter.addAction(Intent.ACTION_POWER_CONNECTED);
+        stateFilter.addAction(Intent.ACTION_POWER_DISCONNECTED);
+        stateFilter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+
+        // Android 8 以降はマニフェストで受信できないため、常駐中に登録する
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+
+        IntentFilter timeFilter = new IntentFilter();
+        timeFilter.addAction(Intent.ACTION_TIME_CHANGED);
+        timeFilter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+
+        IntentFilter shutdownFilter = new IntentFilter(Intent.ACTION_SHUTDOWN);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            registerReceiver(policyEventReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
+            registerReceiver(deviceStateReceiver, stateFilter, Context.RECEIVER_NOT_EXPORTED);
+            registerReceiver(packageReceiver, packageFilter, Context.RECEIVER_NOT_EXPORTED);
+            registerReceiver(timeChangeReceiver, timeFilter, Context.RECEIVER_NOT_EXPORTED);
+            registerReceiver(shutdownReceiver, shutdownFilter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            registerReceiver(policyEventReceiver, filter);
+            registerReceiver(deviceStateReceiver, stateFilter);
+            registerReceiver(packageReceiver, packageFilter);
+            registerReceiver(timeChangeReceiver, timeFilter);
+            registerReceiver(shutdownReceiver, shutdownFilter);
+        }
+        receiverRegistered = true;
+    }
+
+    /**
+     * 更新に伴う削除・追加（EXTRA_REPLACING）は一覧に影響しないため無視する
+     */
+    private void onPackageChanged(Intent intent) {
+        String action = intent.getAction();
+        String packageName = intent.getData() != null ? intent.getData().getSchemeSpecificPart() : null;
+        if (action == null || packageName == null) {
+            return;
+        }
+        boolean replacing = intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+        // root 管理アプリの追加・削除を反映するため、完全性の検査結果は破棄して再検査する
+        integrityChecker.invalidate();
+        handler.removeCallbacks(integrityRefreshRunnable);
+        handler.postDelayed(integrityRefreshRunnable, CheckStrategy.EVENT_COALESCE_DELAY);
+        switch (action) {
+            case Intent.ACTION_PACKAGE_ADDED:
+                if (!replacing) {
+                    policyManager.onPackageAdded(packageName);
+                }
+                break;
+            case Intent.ACTION_PACKAGE_REPLACED:
+                policyManager.onPackageAdded(packageName);
+                break;
+            case Intent.ACTION_PACKAGE_REMOVED:
+                if (!replacing) {
+                    policyManager.onPackageRemoved(packageName);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onPolicyEvent(String reason) {
+        if (!isRunning) {
+            return;
+        }
+        stats.recordEvent();
+        if (pendingReason != null) {
+            // 直前のイベントの再適用にまとめる
+            stats.recordCoalescedEvent();
+            return;
+        }
+        pendingReason = reason != null ? reason : "event";
+        handler.postDelayed(eventEnforceRunnable, CheckStrategy.EVENT_COALESCE_DELAY);
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -109,32 +576,79 @@ public class StandaloneSecurityService extends Service {
             .build();
     }
 
-    private void performSecurityCheck() {
-        Log.d(TAG, "Performing security check...");
-        
-        // ポリシーの再適用（設定が変更されていないか確認）
-        policyManager.enforcePolicy();
+    private void performSecurityCheck(String reason, boolean scheduled) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Performing security check (" + reason + ")...");
+        }
         
-        // 端末状態のログ
-        logDeviceState();
+        if (integrityChecker.getReport() == null) {
+            // 未検査の場合のみ（検査済みであれば volatile の読み取りだけで済む）
+            refreshIntegrity();
+        }
+
+        // ポリシーの再適用（設定が変更されていないか確認）はポリシー実行スレッドで行う
+        policyManager.requestEnforce(reason, result -> {
+            stats.recordEnforcement();
+            handler.post(() -> onCheckComplete(result));
+            ReportUploadJobService.report(this, result.drifted);
+            publishStatus();
+
+            // 端末状態のログ
+            logDeviceState();
+
+            if (scheduled) {
+                long wakeNanos = scheduler.releaseWakeLock();
+                stats.recordWakeTime(wakeNanos);
+                Metrics.get().recordCheckWake(wakeNanos);
+            }
+        });
     }
 
     private void logDeviceState() {
+        // 定期チェックごとの文字列生成を避けるため、デバッグログ有効時のみ出力
+        if (!Log.isLoggable(TAG, Log.DEBUG)) {
+            return;
+        }
+        PolicyState state = policyManager.getState();
         Log.d(TAG, "Device state check: OK");
-        Log.d(TAG, "  - Policy enforced: " + policyManager.isPolicyApplied());
-        Log.d(TAG, "  - Camera disabled: " + !policyManager.isCameraEnabled());
+        Log.d(TAG, "  - Policy enforced: " + state.policyApplied);
+        Log.d(TAG, "  - Camera disabled: " + !state.isCameraEnabled());
         Log.d(TAG, "  - Service running: " + isRunning);
+        Log.d(TAG, "  - Monitor (" + monitorMode + "): " + stats);
+        Log.d(TAG, "  - Reconcile: " + policyManager.getReconcileStats());
     }
 
     @Override
     public void onDestroy() {
-        Log.w(TAG, "Security Service destroyed - attempting restart");
+        // 短い間隔で停止と再起動を繰り返す場合は待ち時間を空ける
+        long restartDelay = bootCoordinator.nextRestartDelay();
+        Log.w(TAG, "Security Service destroyed - restarting in " + restartDelay + "ms");
+        AuditLogHolder.get(this).append(AuditEvent.SERVICE_RESTART, bootCoordinator.getRestartCount(), restartDelay);
+        AuditLogHolder.flushAsync();
         isRunning = false;
-        handler.removeCallbacks(monitorRunnable);
+        scheduler.cancel();
+        scheduleAlarm.cancel();
+        handler.removeCallbacks(eventEnforceRunnable);
+        handler.removeCallbacks(integrityRefreshRunnable);
+        policyManager.removeStateListener(policyStateListener);
+        networkMonitor.stop();
+        publishStatus();
+        if (receiverRegistered) {
+            unregisterReceiver(policyEventReceiver);
+            unregisterReceiver(deviceStateReceiver);
+            unregisterReceiver(packageReceiver);
+            unregisterReceiver(timeChangeReceiver);
+            unregisterReceiver(shutdownReceiver);
+            receiverRegistered = false;
+        }
 
         // サービスが停止された場合、再起動を試みる
         Intent restartIntent = new Intent(this, StandaloneSecurityService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+        restartIntent.putExtra(EXTRA_REASON, REASON_RESTART);
+        if (restartDelay > 0) {
+            Metrics.get().recordRestartDelayed();
+            scheduleRestart(restartIntent, restartDelay);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             startForegroundService(restartIntent);
         } else {
             startService(restartIntent);
@@ -143,8 +657,43 @@ public class StandaloneSecurityService extends Service {
         super.onDestroy();
     }
 
+    private void scheduleRestart(Intent restartIntent, long delayMillis) {
+        PendingIntent pendingIntent;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            pendingIntent = PendingIntent.getForegroundService(this, 0, restartIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        } else {
+            pendingIntent = PendingIntent.getService(this, 0, restartIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + delayMillis,
+                pendingIntent);
+        }
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
+    }
+
+    /**
+     * adb shell dumpsys activity service com.parksys.standalone/.service.StandaloneSecurityService
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("StandaloneSecurityService running=" + isRunning + " mode=" + monitorMode);
+        writer.println("Monitor: " + stats);
+        writer.println("Reconcile: " + policyManager.getReconcileStats());
+        policyManager.getRuleEngine().dump(writer);
+        writer.println("Apps: " + policyManager.getAppInventory());
+        writer.println("Integrity: " + integrityChecker.getReport());
+        writer.println("Network: " + networkMonitor);
+        PolicyState state = policyManager.getState();
+        writer.println("Schedule: " + state.schedule + " active=" + PolicySchedule.describe(state.scheduleActive)
+            + " next=" + scheduleAlarm);
+        Metrics.get().dump(writer, policyManager.getReconcileStats());
+        writer.println("Audit: dropped=" + AuditLogHolder.get(this).getDroppedCount());
     }
 }
@@ -0,0 +1,41 @@
+package com.parksys.standalone.service;
+
+/**
+ * サービスが公開する状態のスナップショット（不変）
+ */
+public final class StatusSnapshot {
+
+    /**
+     * スナップショット更新の通知（通知元のスレッドで呼ばれる）
+     */
+    public interface Listener {
+        void onStatusChanged(StatusSnapshot snapshot);
+    }
+
+    public final boolean adminActive;
+    public final boolean serviceRunning;
+    public final boolean policyApplied;
+    public final String policyVersion;
+    /** インストールされている禁止アプリの数 */
+    public final int disallowedApps;
+    /** 完全性の検査で検出した項目（未検査の場合は -1） */
+    public final int integrityFlags;
+    /** ネットワークのルール違反（{@code NetworkCompliance.VIOLATION_*}） */
+    public final int networkViolations;
+    public final String monitorMode;
+    public final long lastCheckAtMillis;
+
+    public StatusSnapshot(boolean adminActive, boolean serviceRunning, boolean policyApplied,
+                          String policyVersion, int disallowedApps, int integrityFlags, int networkViolations,
+                          String monitorMode, long lastCheckAtMillis) {
+        this.adminActive = adminActive;
+        this.serviceRunning = serviceRunning;
+        this.policyApplied = policyApplied;
+        this.policyVersion = policyVersion;
+        this.disallowedApps = disallowedApps;
+        this.integrityFlags = integrityFlags;
+        this.networkViolations = networkViolations;
+        this.monitorMode = monitorMode;
+        this.lastCheckAtMillis = lastCheckAtMillis;
+    }
+}
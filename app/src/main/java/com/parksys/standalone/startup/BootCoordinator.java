@@ -0,0 +1,253 @@
+package com.parksys.standalone.startup;
+
+import com.parksys.standalone.state.StateStore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ブートセッション単位の起動処理の調整
+ * ブート完了通知（BOOT_COMPLETED・LOCKED_BOOT_COMPLETED・QUICKBOOT_POWERON）とサービスの再起動が
+ * 1回の起動で何度起きても、ポリシーの全適用はセッションごとに1回にまとめ、連続する再起動は間隔を空ける。
+ * セッションは起動回数（Settings.Global.BOOT_COUNT）と経過時間（elapsedRealtime）で識別し、
+ * {@link StateStore} のスロットに保存してプロセスの再起動後も引き継ぐ。
+ *
+ * <pre>
+ * bootCount          i32  起動回数（取得できない場合は -1）
+ * bootAtMillis       i64  壁時計での起動時刻の推定（currentTimeMillis - elapsedRealtime）
+ * flags              u8   FLAG_*
+ * broadcastElapsed   i64  最初のブート完了通知の経過時間（未受信は -1）
+ * enforcedElapsed    i64  全適用完了の経過時間（未完了は -1）
+ * restartCount       u16  連続した再起動の回数
+ * lastRestartElapsed i64  直前の再起動の経過時間
+ * lastSeenElapsed    i64  最後に観測した経過時間
+ * </pre>
+ */
+public final class BootCoordinator {
+
+    /**
+     * 起動回数と時刻の取得元
+     */
+    public interface Clock {
+        /** 起動回数（取得できない場合は -1） */
+        int bootCount();
+
+        long elapsedRealtime();
+
+        long currentTimeMillis();
+    }
+
+    /** 起動回数が取得できない場合に同じセッションとみなす起動時刻の推定誤差 */
+    static final long BOOT_TIME_TOLERANCE = 5_000;
+    /** この間隔より短い再起動を連続とみなす */
+    static final long RESTART_STORM_WINDOW = 60_000;
+    static final long RESTART_MIN_DELAY = 1_000;
+    static final long RESTART_MAX_DELAY = 5 * 60 * 1000;
+
+    private static final int FLAG_BROADCAST = 1;
+    private static final int FLAG_ENFORCED = 1 << 1;
+    private static final int RECORD_SIZE = 4 + 8 + 1 + 8 + 8 + 2 + 8 + 8;
+
+    private final StateStore store;
+    private final int slot;
+    private final Clock clock;
+
+    private int bootCount = -1;
+    private long bootAtMillis;
+    private int flags;
+    private long broadcastElapsed = -1;
+    private long enforcedElapsed = -1;
+    private int restartCount;
+    private long lastRestartElapsed;
+    private long lastSeenElapsed = -1;
+
+    private long duplicateBroadcasts;
+    private long appliesSkipped;
+    private long restartsDelayed;
+
+    private final byte[] record = new byte[StateStore.MAX_PAYLOAD];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+
+    public BootCoordinator(StateStore store, int slot, Clock clock) {
+        this.store = store;
+        this.slot = slot;
+        this.clock = clock;
+        load();
+    }
+
+    private synchronized void load() {
+        if (store.read(slot, record) < RECORD_SIZE) {
+            return;
+        }
+        recordBuffer.clear();
+        bootCount = recordBuffer.getInt();
+        bootAtMillis = recordBuffer.getLong();
+        flags = recordBuffer.get() & 0xFF;
+        broadcastElapsed = recordBuffer.getLong();
+        enforcedElapsed = recordBuffer.getLong();
+        restartCount = recordBuffer.getShort() & 0xFFFF;
+        lastRestartElapsed = recordBuffer.getLong();
+        lastSeenElapsed = recordBuffer.getLong();
+    }
+
+    /**
+     * ブート完了通知を記録する
+     *
+     * @return このセッションで最初の通知の場合 true（2回目以降はサービスの起動を省略してよい）
+     */
+    public synchronized boolean onBootBroadcast() {
+        long elapsed = enterSession();
+        if ((flags & FLAG_BROADCAST) != 0) {
+            duplicateBroadcasts++;
+            return false;
+        }
+        flags |= FLAG_BROADCAST;
+        broadcastElapsed = elapsed;
+        persist();
+        return true;
+    }
+
+    /**
+     * サービス開始時に全適用が必要か
+     *
+     * @return このセッションで全適用が完了していない場合 true（完了済みの場合はずれの確認のみでよい）
+     */
+    public synchronized boolean shouldApply() {
+        enterSession();
+        if ((flags & FLAG_ENFORCED) != 0) {
+            appliesSkipped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 全適用の完了を記録する
+     *
+     * @return このセッションで最初の完了の場合は起動からの時間（ミリ秒）、記録済みの場合は -1
+     */
+    public synchronized long onEnforced() {
+        long elapsed = enterSession();
+        if ((flags & FLAG_ENFORCED) != 0) {
+            return -1;
+        }
+        flags |= FLAG_ENFORCED;
+        enforcedElapsed = elapsed;
+        persist();
+        return elapsed;
+    }
+
+    /**
+     * サービスの再起動を記録し、再起動までの待ち時間を返す
+     * 短い間隔で再起動が続く場合は 1秒から倍々に延ばし、最大5分とする。
+     *
+     * @return 待ち時間（ミリ秒、0 は即時）
+     */
+    public synchronized long nextRestartDelay() {
+        long elapsed = enterSession();
+        if (restartCount > 0 && elapsed - lastRestartElapsed < RESTART_STORM_WINDOW) {
+            restartCount = Math.min(restartCount + 1, 0xFFFF);
+        } else {
+            restartCount = 1;
+        }
+        lastRestartElapsed = elapsed;
+        persist();
+        if (restartCount == 1) {
+            return 0;
+        }
+        restartsDelayed++;
+        int shift = Math.min(restartCount - 2, 30);
+        return Math.min(RESTART_MIN_DELAY << shift, RESTART_MAX_DELAY);
+    }
+
+    /**
+     * 現在のブートセッションの識別子（壁時計での起動時刻の推定。同じセッションではプロセスが再起動しても変わらない）
+     */
+    public synchronized long getSessionKey() {
+        int previousBootCount = bootCount;
+        long previousBootAt = bootAtMillis;
+        enterSession();
+        if (bootCount != previousBootCount || bootAtMillis != previousBootAt) {
+            persist();
+        }
+        return bootAtMillis;
+    }
+
+    /** 起動から全適用完了までの時間（このセッションで未完了の場合は -1） */
+    public synchronized long getBootToEnforcedMillis() {
+        return isCurrentSession() ? enforcedElapsed : -1;
+    }
+
+    /** 起動から最初のブート完了通知までの時間（このセッションで未受信の場合は -1） */
+    public synchronized long getBootBroadcastMillis() {
+        return isCurrentSession() ? broadcastElapsed : -1;
+    }
+
+    /** 連続した再起動の回数 */
+    public synchronized int getRestartCount() {
+        return isCurrentSession() ? restartCount : 0;
+    }
+
+    /** 省略した重複のブート完了通知の数（このプロセス内） */
+    public synchronized long getDuplicateBroadcasts() {
+        return duplicateBroadcasts;
+    }
+
+    /** 適用済みのため省略した全適用の数（このプロセス内） */
+    public synchronized long getAppliesSkipped() {
+        return appliesSkipped;
+    }
+
+    /** 待ち時間を空けた再起動の数（このプロセス内） */
+    public synchronized long getRestartsDelayed() {
+        return restartsDelayed;
+    }
+
+    /**
+     * 保存されたセッションが現在のブートのものでなければ初期化する
+     *
+     * @return 現在の経過時間
+     */
+    private long enterSession() {
+        long elapsed = clock.elapsedRealtime();
+        if (!isSameSession(clock.bootCount(), elapsed, clock.currentTimeMillis())) {
+            bootCount = clock.bootCount();
+            bootAtMillis = clock.currentTimeMillis() - elapsed;
+            flags = 0;
+            broadcastElapsed = -1;
+            enforcedElapsed = -1;
+            restartCount = 0;
+            lastRestartElapsed = 0;
+        }
+        lastSeenElapsed = elapsed;
+        return elapsed;
+    }
+
+    private boolean isCurrentSession() {
+        return isSameSession(clock.bootCount(), clock.elapsedRealtime(), clock.currentTimeMillis());
+    }
+
+    private boolean isSameSession(int currentBootCount, long elapsed, long nowMillis) {
+        if (lastSeenElapsed < 0 || elapsed < lastSeenElapsed) {
+            // 経過時間が戻るのは再起動した場合のみ
+            return false;
+        }
+        if (currentBootCount >= 0 && bootCount >= 0) {
+            return currentBootCount == bootCount;
+        }
+        // 起動回数が取得できない場合は起動時刻の推定で判断する（時刻の補正で別セッションと判断されても全適用が1回増えるだけ）
+        return Math.abs(nowMillis - elapsed - bootAtMillis) <= BOOT_TIME_TOLERANCE;
+    }
+
+    private void persist() {
+        recordBuffer.clear();
+        recordBuffer.putInt(bootCount);
+        recordBuffer.putLong(bootAtMillis);
+        recordBuffer.put((byte) flags);
+        recordBuffer.putLong(broadcastElapsed);
+        recordBuffer.putLong(enforcedElapsed);
+        recordBuffer.putShort((short) restartCount);
+        recordBuffer.putLong(lastRestartElapsed);
+        recordBuffer.putLong(lastSeenElapsed);
+        store.write(slot, record, recordBuffer.position());
+    }
+}
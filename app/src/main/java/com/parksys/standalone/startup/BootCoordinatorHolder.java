@@ -0,0 +1,65 @@
+package com.parksys.standalone.startup;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.provider.Settings;
+
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.AppStateHolder;
+
+/**
+ * ブートセッションの調整の共有インスタンス
+ * アプリ状態と同じ状態ファイルの専用スロットに保存する。
+ */
+public final class BootCoordinatorHolder {
+
+    private static volatile BootCoordinator instance;
+
+    private BootCoordinatorHolder() {
+    }
+
+    public static BootCoordinator get(Context context) {
+        BootCoordinator current = instance;
+        if (current == null) {
+            synchronized (BootCoordinatorHolder.class) {
+                current = instance;
+                if (current == null) {
+                    AppState state = AppStateHolder.get(context);
+                    current = new BootCoordinator(state.getStore(), AppState.SLOT_BOOT,
+                        new SystemBootClock(readBootCount(context)));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static int readBootCount(Context context) {
+        // 起動回数はプロセスの生存中に変わらないため1回だけ読む
+        return Settings.Global.getInt(context.getApplicationContext().getContentResolver(),
+            Settings.Global.BOOT_COUNT, -1);
+    }
+
+    private static final class SystemBootClock implements BootCoordinator.Clock {
+        private final int bootCount;
+
+        SystemBootClock(int bootCount) {
+            this.bootCount = bootCount;
+        }
+
+        @Override
+        public int bootCount() {
+            return bootCount;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    }
+}
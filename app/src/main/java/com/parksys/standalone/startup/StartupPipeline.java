@@ -0,0 +1,142 @@
+package com.parksys.standalone.startup;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 段階的な起動処理
+ * 互いに独立した初期化処理を小さなスレッドプールで並行に実行し、
+ * 段階ごとに android.os.Trace の区間と所要時間を記録する。
+ */
+public final class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+    private static final int POOL_SIZE = 3;
+
+    private final String name;
+    private final long startNanos;
+    private final int traceCookie;
+    private final ExecutorService executor;
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private volatile long interactiveNanos = -1;
+
+    public StartupPipeline(String name) {
+        this.name = name;
+        this.startNanos = System.nanoTime();
+        this.traceCookie = System.identityHashCode(this);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(POOL_SIZE, r -> {
+            Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, traceCookie);
+        }
+    }
+
+    /**
+     * 呼び出し元スレッドで段階を実行する（UI 描画など）
+     */
+    public void runOnCaller(String stage, Runnable work) {
+        long start = System.nanoTime();
+        Trace.beginSection(stage);
+        try {
+            work.run();
+        } finally {
+            Trace.endSection();
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 段階をバックグラウンドで実行する
+     */
+    public <T> CompletableFuture<T> stage(String stage, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> traced(stage, work), executor);
+    }
+
+    public CompletableFuture<Void> stage(String stage, Runnable work) {
+        return CompletableFuture.runAsync(() -> traced(stage, () -> {
+            work.run();
+            return null;
+        }), executor);
+    }
+
+    /**
+     * 前段の結果を受けて次の段階をバックグラウンドで実行する
+     */
+    public <T, R> CompletableFuture<R> then(CompletableFuture<T> previous, String stage, Function<T, R> work) {
+        return previous.thenApplyAsync(value -> traced(stage, () -> work.apply(value)), executor);
+    }
+
+    /**
+     * 操作可能になった時点を記録し、スレッドプールを解放する
+     */
+    public void markInteractive() {
+        if (interactiveNanos >= 0) {
+            return;
+        }
+        interactiveNanos = System.nanoTime() - startNanos;
+        shutdown();
+        Log.i(TAG, name + " interactive in " + interactiveNanos / 1000 + "us " + getStageDurations());
+    }
+
+    /**
+     * スレッドプールを解放する（操作可能にならずに終了する場合も必ず呼ぶこと。複数回呼んでもよい）
+     * 投入済みの段階は最後まで実行され、以降に前段の完了を待って投入する段階は例外で完了する。
+     */
+    public void shutdown() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, traceCookie);
+        }
+        executor.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /** 起動から操作可能になるまでの時間（未到達の場合は -1） */
+    public long getTimeToInteractiveNanos() {
+        return interactiveNanos;
+    }
+
+    /** 段階ごとの所要時間（ナノ秒、記録順） */
+    public Map<String, Long> getStageDurations() {
+        synchronized (stageNanos) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(stageNanos));
+        }
+    }
+
+    private <T> T traced(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        Trace.beginSection(stage);
+        try {
+            return work.get();
+        } finally {
+            Trace.endSection();
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    private void record(String stage, long nanos) {
+        synchronized (stageNanos) {
+            stageNanos.put(stage, nanos);
+        }
+    }
+}
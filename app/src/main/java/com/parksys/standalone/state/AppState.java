@@ -0,0 +1,209 @@
+package com.parksys.standalone.state;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * アプリ状態（ポリシー適用状況・セットアップ状況）
+ * {@link StateStore} の固定スロットに保存し、読み取りはメモリ上の値を返す。
+ */
+public final class AppState {
+
+    static final int SLOT_POLICY = 0;
+    static final int SLOT_SETUP = 1;
+    /** ログイン失敗の記録（{@code LoginFailureTracker} が使用） */
+    public static final int SLOT_LOGIN_FAILURES = 2;
+    static final int SLOT_SYNC = 3;
+    static final int SLOT_VERIFIED = 4;
+    /** ブートセッションの記録（{@code BootCoordinator} が使用） */
+    public static final int SLOT_BOOT = 5;
+    /** 端末の完全性の検査結果（{@code IntegrityChecker} が使用） */
+    public static final int SLOT_INTEGRITY = 6;
+    public static final int SLOT_COUNT = 7;
+
+    private static final int POLICY_FLAG_APPLIED = 1;
+    private static final int SETUP_FLAG_COMPLETE = 1;
+    private static final int SETUP_FLAG_LEGACY_MIGRATED = 1 << 1;
+
+    private final StateStore store;
+    private final byte[] record = new byte[StateStore.MAX_PAYLOAD];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+
+    private volatile boolean policyApplied;
+    private volatile String appliedPolicyVersion = "";
+    private volatile long policyAppliedAt;
+    private volatile int setupFlags;
+    private volatile long setupUpdatedAt;
+    private volatile String syncEtag;
+    private volatile long lastSyncAt;
+    private volatile byte[] verifiedDigest;
+
+    public AppState(StateStore store) {
+        this.store = store;
+        load();
+    }
+
+    private synchronized void load() {
+        int length = store.read(SLOT_POLICY, record);
+        if (length >= 10) {
+            recordBuffer.clear();
+            int flags = recordBuffer.get() & 0xFF;
+            long appliedAt = recordBuffer.getLong();
+            int versionLength = recordBuffer.get() & 0xFF;
+            if (10 + versionLength <= length) {
+                policyApplied = (flags & POLICY_FLAG_APPLIED) != 0;
+                policyAppliedAt = appliedAt;
+                appliedPolicyVersion = new String(record, 10, versionLength, StandardCharsets.UTF_8);
+            }
+        }
+
+        length = store.read(SLOT_SETUP, record);
+        if (length >= 9) {
+            recordBuffer.clear();
+            setupFlags = recordBuffer.get() & 0xFF;
+            setupUpdatedAt = recordBuffer.getLong();
+        }
+
+        length = store.read(SLOT_SYNC, record);
+        if (length >= 9) {
+            recordBuffer.clear();
+            long syncedAt = recordBuffer.getLong();
+            int etagLength = recordBuffer.get() & 0xFF;
+            if (9 + etagLength <= length) {
+                lastSyncAt = syncedAt;
+                syncEtag = etagLength > 0 ? new String(record, 9, etagLength, StandardCharsets.UTF_8) : null;
+            }
+        }
+
+        length = store.read(SLOT_VERIFIED, record);
+        if (length > 8) {
+            verifiedDigest = Arrays.copyOfRange(record, 8, length);
+        }
+    }
+
+    public StateStore getStore() {
+        return store;
+    }
+
+    public boolean isPolicyApplied() {
+        return policyApplied;
+    }
+
+    public String getAppliedPolicyVersion() {
+        return appliedPolicyVersion;
+    }
+
+    public long getPolicyAppliedAt() {
+        return policyAppliedAt;
+    }
+
+    public boolean isSetupComplete() {
+        return (setupFlags & SETUP_FLAG_COMPLETE) != 0;
+    }
+
+    public long getSetupUpdatedAt() {
+        return setupUpdatedAt;
+    }
+
+    public boolean isLegacyMigrated() {
+        return (setupFlags & SETUP_FLAG_LEGACY_MIGRATED) != 0;
+    }
+
+    /** 前回取得したポリシーの ETag（未取得の場合は null） */
+    public String getSyncEtag() {
+        return syncEtag;
+    }
+
+    /** 最後にサーバーへ問い合わせが成功した時刻（未取得の場合は 0） */
+    public long getLastSyncAt() {
+        return lastSyncAt;
+    }
+
+    /**
+     * 署名を検証済みのポリシーのダイジェストか
+     */
+    public boolean isPolicyVerified(byte[] digest) {
+        return Arrays.equals(verifiedDigest, digest);
+    }
+
+    /**
+     * 署名の検証に成功したポリシーのダイジェストを記録する（最新の1件のみ保持）
+     */
+    public synchronized void markPolicyVerified(byte[] digest, long nowMillis) {
+        if (Arrays.equals(verifiedDigest, digest) || digest.length > StateStore.MAX_PAYLOAD - 8) {
+            return;
+        }
+        recordBuffer.clear();
+        recordBuffer.putLong(nowMillis);
+        recordBuffer.put(digest);
+        store.write(SLOT_VERIFIED, record, recordBuffer.position());
+
+        verifiedDigest = digest.clone();
+    }
+
+    /**
+     * ポリシー取得の成功を記録する（変更なしの場合も含む）
+     */
+    public synchronized void markSynced(String etag, long nowMillis) {
+        byte[] etagBytes = etag != null ? etag.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (etagBytes.length > Math.min(0xFF, StateStore.MAX_PAYLOAD - 9)) {
+            // 保存できない長さの ETag は条件付き取得に使わない
+            etagBytes = new byte[0];
+        }
+        recordBuffer.clear();
+        recordBuffer.putLong(nowMillis);
+        recordBuffer.put((byte) etagBytes.length);
+        recordBuffer.put(etagBytes);
+        store.write(SLOT_SYNC, record, recordBuffer.position());
+
+        lastSyncAt = nowMillis;
+        syncEtag = etagBytes.length > 0 ? new String(etagBytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 適用済みポリシーを記録する。既に同じバージョンが記録されている場合は書き込まない。
+     *
+     * @return 書き込みを行った場合 true
+     */
+    public synchronized boolean markPolicyApplied(String version, long nowMillis) {
+        if (policyApplied && version.equals(appliedPolicyVersion)) {
+            return false;
+        }
+        byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        int versionLength = Math.min(versionBytes.length, Math.min(0xFF, StateStore.MAX_PAYLOAD - 10));
+        recordBuffer.clear();
+        recordBuffer.put((byte) POLICY_FLAG_APPLIED);
+        recordBuffer.putLong(nowMillis);
+        recordBuffer.put((byte) versionLength);
+        recordBuffer.put(versionBytes, 0, versionLength);
+        store.write(SLOT_POLICY, record, recordBuffer.position());
+
+        policyApplied = true;
+        policyAppliedAt = nowMillis;
+        appliedPolicyVersion = new String(versionBytes, 0, versionLength, StandardCharsets.UTF_8);
+        return true;
+    }
+
+    public synchronized void setSetupComplete(boolean complete, long nowMillis) {
+        int flags = complete ? setupFlags | SETUP_FLAG_COMPLETE : setupFlags & ~SETUP_FLAG_COMPLETE;
+        writeSetup(flags, nowMillis);
+    }
+
+    public synchronized void markLegacyMigrated(long nowMillis) {
+        writeSetup(setupFlags | SETUP_FLAG_LEGACY_MIGRATED, nowMillis);
+    }
+
+    private void writeSetup(int flags, long nowMillis) {
+        if (flags == setupFlags) {
+            return;
+        }
+        recordBuffer.clear();
+        recordBuffer.put((byte) flags);
+        recordBuffer.putLong(nowMillis);
+        store.write(SLOT_SETUP, record, recordBuffer.position());
+
+        setupFlags = flags;
+        setupUpdatedAt = nowMillis;
+    }
+}
@@ -0,0 +1,101 @@
+package com.parksys.standalone.state;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * アプリ状態の共有インスタンス
+ * 状態ファイルはデバイス保護ストレージに置くため、ロック解除前（LOCKED_BOOT_COMPLETED）でも読める。
+ */
+public final class AppStateHolder {
+
+    private static final String TAG = "AppState";
+    private static final String FILE_NAME = "parksys_state.bin";
+
+    // 旧 SharedPreferences（資格情報保護ストレージ）からの移行用
+    private static final String LEGACY_POLICY_PREFS = "EmbeddedPolicyPrefs";
+    private static final String LEGACY_KEY_POLICY_APPLIED = "policy_applied";
+    private static final String LEGACY_KEY_APPLIED_VERSION = "applied_version";
+    private static final String LEGACY_SETUP_PREFS = "StandaloneSecurityPrefs";
+    private static final String LEGACY_KEY_SETUP_COMPLETE = "setup_complete";
+
+    private static volatile AppState instance;
+
+    private AppStateHolder() {
+    }
+
+    public static AppState get(Context context) {
+        AppState current = instance;
+        if (current == null) {
+            synchronized (AppStateHolder.class) {
+                current = instance;
+                if (current == null) {
+                    current = open(context.getApplicationContext());
+                    instance = current;
+                }
+            }
+        }
+        migrateLegacyPreferences(context, current);
+        return current;
+    }
+
+    /**
+     * 読み込み済みの状態を返す（未読み込みの場合は null、読み込みは行わない）
+     */
+    public static AppState peek() {
+        return instance;
+    }
+
+    private static AppState open(Context context) {
+        long start = System.nanoTime();
+        Context storageContext = context.createDeviceProtectedStorageContext();
+        File file = new File(storageContext.getFilesDir(), FILE_NAME);
+        StateStore store;
+        try {
+            store = StateStore.open(file, AppState.SLOT_COUNT);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open state store - state will not persist", e);
+            store = StateStore.inMemory(AppState.SLOT_COUNT);
+        }
+        AppState state = new AppState(store);
+        Log.i(TAG, "State loaded in " + (System.nanoTime() - start) / 1000 + "us"
+            + (store.isCreated() ? " (new)" : ""));
+        return state;
+    }
+
+    /**
+     * 旧 SharedPreferences の内容を一度だけ取り込む（ロック解除後のみ可能）
+     */
+    private static void migrateLegacyPreferences(Context context, AppState state) {
+        if (state.isLegacyMigrated()) {
+            return;
+        }
+        UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        if (userManager == null || !userManager.isUserUnlocked()) {
+            return;
+        }
+        synchronized (AppStateHolder.class) {
+            if (state.isLegacyMigrated()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            SharedPreferences policyPrefs = context.getSharedPreferences(LEGACY_POLICY_PREFS, Context.MODE_PRIVATE);
+            if (policyPrefs.getBoolean(LEGACY_KEY_POLICY_APPLIED, false)) {
+                state.markPolicyApplied(policyPrefs.getString(LEGACY_KEY_APPLIED_VERSION, ""), now);
+            }
+            SharedPreferences setupPrefs = context.getSharedPreferences(LEGACY_SETUP_PREFS, Context.MODE_PRIVATE);
+            if (setupPrefs.getBoolean(LEGACY_KEY_SETUP_COMPLETE, false)) {
+                state.setSetupComplete(true, now);
+            }
+            state.markLegacyMigrated(now);
+            context.deleteSharedPreferences(LEGACY_POLICY_PREFS);
+            context.deleteSharedPreferences(LEGACY_SETUP_PREFS);
+            Log.i(TAG, "Legacy preferences migrated");
+        }
+    }
+}
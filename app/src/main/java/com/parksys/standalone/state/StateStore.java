@@ -0,0 +1,232 @@
+package com.parksys.standalone.state;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * 固定レイアウトの状態ストア
+ * メモリマップしたファイルに固定長スロットを並べ、各スロットは A/B 2面で保持する。
+ * 書き込みは非アクティブ面に行い、最後に世代番号を進めることで原子的に切り替える。
+ * 途中で中断された書き込みは CRC で検出され、直前の面が使われる。
+ * {@link #writeDeferred} はディスクへの書き出し（msync）を次の {@link #write}・{@link #flush()} まで遅らせる。
+ *
+ * <pre>
+ * header   64 バイト { magic u32 "PSST", layout u16, slotCount u16, 予約 }
+ * slots    slotCount × 2面 × SLOT_SIZE
+ * 面       { seq u32, length u16, 予約 u16, crc32 u32, payload[MAX_PAYLOAD] }
+ * </pre>
+ */
+public final class StateStore implements Closeable {
+
+    private static final int MAGIC = 0x50535354; // "PSST"
+    private static final int LAYOUT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COPY_HEADER_SIZE = 12;
+
+    public static final int SLOT_SIZE = 256;
+    public static final int MAX_PAYLOAD = SLOT_SIZE - COPY_HEADER_SIZE;
+
+    private final RandomAccessFile file;
+    private final ByteBuffer buffer;
+    private final int slotCount;
+    private final boolean created;
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[MAX_PAYLOAD];
+    private boolean dirty;
+
+    private StateStore(RandomAccessFile file, ByteBuffer buffer, int slotCount, boolean created) {
+        this.file = file;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.created = created;
+    }
+
+    /**
+     * ファイルを開いてメモリマップする。存在しない・形式が異なる場合は初期化する。
+     * 既存ファイルのスロット数が少ない場合は内容を保ったまま拡張する。
+     */
+    public static StateStore open(File path, int slotCount) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            boolean valid = false;
+            int existingSlots = 0;
+            if (file.length() >= HEADER_SIZE) {
+                file.seek(0);
+                valid = file.readInt() == MAGIC && file.readUnsignedShort() == LAYOUT_VERSION;
+                existingSlots = valid ? file.readUnsignedShort() : 0;
+            }
+            int slots = Math.max(slotCount, existingSlots);
+            long size = sizeFor(slots);
+            if (!valid) {
+                file.setLength(0);
+            }
+            if (file.length() < size) {
+                file.setLength(size);
+            }
+            MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.order(ByteOrder.BIG_ENDIAN);
+            StateStore store = new StateStore(file, mapped, slots, !valid);
+            if (!valid || existingSlots != slots) {
+                store.writeHeader();
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * ファイルを使わないメモリ上のストア（ファイルが開けない場合の代替）
+     */
+    public static StateStore inMemory(int slotCount) {
+        StateStore store = new StateStore(null, ByteBuffer.allocate((int) sizeFor(slotCount)), slotCount, true);
+        store.writeHeader();
+        return store;
+    }
+
+    private static long sizeFor(int slots) {
+        return HEADER_SIZE + (long) slots * 2 * SLOT_SIZE;
+    }
+
+    /** 新規作成（または破損により初期化）されたか */
+    public boolean isCreated() {
+        return created;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * スロットの最新の有効な内容を dst に読み込む
+     *
+     * @return 読み込んだバイト数（有効な内容がない場合は -1）
+     */
+    public synchronized int read(int slot, byte[] dst) {
+        int a = copyOffset(slot, 0);
+        int b = copyOffset(slot, 1);
+        long seqA = seq(a);
+        long seqB = seq(b);
+        int first = seqA >= seqB ? a : b;
+        int second = first == a ? b : a;
+        int length = readCopy(first, dst);
+        return length >= 0 ? length : readCopy(second, dst);
+    }
+
+    /**
+     * スロットの内容を原子的に置き換え、ディスクに書き出す
+     */
+    public synchronized void write(int slot, byte[] src, int length) {
+        writeCopy(slot, src, length);
+        force();
+    }
+
+    /**
+     * スロットの内容を原子的に置き換える（ディスクへの書き出しは遅らせる）
+     * メモリマップした内容はプロセスが終了しても失われないが、電源断・カーネルの異常終了では失われることがある。
+     */
+    public synchronized void writeDeferred(int slot, byte[] src, int length) {
+        writeCopy(slot, src, length);
+        dirty = true;
+    }
+
+    /**
+     * 遅らせた書き込みをディスクに書き出す（なければ何もしない）
+     */
+    public synchronized void flush() {
+        if (dirty) {
+            force();
+        }
+    }
+
+    private void writeCopy(int slot, byte[] src, int length) {
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Payload too large: " + length);
+        }
+        int a = copyOffset(slot, 0);
+        int b = copyOffset(slot, 1);
+        long seqA = validSeq(a);
+        long seqB = validSeq(b);
+        int target = seqA >= seqB ? b : a;
+        long nextSeq = (Math.max(seqA, seqB) + 1) & 0xFFFFFFFFL;
+        if (nextSeq == 0) {
+            nextSeq = 1;
+        }
+
+        crc.reset();
+        crc.update(src, 0, length);
+
+        buffer.putInt(target, 0); // 書き込み中の面を無効化
+        buffer.putShort(target + 4, (short) length);
+        buffer.putInt(target + 8, (int) crc.getValue());
+        for (int i = 0; i < length; i++) {
+            buffer.put(target + COPY_HEADER_SIZE + i, src[i]);
+        }
+        buffer.putInt(target, (int) nextSeq);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (file != null) {
+            force();
+            file.close();
+        }
+    }
+
+    private int readCopy(int offset, byte[] dst) {
+        if (seq(offset) == 0) {
+            return -1;
+        }
+        int length = buffer.getShort(offset + 4) & 0xFFFF;
+        if (length > MAX_PAYLOAD || length > dst.length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(offset + COPY_HEADER_SIZE + i);
+        }
+        crc.reset();
+        crc.update(scratch, 0, length);
+        if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+            return -1;
+        }
+        System.arraycopy(scratch, 0, dst, 0, length);
+        return length;
+    }
+
+    private long validSeq(int offset) {
+        return readCopy(offset, scratch) >= 0 ? seq(offset) : 0;
+    }
+
+    private long seq(int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private int copyOffset(int slot, int copy) {
+        if (slot < 0 || slot >= slotCount) {
+            throw new IllegalArgumentException("Slot out of range: " + slot);
+        }
+        return HEADER_SIZE + (slot * 2 + copy) * SLOT_SIZE;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) LAYOUT_VERSION);
+        buffer.putShort(6, (short) slotCount);
+        force();
+    }
+
+    private void force() {
+        dirty = false;
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+}
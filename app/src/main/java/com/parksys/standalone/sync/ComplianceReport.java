@@ -0,0 +1,109 @@
+package com.parksys.standalone.sync;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 管理サーバーに送るコンプライアンス状態（1回のチェック結果）
+ *
+ * <pre>
+ * { seq i64, time i64, flags u8, drifted u16, noncompliant u16, lastEnforce i64, versionLength u8, version UTF-8 }
+ * </pre>
+ */
+public final class ComplianceReport {
+
+    public static final int FLAG_APPLIED = 1;
+    public static final int FLAG_ADMIN_ACTIVE = 1 << 1;
+    /** 完全性の検査で root 化・改ざんの兆候を検出した */
+    public static final int FLAG_INTEGRITY_FAILED = 1 << 2;
+    /** 接続中のネットワークがルールに違反している */
+    public static final int FLAG_NETWORK_NONCOMPLIANT = 1 << 3;
+
+    static final int MAX_VERSION_LENGTH = 64;
+    static final int MAX_ENCODED_SIZE = 8 + 8 + 1 + 2 + 2 + 8 + 1 + MAX_VERSION_LENGTH;
+
+    public final long seq;
+    public final long timeMillis;
+    public final String policyVersion;
+    public final int flags;
+    public final int drifted;
+    public final int noncompliant;
+    public final long lastEnforceMillis;
+
+    public ComplianceReport(long seq, long timeMillis, String policyVersion, int flags,
+                            int drifted, int noncompliant, long lastEnforceMillis) {
+        this.seq = seq;
+        this.timeMillis = timeMillis;
+        this.policyVersion = policyVersion != null ? policyVersion : "";
+        this.flags = flags;
+        this.drifted = Math.min(drifted, 0xFFFF);
+        this.noncompliant = Math.min(noncompliant, 0xFFFF);
+        this.lastEnforceMillis = lastEnforceMillis;
+    }
+
+    public boolean isApplied() {
+        return (flags & FLAG_APPLIED) != 0;
+    }
+
+    public boolean isAdminActive() {
+        return (flags & FLAG_ADMIN_ACTIVE) != 0;
+    }
+
+    public boolean isIntegrityFailed() {
+        return (flags & FLAG_INTEGRITY_FAILED) != 0;
+    }
+
+    public boolean isNetworkNoncompliant() {
+        return (flags & FLAG_NETWORK_NONCOMPLIANT) != 0;
+    }
+
+    /**
+     * キューに保存する形式
+     */
+    public byte[] encode() {
+        byte[] version = versionBytes(policyVersion);
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_ENCODED_SIZE - MAX_VERSION_LENGTH + version.length);
+        buffer.putLong(seq)
+            .putLong(timeMillis)
+            .put((byte) flags)
+            .putShort((short) drifted)
+            .putShort((short) noncompliant)
+            .putLong(lastEnforceMillis)
+            .put((byte) version.length)
+            .put(version);
+        return buffer.array();
+    }
+
+    public static ComplianceReport decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        long seq = buffer.getLong();
+        long time = buffer.getLong();
+        int flags = buffer.get() & 0xFF;
+        int drifted = buffer.getShort() & 0xFFFF;
+        int noncompliant = buffer.getShort() & 0xFFFF;
+        long lastEnforce = buffer.getLong();
+        byte[] version = new byte[buffer.get() & 0xFF];
+        buffer.get(version);
+        return new ComplianceReport(seq, time, new String(version, StandardCharsets.UTF_8),
+            flags, drifted, noncompliant, lastEnforce);
+    }
+
+    static byte[] versionBytes(String version) {
+        byte[] bytes = version.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_VERSION_LENGTH) {
+            return bytes;
+        }
+        byte[] truncated = new byte[MAX_VERSION_LENGTH];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_VERSION_LENGTH);
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + seq + " v" + policyVersion
+            + " applied=" + isApplied()
+            + " admin=" + isAdminActive()
+            + " drifted=" + drifted
+            + " noncompliant=" + noncompliant;
+    }
+}
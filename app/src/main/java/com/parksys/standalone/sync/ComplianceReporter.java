@@ -0,0 +1,53 @@
+package com.parksys.standalone.sync;
+
+import java.io.IOException;
+
+/**
+ * チェック結果をコンプライアンス報告としてキューに追加する
+ * 報告の番号はキューの最後のレコードから続けるため、再起動後も単調に増える。
+ */
+public final class ComplianceReporter {
+
+    private final ReportQueue queue;
+    private long lastSeq;
+    private long lastEnforceMillis;
+
+    public ComplianceReporter(ReportQueue queue) {
+        this.queue = queue;
+        byte[] last = queue.getLastAppended();
+        if (last != null) {
+            ComplianceReport report = ComplianceReport.decode(last);
+            lastSeq = report.seq;
+            lastEnforceMillis = report.lastEnforceMillis;
+        }
+    }
+
+    /**
+     * @param appliedAtMillis ポリシーを適用した時刻（なければ 0）
+     * @param drifted         このチェックで修正した項目数
+     * @param integrityFailed 完全性の検査で兆候を検出しているか
+     * @param networkViolated 接続中のネットワークがルールに違反しているか
+     * @return 追加した報告
+     */
+    public synchronized ComplianceReport record(long nowMillis, String policyVersion, boolean applied,
+                                                boolean adminActive, boolean integrityFailed,
+                                                boolean networkViolated, int drifted, int noncompliant,
+                                                long appliedAtMillis) throws IOException {
+        // 最後に端末の設定を書き換えた時刻（ずれの修正またはポリシーの適用）
+        long lastEnforce = drifted > 0 ? nowMillis : Math.max(lastEnforceMillis, appliedAtMillis);
+        int flags = (applied ? ComplianceReport.FLAG_APPLIED : 0)
+            | (adminActive ? ComplianceReport.FLAG_ADMIN_ACTIVE : 0)
+            | (integrityFailed ? ComplianceReport.FLAG_INTEGRITY_FAILED : 0)
+            | (networkViolated ? ComplianceReport.FLAG_NETWORK_NONCOMPLIANT : 0);
+        ComplianceReport report = new ComplianceReport(lastSeq + 1, nowMillis, policyVersion, flags,
+            drifted, noncompliant, lastEnforce);
+        queue.append(report.encode());
+        lastSeq = report.seq;
+        lastEnforceMillis = lastEnforce;
+        return report;
+    }
+
+    public ReportQueue getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,252 @@
+package com.parksys.standalone.sync;
+
+import com.parksys.standalone.policy.PolicyBundle;
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDelta;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 管理サーバーからのポリシー取得（GET /policies）
+ * <ul>
+ * <li>ETag による条件付き取得（変更がなければ 304 で本文なし）</li>
+ * <li>X-Policy-Version で現在の版を伝え、サーバーは差分形式で返せる</li>
+ * <li>gzip 圧縮された本文を受け付ける</li>
+ * </ul>
+ * 本文を最後まで読んでストリームを閉じ、接続は切断しないため、
+ * HttpURLConnection の keep-alive プールにより同じ接続が再利用される。
+ */
+public final class PolicySyncClient {
+
+    public static final String PATH_POLICIES = "/policies";
+    public static final String CONTENT_TYPE_POLICY = "application/x-parksys-policy";
+    public static final String CONTENT_TYPE_DELTA = "application/x-parksys-policy-delta";
+    public static final String HEADER_DEVICE_ID = "X-Device-ID";
+    public static final String HEADER_POLICY_VERSION = "X-Policy-Version";
+    /** 取得した文書（差分の場合は適用後の文書）に対する署名。{@link PolicyBundle#signatureHeader} の形式 */
+    public static final String HEADER_POLICY_SIGNATURE = "X-Policy-Signature";
+
+    private static final int MAX_BODY_SIZE = 256 * 1024;
+
+    public static final int STATUS_NOT_MODIFIED = 1;
+    public static final int STATUS_UPDATED = 2;
+
+    /**
+     * 取得結果
+     */
+    public static final class Result {
+        public final int status;
+        /** 新しい文書のバイナリ形式（STATUS_UPDATED の場合のみ） */
+        public final byte[] encoded;
+        public final PolicyDocument document;
+        public final String etag;
+        public final boolean delta;
+        public final long bytesReceived;
+        /** 署名ヘッダーの値（署名がない場合は null） */
+        public final String signature;
+
+        Result(int status, byte[] encoded, PolicyDocument document, String etag, boolean delta,
+               long bytesReceived, String signature) {
+            this.status = status;
+            this.encoded = encoded;
+            this.document = document;
+            this.etag = etag;
+            this.delta = delta;
+            this.bytesReceived = bytesReceived;
+            this.signature = signature;
+        }
+    }
+
+    private final URL policiesUrl;
+    private final String deviceId;
+    private final int timeoutMillis;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public PolicySyncClient(String baseUrl, String deviceId, int timeoutMillis) throws IOException {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.policiesUrl = new URL(base + PATH_POLICIES);
+        this.deviceId = deviceId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 最新のポリシーを取得する
+     *
+     * @param current 端末が現在使用している文書（差分の基準）
+     * @param etag    前回取得時の ETag（なければ null）
+     * @throws IOException 通信エラー・サーバーエラー・形式不正の場合
+     */
+    public Result fetch(PolicyDocument current, String etag) throws IOException {
+        try {
+            return request(current, etag, true);
+        } catch (PolicyFormatException e) {
+            // 差分を適用できない場合は全体を取り直す
+            return request(current, null, false);
+        }
+    }
+
+    /**
+     * 差分を使わずに全体を取得する
+     * 差分から組み立てた文書の署名が一致しない場合に使う（同じ版を伝えると同じ差分が返るため）。
+     */
+    public Result fetchFull(PolicyDocument current) throws IOException {
+        return request(current, null, false);
+    }
+
+    private Result request(PolicyDocument current, String etag, boolean allowDelta) throws IOException {
+        requests.incrementAndGet();
+        HttpURLConnection connection = (HttpURLConnection) policiesUrl.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Accept", allowDelta
+            ? CONTENT_TYPE_DELTA + ", " + CONTENT_TYPE_POLICY : CONTENT_TYPE_POLICY);
+        // 自分で指定した場合は自動展開されないため、下で展開する
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        connection.setRequestProperty(HEADER_DEVICE_ID, deviceId);
+        if (allowDelta && current != null) {
+            connection.setRequestProperty(HEADER_POLICY_VERSION, current.getVersion());
+        }
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+
+        int code = connection.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            drain(connection);
+            notModified.incrementAndGet();
+            return new Result(STATUS_NOT_MODIFIED, null, current, etag, false, 0, null);
+        }
+        if (code != HttpURLConnection.HTTP_OK) {
+            drain(connection);
+            throw new IOException("Policy fetch failed: HTTP " + code);
+        }
+
+        String contentType = connection.getContentType();
+        String newEtag = connection.getHeaderField("ETag");
+        CountingInputStream counter = new CountingInputStream(connection.getInputStream());
+        byte[] body;
+        try (InputStream in = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+                ? new GZIPInputStream(counter) : counter) {
+            body = readFully(in);
+        }
+        bytesReceived.addAndGet(counter.count);
+
+        boolean delta = contentType != null && contentType.startsWith(CONTENT_TYPE_DELTA);
+        byte[] encoded;
+        if (delta) {
+            if (current == null) {
+                throw new PolicyFormatException("Delta without base document");
+            }
+            encoded = PolicyDelta.apply(current, ByteBuffer.wrap(body));
+            deltas.incrementAndGet();
+        } else {
+            encoded = body;
+        }
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(encoded));
+        updates.incrementAndGet();
+        return new Result(STATUS_UPDATED, encoded, document, newEtag, delta, counter.count,
+            connection.getHeaderField(HEADER_POLICY_SIGNATURE));
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getUpdates() {
+        return updates.get();
+    }
+
+    public long getDeltas() {
+        return deltas.get();
+    }
+
+    /** 受信した本文のバイト数（圧縮後） */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * 本文を読み切って閉じる（接続をプールに戻すため）
+     */
+    static void drain(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() >= 400
+            ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[512];
+            while (stream.read(buffer) >= 0) {
+                // 破棄
+            }
+        }
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            if (length == buffer.length) {
+                if (buffer.length >= MAX_BODY_SIZE) {
+                    throw new IOException("Response too large");
+                }
+                byte[] grown = new byte[Math.min(buffer.length * 2, MAX_BODY_SIZE)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * 通信量（圧縮後のバイト数）の計測
+     */
+    static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.parksys.standalone.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * コンプライアンス報告のバッチ形式（POST /device/state の本文）
+ *
+ * 各報告は直前の報告との差分で表す。先頭の報告の基準はサーバーが確認応答済みの最後の報告で、
+ * 基準がない場合（baseSeq = 0）はすべての項目を持つ。
+ * 定期チェックでは時刻以外ほとんど変わらないため、1件あたり数バイトになる。
+ *
+ * <pre>
+ * { magic u32 "PRPT", format u8, baseSeq i64, count varint,
+ *   count × { changed u8, seqDelta varint, timeDelta zigzag,
+ *             [version: length u8, UTF-8], [flags u8], [drifted varint], [noncompliant varint],
+ *             [lastEnforceDelta zigzag] } }
+ * </pre>
+ */
+public final class ReportCodec {
+
+    public static final int MAGIC = 0x50525054; // "PRPT"
+    public static final int FORMAT = 1;
+
+    private static final int CHANGED_VERSION = 1;
+    private static final int CHANGED_FLAGS = 1 << 1;
+    private static final int CHANGED_DRIFTED = 1 << 2;
+    private static final int CHANGED_NONCOMPLIANT = 1 << 3;
+    private static final int CHANGED_LAST_ENFORCE = 1 << 4;
+
+    private static final ComplianceReport EMPTY = new ComplianceReport(0, 0, "", 0, 0, 0, 0);
+
+    private ReportCodec() {
+    }
+
+    /**
+     * @param base 確認応答済みの最後の報告（なければ null）
+     */
+    public static byte[] encodeBatch(ComplianceReport base, List<ComplianceReport> reports) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + reports.size() * 8);
+        writeInt(out, MAGIC);
+        out.write(FORMAT);
+        writeLong(out, base != null ? base.seq : 0);
+        writeVarint(out, reports.size());
+        ComplianceReport previous = base != null ? base : EMPTY;
+        for (ComplianceReport report : reports) {
+            int changed = 0;
+            if (!report.policyVersion.equals(previous.policyVersion)) {
+                changed |= CHANGED_VERSION;
+            }
+            if (report.flags != previous.flags) {
+                changed |= CHANGED_FLAGS;
+            }
+            if (report.drifted != previous.drifted) {
+                changed |= CHANGED_DRIFTED;
+            }
+            if (report.noncompliant != previous.noncompliant) {
+                changed |= CHANGED_NONCOMPLIANT;
+            }
+            if (report.lastEnforceMillis != previous.lastEnforceMillis) {
+                changed |= CHANGED_LAST_ENFORCE;
+            }
+            out.write(changed);
+            writeVarint(out, report.seq - previous.seq);
+            writeVarint(out, zigzag(report.timeMillis - previous.timeMillis));
+            if ((changed & CHANGED_VERSION) != 0) {
+                byte[] version = ComplianceReport.versionBytes(report.policyVersion);
+                out.write(version.length);
+                out.write(version, 0, version.length);
+            }
+            if ((changed & CHANGED_FLAGS) != 0) {
+                out.write(report.flags);
+            }
+            if ((changed & CHANGED_DRIFTED) != 0) {
+                writeVarint(out, report.drifted);
+            }
+            if ((changed & CHANGED_NONCOMPLIANT) != 0) {
+                writeVarint(out, report.noncompliant);
+            }
+            if ((changed & CHANGED_LAST_ENFORCE) != 0) {
+                writeVarint(out, zigzag(report.lastEnforceMillis - previous.lastEnforceMillis));
+            }
+            previous = report;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * バッチが基準とする報告の番号（0 = 基準なし）
+     */
+    public static long readBaseSeq(ByteBuffer buffer) throws ReportFormatException {
+        if (buffer.remaining() < 13 || buffer.getInt(buffer.position()) != MAGIC) {
+            throw new ReportFormatException("Not a report batch");
+        }
+        if (buffer.get(buffer.position() + 4) != FORMAT) {
+            throw new ReportFormatException("Unsupported report format");
+        }
+        return buffer.getLong(buffer.position() + 5);
+    }
+
+    /**
+     * バッチを復元する
+     *
+     * @param base 受信側が保持している最後の報告（なければ null）
+     * @return 最後の報告（次のバッチの基準）
+     * @throws ReportFormatException 形式不正、または基準の番号が一致しない場合
+     */
+    public static ComplianceReport decodeBatch(ComplianceReport base, ByteBuffer buffer,
+                                               List<ComplianceReport> out) throws ReportFormatException {
+        long baseSeq = readBaseSeq(buffer);
+        if (baseSeq != 0 && (base == null || base.seq != baseSeq)) {
+            throw new ReportFormatException("Unknown base report #" + baseSeq);
+        }
+        ComplianceReport previous = baseSeq != 0 ? base : EMPTY;
+        try {
+            buffer.position(buffer.position() + 13);
+            long count = readVarint(buffer);
+            for (long i = 0; i < count; i++) {
+                int changed = buffer.get() & 0xFF;
+                long seq = previous.seq + readVarint(buffer);
+                long time = previous.timeMillis + unzigzag(readVarint(buffer));
+                String version = previous.policyVersion;
+                if ((changed & CHANGED_VERSION) != 0) {
+                    byte[] bytes = new byte[buffer.get() & 0xFF];
+                    buffer.get(bytes);
+                    version = new String(bytes, StandardCharsets.UTF_8);
+                }
+                int flags = (changed & CHANGED_FLAGS) != 0 ? buffer.get() & 0xFF : previous.flags;
+                int drifted = (changed & CHANGED_DRIFTED) != 0 ? (int) readVarint(buffer) : previous.drifted;
+                int noncompliant = (changed & CHANGED_NONCOMPLIANT) != 0
+                    ? (int) readVarint(buffer) : previous.noncompliant;
+                long lastEnforce = (changed & CHANGED_LAST_ENFORCE) != 0
+                    ? previous.lastEnforceMillis + unzigzag(readVarint(buffer)) : previous.lastEnforceMillis;
+                ComplianceReport report = new ComplianceReport(seq, time, version, flags,
+                    drifted, noncompliant, lastEnforce);
+                out.add(report);
+                previous = report;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new ReportFormatException("Truncated report batch");
+        }
+        return previous == EMPTY ? base : previous;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) throws ReportFormatException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ReportFormatException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,13 @@
+package com.parksys.standalone.sync;
+
+import java.io.IOException;
+
+/**
+ * コンプライアンス報告のバッチ形式が不正な場合の例外
+ */
+public class ReportFormatException extends IOException {
+
+    public ReportFormatException(String message) {
+        super(message);
+    }
+}
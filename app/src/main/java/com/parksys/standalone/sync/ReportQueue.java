@@ -0,0 +1,455 @@
+package com.parksys.standalone.sync;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * 送信待ちレコードのファイル上のキュー
+ *
+ * レコードはセグメントファイルに追記し、送信先が確認応答した位置までを読み取り位置として保存する。
+ * 読み終えたセグメントは削除する。上限のセグメント数を超えた場合は最も古いセグメントを捨てる。
+ * 確認応答した最後のレコードは差分の基準として読み取り位置と一緒に保存する。
+ * 末尾の書きかけのレコードは CRC で検出し、開くときに切り詰める。
+ *
+ * <pre>
+ * q-NNNNNNNN.seg   レコード列 { length u16, crc32 i32, payload }
+ * queue.cur        { magic u32, seq i32, offset i64, records i64, ackedLength u16, acked payload }
+ * </pre>
+ */
+public final class ReportQueue implements Closeable {
+
+    /**
+     * 読み出したレコードの組（{@link #ack} に渡すと読み取り位置を進める）
+     */
+    public static final class Batch {
+        public final List<byte[]> records;
+        public final int bytes;
+        final int endSeq;
+        final long endOffset;
+
+        Batch(List<byte[]> records, int bytes, int endSeq, long endOffset) {
+            this.records = records;
+            this.bytes = bytes;
+            this.endSeq = endSeq;
+            this.endOffset = endOffset;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    public static final int MAX_RECORD_SIZE = 0xFFFF;
+
+    private static final int HEADER_SIZE = 6;
+    private static final int CURSOR_MAGIC = 0x50525143; // "PRQC"
+    private static final String CURSOR_FILE = "queue.cur";
+    private static final String SEGMENT_PREFIX = "q-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final class Segment {
+        final int seq;
+        long bytes;
+        int records;
+
+        Segment(int seq) {
+            this.seq = seq;
+        }
+    }
+
+    private final File directory;
+    private final long segmentMaxBytes;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel tailChannel;
+
+    // 読み取り位置（先頭セグメント内）
+    private int headSeq;
+    private long headOffset;
+    private int headRecords;
+    private byte[] lastAcked;
+    private byte[] lastAppended;
+    private int pending;
+    private long dropped;
+
+    public ReportQueue(File directory, long segmentMaxBytes, int maxSegments) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.maxSegments = Math.max(maxSegments, 2);
+        synchronized (this) {
+            load();
+        }
+    }
+
+    /**
+     * レコードを追記してディスクに書き出す
+     */
+    public synchronized void append(byte[] record) throws IOException {
+        if (record.length > MAX_RECORD_SIZE) {
+            throw new IOException("Record too large: " + record.length);
+        }
+        Segment tail = tailSegment(HEADER_SIZE + record.length);
+        crc.reset();
+        crc.update(record, 0, record.length);
+        header.clear();
+        header.putShort((short) record.length).putInt((int) crc.getValue()).flip();
+        ByteBuffer payload = ByteBuffer.wrap(record);
+        while (header.hasRemaining()) {
+            tailChannel.write(header);
+        }
+        while (payload.hasRemaining()) {
+            tailChannel.write(payload);
+        }
+        tailChannel.force(false);
+        tail.bytes += HEADER_SIZE + record.length;
+        tail.records++;
+        pending++;
+        lastAppended = record;
+    }
+
+    /**
+     * 読み取り位置から未送信のレコードを読み出す（読み取り位置は進めない）
+     */
+    public synchronized Batch peek(int maxRecords, int maxBytes) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        int bytes = 0;
+        int endSeq = headSeq;
+        long endOffset = headOffset;
+        for (Segment segment : segments) {
+            if (segment.seq < headSeq) {
+                continue;
+            }
+            long offset = segment.seq == headSeq ? headOffset : 0;
+            if (offset >= segment.bytes) {
+                continue;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segmentFile(segment.seq), "r")) {
+                FileChannel channel = file.getChannel();
+                while (offset < segment.bytes && records.size() < maxRecords) {
+                    byte[] record = readRecord(channel, offset);
+                    if (record == null) {
+                        break;
+                    }
+                    if (!records.isEmpty() && bytes + record.length > maxBytes) {
+                        return new Batch(records, bytes, endSeq, endOffset);
+                    }
+                    records.add(record);
+                    bytes += record.length;
+                    offset += HEADER_SIZE + record.length;
+                    endSeq = segment.seq;
+                    endOffset = offset;
+                }
+            }
+            if (records.size() >= maxRecords) {
+                break;
+            }
+        }
+        return new Batch(records, bytes, endSeq, endOffset);
+    }
+
+    /**
+     * 送信先が受け取ったバッチまで読み取り位置を進め、読み終えたセグメントを削除する
+     */
+    public synchronized void ack(Batch batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.endSeq < headSeq || (batch.endSeq == headSeq && batch.endOffset <= headOffset)) {
+            // 送信中に古いセグメントが捨てられた
+            return;
+        }
+        int consumed = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.seq > batch.endSeq) {
+                break;
+            }
+            consumed += segment.records - (segment.seq == headSeq ? headRecords : 0);
+        }
+        Segment end = findSegment(batch.endSeq);
+        int endRecords = end != null ? countRecords(end.seq, batch.endOffset) : 0;
+        if (end != null) {
+            consumed -= end.records - endRecords;
+        }
+        headSeq = batch.endSeq;
+        headOffset = batch.endOffset;
+        headRecords = endRecords;
+        lastAcked = batch.records.get(batch.records.size() - 1);
+        pending = Math.max(0, pending - consumed);
+        writeCursor();
+        deleteConsumedSegments();
+    }
+
+    /** 確認応答された最後のレコード（なければ null） */
+    public synchronized byte[] getLastAcked() {
+        return lastAcked;
+    }
+
+    /** 最後に追記したレコード（すべて送信済みの場合は確認応答された最後のレコード、なければ null） */
+    public synchronized byte[] getLastAppended() {
+        return lastAppended != null ? lastAppended : lastAcked;
+    }
+
+    /** 未送信のレコード数 */
+    public synchronized int size() {
+        return pending;
+    }
+
+    /** 容量超過で捨てたレコード数（この起動以降） */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized long getBytesOnDisk() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (tailChannel != null) {
+            tailChannel.close();
+            tailChannel = null;
+        }
+    }
+
+    private Segment tailSegment(int recordSize) throws IOException {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && (last.bytes == 0 || last.bytes + recordSize <= segmentMaxBytes)) {
+            if (tailChannel == null) {
+                tailChannel = new RandomAccessFile(segmentFile(last.seq), "rw").getChannel();
+                tailChannel.truncate(last.bytes);
+                tailChannel.position(last.bytes);
+            }
+            return last;
+        }
+        if (tailChannel != null) {
+            tailChannel.close();
+        }
+        Segment segment = new Segment(last == null ? Math.max(headSeq, 1) : last.seq + 1);
+        segments.add(segment);
+        tailChannel = new RandomAccessFile(segmentFile(segment.seq), "rw").getChannel();
+        tailChannel.truncate(0);
+        if (headSeq == 0) {
+            headSeq = segment.seq;
+        }
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+        return segment;
+    }
+
+    /**
+     * 最も古いセグメントを未送信分ごと捨てる
+     */
+    private void dropOldest() throws IOException {
+        Segment oldest = segments.remove(0);
+        if (oldest.seq >= headSeq) {
+            int lost = oldest.records - (oldest.seq == headSeq ? headRecords : 0);
+            dropped += lost;
+            pending -= lost;
+            headSeq = segments.get(0).seq;
+            headOffset = 0;
+            headRecords = 0;
+            writeCursor();
+        }
+        //noinspection ResultOfMethodCallIgnored
+        segmentFile(oldest.seq).delete();
+    }
+
+    private void deleteConsumedSegments() throws IOException {
+        while (segments.size() > 1) {
+            Segment first = segments.get(0);
+            boolean consumed = first.seq < headSeq || (first.seq == headSeq && headOffset >= first.bytes);
+            if (!consumed) {
+                break;
+            }
+            segments.remove(0);
+            //noinspection ResultOfMethodCallIgnored
+            segmentFile(first.seq).delete();
+            if (first.seq == headSeq) {
+                headSeq = segments.get(0).seq;
+                headOffset = 0;
+                headRecords = 0;
+                writeCursor();
+            }
+        }
+    }
+
+    private Segment findSegment(int seq) {
+        for (Segment segment : segments) {
+            if (segment.seq == seq) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private int countRecords(int seq, long endOffset) throws IOException {
+        int records = 0;
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(seq), "r")) {
+            FileChannel channel = file.getChannel();
+            long offset = 0;
+            while (offset < endOffset) {
+                header.clear();
+                if (readFully(channel, header, offset) < HEADER_SIZE) {
+                    break;
+                }
+                offset += HEADER_SIZE + (header.getShort(0) & 0xFFFF);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return レコード本体（末尾の書きかけ・破損の場合は null）
+     */
+    private byte[] readRecord(FileChannel channel, long offset) throws IOException {
+        header.clear();
+        if (readFully(channel, header, offset) < HEADER_SIZE) {
+            return null;
+        }
+        int length = header.getShort(0) & 0xFFFF;
+        int expected = header.getInt(2);
+        byte[] record = new byte[length];
+        if (readFully(channel, ByteBuffer.wrap(record), offset + HEADER_SIZE) < length) {
+            return null;
+        }
+        crc.reset();
+        crc.update(record, 0, length);
+        return (int) crc.getValue() == expected ? record : null;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private File segmentFile(int seq) {
+        return new File(directory, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private void writeCursor() throws IOException {
+        File temp = new File(directory, CURSOR_FILE + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeInt(CURSOR_MAGIC);
+            out.writeInt(headSeq);
+            out.writeLong(headOffset);
+            out.writeLong(headRecords);
+            out.writeShort(lastAcked != null ? lastAcked.length : 0);
+            if (lastAcked != null) {
+                out.write(lastAcked);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, CURSOR_FILE))) {
+            throw new IOException("Cannot replace queue cursor");
+        }
+    }
+
+    /**
+     * 読み取り位置を読み込み、セグメントを走査して未送信のレコード数と有効な末尾を求める
+     */
+    private void load() throws IOException {
+        File cursorFile = new File(directory, CURSOR_FILE);
+        if (cursorFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(cursorFile))) {
+                if (in.readInt() == CURSOR_MAGIC) {
+                    headSeq = in.readInt();
+                    headOffset = in.readLong();
+                    headRecords = (int) in.readLong();
+                    int length = in.readUnsignedShort();
+                    if (length > 0) {
+                        lastAcked = new byte[length];
+                        in.readFully(lastAcked);
+                    }
+                }
+            } catch (IOException e) {
+                // 読み取り位置を失った場合は先頭から送り直す（受信側で番号により重複を除く）
+                headSeq = 0;
+                headOffset = 0;
+                headRecords = 0;
+                lastAcked = null;
+            }
+        }
+
+        List<Integer> seqs = new ArrayList<>();
+        String[] names = directory.list();
+        for (String name : names != null ? names : new String[0]) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    seqs.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // 無関係なファイル
+                }
+            }
+        }
+        Collections.sort(seqs);
+        for (int seq : seqs) {
+            if (seq < headSeq) {
+                //noinspection ResultOfMethodCallIgnored
+                segmentFile(seq).delete();
+                continue;
+            }
+            Segment segment = new Segment(seq);
+            try (RandomAccessFile file = new RandomAccessFile(segmentFile(seq), "r")) {
+                FileChannel channel = file.getChannel();
+                long offset = 0;
+                byte[] record;
+                while ((record = readRecord(channel, offset)) != null) {
+                    offset += HEADER_SIZE + record.length;
+                    segment.records++;
+                    lastAppended = record;
+                }
+                segment.bytes = offset;
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty() || segments.get(0).seq != headSeq) {
+            headSeq = segments.isEmpty() ? 0 : segments.get(0).seq;
+            headOffset = 0;
+            headRecords = 0;
+        }
+        for (Segment segment : segments) {
+            pending += segment.records;
+        }
+        pending = Math.max(0, pending - headRecords);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "pending=" + pending + " dropped=" + dropped + " segments=" + segments.size();
+    }
+}
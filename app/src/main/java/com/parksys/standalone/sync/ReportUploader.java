@@ -0,0 +1,134 @@
+package com.parksys.standalone.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * コンプライアンス報告の一括送信（POST /device/state）
+ *
+ * キューから読み出した報告を {@link ReportCodec} の差分形式でまとめ、gzip 圧縮して送る。
+ * サーバーが 200 を返したバッチまでキューの読み取り位置を進める。
+ * サーバーが差分の基準を持っていない場合（409）は基準なしで送り直す。
+ */
+public final class ReportUploader {
+
+    public static final String PATH_DEVICE_STATE = "/device/state";
+    public static final String CONTENT_TYPE_REPORTS = "application/x-parksys-report";
+
+    private final URL stateUrl;
+    private final String deviceId;
+    private final int timeoutMillis;
+    private final int maxBatchRecords;
+    private final int maxBatchBytes;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong reports = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong baseResets = new AtomicLong();
+
+    public ReportUploader(String baseUrl, String deviceId, int timeoutMillis,
+                          int maxBatchRecords, int maxBatchBytes) throws IOException {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.stateUrl = new URL(base + PATH_DEVICE_STATE);
+        this.deviceId = deviceId;
+        this.timeoutMillis = timeoutMillis;
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /**
+     * キューが空になるまでバッチを送る
+     *
+     * @return 送信した報告の数
+     * @throws IOException 通信エラー・サーバーエラーの場合（それまでに送ったバッチは確認応答済み）
+     */
+    public int uploadAll(ReportQueue queue) throws IOException {
+        int sent = 0;
+        while (true) {
+            ReportQueue.Batch batch = queue.peek(maxBatchRecords, maxBatchBytes);
+            if (batch.isEmpty()) {
+                return sent;
+            }
+            List<ComplianceReport> pending = new ArrayList<>(batch.records.size());
+            for (byte[] record : batch.records) {
+                pending.add(ComplianceReport.decode(record));
+            }
+            byte[] acked = queue.getLastAcked();
+            ComplianceReport base = acked != null ? ComplianceReport.decode(acked) : null;
+            if (base != null && base.seq >= pending.get(0).seq) {
+                // 番号が巻き戻った（状態の消去など）場合は基準を使わない
+                base = null;
+            }
+
+            int code = post(ReportCodec.encodeBatch(base, pending));
+            if (code == HttpURLConnection.HTTP_CONFLICT && base != null) {
+                baseResets.incrementAndGet();
+                code = post(ReportCodec.encodeBatch(null, pending));
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Report upload failed: HTTP " + code);
+            }
+            queue.ack(batch);
+            batches.incrementAndGet();
+            reports.addAndGet(pending.size());
+            sent += pending.size();
+        }
+    }
+
+    private int post(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        encodedBytes.addAndGet(body.length);
+
+        HttpURLConnection connection = (HttpURLConnection) stateUrl.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setUseCaches(false);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", CONTENT_TYPE_REPORTS);
+        connection.setRequestProperty("Content-Encoding", "gzip");
+        connection.setRequestProperty(PolicySyncClient.HEADER_DEVICE_ID, deviceId);
+        connection.setFixedLengthStreamingMode(compressed.size());
+        try (OutputStream out = connection.getOutputStream()) {
+            compressed.writeTo(out);
+        }
+        bytesSent.addAndGet(compressed.size());
+        int code = connection.getResponseCode();
+        PolicySyncClient.drain(connection);
+        return code;
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getReports() {
+        return reports.get();
+    }
+
+    /** 圧縮前の本文のバイト数 */
+    public long getEncodedBytes() {
+        return encodedBytes.get();
+    }
+
+    /** 送信した本文のバイト数（圧縮後） */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /** サーバーが差分の基準を持たず、基準なしで送り直した回数 */
+    public long getBaseResets() {
+        return baseResets.get();
+    }
+}
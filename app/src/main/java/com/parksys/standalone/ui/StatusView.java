@@ -0,0 +1,101 @@
+package com.parksys.standalone.ui;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.Gravity;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.parksys.standalone.integrity.IntegrityReport;
+import com.parksys.standalone.network.NetworkCompliance;
+import com.parksys.standalone.service.StatusSnapshot;
+
+/**
+ * ステータス詳細表示
+ * 行は生成時に一度だけ作成し、以降はスナップショットの値が変わった行のみ更新する。
+ */
+public class StatusView extends LinearLayout {
+
+    private static final int ROW_ADMIN = 0;
+    private static final int ROW_SERVICE = 1;
+    private static final int ROW_POLICY = 2;
+    private static final int ROW_BACKGROUND = 3;
+    private static final int ROW_APPS = 4;
+    private static final int ROW_INTEGRITY = 5;
+    private static final int ROW_NETWORK = 6;
+    private static final int ROW_COUNT = 7;
+
+    private static final int COLOR_OK = Color.parseColor("#388E3C");
+    private static final int COLOR_NG = Color.parseColor("#C62828");
+
+    private final TextView[] rows = new TextView[ROW_COUNT];
+    private StatusSnapshot bound;
+
+    public StatusView(Context context) {
+        super(context);
+        setOrientation(VERTICAL);
+        setPadding(0, 32, 0, 0);
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            TextView itemView = new TextView(context);
+            itemView.setTextSize(14);
+            itemView.setPadding(0, 8, 0, 8);
+            itemView.setGravity(Gravity.CENTER);
+            rows[i] = itemView;
+            addView(itemView);
+        }
+    }
+
+    /**
+     * スナップショットを表示に反映する（変化した行のみ更新）
+     */
+    public void bind(StatusSnapshot snapshot) {
+        StatusSnapshot previous = bound;
+        bound = snapshot;
+
+        if (previous == null || previous.adminActive != snapshot.adminActive) {
+            setRow(ROW_ADMIN, snapshot.adminActive, snapshot.adminActive ? "デバイス管理者: 有効" : "デバイス管理者: 無効");
+        }
+        if (previous == null || previous.serviceRunning != snapshot.serviceRunning) {
+            setRow(ROW_SERVICE, snapshot.serviceRunning,
+                snapshot.serviceRunning ? "セキュリティサービス: 稼働中" : "セキュリティサービス: 停止中");
+        }
+        if (previous == null || previous.policyApplied != snapshot.policyApplied
+                || !equals(previous.policyVersion, snapshot.policyVersion)) {
+            setRow(ROW_POLICY, snapshot.policyApplied,
+                snapshot.policyApplied ? "ポリシー適用: 完了 (v" + snapshot.policyVersion + ")" : "ポリシー適用: 未適用");
+        }
+        if (previous == null || previous.serviceRunning != snapshot.serviceRunning) {
+            setRow(ROW_BACKGROUND, snapshot.serviceRunning,
+                snapshot.serviceRunning ? "バックグラウンド保護: 有効" : "バックグラウンド保護: 無効");
+        }
+        if (previous == null || previous.disallowedApps != snapshot.disallowedApps) {
+            setRow(ROW_APPS, snapshot.disallowedApps == 0, snapshot.disallowedApps == 0
+                ? "禁止アプリ: なし" : "禁止アプリ: " + snapshot.disallowedApps + "件インストール済み");
+        }
+        if (previous == null || previous.integrityFlags != snapshot.integrityFlags) {
+            setRow(ROW_INTEGRITY, snapshot.integrityFlags <= 0, snapshot.integrityFlags < 0 ? "端末の完全性: 確認中"
+                : snapshot.integrityFlags == 0 ? "端末の完全性: 問題なし"
+                : "端末の完全性: 改ざんの兆候あり（" + IntegrityReport.describe(snapshot.integrityFlags) + "）");
+        }
+        if (previous == null || previous.networkViolations != snapshot.networkViolations) {
+            setRow(ROW_NETWORK, snapshot.networkViolations == 0, snapshot.networkViolations == 0
+                ? "ネットワーク: 問題なし"
+                : "ネットワーク: ルール違反（" + NetworkCompliance.describe(snapshot.networkViolations) + "）");
+        }
+    }
+
+    public StatusSnapshot getBoundSnapshot() {
+        return bound;
+    }
+
+    private void setRow(int row, boolean ok, String text) {
+        TextView view = rows[row];
+        view.setText((ok ? "✓ " : "✗ ") + text);
+        view.setTextColor(ok ? COLOR_OK : COLOR_NG);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
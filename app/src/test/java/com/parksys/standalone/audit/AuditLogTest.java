@@ -0,0 +1,229 @@
+package com.parksys.standalone.audit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AuditLogTest {
+
+    private static final long ALL = -1L;
+    private static final int RING = 256;
+    private static final int THRESHOLD = 32;
+    private static final int SEGMENT_RECORDS = 100;
+    private static final int MAX_SEGMENTS = 16;
+
+    private File directory;
+    private AuditLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("parksys-audit", "");
+        directory.delete();
+        log = open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        log.close();
+        deleteRecursively(directory);
+    }
+
+    private AuditLog open() throws IOException {
+        return new AuditLog(directory, RING, THRESHOLD, SEGMENT_RECORDS, MAX_SEGMENTS, Runnable::run);
+    }
+
+    private void reopen() throws IOException {
+        log.close();
+        log = open();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        for (File child : children != null ? children : new File[0]) {
+            deleteRecursively(child);
+        }
+        file.delete();
+    }
+
+    /** 記録順の value の一覧 */
+    private static List<Integer> values(AuditLog log, long typeMask) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        log.query(typeMask, Long.MIN_VALUE, Long.MAX_VALUE, (time, type, value, aux) -> values.add(value));
+        return values;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private void appendDrift(int from, int to) {
+        for (int i = from; i < to; i++) {
+            log.append(AuditEvent.POLICY_DRIFT, i, i * 10L);
+        }
+    }
+
+    private File segmentFile(int seq) {
+        return new File(directory, String.format("seg-%08d.log", seq));
+    }
+
+    @Test
+    public void eventsSurviveReopenAcrossSegments() throws Exception {
+        appendDrift(0, 250);
+        log.append(AuditEvent.BOOT_COMPLETED, 1000, 0);
+        log.flush();
+
+        reopen();
+
+        assertEquals(range(0, 250), values(log, AuditEvent.mask(AuditEvent.POLICY_DRIFT)));
+        List<Integer> boot = values(log, AuditEvent.mask(AuditEvent.BOOT_COMPLETED));
+        assertEquals(1, boot.size());
+        assertEquals(Integer.valueOf(1000), boot.get(0));
+        assertTrue(segmentFile(3).isFile());
+    }
+
+    @Test
+    public void thresholdFlushWritesWithoutExplicitFlush() throws Exception {
+        appendDrift(0, THRESHOLD);
+        // 同期実行の書き出しで、閉じずに別のインスタンスから読める
+        AuditLog other = open();
+        assertEquals(range(0, THRESHOLD), values(other, ALL));
+        other.close();
+    }
+
+    @Test
+    public void requestFlushWritesFewEvents() throws Exception {
+        log.append(AuditEvent.POLICY_APPLIED, 7, 0);
+        log.requestFlush();
+
+        AuditLog other = open();
+        assertEquals(range(7, 8), values(other, ALL));
+        other.close();
+    }
+
+    @Test
+    public void rareEventIsWrittenWithinFlushDelay() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            log.close();
+            log = new AuditLog(directory, RING, THRESHOLD, SEGMENT_RECORDS, MAX_SEGMENTS, executor, 50);
+            log.append(AuditEvent.PASSWORD_CHANGED, 1, 0);
+
+            // 単一スレッドのため、遅延した書き出し（索引の更新まで）はこれより先に終わる
+            executor.schedule(() -> { }, 500, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            AuditLog other = open();
+            assertEquals(range(1, 2), values(other, ALL));
+            other.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedFlushKeepsEventsForRetry() throws Exception {
+        appendDrift(0, 20);
+        // 書き込み先を使えなくする（ディレクトリをファイルに置き換える）
+        deleteRecursively(directory);
+        assertTrue(directory.createNewFile());
+        try {
+            log.flush();
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // 期待どおり
+        }
+        assertEquals(range(0, 20), values(log, ALL));
+        assertEquals(0, log.getDroppedCount());
+
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        appendDrift(20, 25);
+        log.flush();
+
+        reopen();
+        assertEquals(range(0, 25), values(log, ALL));
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws Exception {
+        appendDrift(0, 10);
+        log.flush();
+        log.close();
+        // 書きかけのレコード（レコード長に満たない末尾）
+        try (FileOutputStream out = new FileOutputStream(segmentFile(1), true)) {
+            out.write(new byte[AuditLog.RECORD_SIZE / 2]);
+        }
+
+        log = open();
+        assertEquals(10 * AuditLog.RECORD_SIZE, segmentFile(1).length());
+        appendDrift(10, 15);
+        log.flush();
+
+        reopen();
+        assertEquals(range(0, 15), values(log, ALL));
+    }
+
+    @Test
+    public void indexIsRecoveredWhenMissingOrStale() throws Exception {
+        appendDrift(0, 150);
+        log.flush();
+        File index = new File(directory, "audit.idx");
+        File saved = new File(directory.getParentFile(), directory.getName() + ".idx");
+        Files.copy(index.toPath(), saved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try {
+            log.append(AuditEvent.LOGIN_LOCKOUT, 999, 0);
+            appendDrift(150, 180);
+            log.flush();
+            log.close();
+
+            // 索引の更新前に中断した（セグメントだけが先に進んでいる）
+            Files.copy(saved.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            log = open();
+            assertEquals(range(0, 180), values(log, AuditEvent.mask(AuditEvent.POLICY_DRIFT)));
+            // 種類の絞り込みは復元した索引の種類でも行われる
+            assertEquals(range(999, 1000), values(log, AuditEvent.mask(AuditEvent.LOGIN_LOCKOUT)));
+
+            // 索引がない場合はセグメントを走査して作り直す
+            log.close();
+            assertTrue(index.delete());
+            log = open();
+            assertTrue(index.isFile());
+            assertEquals(range(0, 180), values(log, AuditEvent.mask(AuditEvent.POLICY_DRIFT)));
+        } finally {
+            saved.delete();
+        }
+    }
+
+    @Test
+    public void overflowDropsOldestUnflushedEvents() throws Exception {
+        log.close();
+        // 書き出しを実行しない（件数の書き出しは予約のみ）
+        log = new AuditLog(directory, 16, 16, SEGMENT_RECORDS, MAX_SEGMENTS, task -> { });
+        appendDrift(0, 40);
+
+        assertEquals(24, log.getDroppedCount());
+        assertEquals(range(24, 40), values(log, ALL));
+        log.flush();
+        assertNull(log.getLastFlushError());
+        reopen();
+        assertEquals(range(24, 40), values(log, ALL));
+    }
+}
@@ -0,0 +1,214 @@
+package com.parksys.standalone.login;
+
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoginFailureTrackerTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long WINDOW = 15 * MINUTE;
+    private static final int MAX = 10;
+    private static final long START = 1_700_000_000_000L;
+
+    private File file;
+    private StateStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("parksys-login", ".bin");
+        store = StateStore.open(file, AppState.SLOT_COUNT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+        file.delete();
+    }
+
+    private LoginFailureTracker tracker(int max) {
+        return new LoginFailureTracker(store, AppState.SLOT_LOGIN_FAILURES, LoginFailurePolicy.defaults(max));
+    }
+
+    @Test
+    public void thresholdsFireOnceWhenCrossed() {
+        LoginFailureTracker tracker = tracker(MAX);
+        for (int i = 1; i <= MAX; i++) {
+            int actions = tracker.recordFailure(START + i);
+            switch (i) {
+                case 3:
+                    assertEquals(LoginFailureTracker.ACTION_AUDIT, actions);
+                    break;
+                case 5:
+                    assertEquals(LoginFailureTracker.ACTION_AUDIT | LoginFailureTracker.ACTION_LOCK_NOW, actions);
+                    break;
+                case MAX:
+                    assertEquals(LoginFailureTracker.ACTION_AUDIT | LoginFailureTracker.ACTION_LOCKOUT, actions);
+                    break;
+                default:
+                    assertEquals("failure " + i, 0, actions);
+            }
+        }
+        assertEquals(MAX, tracker.getLastRecordedCount());
+        assertEquals(1, tracker.getLockoutLevel());
+        // ロックアウトで時間枠を仕切り直す
+        assertEquals(0, tracker.getFailureCount(START + MAX));
+    }
+
+    @Test
+    public void failuresOutsideTheWindowAreEvicted() {
+        LoginFailureTracker tracker = tracker(MAX);
+        tracker.recordFailure(START);
+        tracker.recordFailure(START + MINUTE);
+        assertEquals(2, tracker.getFailureCount(START + MINUTE));
+        assertEquals(1, tracker.getFailureCount(START + WINDOW));
+        assertEquals(0, tracker.getFailureCount(START + MINUTE + WINDOW));
+
+        // 時間枠からあふれた失敗はしきい値に数えない
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0, tracker.recordFailure(START + 2 * WINDOW + i * (WINDOW / 2 + 1)));
+        }
+    }
+
+    @Test
+    public void lockoutEscalatesAndRelocksEveryFailure() {
+        LoginFailurePolicy policy = LoginFailurePolicy.defaults(MAX);
+        LoginFailureTracker tracker = tracker(MAX);
+        long now = START;
+        for (int level = 0; level < 8; level++) {
+            int actions = 0;
+            for (int i = 0; i < MAX; i++) {
+                actions = tracker.recordFailure(++now);
+                if (level > 0) {
+                    // 前回のロックアウト期間中はすべて即時ロック
+                    assertTrue((actions & LoginFailureTracker.ACTION_LOCK_NOW) != 0);
+                }
+            }
+            assertTrue((actions & LoginFailureTracker.ACTION_LOCKOUT) != 0);
+            assertEquals(level + 1, tracker.getLockoutLevel());
+            assertEquals(policy.getLockoutMillis(level), tracker.getLastLockoutMillis());
+            assertEquals(now + policy.getLockoutMillis(level), tracker.getLockoutUntil());
+            assertTrue(tracker.isLockedOut(now));
+        }
+        // 段階ごとに倍、上限あり
+        assertEquals(MINUTE, policy.getLockoutMillis(0));
+        assertEquals(2 * MINUTE, policy.getLockoutMillis(1));
+        assertEquals(60 * MINUTE, policy.getLockoutMillis(30));
+
+        assertFalse(tracker.isLockedOut(tracker.getLockoutUntil()));
+        tracker.reset();
+        assertEquals(0, tracker.getLockoutLevel());
+        assertFalse(tracker.isLockedOut(now));
+    }
+
+    @Test
+    public void burstOfThousandsKeepsBoundedStateAndCountsEveryLockout() {
+        LoginFailureTracker tracker = tracker(MAX);
+        int bursts = 20;
+        int perBurst = 5_000;
+        int lockouts = 0;
+        long now = START;
+        for (int burst = 0; burst < bursts; burst++) {
+            // 同じミリ秒に集中した失敗
+            for (int i = 0; i < perBurst; i++) {
+                int actions = tracker.recordFailure(now);
+                if ((actions & LoginFailureTracker.ACTION_LOCKOUT) != 0) {
+                    lockouts++;
+                }
+                assertTrue(tracker.getLastRecordedCount() <= MAX);
+            }
+            now += WINDOW + 1;
+        }
+        assertEquals(bursts * perBurst / MAX, lockouts);
+        assertEquals(Math.min(lockouts, 0xFF), tracker.getLockoutLevel());
+    }
+
+    @Test
+    public void concurrentBurstsLoseNoFailures() throws Exception {
+        LoginFailureTracker tracker = tracker(MAX);
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<Integer> task = () -> {
+                    int lockouts = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if ((tracker.recordFailure(START) & LoginFailureTracker.ACTION_LOCKOUT) != 0) {
+                            lockouts++;
+                        }
+                    }
+                    return lockouts;
+                };
+                results.add(executor.submit(task));
+            }
+            int lockouts = 0;
+            for (Future<Integer> result : results) {
+                lockouts += result.get();
+            }
+            assertEquals(threads * perThread / MAX, lockouts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stateSurvivesProcessRestart() throws Exception {
+        LoginFailureTracker tracker = tracker(MAX);
+        for (int i = 0; i < MAX; i++) {
+            tracker.recordFailure(START + i);
+        }
+        tracker.recordFailure(START + MAX);
+        tracker.recordFailure(START + MAX + 1);
+
+        // 書き出しを遅らせた記録も、同じファイルを開き直せば読める
+        store.close();
+        store = StateStore.open(file, AppState.SLOT_COUNT);
+        LoginFailureTracker restored = tracker(MAX);
+
+        assertEquals(2, restored.getFailureCount(START + MAX + 1));
+        assertEquals(1, restored.getLockoutLevel());
+        assertEquals(tracker.getLockoutUntil(), restored.getLockoutUntil());
+        assertTrue(restored.isLockedOut(START + MAX + 1));
+    }
+
+    @Test
+    public void clockSetBackDoesNotExtendLockout() {
+        LoginFailureTracker tracker = tracker(MAX);
+        for (int i = 0; i < MAX; i++) {
+            tracker.recordFailure(START);
+        }
+        assertTrue(tracker.isLockedOut(START));
+        // 上限を超える残り時間は無効
+        assertFalse(tracker.isLockedOut(START - 2 * 60 * MINUTE));
+    }
+
+    @Test
+    public void changedLimitTakesEffectWithoutLosingState() {
+        LoginFailureTracker tracker = tracker(MAX);
+        tracker.recordFailure(START);
+        tracker.recordFailure(START + 1);
+        tracker.setPolicy(LoginFailurePolicy.defaults(4));
+
+        assertEquals(LoginFailureTracker.ACTION_AUDIT, tracker.recordFailure(START + 2));
+        int actions = tracker.recordFailure(START + 3);
+        assertTrue((actions & LoginFailureTracker.ACTION_LOCKOUT) != 0);
+        assertEquals(1, tracker.getLockoutLevel());
+    }
+}
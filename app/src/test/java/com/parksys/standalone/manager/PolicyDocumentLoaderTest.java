@@ -0,0 +1,62 @@
+package com.parksys.standalone.manager;
+
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PolicyDocumentLoaderTest {
+
+    private static ByteBuffer mapBundledPolicy() throws Exception {
+        // 単体テストはモジュールのディレクトリで実行される
+        File file = new File("src/main/assets", PolicyDocumentLoader.ASSET_PATH);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Test
+    public void bundledPolicyMatchesBuiltinDefault() throws Exception {
+        PolicyDocument bundled = PolicyCodec.decode(mapBundledPolicy());
+        PolicyDocument builtin = PolicyDocumentLoader.builtinDefault();
+
+        assertEquals(builtin.getVersion(), bundled.getVersion());
+        assertEquals(builtin.getBannerText(), bundled.getBannerText());
+        assertEquals(builtin.getRuleCount(), bundled.getRuleCount());
+        for (int i = 0; i < builtin.getRuleCount(); i++) {
+            assertEquals(builtin.getRuleType(i), bundled.getRuleType(i));
+            assertEquals(builtin.getRuleParam(i), bundled.getRuleParam(i));
+            assertEquals(builtin.getRuleValue(i), bundled.getRuleValue(i));
+        }
+    }
+
+    @Test
+    public void bundledPolicyLoadsWellUnderOneMillisecond() throws Exception {
+        ByteBuffer mapped = mapBundledPolicy();
+        for (int i = 0; i < 2_000; i++) {
+            PolicyCodec.decode(mapped);
+        }
+        long[] samples = new long[21];
+        PolicyDocument document = null;
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            document = PolicyCodec.decode(mapBundledPolicy());
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+
+        assertTrue("median map + decode " + median + "ns", median < 1_000_000);
+        assertTrue(document.getEncodedSize() < 512);
+    }
+}
@@ -0,0 +1,109 @@
+package com.parksys.standalone.manager;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class PolicyStatePublisherTest {
+
+    private static final int CAMERA = 1 << RestrictionType.CAMERA_DISABLED.id;
+
+    private PolicyStatePublisher publisher;
+    private final List<PolicyState> notified = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        PolicySchedule schedule = PolicySchedule.from(PolicyDocument.builder()
+            .version("1")
+            .schedule(RestrictionType.CAMERA_DISABLED, PolicySchedule.EVERY_DAY, 9 * 60, 18 * 60)
+            .build());
+        publisher = new PolicyStatePublisher();
+        publisher.initialize(PolicyState.initial(schedule, 0, true, true, "1", 1_000));
+    }
+
+    @Test
+    public void concurrentUpdatesLoseNoPublishes() throws Exception {
+        int threads = 8;
+        int updates = 5_000;
+        Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        AtomicInteger notifications = new AtomicInteger();
+        publisher.addListener(state -> {
+            notifications.incrementAndGet();
+            sequences.add(state.sequence);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < updates; i++) {
+                        publisher.update(current -> current.withDisallowedApps(current.disallowedApps + 1));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 競合した更新も最新のスナップショットからやり直され、増分が1件も失われない
+        int total = threads * updates;
+        assertEquals(total, publisher.get().disallowedApps);
+        assertEquals(total, publisher.get().sequence);
+        // 公開したスナップショットごとに1回ずつ通知される
+        assertEquals(total, notifications.get());
+        assertEquals(total, sequences.size());
+    }
+
+    @Test
+    public void listenersFireOnlyWhenContentChanges() {
+        PolicyState.Listener listener = notified::add;
+        publisher.addListener(listener);
+        publisher.addListener(listener);
+
+        // 確認時刻と番号だけが変わる確認結果は通知しない
+        PolicyState checked = publisher.update(current -> current.withCheck(true, true, "1", 1_000, 0, 0, 5_000));
+        assertEquals(1, checked.sequence);
+        assertEquals(5_000, checked.checkedAtMillis);
+        // 同じ時間帯の状態は差し替えない
+        assertSame(checked, publisher.update(current -> current.withScheduleActive(0)));
+        publisher.update(current -> current.withAdminActive(true));
+        assertEquals(0, notified.size());
+
+        // 内容が変わった場合は1回だけ（同じリスナーの重複登録は無視する）
+        PolicyState scheduled = publisher.update(current -> current.withScheduleActive(CAMERA));
+        PolicyState drifted = publisher.update(current -> current.withCheck(true, true, "1", 1_000, 2, 0, 6_000));
+        assertEquals(2, notified.size());
+        assertSame(scheduled, notified.get(0));
+        assertSame(drifted, notified.get(1));
+        assertFalse(notified.get(0).isCameraEnabled());
+
+        publisher.removeListener(listener);
+        publisher.update(current -> current.withAdminActive(false));
+        assertEquals(2, notified.size());
+    }
+}
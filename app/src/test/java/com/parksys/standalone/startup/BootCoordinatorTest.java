@@ -0,0 +1,153 @@
+package com.parksys.standalone.startup;
+
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BootCoordinatorTest {
+
+    private static final long BOOT_AT = 1_700_000_000_000L;
+
+    /** 手動で進める時計 */
+    private static final class FakeClock implements BootCoordinator.Clock {
+        int bootCount = 42;
+        long elapsed = 8_000;
+        long wallOffset;
+
+        @Override
+        public int bootCount() {
+            return bootCount;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return elapsed;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return BOOT_AT + elapsed + wallOffset;
+        }
+
+        void reboot() {
+            bootCount++;
+            elapsed = 6_000;
+        }
+    }
+
+    private StateStore store;
+    private FakeClock clock;
+
+    @Before
+    public void setUp() {
+        store = StateStore.inMemory(AppState.SLOT_COUNT);
+        clock = new FakeClock();
+    }
+
+    /** プロセスの再起動（保存済みの状態から作り直す） */
+    private BootCoordinator restartProcess() {
+        return new BootCoordinator(store, AppState.SLOT_BOOT, clock);
+    }
+
+    @Test
+    public void onlyFirstBootBroadcastOfSessionStartsService() {
+        BootCoordinator coordinator = restartProcess();
+        // LOCKED_BOOT_COMPLETED・BOOT_COMPLETED・QUICKBOOT_POWERON が続けて届く
+        assertTrue(coordinator.onBootBroadcast());
+        clock.elapsed += 300;
+        assertFalse(coordinator.onBootBroadcast());
+        clock.elapsed += 20;
+        assertFalse(restartProcess().onBootBroadcast());
+
+        assertEquals(1, coordinator.getDuplicateBroadcasts());
+        assertEquals(8_000, coordinator.getBootBroadcastMillis());
+    }
+
+    @Test
+    public void fullApplyRunsOncePerSessionAcrossProcessRestarts() {
+        BootCoordinator coordinator = restartProcess();
+        assertTrue(coordinator.shouldApply());
+        clock.elapsed += 1_500;
+        assertEquals(9_500, coordinator.onEnforced());
+        assertEquals(-1, coordinator.onEnforced());
+
+        for (int i = 0; i < 1_000; i++) {
+            clock.elapsed += 10;
+            BootCoordinator restarted = restartProcess();
+            assertFalse(restarted.shouldApply());
+            assertEquals(9_500, restarted.getBootToEnforcedMillis());
+        }
+        assertFalse(coordinator.shouldApply());
+        assertEquals(1, coordinator.getAppliesSkipped());
+    }
+
+    @Test
+    public void rebootStartsNewSession() {
+        BootCoordinator coordinator = restartProcess();
+        coordinator.onBootBroadcast();
+        coordinator.onEnforced();
+        long session = coordinator.getSessionKey();
+
+        clock.reboot();
+        clock.wallOffset = 60 * 60 * 1000;
+        BootCoordinator afterReboot = restartProcess();
+
+        assertEquals(-1, afterReboot.getBootToEnforcedMillis());
+        assertTrue(afterReboot.shouldApply());
+        assertTrue(afterReboot.onBootBroadcast());
+        assertTrue(afterReboot.getSessionKey() != session);
+    }
+
+    @Test
+    public void elapsedGoingBackwardsIsANewSessionEvenWithSameBootCount() {
+        BootCoordinator coordinator = restartProcess();
+        coordinator.onEnforced();
+
+        // 起動回数が更新されない端末での再起動
+        clock.elapsed = 4_000;
+        assertTrue(restartProcess().shouldApply());
+    }
+
+    @Test
+    public void withoutBootCountSessionFollowsEstimatedBootTime() {
+        clock.bootCount = -1;
+        BootCoordinator coordinator = restartProcess();
+        coordinator.onEnforced();
+
+        // 推定誤差の範囲内の時刻補正では同じセッション
+        clock.elapsed += 60_000;
+        clock.wallOffset = BootCoordinator.BOOT_TIME_TOLERANCE;
+        assertFalse(restartProcess().shouldApply());
+
+        // 大きく時刻を変えた場合は全適用をやり直す
+        clock.wallOffset = BootCoordinator.BOOT_TIME_TOLERANCE + 1;
+        assertTrue(restartProcess().shouldApply());
+    }
+
+    @Test
+    public void restartStormBacksOffExponentiallyUpToCap() {
+        BootCoordinator coordinator = restartProcess();
+        assertEquals(0, coordinator.nextRestartDelay());
+        long expected = BootCoordinator.RESTART_MIN_DELAY;
+        for (int i = 0; i < 20; i++) {
+            clock.elapsed += 100;
+            // プロセスが落ちて作り直されても回数を引き継ぐ
+            coordinator = restartProcess();
+            assertEquals(Math.min(expected, BootCoordinator.RESTART_MAX_DELAY), coordinator.nextRestartDelay());
+            expected *= 2;
+        }
+        assertEquals(21, coordinator.getRestartCount());
+        assertEquals(BootCoordinator.RESTART_MAX_DELAY, coordinator.nextRestartDelay());
+
+        // 間隔が空けば即時に戻る
+        clock.elapsed += BootCoordinator.RESTART_STORM_WINDOW;
+        assertEquals(0, coordinator.nextRestartDelay());
+        assertEquals(1, coordinator.getRestartCount());
+    }
+}
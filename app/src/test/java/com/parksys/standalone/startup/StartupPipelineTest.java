@@ -0,0 +1,107 @@
+package com.parksys.standalone.startup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupPipelineTest {
+
+    private static final long STAGE_MILLIS = 100;
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void independentStagesRunConcurrently() throws Exception {
+        StartupPipeline pipeline = new StartupPipeline("test");
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Runnable stage = () -> {
+            allStarted.countDown();
+            try {
+                // 3段階が同時に実行されていなければ待ち切れない
+                assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture.allOf(pipeline.stage("a", stage), pipeline.stage("b", stage), pipeline.stage("c", stage))
+            .get(10, TimeUnit.SECONDS);
+        pipeline.markInteractive();
+
+        assertEquals(0, allStarted.getCount());
+    }
+
+    @Test
+    public void timeToInteractiveIsBoundedByTheSlowestChainNotTheSum() throws Exception {
+        StartupPipeline pipeline = new StartupPipeline("test");
+        pipeline.runOnCaller("render", () -> { });
+        CompletableFuture<Integer> first = pipeline.stage("state_load", () -> {
+            sleep(STAGE_MILLIS);
+            return 1;
+        });
+        CompletableFuture<Integer> dependent = pipeline.then(first, "service_start", value -> value + 1);
+        CompletableFuture<Void> independent = pipeline.stage("channel", () -> sleep(STAGE_MILLIS));
+        CompletableFuture<Void> lookup = pipeline.stage("dpm_lookup", () -> sleep(STAGE_MILLIS));
+        CompletableFuture.allOf(dependent, independent, lookup).get(10, TimeUnit.SECONDS);
+        assertEquals(-1, pipeline.getTimeToInteractiveNanos());
+
+        pipeline.markInteractive();
+
+        long interactive = pipeline.getTimeToInteractiveNanos();
+        Map<String, Long> stages = pipeline.getStageDurations();
+        assertEquals(5, stages.size());
+        assertTrue(stages.keySet().containsAll(
+            Arrays.asList("render", "state_load", "service_start", "channel", "dpm_lookup")));
+        long sum = 0;
+        for (long nanos : stages.values()) {
+            sum += nanos;
+        }
+        assertTrue(interactive >= TimeUnit.MILLISECONDS.toNanos(STAGE_MILLIS));
+        assertTrue("interactive " + interactive + "ns, stages " + sum + "ns", interactive < sum);
+        assertTrue(pipeline.isShutdown());
+    }
+
+    @Test
+    public void markInteractiveRecordsOnlyOnce() throws Exception {
+        StartupPipeline pipeline = new StartupPipeline("test");
+        pipeline.markInteractive();
+        long first = pipeline.getTimeToInteractiveNanos();
+        sleep(5);
+        pipeline.markInteractive();
+
+        assertEquals(first, pipeline.getTimeToInteractiveNanos());
+    }
+
+    @Test
+    public void shutdownWithoutInteractiveReleasesThreads() throws Exception {
+        StartupPipeline pipeline = new StartupPipeline("test");
+        CompletableFuture<Integer> running = pipeline.stage("slow", () -> {
+            sleep(STAGE_MILLIS);
+            return 1;
+        });
+
+        pipeline.shutdown();
+        pipeline.shutdown();
+
+        assertTrue(pipeline.isShutdown());
+        assertEquals(-1, pipeline.getTimeToInteractiveNanos());
+        // 投入済みの段階は完了する
+        assertEquals(Integer.valueOf(1), running.get(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> later = pipeline.then(running, "after", value -> value + 1);
+        assertTrue(later.isCompletedExceptionally());
+        assertFalse(pipeline.getStageDurations().containsKey("after"));
+    }
+}
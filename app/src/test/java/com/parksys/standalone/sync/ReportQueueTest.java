@@ -0,0 +1,185 @@
+package com.parksys.standalone.sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReportQueueTest {
+
+    private static final long SEGMENT_BYTES = 4 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+
+    private File directory;
+    private ReportQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("parksys-queue", "");
+        directory.delete();
+        queue = new ReportQueue(directory, SEGMENT_BYTES, MAX_SEGMENTS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.close();
+        File[] files = directory.listFiles();
+        for (File file : files != null ? files : new File[0]) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static byte[] record(int i) {
+        return String.format("{\"seq\":%06d}", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void reopen() throws IOException {
+        queue.close();
+        queue = new ReportQueue(directory, SEGMENT_BYTES, MAX_SEGMENTS);
+    }
+
+    private List<byte[]> drain(int batchRecords) throws IOException {
+        List<byte[]> out = new ArrayList<>();
+        ReportQueue.Batch batch;
+        while (!(batch = queue.peek(batchRecords, Integer.MAX_VALUE)).isEmpty()) {
+            out.addAll(batch.records);
+            queue.ack(batch);
+        }
+        return out;
+    }
+
+    @Test
+    public void deliversRecordsInOrderAcrossSegments() throws Exception {
+        int count = 500;
+        for (int i = 0; i < count; i++) {
+            queue.append(record(i));
+        }
+        assertEquals(count, queue.size());
+        assertTrue(queue.getBytesOnDisk() > SEGMENT_BYTES);
+
+        List<byte[]> delivered = drain(37);
+
+        assertEquals(count, delivered.size());
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(record(i), delivered.get(i));
+        }
+        assertEquals(0, queue.size());
+        assertArrayEquals(record(count - 1), queue.getLastAcked());
+        // 読み終えたセグメントは削除され、最後のセグメントだけが残る
+        assertTrue(queue.getBytesOnDisk() <= SEGMENT_BYTES);
+    }
+
+    @Test
+    public void peekDoesNotAdvanceAndRespectsLimits() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            queue.append(record(i));
+        }
+        int size = record(0).length;
+
+        ReportQueue.Batch byCount = queue.peek(3, Integer.MAX_VALUE);
+        ReportQueue.Batch byBytes = queue.peek(100, size * 4 + 1);
+        ReportQueue.Batch oversized = queue.peek(100, 1);
+
+        assertEquals(3, byCount.records.size());
+        assertEquals(4, byBytes.records.size());
+        assertEquals(4 * size, byBytes.bytes);
+        // 1件目は上限を超えても返す
+        assertEquals(1, oversized.records.size());
+        assertEquals(10, queue.size());
+        assertArrayEquals(record(0), queue.peek(1, Integer.MAX_VALUE).records.get(0));
+    }
+
+    @Test
+    public void staleAckIsIgnored() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            queue.append(record(i));
+        }
+        ReportQueue.Batch first = queue.peek(4, Integer.MAX_VALUE);
+        ReportQueue.Batch longer = queue.peek(6, Integer.MAX_VALUE);
+        queue.ack(longer);
+        queue.ack(first);
+
+        assertEquals(4, queue.size());
+        assertArrayEquals(record(6), queue.peek(1, Integer.MAX_VALUE).records.get(0));
+    }
+
+    @Test
+    public void resumesFromCursorAfterRestart() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            queue.append(record(i));
+        }
+        ReportQueue.Batch batch = queue.peek(120, Integer.MAX_VALUE);
+        queue.ack(batch);
+
+        reopen();
+
+        assertEquals(180, queue.size());
+        assertArrayEquals(record(119), queue.getLastAcked());
+        assertArrayEquals(record(299), queue.getLastAppended());
+        List<byte[]> rest = drain(50);
+        assertEquals(180, rest.size());
+        assertArrayEquals(record(120), rest.get(0));
+    }
+
+    @Test
+    public void truncatesTornTailOnOpen() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            queue.append(record(i));
+        }
+        queue.close();
+        // 書き込み途中で電源が落ちた末尾のレコード（ヘッダのみ）
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        assertEquals(1, segments.length);
+        try (FileOutputStream out = new FileOutputStream(segments[0], true)) {
+            out.write(new byte[] {0, 20, 1, 2, 3, 4, '{'});
+        }
+
+        reopen();
+        assertEquals(5, queue.size());
+        queue.append(record(5));
+
+        List<byte[]> delivered = drain(100);
+        assertEquals(6, delivered.size());
+        assertArrayEquals(record(5), delivered.get(5));
+    }
+
+    @Test
+    public void dropsOldestSegmentsWhenFull() throws Exception {
+        int count = 5_000;
+        for (int i = 0; i < count; i++) {
+            queue.append(record(i));
+        }
+
+        assertTrue(queue.getBytesOnDisk() <= SEGMENT_BYTES * MAX_SEGMENTS);
+        assertTrue(queue.getDroppedCount() > 0);
+        assertEquals(count, queue.size() + queue.getDroppedCount());
+
+        // 残ったレコードは最新のものが連続している
+        List<byte[]> delivered = drain(200);
+        assertEquals(queue.getDroppedCount() + delivered.size(), count);
+        for (int i = 0; i < delivered.size(); i++) {
+            assertArrayEquals(record((int) queue.getDroppedCount() + i), delivered.get(i));
+        }
+    }
+
+    @Test
+    public void emptyQueueHasNothingToSend() throws Exception {
+        assertTrue(queue.peek(10, Integer.MAX_VALUE).isEmpty());
+        assertNull(queue.getLastAcked());
+        assertNull(queue.getLastAppended());
+        queue.ack(queue.peek(10, Integer.MAX_VALUE));
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,101 @@
+package android.app.admin;
+
+import android.content.ComponentName;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JVM ベンチマーク用の DevicePolicyManager
+ * 状態をメモリ上に保持し、binder 呼び出しに相当する回数を数える。
+ */
+public class DevicePolicyManager {
+
+    public static final int PASSWORD_QUALITY_UNSPECIFIED = 0;
+    public static final int PASSWORD_QUALITY_NUMERIC = 0x20000;
+    public static final int ENCRYPTION_STATUS_ACTIVE_PER_USER = 5;
+
+    private final AtomicLong binderCalls = new AtomicLong();
+    private volatile boolean adminActive = true;
+    private volatile boolean cameraDisabled;
+    private volatile int passwordQuality;
+    private volatile int passwordMinimumLength;
+    private volatile long maximumTimeToLock;
+    private volatile int failedPasswordAttempts;
+    private volatile int encryptionStatus = ENCRYPTION_STATUS_ACTIVE_PER_USER;
+
+    public boolean isAdminActive(ComponentName admin) {
+        binderCalls.incrementAndGet();
+        return adminActive;
+    }
+
+    public boolean getCameraDisabled(ComponentName admin) {
+        binderCalls.incrementAndGet();
+        return cameraDisabled;
+    }
+
+    public void setCameraDisabled(ComponentName admin, boolean disabled) {
+        binderCalls.incrementAndGet();
+        cameraDisabled = disabled;
+    }
+
+    public int getPasswordQuality(ComponentName admin) {
+        binderCalls.incrementAndGet();
+        return passwordQuality;
+    }
+
+    public void setPasswordQuality(ComponentName admin, int quality) {
+        binderCalls.incrementAndGet();
+        passwordQuality = quality;
+    }
+
+    public int getPasswordMinimumLength(ComponentName admin) {
+        binderCalls.incrementAndGet();
+        return passwordMinimumLength;
+    }
+
+    public void setPasswordMinimumLength(ComponentName admin, int length) {
+        binderCalls.incrementAndGet();
+        passwordMinimumLength = length;
+    }
+
+    public boolean isActivePasswordSufficient() {
+        binderCalls.incrementAndGet();
+        return true;
+    }
+
+    public int getCurrentFailedPasswordAttempts() {
+        binderCalls.incrementAndGet();
+        return failedPasswordAttempts;
+    }
+
+    public long getMaximumTimeToLock(ComponentName admin) {
+        binderCalls.incrementAndGet();
+        return maximumTimeToLock;
+    }
+
+    public void setMaximumTimeToLock(ComponentName admin, long timeMs) {
+        binderCalls.incrementAndGet();
+        maximumTimeToLock = timeMs;
+    }
+
+    public void lockNow() {
+        binderCalls.incrementAndGet();
+    }
+
+    public int getStorageEncryptionStatus() {
+        binderCalls.incrementAndGet();
+        return encryptionStatus;
+    }
+
+    public void setFailedPasswordAttempts(int attempts) {
+        failedPasswordAttempts = attempts;
+    }
+
+    public void setAdminActive(boolean active) {
+        adminActive = active;
+    }
+
+    public long getBinderCalls() {
+        return binderCalls.get();
+    }
+}
@@ -0,0 +1,23 @@
+package android.content;
+
+/**
+ * JVM ベンチマーク用の ComponentName
+ */
+public final class ComponentName {
+
+    private final String packageName;
+    private final String className;
+
+    public ComponentName(Context context, Class<?> cls) {
+        this.packageName = context.getPackageName();
+        this.className = cls.getName();
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+}
@@ -0,0 +1,34 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+
+import java.io.File;
+
+/**
+ * JVM ベンチマーク用の Context（ポリシーエンジンが使う API のみ）
+ */
+public abstract class Context {
+
+    public static final String DEVICE_POLICY_SERVICE = "device_policy";
+    public static final String USER_SERVICE = "user";
+    public static final int MODE_PRIVATE = 0;
+
+    public abstract Context getApplicationContext();
+
+    public abstract String getPackageName();
+
+    public abstract PackageManager getPackageManager();
+
+    public abstract Object getSystemService(String name);
+
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+    public abstract boolean deleteSharedPreferences(String name);
+
+    public abstract AssetManager getAssets();
+
+    public abstract Context createDeviceProtectedStorageContext();
+
+    public abstract File getFilesDir();
+}
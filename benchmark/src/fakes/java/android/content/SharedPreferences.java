@@ -0,0 +1,24 @@
+package android.content;
+
+/**
+ * JVM ベンチマーク用の SharedPreferences（ポリシーエンジンが使う API のみ）
+ */
+public interface SharedPreferences {
+
+    boolean getBoolean(String key, boolean defValue);
+
+    String getString(String key, String defValue);
+
+    Editor edit();
+
+    interface Editor {
+
+        Editor putBoolean(String key, boolean value);
+
+        Editor putString(String key, String value);
+
+        void apply();
+
+        boolean commit();
+    }
+}
@@ -0,0 +1,14 @@
+package android.content.pm;
+
+import android.os.Bundle;
+
+/**
+ * JVM ベンチマーク用の ApplicationInfo
+ */
+public class ApplicationInfo {
+    public static final int FLAG_SYSTEM = 1;
+
+    public String packageName;
+    public int flags;
+    public Bundle metaData;
+}
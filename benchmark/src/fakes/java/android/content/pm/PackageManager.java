@@ -0,0 +1,60 @@
+package android.content.pm;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM ベンチマーク用の PackageManager（マニフェストのメタデータとインストール済みパッケージの一覧）
+ */
+public class PackageManager {
+
+    public static final int GET_META_DATA = 0x80;
+
+    private final Bundle metaData = new Bundle();
+    private final Map<String, ApplicationInfo> installed = new LinkedHashMap<>();
+
+    public static class NameNotFoundException extends Exception {
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+
+    /**
+     * インストール済みのパッケージはその情報を、それ以外は自アプリのメタデータを返す
+     */
+    public ApplicationInfo getApplicationInfo(String packageName, int flags) throws NameNotFoundException {
+        ApplicationInfo app = installed.get(packageName);
+        if (app != null) {
+            return app;
+        }
+        ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.metaData = metaData;
+        return info;
+    }
+
+    public List<ApplicationInfo> getInstalledApplications(int flags) {
+        return new ArrayList<>(installed.values());
+    }
+
+    /** ベンチマークからメタデータを設定する */
+    public Bundle getMetaData() {
+        return metaData;
+    }
+
+    /** ベンチマークからパッケージを追加する */
+    public void install(String packageName, boolean system) {
+        ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.flags = system ? ApplicationInfo.FLAG_SYSTEM : 0;
+        installed.put(packageName, info);
+    }
+
+    public void uninstall(String packageName) {
+        installed.remove(packageName);
+    }
+}
@@ -0,0 +1,38 @@
+package android.content.res;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * JVM ベンチマーク用の AssetFileDescriptor
+ */
+public final class AssetFileDescriptor implements Closeable {
+
+    private final File file;
+    private final long startOffset;
+    private final long length;
+
+    AssetFileDescriptor(File file, long startOffset, long length) {
+        this.file = file;
+        this.startOffset = startOffset;
+        this.length = length;
+    }
+
+    public FileInputStream createInputStream() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,36 @@
+package android.content.res;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JVM ベンチマーク用の AssetManager（ディレクトリ上の資産を非圧縮として扱う）
+ */
+public final class AssetManager {
+
+    private final File root;
+
+    public AssetManager(File root) {
+        this.root = root;
+    }
+
+    public AssetFileDescriptor openFd(String fileName) throws IOException {
+        File file = resolve(fileName);
+        return new AssetFileDescriptor(file, 0, file.length());
+    }
+
+    public InputStream open(String fileName) throws IOException {
+        return new FileInputStream(resolve(fileName));
+    }
+
+    private File resolve(String fileName) throws FileNotFoundException {
+        File file = new File(root, fileName);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM ベンチマーク用の Bundle（文字列のみ）
+ */
+public class Bundle {
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    public String getString(String key) {
+        return strings.get(key);
+    }
+
+    public void putString(String key, String value) {
+        strings.put(key, value);
+    }
+}
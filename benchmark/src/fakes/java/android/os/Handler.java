@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * JVM ベンチマーク用の Handler（即時投入のみ）
+ */
+public class Handler {
+
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return looper.queue.offer(r);
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+}
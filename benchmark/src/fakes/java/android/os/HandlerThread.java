@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * JVM ベンチマーク用の HandlerThread
+ */
+public class HandlerThread extends Thread {
+
+    private final Looper looper = new Looper(this);
+
+    public HandlerThread(String name, int priority) {
+        super(name);
+        setDaemon(true);
+    }
+
+    public Looper getLooper() {
+        return looper;
+    }
+
+    @Override
+    public void run() {
+        looper.loop();
+    }
+}
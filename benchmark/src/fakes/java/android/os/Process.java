@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * JVM ベンチマーク用の Process（優先度定数のみ）
+ */
+public final class Process {
+
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    private Process() {
+    }
+}
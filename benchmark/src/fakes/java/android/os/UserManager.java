@@ -0,0 +1,11 @@
+package android.os;
+
+/**
+ * JVM ベンチマーク用の UserManager（常にロック解除済み）
+ */
+public class UserManager {
+
+    public boolean isUserUnlocked() {
+        return true;
+    }
+}
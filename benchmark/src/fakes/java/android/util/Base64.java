@@ -0,0 +1,20 @@
+package android.util;
+
+/**
+ * JVM ベンチマーク用の Base64（java.util.Base64 に委譲）
+ */
+public final class Base64 {
+
+    public static final int DEFAULT = 0;
+
+    private Base64() {
+    }
+
+    public static byte[] decode(String str, int flags) {
+        try {
+            return java.util.Base64.getMimeDecoder().decode(str);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("bad base-64", e);
+        }
+    }
+}
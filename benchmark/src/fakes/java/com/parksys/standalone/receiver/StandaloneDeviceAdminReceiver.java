@@ -0,0 +1,7 @@
+package com.parksys.standalone.receiver;
+
+/**
+ * JVM ベンチマーク用の代替クラス（管理者コンポーネント名の解決にのみ使用）
+ */
+public class StandaloneDeviceAdminReceiver {
+}
@@ -0,0 +1,128 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.inventory.AppInventory;
+import com.parksys.standalone.policy.PackageIndex;
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDelta;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 禁止アプリの判定（合成した禁止リストに対する、通知1件ごとの判定と全走査の比較）
+ * packageAdded* は通知1件の処理、fullScan は同じ判定をインストール済みの全パッケージに行った場合。
+ * 全走査は実機ではさらにパッケージ一覧の取得（binder 呼び出し）が加わる。
+ */
+@State(Scope.Thread)
+public class AppInventoryBenchmark {
+
+    private static final int NAMES = 1024;
+
+    @Param({"10000"})
+    public int blocklistSize;
+
+    @Param({"300"})
+    public int installedCount;
+
+    private byte[] encoded;
+    private ByteBuffer encodedBuffer;
+    private PolicyDocument base;
+    private byte[] delta;
+    private PackageIndex index;
+    private AppInventory inventory;
+    private List<String> installed;
+    private String[] unlisted;
+    private String[] listed;
+    private int next;
+
+    @Setup
+    public void setUp() throws PolicyFormatException {
+        Random random = new Random(1);
+        List<String> blocked = new ArrayList<>(blocklistSize);
+        for (int i = 0; i < blocklistSize; i++) {
+            blocked.add(packageName(random, "blocked"));
+        }
+        encoded = PolicyDocument.builder()
+            .version("2.0.0")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .blockPackages(blocked)
+            .encode();
+        encodedBuffer = ByteBuffer.wrap(encoded);
+        PolicyDocument document = PolicyCodec.decode(encodedBuffer);
+        index = document.getPackages();
+
+        // 1件だけ入れ替えた版への差分（リスト全体を送る）
+        List<String> changed = new ArrayList<>(blocked);
+        changed.set(0, packageName(random, "blocked"));
+        base = document;
+        delta = PolicyDelta.diff(base, PolicyDocument.builder()
+            .version("2.0.1")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .blockPackages(changed)
+            .build());
+
+        installed = new ArrayList<>(installedCount);
+        for (int i = 0; i < installedCount; i++) {
+            installed.add(packageName(random, "installed"));
+        }
+        installed.add(blocked.get(0));
+        unlisted = new String[NAMES];
+        listed = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            unlisted[i] = packageName(random, "new");
+            listed[i] = blocked.get(random.nextInt(blocked.size()));
+        }
+        inventory = new AppInventory();
+        inventory.rescan(index, installed);
+    }
+
+    private static String packageName(Random random, String prefix) {
+        return "com." + prefix + Integer.toString(random.nextInt(1 << 20), 36)
+            + ".app" + Integer.toString(random.nextInt(1 << 16), 36);
+    }
+
+    /** 禁止リストにないアプリの追加（大半の通知。Bloom フィルタで除外される） */
+    @Benchmark
+    public boolean packageAddedUnlisted() {
+        next = (next + 1) & (NAMES - 1);
+        return inventory.onPackageAdded(unlisted[next]);
+    }
+
+    /** 禁止アプリの追加と削除（ハッシュ表の探索と一覧の更新を含む） */
+    @Benchmark
+    public boolean packageAddedListed() {
+        next = (next + 1) & (NAMES - 1);
+        String name = listed[next];
+        boolean added = inventory.onPackageAdded(name);
+        return inventory.onPackageRemoved(name) & added;
+    }
+
+    /** インストール済みの全パッケージの判定（チェックごとに全走査する場合の判定部分） */
+    @Benchmark
+    public boolean fullScan() {
+        return inventory.rescan(index, installed);
+    }
+
+    /** 禁止リストを含む文書の読み込み（ハッシュの整列の確認を含む、複製なし） */
+    @Benchmark
+    public PolicyDocument decode() throws PolicyFormatException {
+        return PolicyCodec.decode(encodedBuffer);
+    }
+
+    /** リストの一部を変更した差分の適用 */
+    @Benchmark
+    public byte[] applyDelta() throws PolicyFormatException {
+        return PolicyDelta.apply(base, ByteBuffer.wrap(delta));
+    }
+}
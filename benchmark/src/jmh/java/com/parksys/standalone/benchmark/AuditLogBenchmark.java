@@ -0,0 +1,76 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.audit.AuditEvent;
+import com.parksys.standalone.audit.AuditLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 監査ログの追記と期間検索
+ */
+@State(Scope.Thread)
+public class AuditLogBenchmark {
+
+    private static final int HISTORY_EVENTS = 200_000;
+
+    private File directory;
+    private AuditLog appendLog;
+    private AuditLog historyLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("parksys-audit").toFile();
+
+        // 書き出しは追記スレッド上で行うため、計測値には書き出しの償却コストを含む
+        appendLog = new AuditLog(new File(directory, "append"), 4096, 4096, 16 * 1024, 16, Runnable::run);
+
+        historyLog = new AuditLog(new File(directory, "history"), 4096, 4096, 16 * 1024, 16, Runnable::run);
+        for (int i = 0; i < HISTORY_EVENTS; i++) {
+            historyLog.append(i % 50 == 0 ? AuditEvent.POLICY_DRIFT : AuditEvent.POLICY_APPLIED, 1, i);
+        }
+        historyLog.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        appendLog.close();
+        historyLog.close();
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void append() {
+        appendLog.append(AuditEvent.POLICY_DRIFT, 1, 0);
+    }
+
+    /** 直近30日のドリフトを検索 */
+    @Benchmark
+    public int queryDriftLast30Days(Blackhole blackhole) throws IOException {
+        long now = System.currentTimeMillis();
+        return historyLog.query(AuditEvent.mask(AuditEvent.POLICY_DRIFT),
+            now - TimeUnit.DAYS.toMillis(30), now,
+            (time, type, value, aux) -> blackhole.consume(aux));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
@@ -0,0 +1,17 @@
+package com.parksys.standalone.benchmark;
+
+/**
+ * ベンチマーク間で共有する Context
+ * EmbeddedPolicyManager はプロセス内シングルトンのため、同じ Context を使い回す。
+ */
+public final class BenchmarkContext {
+
+    private static final FakeContext CONTEXT = new FakeContext();
+
+    private BenchmarkContext() {
+    }
+
+    public static FakeContext get() {
+        return CONTEXT;
+    }
+}
@@ -0,0 +1,105 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.startup.BootCoordinator;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 1回の起動で起きる重複した起動要求の集約
+ * bootStorm は1回あたり1ブートを再現する: ブート完了通知3回（LOCKED_BOOT_COMPLETED・BOOT_COMPLETED・
+ * QUICKBOOT_POWERON）、それぞれでのサービス開始、その後の連続した再起動 {@link #RESTARTS} 回。
+ * applies / boots が1ブートあたりの全適用回数（集約しない場合は 3 + RESTARTS）、
+ * serviceStarts / boots がブート完了通知によるサービス開始回数、
+ * restartDelayMillis / boots が連続した再起動に空けた待ち時間の合計。
+ */
+@State(Scope.Thread)
+public class BootCoordinatorBenchmark {
+
+    private static final int BROADCASTS = 3;
+    private static final int RESTARTS = 6;
+
+    private final VirtualClock clock = new VirtualClock();
+    private BootCoordinator coordinator;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long boots;
+        public long applies;
+        public long serviceStarts;
+        public long restartDelayMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            boots = 0;
+            applies = 0;
+            serviceStarts = 0;
+            restartDelayMillis = 0;
+        }
+    }
+
+    static final class VirtualClock implements BootCoordinator.Clock {
+        int bootCount;
+        long elapsed;
+        long wallAtBoot = 1_700_000_000_000L;
+
+        @Override
+        public int bootCount() {
+            return bootCount;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return elapsed;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return wallAtBoot + elapsed;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        coordinator = new BootCoordinator(StateStore.inMemory(AppState.SLOT_COUNT), AppState.SLOT_BOOT, clock);
+    }
+
+    @Benchmark
+    public void bootStorm(Counters counters) {
+        clock.wallAtBoot += clock.elapsed + 30_000;
+        clock.bootCount++;
+        clock.elapsed = 8_000;
+        counters.boots++;
+
+        for (int i = 0; i < BROADCASTS; i++) {
+            clock.elapsed += 700;
+            boolean first = coordinator.onBootBroadcast();
+            if (first || coordinator.getBootToEnforcedMillis() < 0) {
+                counters.serviceStarts++;
+                startService(counters);
+            }
+        }
+        for (int i = 0; i < RESTARTS; i++) {
+            clock.elapsed += 2_000;
+            long delay = coordinator.nextRestartDelay();
+            counters.restartDelayMillis += delay;
+            clock.elapsed += delay;
+            startService(counters);
+        }
+    }
+
+    private void startService(Counters counters) {
+        if (coordinator.shouldApply()) {
+            counters.applies++;
+            clock.elapsed += 150;
+            coordinator.onEnforced();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * 同梱ポリシー資産のメモリマップと読み込み（サービス起動時の初回ロード相当）
+ */
+@State(Scope.Thread)
+public class BundledPolicyLoadBenchmark {
+
+    private final String path = System.getProperty("parksys.assets", "app/src/main/assets")
+        + "/policy/embedded_policy.ppol";
+
+    @Benchmark
+    public PolicyDocument mapAndDecode() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            return PolicyCodec.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.parksys.standalone.benchmark;
+
+import android.app.admin.DevicePolicyManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.os.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ベンチマーク用の Context
+ * DevicePolicyManager と SharedPreferences をメモリ上の実装で提供する。
+ */
+public final class FakeContext extends Context {
+
+    private static final String ASSETS_PROPERTY = "parksys.assets";
+
+    private final DevicePolicyManager devicePolicyManager = new DevicePolicyManager();
+    private final Map<String, InMemorySharedPreferences> preferences = new HashMap<>();
+    private final UserManager userManager = new UserManager();
+    private final PackageManager packageManager = new PackageManager();
+    private final AssetManager assets;
+    private final File filesDir;
+
+    public FakeContext() {
+        this.assets = new AssetManager(new File(System.getProperty(ASSETS_PROPERTY, "app/src/main/assets")));
+        try {
+            this.filesDir = Files.createTempDirectory("parksys-bench").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.filesDir.deleteOnExit();
+    }
+
+    public DevicePolicyManager getDevicePolicyManager() {
+        return devicePolicyManager;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public String getPackageName() {
+        return "com.parksys.standalone";
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        if (DEVICE_POLICY_SERVICE.equals(name)) {
+            return devicePolicyManager;
+        }
+        return USER_SERVICE.equals(name) ? userManager : null;
+    }
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        return preferences.computeIfAbsent(name, key -> new InMemorySharedPreferences());
+    }
+
+    @Override
+    public synchronized boolean deleteSharedPreferences(String name) {
+        return preferences.remove(name) != null;
+    }
+
+    @Override
+    public AssetManager getAssets() {
+        return assets;
+    }
+
+    @Override
+    public Context createDeviceProtectedStorageContext() {
+        return this;
+    }
+
+    @Override
+    public File getFilesDir() {
+        return filesDir;
+    }
+}
@@ -0,0 +1,96 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.fleet.DeviceStateTable;
+import com.parksys.standalone.fleet.FleetEvaluator;
+import com.parksys.standalone.fleet.FleetResult;
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 端末群の一括評価（1回の操作が全端末の評価）
+ * rowWise は端末上と同じ RuleEngine で1台ずつ評価する参照実装、
+ * columnarSequential・columnarParallel は列ごとの評価（逐次・fork/join）。
+ * 並行評価の効果は使用できる CPU 数に依存する。
+ */
+@State(Scope.Benchmark)
+public class FleetEvaluationBenchmark {
+
+    @Param({"1000000"})
+    public int devices;
+
+    private PolicyDocument desired;
+    private DeviceStateTable table;
+    private ForkJoinPool pool;
+    private FleetEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        desired = PolicyDocument.builder()
+            .version("2.0.0")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .value(RestrictionType.PASSWORD_QUALITY, 0x50000)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 8)
+            .value(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 300)
+            .value(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 10)
+            .restrict(RestrictionType.STORAGE_ENCRYPTION_REQUIRED, true)
+            .build();
+        SplittableRandom random = new SplittableRandom(1);
+        table = new DeviceStateTable(devices);
+        for (int i = 0; i < devices; i++) {
+            int row = table.append(i);
+            table.setCameraDisabled(row, random.nextInt(100) < 97);
+            table.setPasswordQuality(row, random.nextInt(100) < 98 ? 0x50000 : 0x10000);
+            table.setPasswordMinimumLength(row, random.nextInt(100) < 98 ? 8 : 4);
+            table.setPasswordSufficient(row, random.nextInt(100) < 95);
+            table.setMaximumTimeToLock(row, random.nextInt(100) < 96 ? 300_000L : 600_000L);
+            table.setFailedPasswordAttempts(row, random.nextInt(100) < 99 ? random.nextInt(3) : 10);
+            table.setStorageEncryptionStatus(row, random.nextInt(100) < 97
+                ? PolicyBackend.ENCRYPTION_STATUS_ACTIVE_PER_USER : PolicyBackend.ENCRYPTION_STATUS_INACTIVE);
+            table.setPolicyVersion(row, random.nextInt(100) < 90 ? "2.0.0" : "1.0.0");
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        evaluator = new FleetEvaluator(pool);
+
+        // 列ごとの評価が参照実装と一致することを確認する
+        FleetResult expected = FleetEvaluator.evaluateRowWise(desired, table);
+        FleetResult actual = evaluator.evaluate(desired, table);
+        for (int row = 0; row < devices; row++) {
+            if (expected.getViolations(row) != actual.getViolations(row)) {
+                throw new IllegalStateException("Mismatch at row " + row + ": " + expected.getViolations(row)
+                    + " != " + actual.getViolations(row));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long rowWise() {
+        return FleetEvaluator.evaluateRowWise(desired, table).getNoncompliantCount();
+    }
+
+    @Benchmark
+    public long columnarSequential() {
+        return FleetEvaluator.evaluateSequential(desired, table).getNoncompliantCount();
+    }
+
+    @Benchmark
+    public long columnarParallel() {
+        return evaluator.evaluate(desired, table).getNoncompliantCount();
+    }
+}
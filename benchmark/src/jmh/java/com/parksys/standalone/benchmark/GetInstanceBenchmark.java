@@ -0,0 +1,36 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * EmbeddedPolicyManager.getInstance の競合時コスト
+ */
+@State(Scope.Benchmark)
+public class GetInstanceBenchmark {
+
+    private FakeContext context;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.get();
+        EmbeddedPolicyManager.getInstance(context);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public EmbeddedPolicyManager uncontended() {
+        return EmbeddedPolicyManager.getInstance(context);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public EmbeddedPolicyManager contended() {
+        return EmbeddedPolicyManager.getInstance(context);
+    }
+}
@@ -0,0 +1,67 @@
+package com.parksys.standalone.benchmark;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ベンチマーク用の SharedPreferences（XML 書き込みの代わりに書き込み回数を数える）
+ */
+public final class InMemorySharedPreferences implements SharedPreferences {
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defValue;
+    }
+
+    @Override
+    public Editor edit() {
+        return new EditorImpl();
+    }
+
+    private final class EditorImpl implements Editor {
+
+        private final Map<String, Object> pending = new HashMap<>();
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+
+        @Override
+        public boolean commit() {
+            values.putAll(pending);
+            writes.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.integrity.IntegrityChecker;
+import com.parksys.standalone.integrity.IntegrityReport;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 完全性の検査の費用（定期チェックごとの参照と、検査を実行した場合の比較）
+ * 端末のファイル・プロパティの参照は probeLatencyMicros だけ待つ合成の環境で置き換える（実機では I/O 待ち）。
+ * cold* はブート後・パッケージ変更後の初回の検査、restore はプロセス再起動時の保存した結果の読み込み。
+ */
+@State(Scope.Thread)
+public class IntegrityCheckBenchmark {
+
+    /** 1回の参照（ファイルの存在確認・プロパティの取得など）の待ち時間 */
+    @Param({"20"})
+    public int probeLatencyMicros;
+
+    private final StateStore store = StateStore.inMemory(AppState.SLOT_COUNT);
+    private ThreadPoolExecutor pool;
+    private SyntheticEnvironment environment;
+    private IntegrityChecker pooled;
+    private IntegrityChecker direct;
+
+    static final class SyntheticEnvironment implements IntegrityChecker.Environment {
+        private final long latencyNanos;
+        private final Map<String, String> properties = new HashMap<>();
+        private final List<String> mounts = Arrays.asList(
+            "/dev/block/dm-0 / ext4 ro,seclabel,relatime 0 0",
+            "/dev/block/dm-1 /vendor ext4 ro,seclabel,relatime 0 0",
+            "/dev/block/dm-2 /product ext4 ro,seclabel,relatime 0 0",
+            "tmpfs /dev tmpfs rw,seclabel,nosuid,relatime,mode=755 0 0",
+            "/dev/block/dm-5 /data f2fs rw,lazytime,seclabel,nosuid,nodev 0 0");
+
+        SyntheticEnvironment(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+            properties.put("ro.build.tags", "release-keys");
+            properties.put("ro.debuggable", "0");
+            properties.put("ro.secure", "1");
+            properties.put("ro.boot.verifiedbootstate", "green");
+            properties.put("ro.boot.flash.locked", "1");
+            properties.put("ro.boot.vbmeta.device_state", "locked");
+        }
+
+        private void stall() {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+        }
+
+        @Override
+        public String getProperty(String key) {
+            stall();
+            return properties.getOrDefault(key, "");
+        }
+
+        @Override
+        public boolean exists(String path) {
+            stall();
+            return false;
+        }
+
+        @Override
+        public List<String> readLines(String path) {
+            stall();
+            return mounts;
+        }
+
+        @Override
+        public boolean isPackageInstalled(String packageName) {
+            stall();
+            return false;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        environment = new SyntheticEnvironment(probeLatencyMicros * 1000L);
+        pool = IntegrityChecker.newProbeExecutor();
+        pooled = new IntegrityChecker(store, AppState.SLOT_INTEGRITY, environment, pool, () -> 1L);
+        direct = new IntegrityChecker(store, AppState.SLOT_INTEGRITY, environment, Runnable::run, () -> 1L);
+        pooled.check().join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /** 検査済みの場合の定期チェックの費用（volatile の読み取りのみ） */
+    @Benchmark
+    public IntegrityReport cachedReport() {
+        return pooled.getReport();
+    }
+
+    /** 検査済みの場合の check()（完了済みの Future を返す） */
+    @Benchmark
+    public IntegrityReport cachedCheck() {
+        return pooled.check().join();
+    }
+
+    /** 結果を破棄して全項目を検査用のスレッドプールで並行に検査する */
+    @Benchmark
+    public IntegrityReport coldCheckPool() {
+        pooled.invalidate();
+        return pooled.check().join();
+    }
+
+    /** 結果を破棄して全項目を呼び出し元のスレッドで順に検査する（比較用） */
+    @Benchmark
+    public IntegrityReport coldCheckDirect() {
+        direct.invalidate();
+        return direct.check().join();
+    }
+
+    /** プロセス再起動時: 同じブートセッションで保存した結果を読み込む（検査しない） */
+    @Benchmark
+    public IntegrityReport restore() {
+        Executor unused = command -> {
+            throw new IllegalStateException("restored report must not run probes");
+        };
+        return new IntegrityChecker(store, AppState.SLOT_INTEGRITY, environment, unused, () -> 1L).getReport();
+    }
+}
@@ -0,0 +1,72 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.login.LoginFailurePolicy;
+import com.parksys.standalone.login.LoginFailureTracker;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ログイン失敗の記録
+ * 連続した失敗の集中（1回の呼び出しで BURST 件）を時間枠・ロックアウトの境界をまたいで記録し続ける。
+ * file は受信処理と同じくファイル上の状態ストアに毎回保存する（ディスクへの書き出しはロックアウトの開始・解除時のみ）。
+ */
+@State(Scope.Thread)
+public class LoginFailureBenchmark {
+
+    private static final int BURST = 5_000;
+
+    @Param({"memory", "file"})
+    public String storage;
+
+    private File file;
+    private StateStore store;
+    private LoginFailureTracker tracker;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("file".equals(storage)) {
+            file = File.createTempFile("parksys-login", ".bin");
+            store = StateStore.open(file, AppState.SLOT_COUNT);
+        } else {
+            store = StateStore.inMemory(AppState.SLOT_COUNT);
+        }
+        tracker = new LoginFailureTracker(store, AppState.SLOT_LOGIN_FAILURES, LoginFailurePolicy.defaults(10));
+        now = 1_000_000_000L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int recordBurst() {
+        int actions = 0;
+        for (int i = 0; i < BURST; i++) {
+            // 数件ごとに時刻を進め、時間枠からの追い出しも発生させる
+            now += (i & 7) == 0 ? 60_000 : 1;
+            actions |= tracker.recordFailure(now);
+        }
+        if (tracker.getLockoutLevel() > 200) {
+            tracker.reset();
+        }
+        return actions;
+    }
+}
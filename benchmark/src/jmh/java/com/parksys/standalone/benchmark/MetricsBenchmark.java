@@ -0,0 +1,39 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.metrics.LatencyHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * レイテンシヒストグラムへの記録（gc プロファイラで割り当てが 0 B/op であることを確認する）
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram("bench");
+
+    @State(Scope.Thread)
+    public static class Sample {
+        long nanos = 1;
+
+        long next() {
+            // 50us〜60s の範囲を巡回させ、バケット探索の全区間を通す
+            nanos = nanos * 3 % 60_000_000_000L + 50_000;
+            return nanos;
+        }
+    }
+
+    @Benchmark
+    public void record(Sample sample) {
+        histogram.record(sample.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Sample sample) {
+        histogram.record(sample.next());
+    }
+}
@@ -0,0 +1,168 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDelta;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+import com.parksys.standalone.sync.ComplianceReport;
+import com.parksys.standalone.sync.PolicySyncClient;
+import com.parksys.standalone.sync.ReportCodec;
+import com.parksys.standalone.sync.ReportFormatException;
+import com.parksys.standalone.sync.ReportUploader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ローカルの管理サーバー代替（GET /policies, POST /device/state）
+ * ETag による 304 応答、X-Policy-Version に対する差分応答、gzip 圧縮に対応する。
+ * 報告は端末ごとに最後の報告を保持し、差分の基準が一致しない場合は 409 を返す。
+ */
+public final class MockPolicyServer implements AutoCloseable {
+
+    static {
+        // ヘッダーと本文を別々に書き出すため、Nagle と遅延 ACK の待ち（約40ms）を避ける
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final Map<String, byte[]> history = new ConcurrentHashMap<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final Map<String, ComplianceReport> lastReports = new ConcurrentHashMap<>();
+    private final AtomicLong reportsReceived = new AtomicLong();
+    private final AtomicLong reportBytesReceived = new AtomicLong();
+    private volatile byte[] current;
+    private volatile PolicyDocument currentDocument;
+
+    public MockPolicyServer(byte[] initialPolicy) throws IOException {
+        publish(initialPolicy);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PolicySyncClient.PATH_POLICIES, this::handlePolicies);
+        server.createContext(ReportUploader.PATH_DEVICE_STATE, this::handleDeviceState);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** 新しい版を公開する（以前の版は差分の基準として保持） */
+    public void publish(byte[] policy) throws PolicyFormatException {
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(policy));
+        history.put(document.getVersion(), policy);
+        current = policy;
+        currentDocument = document;
+    }
+
+    /** 受け付けた TCP 接続の数（送信元ポートの種類） */
+    public int getConnectionCount() {
+        return clientPorts.size();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getReportsReceived() {
+        return reportsReceived.get();
+    }
+
+    /** 受信した報告の本文のバイト数（圧縮後） */
+    public long getReportBytesReceived() {
+        return reportBytesReceived.get();
+    }
+
+    /** 端末ごとの最後の報告を忘れる（サーバー側の状態消失） */
+    public void forgetReports() {
+        lastReports.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handleDeviceState(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        reportBytesReceived.addAndGet(body.length);
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
+        }
+        String deviceId = exchange.getRequestHeaders().getFirst(PolicySyncClient.HEADER_DEVICE_ID);
+        int code = 200;
+        try {
+            List<ComplianceReport> reports = new ArrayList<>();
+            ComplianceReport last = ReportCodec.decodeBatch(lastReports.get(deviceId), ByteBuffer.wrap(body), reports);
+            if (last != null) {
+                lastReports.put(deviceId, last);
+            }
+            reportsReceived.addAndGet(reports.size());
+        } catch (ReportFormatException e) {
+            code = 409;
+        }
+        exchange.sendResponseHeaders(code, -1);
+        exchange.close();
+    }
+
+    private void handlePolicies(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        PolicyDocument document = currentDocument;
+        String etag = "\"" + document.getVersion() + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = current;
+        String contentType = PolicySyncClient.CONTENT_TYPE_POLICY;
+        String baseVersion = exchange.getRequestHeaders().getFirst(PolicySyncClient.HEADER_POLICY_VERSION);
+        byte[] base = baseVersion != null ? history.get(baseVersion) : null;
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (base != null && accept != null && accept.contains(PolicySyncClient.CONTENT_TYPE_DELTA)) {
+            body = PolicyDelta.diff(PolicyCodec.decode(ByteBuffer.wrap(base)), document);
+            contentType = PolicySyncClient.CONTENT_TYPE_DELTA;
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesSent.addAndGet(body.length);
+    }
+}
@@ -0,0 +1,108 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.network.NetworkCompliance;
+import com.parksys.standalone.network.NetworkRules;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NetworkCallback の通知1件ごとのネットワークルールの評価
+ * 接続中のネットワークは Wi-Fi（許可済み・暗号化あり）・モバイル・VPN の3件。
+ * capabilitiesUnchanged は信号強度の変化など評価に関係しない通知（大半の通知）、
+ * その他はルールに関係する値が変わり評価し直す通知。
+ */
+@State(Scope.Thread)
+public class NetworkComplianceBenchmark {
+
+    private static final long WIFI = 100;
+    private static final long CELLULAR = 101;
+    private static final long VPN = 102;
+    private static final int WIFI_TRANSPORT = NetworkCompliance.TRANSPORT_WIFI;
+    private static final int VPN_TRANSPORT = NetworkCompliance.TRANSPORT_VPN | NetworkCompliance.TRANSPORT_WIFI;
+
+    @Param({"20"})
+    public int allowedSsids;
+
+    private PolicyDocument document;
+    private NetworkRules rules;
+    private NetworkCompliance compliance;
+    private int allowedHash;
+    private int unknownHash;
+    private boolean toggle;
+    private long nextHandle = 1000;
+
+    @Setup
+    public void setUp() {
+        List<String> ssids = new ArrayList<>(allowedSsids);
+        for (int i = 0; i < allowedSsids; i++) {
+            ssids.add("corp-" + i);
+        }
+        document = PolicyDocument.builder()
+            .version("3.0.0")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .restrict(RestrictionType.VPN_REQUIRED, true)
+            .restrict(RestrictionType.OPEN_WIFI_FORBIDDEN, true)
+            .allowWifi(ssids)
+            .build();
+        rules = NetworkRules.from(document);
+        allowedHash = PolicyDocument.ssidHash("\"corp-3\"");
+        unknownHash = PolicyDocument.ssidHash("\"cafe-guest\"");
+
+        compliance = new NetworkCompliance();
+        compliance.setRules(rules);
+        compliance.onCapabilitiesChanged(WIFI, WIFI_TRANSPORT, NetworkCompliance.SECURITY_SECURED, allowedHash, true);
+        compliance.onCapabilitiesChanged(CELLULAR, NetworkCompliance.TRANSPORT_CELLULAR,
+            NetworkCompliance.SECURITY_UNKNOWN, 0, false);
+        compliance.onLinkPropertiesChanged(CELLULAR, false);
+        compliance.onCapabilitiesChanged(VPN, VPN_TRANSPORT, NetworkCompliance.SECURITY_UNKNOWN, 0, false);
+        if (compliance.getViolations() != 0) {
+            throw new IllegalStateException("Unexpected violations: " + compliance);
+        }
+    }
+
+    /** 評価に関係しない能力の変化（信号強度・帯域の推定値など） */
+    @Benchmark
+    public boolean capabilitiesUnchanged() {
+        return compliance.onCapabilitiesChanged(WIFI, WIFI_TRANSPORT, NetworkCompliance.SECURITY_SECURED,
+            allowedHash, true);
+    }
+
+    /** 許可されていない Wi-Fi との切り替え（評価し直し、違反が変わる） */
+    @Benchmark
+    public boolean wifiChanged() {
+        toggle = !toggle;
+        return compliance.onCapabilitiesChanged(WIFI, WIFI_TRANSPORT, NetworkCompliance.SECURITY_SECURED,
+            toggle ? unknownHash : allowedHash, true);
+    }
+
+    /** VPN のデフォルト経路の有無の切り替え（分割トンネル化） */
+    @Benchmark
+    public boolean vpnRouteChanged() {
+        toggle = !toggle;
+        return compliance.onLinkPropertiesChanged(VPN, !toggle);
+    }
+
+    /** ネットワークの接続と切断 */
+    @Benchmark
+    public boolean connectAndLose() {
+        long handle = nextHandle++;
+        boolean changed = compliance.onCapabilitiesChanged(handle, NetworkCompliance.TRANSPORT_ETHERNET,
+            NetworkCompliance.SECURITY_UNKNOWN, 0, false);
+        return compliance.onLost(handle) | changed;
+    }
+
+    /** ポリシー文書の変更時のルールの組み立て（通知ごとには行わない） */
+    @Benchmark
+    public NetworkRules rulesFromDocument() {
+        return NetworkRules.from(document);
+    }
+}
@@ -0,0 +1,52 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ポリシー文書の読み込みと参照
+ */
+@State(Scope.Thread)
+public class PolicyLoadBenchmark {
+
+    @Param({"3", "500"})
+    public int ruleCount;
+
+    private ByteBuffer encoded;
+    private PolicyDocument document;
+
+    @Setup
+    public void setUp() throws PolicyFormatException {
+        PolicyDocument.Builder builder = PolicyDocument.builder()
+            .version("1.0.0")
+            .bannerText("この端末はParksysセキュリティポリシーにより保護されています")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .restrict(RestrictionType.MICROPHONE_DISABLED, true)
+            .restrict(RestrictionType.SCREEN_CAPTURE_DISABLED, true);
+        for (int i = 3; i < ruleCount; i++) {
+            builder.rule(1000 + i / 16, i % 16, i);
+        }
+        encoded = ByteBuffer.wrap(builder.encode());
+        document = PolicyCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public PolicyDocument decode() throws PolicyFormatException {
+        return PolicyCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public boolean lookup() {
+        return document.isRestricted(RestrictionType.CAMERA_DISABLED);
+    }
+}
@@ -0,0 +1,49 @@
+package com.parksys.standalone.benchmark;
+
+import android.app.admin.DevicePolicyManager;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * EmbeddedPolicyManager の適用・再適用経路
+ */
+@State(Scope.Thread)
+public class PolicyManagerBenchmark {
+
+    private EmbeddedPolicyManager policyManager;
+    private DevicePolicyManager devicePolicyManager;
+    private boolean cameraDisabled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FakeContext context = BenchmarkContext.get();
+        devicePolicyManager = context.getDevicePolicyManager();
+        policyManager = EmbeddedPolicyManager.getInstance(context);
+        policyManager.applyEmbeddedPolicy();
+    }
+
+    @Benchmark
+    public void applyEmbeddedPolicy() {
+        policyManager.applyEmbeddedPolicy();
+    }
+
+    /** ドリフトなし（定常状態の定期チェック） */
+    @Benchmark
+    public void enforcePolicy() {
+        policyManager.enforcePolicy();
+    }
+
+    /** 毎回ドリフトが発生する場合 */
+    @Benchmark
+    public void enforcePolicyWithDrift() {
+        cameraDisabled = !cameraDisabled;
+        devicePolicyManager.setCameraDisabled(null, cameraDisabled);
+        policyManager.enforcePolicy();
+    }
+}
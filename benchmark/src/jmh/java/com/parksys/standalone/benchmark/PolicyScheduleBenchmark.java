@@ -0,0 +1,135 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.TimeZone;
+
+/**
+ * 時間帯スケジュールの評価
+ * nextTransition は次の境界の計算（アラームの予約ごとに1回）、activeAt は現在の状態の判定、
+ * scanWindows は同じ判定を時間帯を1件ずつ調べて行う場合（定期チェックごとに評価する方式の1回分）。
+ * 時刻は夏時間の切り替え（America/New_York の 2024-03-10・11-03）前後の2週間から選ぶ。
+ */
+@State(Scope.Thread)
+public class PolicyScheduleBenchmark {
+
+    private static final RestrictionType[] TYPES = {
+        RestrictionType.CAMERA_DISABLED,
+        RestrictionType.MICROPHONE_DISABLED,
+        RestrictionType.SCREEN_CAPTURE_DISABLED,
+        RestrictionType.VPN_REQUIRED,
+        RestrictionType.OPEN_WIFI_FORBIDDEN,
+    };
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long[] DST_CHANGES = {1710054000000L, 1730613600000L};
+
+    @Param({"10", "100", "1000"})
+    public int windows;
+
+    private PolicyDocument document;
+    private PolicySchedule schedule;
+    private TimeZone zone;
+    private long[] instants;
+    private int[] windowTypes;
+    private int[] windowValues;
+    private int next;
+    private boolean toggle;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        PolicyDocument.Builder builder = PolicyDocument.builder().version("3.0.0");
+        builder.schedule(RestrictionType.CAMERA_DISABLED, PolicySchedule.WEEKDAYS, 8 * 60, 19 * 60);
+        // 1日・短時間の時間帯にして、件数が多くても常時有効にならない（境界が残る）ようにする
+        for (int i = 1; i < windows; i++) {
+            int start = random.nextInt(24 * 60);
+            int length = 1 + random.nextInt(15);
+            builder.schedule(TYPES[i % TYPES.length], 1 << random.nextInt(7),
+                start, (start + length) % (24 * 60));
+        }
+        document = builder.build();
+        schedule = PolicySchedule.from(document);
+        zone = TimeZone.getTimeZone("America/New_York");
+
+        instants = new long[1024];
+        for (int i = 0; i < instants.length; i++) {
+            long change = DST_CHANGES[i % DST_CHANGES.length];
+            instants[i] = change - 7 * DAY + random.nextLong(14 * DAY);
+        }
+
+        int first = 0;
+        while (document.getRuleType(first) != RestrictionType.SCHEDULE_WINDOW.id) {
+            first++;
+        }
+        windowTypes = new int[windows];
+        windowValues = new int[windows];
+        for (int i = 0; i < windows; i++) {
+            windowTypes[i] = document.getRuleParam(first + i) / PolicySchedule.MAX_WINDOWS_PER_TYPE;
+            windowValues[i] = document.getRuleValue(first + i);
+        }
+    }
+
+    private long nextInstant() {
+        long instant = instants[next];
+        next = (next + 1) & (instants.length - 1);
+        return instant;
+    }
+
+    @Benchmark
+    public long nextTransition() {
+        return schedule.nextTransition(nextInstant(), zone);
+    }
+
+    @Benchmark
+    public int activeAt() {
+        return schedule.activeAt(nextInstant(), zone);
+    }
+
+    @Benchmark
+    public int scanWindows() {
+        long instant = nextInstant();
+        long localMinute = Math.floorDiv(instant + zone.getOffset(instant), 60_000L);
+        int minuteOfDay = (int) Math.floorMod(localMinute, 24 * 60L);
+        int day = (int) Math.floorMod(Math.floorDiv(localMinute, 24 * 60L) + 3, 7L);
+        int previousDay = (day + 6) % 7;
+        int active = 0;
+        for (int i = 0; i < windowTypes.length; i++) {
+            int value = windowValues[i];
+            int days = value >>> 22;
+            int start = (value >>> 11) & 0x7FF;
+            int end = value & 0x7FF;
+            boolean inside;
+            if (end > start) {
+                inside = (days & (1 << day)) != 0 && minuteOfDay >= start && minuteOfDay < end;
+            } else {
+                // 日をまたぐ時間帯（開始日の夜と翌日の朝）
+                inside = (days & (1 << day)) != 0 && minuteOfDay >= start
+                    || (days & (1 << previousDay)) != 0 && minuteOfDay < end;
+            }
+            if (inside) {
+                active |= 1 << windowTypes[i];
+            }
+        }
+        return active;
+    }
+
+    @Benchmark
+    public PolicySchedule aggregate() {
+        return PolicySchedule.from(document);
+    }
+
+    @Benchmark
+    public PolicyDocument resolve() {
+        toggle = !toggle;
+        return schedule.resolve(toggle ? schedule.getScheduledTypes() : 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.parksys.standalone.benchmark;
+
+import android.app.admin.DevicePolicyManager;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.manager.PolicyState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ポリシー状態の競合時の読み取り
+ * readSnapshot / readGetters は8スレッドで getInstance からの読み取りのみ、
+ * readWhileEnforcing は7スレッドの読み取りと、毎回ずれを修正して状態を公開する1スレッド（リスナー1件）の組み合わせ。
+ */
+@State(Scope.Benchmark)
+public class PolicyStateBenchmark {
+
+    private FakeContext context;
+    private DevicePolicyManager devicePolicyManager;
+    private boolean cameraDisabled;
+    private final AtomicLong notifications = new AtomicLong();
+    private final PolicyState.Listener listener = state -> notifications.incrementAndGet();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.get();
+        devicePolicyManager = context.getDevicePolicyManager();
+        EmbeddedPolicyManager policyManager = EmbeddedPolicyManager.getInstance(context);
+        policyManager.applyEmbeddedPolicy();
+        policyManager.addStateListener(listener);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedPolicyManager.getInstance(context).removeStateListener(listener);
+    }
+
+    /** 1つのスナップショットから複数の値を読む */
+    @Benchmark
+    @Threads(8)
+    public int readSnapshot() {
+        return read(EmbeddedPolicyManager.getInstance(context).getState());
+    }
+
+    /** 個別の getter で読む（値同士の一貫性は保証されない） */
+    @Benchmark
+    @Threads(8)
+    public int readGetters() {
+        EmbeddedPolicyManager policyManager = EmbeddedPolicyManager.getInstance(context);
+        int value = policyManager.isPolicyApplied() ? 1 : 0;
+        value += policyManager.isCameraEnabled() ? 2 : 0;
+        value += policyManager.getPolicyVersion().length();
+        return value + policyManager.getBannerText().length();
+    }
+
+    @Benchmark
+    @Group("readWhileEnforcing")
+    @GroupThreads(7)
+    public int reader() {
+        return read(EmbeddedPolicyManager.getInstance(context).getState());
+    }
+
+    @Benchmark
+    @Group("readWhileEnforcing")
+    @GroupThreads(1)
+    public int enforcer() {
+        synchronized (this) {
+            cameraDisabled = !cameraDisabled;
+            devicePolicyManager.setCameraDisabled(null, cameraDisabled);
+            return EmbeddedPolicyManager.getInstance(context).enforcePolicy();
+        }
+    }
+
+    private static int read(PolicyState state) {
+        int value = state.policyApplied ? 1 : 0;
+        value += state.isCameraEnabled() ? 2 : 0;
+        value += state.getPolicyVersion().length();
+        return value + state.getBannerText().length() + state.drifted;
+    }
+}
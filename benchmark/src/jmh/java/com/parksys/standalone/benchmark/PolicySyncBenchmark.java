@@ -0,0 +1,100 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.sync.PolicySyncClient;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * ポリシー同期クライアントとローカルのサーバー代替との往復
+ * bytes / polls が1回あたりの受信バイト数（圧縮後）、connections は使用した TCP 接続数。
+ */
+@State(Scope.Thread)
+public class PolicySyncBenchmark {
+
+    private static final int RULES = 200;
+
+    private MockPolicyServer server;
+    private PolicySyncClient client;
+    private PolicyDocument previous;
+    private PolicyDocument latest;
+    private String latestEtag;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Wire {
+        public long bytes;
+        public long polls;
+        public long connections;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            polls = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        PolicyDocument.Builder v1 = policy("1.0.0");
+        PolicyDocument.Builder v2 = policy("1.0.1").value(RestrictionType.PASSWORD_MIN_LENGTH, 8);
+        previous = v1.build();
+        server = new MockPolicyServer(v1.encode());
+        server.publish(v2.encode());
+        client = new PolicySyncClient(server.getBaseUrl(), "bench-device", 5_000);
+        PolicySyncClient.Result result = client.fetch(previous, null);
+        latest = result.document;
+        latestEtag = result.etag;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    /** 変更なし（フリート全体の定常状態）：304 のみ */
+    @Benchmark
+    public int pollNotModified(Wire wire) throws IOException {
+        return record(wire, client.fetch(latest, latestEtag));
+    }
+
+    /** 1項目の変更を差分で取得 */
+    @Benchmark
+    public int fetchDelta(Wire wire) throws IOException {
+        return record(wire, client.fetch(previous, null));
+    }
+
+    /** 基準の版がない場合の全体取得 */
+    @Benchmark
+    public int fetchFull(Wire wire) throws IOException {
+        return record(wire, client.fetch(null, null));
+    }
+
+    private int record(Wire wire, PolicySyncClient.Result result) {
+        wire.bytes += result.bytesReceived;
+        wire.polls++;
+        wire.connections = server.getConnectionCount();
+        return result.status;
+    }
+
+    private static PolicyDocument.Builder policy(String version) {
+        PolicyDocument.Builder builder = PolicyDocument.builder()
+            .version(version)
+            .bannerText("この端末はParksysセキュリティポリシーにより保護されています")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 6);
+        for (int i = 0; i < RULES; i++) {
+            builder.rule(1000 + i, 0, i * 31);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,85 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyBundle;
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+import com.parksys.standalone.policy.PolicyVerifier;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collections;
+
+/**
+ * 署名付きポリシーの検証（初回の署名検証と、検証済みダイジェストによる起動時の確認）
+ */
+@State(Scope.Thread)
+public class PolicyVerifyBenchmark {
+
+    private static final int RULE_COUNT = 200;
+
+    private PolicyVerifier verifier;
+    private ByteBuffer bundle;
+    private AppState state;
+    private PolicyVerifier.Cache cache;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, PolicyFormatException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair pair = generator.generateKeyPair();
+        byte[] publicKey = pair.getPublic().getEncoded();
+        verifier = new PolicyVerifier(Collections.singletonList(publicKey));
+
+        PolicyDocument.Builder builder = PolicyDocument.builder()
+            .version("1.0.0")
+            .restrict(RestrictionType.CAMERA_DISABLED, true);
+        for (int i = 1; i < RULE_COUNT; i++) {
+            builder.rule(1000 + i / 16, i % 16, i);
+        }
+        byte[] payload = builder.encode();
+        bundle = ByteBuffer.wrap(PolicyBundle.wrap(payload, PolicyVerifier.keyId(publicKey),
+            PolicyVerifier.sign(payload, pair.getPrivate())));
+
+        state = new AppState(StateStore.inMemory(AppState.SLOT_COUNT));
+        cache = new PolicyVerifier.Cache() {
+            @Override
+            public boolean isVerified(byte[] digest) {
+                return state.isPolicyVerified(digest);
+            }
+
+            @Override
+            public void markVerified(byte[] digest) {
+                state.markPolicyVerified(digest, 0);
+            }
+        };
+        verifier.verify(PolicyBundle.parse(bundle.duplicate()), cache);
+    }
+
+    /** 取得直後（キャッシュなし）の署名検証と読み込み */
+    @Benchmark
+    public PolicyDocument verifyCold() throws PolicyFormatException {
+        PolicyBundle parsed = PolicyBundle.parse(bundle.duplicate());
+        verifier.verify(parsed, null);
+        return PolicyCodec.decode(parsed.getPayload());
+    }
+
+    /** 起動時（検証済みダイジェストあり）の確認と読み込み */
+    @Benchmark
+    public PolicyDocument verifyCached() throws PolicyFormatException {
+        PolicyBundle parsed = PolicyBundle.parse(bundle.duplicate());
+        verifier.verify(parsed, cache);
+        return PolicyCodec.decode(parsed.getPayload());
+    }
+}
@@ -0,0 +1,105 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.sync.ComplianceReporter;
+import com.parksys.standalone.sync.ReportQueue;
+import com.parksys.standalone.sync.ReportUploader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * コンプライアンス報告のキュー追加と一括送信
+ * uploadReports は1回あたり {@link #REPORTS} 件を追加して送信する。
+ * batchRecords=1 はチェックごとに1回 POST する方式に相当する。
+ * wireBytes / reports が報告1件あたりの送信バイト数（圧縮後の本文）。
+ */
+@State(Scope.Thread)
+public class ReportUploadBenchmark {
+
+    private static final int REPORTS = 100;
+
+    @Param({"1", "100"})
+    public int batchRecords;
+
+    private File directory;
+    private MockPolicyServer server;
+    private ReportQueue queue;
+    private ComplianceReporter reporter;
+    private ReportUploader uploader;
+    private long now = 1_700_000_000_000L;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Wire {
+        public long wireBytes;
+        public long reports;
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            reports = 0;
+            requests = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("parksys-reports").toFile();
+        server = new MockPolicyServer(PolicyDocument.builder().version("1.1.0").encode());
+        queue = new ReportQueue(directory, 64 * 1024, 32);
+        reporter = new ComplianceReporter(queue);
+        uploader = new ReportUploader(server.getBaseUrl(), "bench-device", 5_000, batchRecords, 64 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        queue.close();
+        server.close();
+        deleteRecursively(directory);
+    }
+
+    /** キューへの追加（fsync を含む） */
+    @Benchmark
+    public void enqueue() throws IOException {
+        now += 60_000;
+        reporter.record(now, "1.1.0", true, true, false, false, 0, 0, 0);
+    }
+
+    @Benchmark
+    public int uploadReports(Wire wire) throws IOException {
+        for (int i = 0; i < REPORTS; i++) {
+            now += 60_000;
+            reporter.record(now, "1.1.0", true, true, false, false, i % 20 == 0 ? 1 : 0, 0, 0);
+        }
+        long bytesBefore = uploader.getBytesSent();
+        long batchesBefore = uploader.getBatches();
+        int sent = uploader.uploadAll(queue);
+        wire.wireBytes += uploader.getBytesSent() - bytesBefore;
+        wire.requests += uploader.getBatches() - batchesBefore;
+        wire.reports += sent;
+        return sent;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
@@ -0,0 +1,157 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyRules;
+import com.parksys.standalone.policy.ReconcileStats;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.policy.RuleEngine;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 全ルールの1回の評価パス
+ * backendCalls / passes が1パスあたりの backend 呼び出し数（パス内で共有された読み取りは1回と数える）。
+ */
+@State(Scope.Thread)
+public class RuleEngineBenchmark {
+
+    private CountingBackend backend;
+    private RuleEngine engine;
+    private PolicyDocument policy;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Calls {
+        public long backendCalls;
+        public long passes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            backendCalls = 0;
+            passes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        policy = PolicyDocument.builder()
+            .version("bench")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .value(RestrictionType.PASSWORD_QUALITY, 0x20000)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 6)
+            .value(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 10)
+            .value(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 300)
+            .restrict(RestrictionType.STORAGE_ENCRYPTION_REQUIRED, true)
+            .build();
+        backend = new CountingBackend();
+        engine = new RuleEngine(PolicyRules.defaults(), backend, new ReconcileStats());
+        engine.evaluate(policy);
+    }
+
+    /** ドリフトなし（定常状態） */
+    @Benchmark
+    public int evaluate(Calls calls) {
+        long before = backend.calls;
+        int drifted = engine.evaluate(policy);
+        calls.backendCalls += backend.calls - before;
+        calls.passes++;
+        return drifted;
+    }
+
+    /** 毎回パスワード品質がずれている場合（充足状況の再読み込みが発生する） */
+    @Benchmark
+    public int evaluateWithDrift(Calls calls) {
+        backend.quality = 0;
+        long before = backend.calls;
+        int drifted = engine.evaluate(policy);
+        calls.backendCalls += backend.calls - before;
+        calls.passes++;
+        return drifted;
+    }
+
+    static final class CountingBackend implements PolicyBackend {
+        long calls;
+        boolean cameraDisabled;
+        int quality;
+        int minLength;
+        long timeToLock;
+
+        @Override
+        public boolean isAdminActive() {
+            calls++;
+            return true;
+        }
+
+        @Override
+        public boolean getCameraDisabled() {
+            calls++;
+            return cameraDisabled;
+        }
+
+        @Override
+        public void setCameraDisabled(boolean disabled) {
+            calls++;
+            cameraDisabled = disabled;
+        }
+
+        @Override
+        public int getPasswordQuality() {
+            calls++;
+            return quality;
+        }
+
+        @Override
+        public void setPasswordQuality(int quality) {
+            calls++;
+            this.quality = quality;
+        }
+
+        @Override
+        public int getPasswordMinimumLength() {
+            calls++;
+            return minLength;
+        }
+
+        @Override
+        public void setPasswordMinimumLength(int length) {
+            calls++;
+            minLength = length;
+        }
+
+        @Override
+        public boolean isActivePasswordSufficient() {
+            calls++;
+            return true;
+        }
+
+        @Override
+        public int getCurrentFailedPasswordAttempts() {
+            calls++;
+            return 0;
+        }
+
+        @Override
+        public long getMaximumTimeToLock() {
+            calls++;
+            return timeToLock;
+        }
+
+        @Override
+        public void setMaximumTimeToLock(long millis) {
+            calls++;
+            timeToLock = millis;
+        }
+
+        @Override
+        public int getStorageEncryptionStatus() {
+            calls++;
+            return ENCRYPTION_STATUS_ACTIVE_PER_USER;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.parksys.standalone.benchmark;
+
+import com.parksys.standalone.state.AppState;
+import com.parksys.standalone.state.StateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 状態ストアの起動時読み込みと更新
+ */
+@State(Scope.Thread)
+public class StateStoreBenchmark {
+
+    private File file;
+    private StateStore store;
+    private AppState state;
+    private final byte[] record = new byte[StateStore.MAX_PAYLOAD];
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("parksys-state", ".bin");
+        store = StateStore.open(file, AppState.SLOT_COUNT);
+        state = new AppState(store);
+        state.markPolicyApplied("1.0.0", 1L);
+        state.setSetupComplete(true, 1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        file.delete();
+    }
+
+    /** ブート時の経路：ファイルを開いて状態を復元する */
+    @Benchmark
+    public boolean openAndLoad() throws IOException {
+        try (StateStore opened = StateStore.open(file, AppState.SLOT_COUNT)) {
+            return new AppState(opened).isSetupComplete();
+        }
+    }
+
+    @Benchmark
+    public int readSlot() {
+        return store.read(0, record);
+    }
+
+    /** 版を交互に切り替えて毎回書き込みを発生させる */
+    @Benchmark
+    public boolean markPolicyApplied() {
+        counter++;
+        return state.markPolicyApplied((counter & 1) == 0 ? "1.0.0" : "1.0.1", counter);
+    }
+}
@@ -0,0 +1,45 @@
+package com.parksys.standalone.service;
+
+import com.parksys.standalone.benchmark.BenchmarkContext;
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.manager.PolicyExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * サービスの定期チェック経路
+ * StandaloneSecurityService.performSecurityCheck と同じく、
+ * ポリシー実行スレッドへ再適用を依頼し、完了通知で統計を更新する。
+ */
+@State(Scope.Thread)
+public class SecurityCheckBenchmark {
+
+    private final MonitorStats stats = new MonitorStats();
+    private EmbeddedPolicyManager policyManager;
+    private PolicyExecutor.Callback callback;
+    private volatile PolicyExecutor.Result completed;
+
+    @Setup
+    public void setUp() {
+        policyManager = EmbeddedPolicyManager.getInstance(BenchmarkContext.get());
+        callback = result -> {
+            stats.recordEnforcement();
+            completed = result;
+        };
+    }
+
+    @Benchmark
+    public PolicyExecutor.Result performSecurityCheck() {
+        completed = null;
+        stats.recordWakeup();
+        policyManager.requestEnforce("scheduled", callback);
+        PolicyExecutor.Result result;
+        while ((result = completed) == null) {
+            Thread.onSpinWait();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package com.parksys.standalone.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 端末の利用状況の時系列（シードから決定的に生成し、すべての戦略で同じものを使う）
+ * 夜間（23時〜7時前後）は充電・画面消灯、日中は画面点灯の短いセッションが不規則に続く。
+ * ポリシーのずれとプロセスの強制終了は1日あたりの平均回数でランダムに発生する。
+ */
+final class DeviceTimeline {
+
+    static final int SCREEN_ON = 1;
+    static final int SCREEN_OFF = 2;
+    static final int POWER_CONNECTED = 3;
+    static final int POWER_DISCONNECTED = 4;
+    /** 他のアプリ・ユーザー操作によるポリシーのずれ（状態変更の通知が届かない） */
+    static final int DRIFT = 5;
+    /** メモリ不足などによるプロセスの強制終了 */
+    static final int PROCESS_KILL = 6;
+    /** 状態変更の通知（ACTION_DEVICE_POLICY_MANAGER_STATE_CHANGED）が届くポリシーのずれ */
+    static final int DRIFT_NOTIFIED = 7;
+
+    static final long MINUTE = 60 * 1000;
+    static final long HOUR = 60 * MINUTE;
+    static final long DAY = 24 * HOUR;
+
+    private static final long MEAN_SESSION_GAP = 40 * MINUTE;
+    private static final long MEAN_SESSION_LENGTH = 5 * MINUTE;
+    private static final long MIN_SESSION_LENGTH = 30 * 1000;
+
+    static final class Event {
+        final long timeMillis;
+        final int type;
+
+        Event(long timeMillis, int type) {
+            this.timeMillis = timeMillis;
+            this.type = type;
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+    private final long durationMillis;
+
+    /**
+     * @param eventRatio ずれのうち状態変更の通知が届く割合
+     */
+    DeviceTimeline(int days, long seed, double driftsPerDay, double eventRatio, double killsPerDay) {
+        this.durationMillis = days * DAY;
+        Random random = new Random(seed);
+        // 0時は充電中・画面消灯から始まる
+        for (int day = 0; day < days; day++) {
+            long dayStart = day * DAY;
+            long unplugAt = dayStart + 7 * HOUR + jitter(random, 30 * MINUTE);
+            long plugAt = dayStart + 23 * HOUR + jitter(random, 30 * MINUTE);
+            add(unplugAt, POWER_DISCONNECTED);
+            long time = unplugAt + (long) (random.nextDouble() * 10 * MINUTE);
+            while (time < plugAt - MIN_SESSION_LENGTH) {
+                long length = Math.max(MIN_SESSION_LENGTH, exponential(random, MEAN_SESSION_LENGTH));
+                long end = Math.min(time + length, plugAt);
+                add(time, SCREEN_ON);
+                add(end, SCREEN_OFF);
+                time = end + exponential(random, MEAN_SESSION_GAP);
+            }
+            add(plugAt, POWER_CONNECTED);
+        }
+        int driftStart = events.size();
+        addPoisson(random, driftsPerDay, DRIFT);
+        for (int i = driftStart; i < events.size(); i++) {
+            if (random.nextDouble() < eventRatio) {
+                events.set(i, new Event(events.get(i).timeMillis, DRIFT_NOTIFIED));
+            }
+        }
+        addPoisson(random, killsPerDay, PROCESS_KILL);
+        // 同時刻は追加順（sort は安定）
+        events.sort((a, b) -> Long.compare(a.timeMillis, b.timeMillis));
+    }
+
+    List<Event> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    long getDurationMillis() {
+        return durationMillis;
+    }
+
+    private void add(long timeMillis, int type) {
+        events.add(new Event(timeMillis, type));
+    }
+
+    private void addPoisson(Random random, double perDay, int type) {
+        if (perDay <= 0) {
+            return;
+        }
+        long mean = (long) (DAY / perDay);
+        for (long time = exponential(random, mean); time < durationMillis; time += exponential(random, mean)) {
+            add(time, type);
+        }
+    }
+
+    private static long jitter(Random random, long range) {
+        return (long) ((random.nextDouble() * 2 - 1) * range);
+    }
+
+    private static long exponential(Random random, long mean) {
+        return (long) (-Math.log(1 - random.nextDouble()) * mean);
+    }
+}
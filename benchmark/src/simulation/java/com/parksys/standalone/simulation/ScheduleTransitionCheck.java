@@ -0,0 +1,153 @@
+package com.parksys.standalone.simulation;
+
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicySchedule;
+import com.parksys.standalone.policy.RestrictionType;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * 時間帯スケジュールの次の境界の照合
+ * ランダムな時間帯の組み合わせについて、{@link PolicySchedule#nextTransition} の結果を
+ * 1分ごとに {@link PolicySchedule#activeAt} を調べた結果と照合する。
+ * 時刻は夏時間の切り替え（30分の切り替え・南半球を含む）の前後を中心に選ぶ。
+ * また、予約した境界より前にタイムゾーンが変わる場合について、変更の通知（timeChangeReceiver）で
+ * 移動先のタイムゾーンで求め直した状態と次の境界を、切り替え前後をつないだ走査と照合する。
+ * 不一致があれば終了コード 1。
+ */
+public final class ScheduleTransitionCheck {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+    // PolicySchedule の探索範囲と同じ
+    private static final long HORIZON = 8 * DAY;
+
+    private static final String[] ZONES = {
+        "America/New_York", "Europe/London", "Australia/Lord_Howe", "Asia/Tokyo",
+        "America/Santiago", "Pacific/Chatham", "UTC",
+    };
+    // 2024年の夏時間の切り替え（北半球の春・秋、南半球の春・秋）と切り替えのない時期
+    private static final long[] BASES = {
+        1710054000000L, 1730613600000L, 1712412000000L, 1727568000000L, 1700000000000L,
+    };
+    private static final RestrictionType[] TYPES = {
+        RestrictionType.CAMERA_DISABLED, RestrictionType.VPN_REQUIRED, RestrictionType.MICROPHONE_DISABLED,
+    };
+
+    private ScheduleTransitionCheck() {
+    }
+
+    public static void main(String[] args) {
+        long seed = 7;
+        int documents = 60;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--documents":
+                    documents = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Random random = new Random(seed);
+        int checks = 0;
+        int failures = 0;
+        int switchChecks = 0;
+        int rearmed = 0;
+        for (int doc = 0; doc < documents; doc++) {
+            PolicyDocument.Builder builder = PolicyDocument.builder().version("1")
+                .restrict(RestrictionType.CAMERA_DISABLED, true);
+            // 前半は少数の時間帯、後半は重なりの多い組み合わせ
+            int windows = 1 + random.nextInt(doc < documents / 2 ? 3 : 40);
+            for (int i = 0; i < windows; i++) {
+                // 切り替えの時刻（1時〜4時）付近の境界を多めに含める
+                int start = random.nextInt(3) == 0 ? 60 + random.nextInt(180) : random.nextInt(24 * 60);
+                int end = random.nextInt(3) == 0 ? 60 + random.nextInt(180) : random.nextInt(24 * 60);
+                builder.schedule(TYPES[random.nextInt(TYPES.length)], 1 + random.nextInt(PolicySchedule.EVERY_DAY),
+                    start, end);
+            }
+            PolicySchedule schedule = PolicySchedule.from(builder.build());
+            for (String id : ZONES) {
+                TimeZone zone = TimeZone.getTimeZone(id);
+                for (long base : BASES) {
+                    for (int k = 0; k < 15; k++) {
+                        long now = base - 3 * DAY + (long) (random.nextDouble() * 6 * DAY);
+                        long actual = schedule.nextTransition(now, zone);
+                        long expected = scan(schedule, now, zone);
+                        checks++;
+                        if (actual != expected) {
+                            failures++;
+                            if (failures <= 10) {
+                                System.out.println("MISMATCH " + id + " now=" + now + " actual=" + actual
+                                    + " expected=" + expected + " " + schedule);
+                            }
+                        }
+                        if (actual == PolicySchedule.NEVER || actual - now < 2) {
+                            continue;
+                        }
+
+                        // 予約した境界より前に別のタイムゾーンへ切り替わる
+                        TimeZone to = TimeZone.getTimeZone(ZONES[random.nextInt(ZONES.length)]);
+                        long switchAt = now + 1 + (long) (random.nextDouble() * (actual - now - 1));
+                        long next = schedule.nextTransition(switchAt, to);
+                        long scanned = scanAcrossSwitch(schedule, now, zone, switchAt, to);
+                        switchChecks++;
+                        if (next != actual) {
+                            rearmed++;
+                        }
+                        if (next != scanned) {
+                            failures++;
+                            if (failures <= 10) {
+                                System.out.println("MISMATCH " + id + "->" + to.getID() + " now=" + now
+                                    + " switch=" + switchAt + " actual=" + next + " expected=" + scanned
+                                    + " " + schedule);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println("Schedule transitions: checks=" + checks + " zoneSwitches=" + switchChecks
+            + " rearmed=" + rearmed + " mismatches=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 1分ごとに状態を調べて次の変化を探す（探索範囲内に変化がなければ範囲の終わり、境界がなければ NEVER）
+     */
+    private static long scan(PolicySchedule schedule, long now, TimeZone zone) {
+        if (schedule.getEdgeCount() == 0) {
+            return PolicySchedule.NEVER;
+        }
+        int current = schedule.activeAt(now, zone);
+        for (long t = (now / MINUTE + 1) * MINUTE; t <= now + HORIZON; t += MINUTE) {
+            if (schedule.activeAt(t, zone) != current) {
+                return t;
+            }
+        }
+        return now + HORIZON;
+    }
+
+    /**
+     * タイムゾーンの切り替えをまたいで1分ごとに状態を調べ、切り替え後の最初の変化を探す
+     * 切り替えの瞬間の状態の変化は通知を受けた時点で反映するため、切り替えより後の変化のみを対象とする。
+     * 切り替え前に変化があれば予約した境界の誤りとして -1 を返す。
+     */
+    private static long scanAcrossSwitch(PolicySchedule schedule, long now, TimeZone from, long switchAt,
+                                         TimeZone to) {
+        int current = schedule.activeAt(now, from);
+        for (long t = (now / MINUTE + 1) * MINUTE; t < switchAt; t += MINUTE) {
+            if (schedule.activeAt(t, from) != current) {
+                return -1;
+            }
+        }
+        return scan(schedule, switchAt, to);
+    }
+}
@@ -0,0 +1,340 @@
+package com.parksys.standalone.simulation;
+
+import android.app.admin.DevicePolicyManager;
+
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.scheduler.CheckStrategy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * 1つの戦略での仮想時間のシミュレーション
+ * StandaloneSecurityService の予約処理（チェック前の予約・結果による予約し直し・画面点灯時の前倒し・
+ * Doze 解除時の取りこぼし実行・イベントの集約）を仮想時計の上で再現し、
+ * チェックは実際の {@link EmbeddedPolicyManager#enforcePolicy()} を JVM 上の DevicePolicyManager に対して実行する。
+ *
+ * <p>端末のモデル（実機の既定値の近似）:
+ * <ul>
+ * <li>AlarmManager.setWindow は予定時刻から許容幅の中のランダムな時刻に発火する</li>
+ * <li>画面消灯かつ非充電が {@link #DOZE_DELAY} 続くと Deep Doze に入り、アラームは次のメンテナンス時間帯まで延期される
+ *     （メンテナンス時間帯の間隔は 1・2・4・6時間、以降6時間ごと）。画面点灯・充電で解除され、期限を過ぎたアラームはすぐに発火する</li>
+ * <li>画面消灯中に発火したアラームを端末の起床1回と数える（Doze で延期され、他の起床に相乗りした場合を除く）</li>
+ * <li>強制終了したプロセスは START_STICKY により {@link #RESTART_DELAY} 後に再起動し、間隔の状態は初期化される</li>
+ * </ul>
+ */
+final class SimulatedRun {
+
+    static final long DOZE_DELAY = DeviceTimeline.HOUR;
+    static final long RESTART_DELAY = 5 * 1000;
+    private static final long[] MAINTENANCE_INTERVALS = {
+        DeviceTimeline.HOUR, 2 * DeviceTimeline.HOUR, 4 * DeviceTimeline.HOUR, 6 * DeviceTimeline.HOUR,
+    };
+
+    private static final int KIND_TIMELINE = 0;
+    private static final int KIND_ALARM = 1;
+    private static final int KIND_MAINTENANCE_ALARM = 2;
+    private static final int KIND_POLICY_EVENT = 3;
+    private static final int KIND_RESTART = 4;
+
+    private static final class Pending {
+        final long timeMillis;
+        final long order;
+        final int kind;
+        final long argument;
+
+        Pending(long timeMillis, long order, int kind, long argument) {
+            this.timeMillis = timeMillis;
+            this.order = order;
+            this.kind = kind;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * 1つの戦略の集計結果
+     */
+    static final class Result {
+        final String strategy;
+        final int days;
+        long scheduledChecks;
+        long eventChecks;
+        long startChecks;
+        long wakeups;
+        long deferredDeliveries;
+        long kills;
+        long drifts;
+        long undetectedDrifts;
+        long totalCpuNanos;
+        long[] cpuNanos = new long[1024];
+        int cpuCount;
+        long[] reenforceMillis = new long[64];
+        int reenforceCount;
+
+        Result(String strategy, int days) {
+            this.strategy = strategy;
+            this.days = days;
+        }
+
+        long checks() {
+            return scheduledChecks + eventChecks + startChecks;
+        }
+
+        void recordCpu(long nanos) {
+            if (cpuCount == cpuNanos.length) {
+                cpuNanos = Arrays.copyOf(cpuNanos, cpuCount * 2);
+            }
+            cpuNanos[cpuCount++] = nanos;
+            totalCpuNanos += nanos;
+        }
+
+        void recordReenforce(long millis) {
+            if (reenforceCount == reenforceMillis.length) {
+                reenforceMillis = Arrays.copyOf(reenforceMillis, reenforceCount * 2);
+            }
+            reenforceMillis[reenforceCount++] = millis;
+        }
+
+        static long percentile(long[] values, int count, double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percent / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+
+    private final DeviceTimeline timeline;
+    private final Supplier<CheckStrategy> strategyFactory;
+    private final EmbeddedPolicyManager policyManager;
+    private final DevicePolicyManager devicePolicyManager;
+    private final Random random;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>((a, b) -> a.timeMillis != b.timeMillis
+        ? Long.compare(a.timeMillis, b.timeMillis) : Long.compare(a.order, b.order));
+    private final Result result;
+
+    private long now;
+    private long order;
+    private boolean screenOn;
+    private boolean charging = true;
+    private long idleSince = -1;
+    private boolean alive;
+    private CheckStrategy strategy;
+    private long alarmGeneration;
+    private long alarmDue;
+    private boolean pendingEvent;
+    private long driftSince = -1;
+
+    SimulatedRun(String name, DeviceTimeline timeline, Supplier<CheckStrategy> strategyFactory,
+                 EmbeddedPolicyManager policyManager, DevicePolicyManager devicePolicyManager, long seed) {
+        this.timeline = timeline;
+        this.strategyFactory = strategyFactory;
+        this.policyManager = policyManager;
+        this.devicePolicyManager = devicePolicyManager;
+        this.random = new Random(seed);
+        this.result = new Result(name, (int) (timeline.getDurationMillis() / DeviceTimeline.DAY));
+    }
+
+    Result run() {
+        // ずれのない状態から始める
+        policyManager.applyEmbeddedPolicy();
+        for (int i = 0; i < timeline.getEvents().size(); i++) {
+            push(timeline.getEvents().get(i).timeMillis, KIND_TIMELINE, i);
+        }
+        startService();
+        while (!queue.isEmpty() && queue.peek().timeMillis <= timeline.getDurationMillis()) {
+            Pending pending = queue.poll();
+            now = pending.timeMillis;
+            switch (pending.kind) {
+                case KIND_TIMELINE:
+                    onTimelineEvent(timeline.getEvents().get((int) pending.argument).type);
+                    break;
+                case KIND_ALARM:
+                case KIND_MAINTENANCE_ALARM:
+                    onAlarm(pending.argument, pending.kind == KIND_MAINTENANCE_ALARM);
+                    break;
+                case KIND_POLICY_EVENT:
+                    pendingEvent = false;
+                    if (alive) {
+                        result.eventChecks++;
+                        enforce(true);
+                    }
+                    break;
+                case KIND_RESTART:
+                    startService();
+                    break;
+                default:
+                    throw new IllegalStateException("kind " + pending.kind);
+            }
+        }
+        if (driftSince >= 0) {
+            result.undetectedDrifts++;
+        }
+        return result;
+    }
+
+    private void onTimelineEvent(int type) {
+        switch (type) {
+            case DeviceTimeline.SCREEN_ON:
+                exitIdle();
+                screenOn = true;
+                if (alive && strategy.setScreenOn(true)) {
+                    scheduleIfSooner();
+                }
+                break;
+            case DeviceTimeline.SCREEN_OFF:
+                screenOn = false;
+                enterIdleIfUnplugged();
+                if (alive) {
+                    strategy.setScreenOn(false);
+                }
+                break;
+            case DeviceTimeline.POWER_CONNECTED:
+                exitIdle();
+                charging = true;
+                if (alive && strategy.setCharging(true)) {
+                    scheduleIfSooner();
+                }
+                break;
+            case DeviceTimeline.POWER_DISCONNECTED:
+                charging = false;
+                enterIdleIfUnplugged();
+                if (alive) {
+                    strategy.setCharging(false);
+                }
+                break;
+            case DeviceTimeline.DRIFT:
+            case DeviceTimeline.DRIFT_NOTIFIED:
+                result.drifts++;
+                devicePolicyManager.setCameraDisabled(null, false);
+                if (driftSince < 0) {
+                    driftSince = now;
+                }
+                if (alive && type == DeviceTimeline.DRIFT_NOTIFIED && !pendingEvent) {
+                    pendingEvent = true;
+                    push(now + CheckStrategy.EVENT_COALESCE_DELAY, KIND_POLICY_EVENT, 0);
+                }
+                break;
+            case DeviceTimeline.PROCESS_KILL:
+                if (alive) {
+                    result.kills++;
+                    alive = false;
+                    // OnAlarmListener のアラームと未処理のイベントはプロセスとともに消える
+                    alarmGeneration++;
+                    alarmDue = 0;
+                    pendingEvent = false;
+                    push(now + RESTART_DELAY, KIND_RESTART, 0);
+                }
+                break;
+            default:
+                throw new IllegalStateException("type " + type);
+        }
+    }
+
+    private void startService() {
+        alive = true;
+        strategy = strategyFactory.get();
+        strategy.setScreenOn(screenOn);
+        strategy.setCharging(charging);
+        result.startChecks++;
+        enforce(false);
+        schedule(strategy.getIntervalMillis(), strategy.getWindowMillis());
+    }
+
+    private void onAlarm(long generation, boolean deferred) {
+        if (generation != alarmGeneration || !alive) {
+            return;
+        }
+        if (isDozing()) {
+            push(nextMaintenance(), KIND_MAINTENANCE_ALARM, generation);
+            return;
+        }
+        deliverAlarm(deferred);
+    }
+
+    /**
+     * @param deferred Doze で延期され、メンテナンス時間帯・Doze 解除時の起床に相乗りして発火した場合 true
+     */
+    private void deliverAlarm(boolean deferred) {
+        alarmDue = 0;
+        if (!screenOn) {
+            if (deferred) {
+                result.deferredDeliveries++;
+            } else {
+                result.wakeups++;
+            }
+        }
+        result.scheduledChecks++;
+        // チェックが完了しない場合も監視が途切れないよう、先に現在の間隔で予約しておく
+        schedule(strategy.getIntervalMillis(), strategy.getWindowMillis());
+        enforce(true);
+    }
+
+    private void enforce(boolean feedStrategy) {
+        long start = threads.getCurrentThreadCpuTime();
+        int drifted = policyManager.enforcePolicy();
+        result.recordCpu(threads.getCurrentThreadCpuTime() - start);
+        if (drifted > 0 && driftSince >= 0) {
+            result.recordReenforce(now - driftSince);
+            driftSince = -1;
+        }
+        if (feedStrategy && strategy.onCheck(drifted)) {
+            schedule(strategy.getIntervalMillis(), strategy.getWindowMillis());
+        }
+    }
+
+    private void schedule(long delayMillis, long windowMillis) {
+        alarmGeneration++;
+        alarmDue = now + delayMillis;
+        long deliverAt = alarmDue + (long) (random.nextDouble() * windowMillis);
+        push(deliverAt, KIND_ALARM, alarmGeneration);
+    }
+
+    private void scheduleIfSooner() {
+        long dueAt = now + strategy.getIntervalMillis();
+        if (alarmDue == 0 || dueAt < alarmDue) {
+            schedule(strategy.getIntervalMillis(), strategy.getWindowMillis());
+        }
+    }
+
+    private void enterIdleIfUnplugged() {
+        if (!screenOn && !charging && idleSince < 0) {
+            idleSince = now;
+        }
+    }
+
+    /**
+     * Doze の解除（延期されていたアラームは期限を過ぎていればすぐに発火する）
+     */
+    private void exitIdle() {
+        boolean dozing = isDozing();
+        idleSince = -1;
+        if (dozing && alive && alarmDue != 0 && now >= alarmDue) {
+            alarmGeneration++;
+            deliverAlarm(true);
+        }
+    }
+
+    private boolean isDozing() {
+        return idleSince >= 0 && now >= idleSince + DOZE_DELAY;
+    }
+
+    private long nextMaintenance() {
+        long time = idleSince + DOZE_DELAY;
+        for (int i = 0; time <= now; i++) {
+            time += MAINTENANCE_INTERVALS[Math.min(i, MAINTENANCE_INTERVALS.length - 1)];
+        }
+        return time;
+    }
+
+    private void push(long timeMillis, int kind, long argument) {
+        queue.add(new Pending(timeMillis, order++, kind, argument));
+    }
+}
@@ -0,0 +1,158 @@
+package com.parksys.standalone.simulation;
+
+import android.app.admin.DevicePolicyManager;
+
+import com.parksys.standalone.benchmark.BenchmarkContext;
+import com.parksys.standalone.benchmark.FakeContext;
+import com.parksys.standalone.manager.EmbeddedPolicyManager;
+import com.parksys.standalone.scheduler.CheckStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 定期チェックの戦略ごとの起床回数・チェックのコスト・再適用までの時間の比較
+ * 同じ端末の利用状況（{@link DeviceTimeline}）を仮想時計で数週間分再生し、数秒で結果を出す。
+ * 再適用までの時間（reenf）はずれの発生からチェックで修正されるまでの仮想時間。
+ *
+ * <pre>
+ * ./gradlew :benchmark:simulateWakeups -Pdays=28 -Pstrategies=adaptive,polling,fixed:15
+ * --days N             シミュレーションする日数（既定 14）
+ * --seed N             乱数のシード（同じシードなら結果は同じ）
+ * --strategies LIST    adaptive（イベント駆動）・polling（1分ごと）・fixed:分 のカンマ区切り
+ * --drifts-per-day X   ポリシーのずれの発生回数（既定 4）
+ * --event-ratio X      ずれのうち状態変更の通知が届く割合（既定 0.5）
+ * --kills-per-day X    プロセスの強制終了の回数（既定 1）
+ * --wakeup-cost-ms N   起床1回あたりの端末の復帰・再サスペンドのコストの仮定（既定 200）
+ * </pre>
+ */
+public final class WakeupSimulator {
+
+    private static final int WARMUP_CHECKS = 20_000;
+
+    private int days = 14;
+    private long seed = 1;
+    private String strategies = "adaptive,polling,fixed:15";
+    private double driftsPerDay = 4;
+    private double eventRatio = 0.5;
+    private double killsPerDay = 1;
+    private long wakeupCostMillis = 200;
+
+    public static void main(String[] args) {
+        WakeupSimulator simulator = new WakeupSimulator();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--days":
+                    simulator.days = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    simulator.seed = Long.parseLong(value);
+                    break;
+                case "--strategies":
+                    simulator.strategies = value;
+                    break;
+                case "--drifts-per-day":
+                    simulator.driftsPerDay = Double.parseDouble(value);
+                    break;
+                case "--event-ratio":
+                    simulator.eventRatio = Double.parseDouble(value);
+                    break;
+                case "--kills-per-day":
+                    simulator.killsPerDay = Double.parseDouble(value);
+                    break;
+                case "--wakeup-cost-ms":
+                    simulator.wakeupCostMillis = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+        simulator.run();
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        FakeContext context = BenchmarkContext.get();
+        DevicePolicyManager devicePolicyManager = context.getDevicePolicyManager();
+        EmbeddedPolicyManager policyManager = EmbeddedPolicyManager.getInstance(context);
+        policyManager.applyEmbeddedPolicy();
+        // チェックごとの CPU 時間を定常状態で測るため、先に JIT を済ませる
+        for (int i = 0; i < WARMUP_CHECKS; i++) {
+            policyManager.enforcePolicy();
+        }
+
+        DeviceTimeline timeline = new DeviceTimeline(days, seed, driftsPerDay, eventRatio, killsPerDay);
+        List<SimulatedRun.Result> results = new ArrayList<>();
+        for (String spec : strategies.split(",")) {
+            String name = spec.trim();
+            SimulatedRun run = new SimulatedRun(name, timeline, strategy(name), policyManager,
+                devicePolicyManager, seed);
+            results.add(run.run());
+        }
+
+        System.out.printf(Locale.ROOT, "%d days, seed=%d, drifts/day=%.1f (event ratio %.2f), kills/day=%.1f%n",
+            days, seed, driftsPerDay, eventRatio, killsPerDay);
+        System.out.printf(Locale.ROOT, "%-12s %10s %10s %10s %9s %9s %12s %12s %12s %10s%n",
+            "strategy", "checks/d", "wakeups/d", "deferred/d", "cpu_us", "cpu_p99", "awake_ms/d",
+            "reenf_p50_s", "reenf_p90_s", "reenf_max");
+        for (SimulatedRun.Result result : results) {
+            double perDay = 1.0 / result.days;
+            long awakeMillis = result.wakeups * wakeupCostMillis + result.totalCpuNanos / 1_000_000;
+            System.out.printf(Locale.ROOT, "%-12s %10.1f %10.1f %10.1f %9.1f %9.1f %12.0f %12.1f %12.1f %10s%n",
+                result.strategy,
+                result.checks() * perDay,
+                result.wakeups * perDay,
+                result.deferredDeliveries * perDay,
+                result.cpuCount > 0 ? result.totalCpuNanos / 1000.0 / result.cpuCount : 0,
+                SimulatedRun.Result.percentile(result.cpuNanos, result.cpuCount, 99) / 1000.0,
+                awakeMillis * perDay,
+                SimulatedRun.Result.percentile(result.reenforceMillis, result.reenforceCount, 50) / 1000.0,
+                SimulatedRun.Result.percentile(result.reenforceMillis, result.reenforceCount, 90) / 1000.0,
+                formatDuration(SimulatedRun.Result.percentile(result.reenforceMillis, result.reenforceCount, 100)));
+        }
+        System.out.printf(Locale.ROOT, "kills=%d drifts=%d (undetected at end: %s); simulated in %d ms%n",
+            results.isEmpty() ? 0 : results.get(0).kills,
+            results.isEmpty() ? 0 : results.get(0).drifts,
+            undetected(results),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Supplier<CheckStrategy> strategy(String name) {
+        if ("adaptive".equals(name)) {
+            return CheckStrategy::adaptive;
+        }
+        if ("polling".equals(name)) {
+            return CheckStrategy::polling;
+        }
+        if (name.startsWith("fixed:")) {
+            long minutes = Long.parseLong(name.substring("fixed:".length()));
+            return () -> CheckStrategy.fixed(minutes * DeviceTimeline.MINUTE);
+        }
+        throw new IllegalArgumentException("Unknown strategy " + name);
+    }
+
+    private static String undetected(List<SimulatedRun.Result> results) {
+        StringBuilder builder = new StringBuilder();
+        for (SimulatedRun.Result result : results) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(result.strategy).append('=').append(result.undetectedDrifts);
+        }
+        return builder.toString();
+    }
+
+    private static String formatDuration(long millis) {
+        if (millis >= DeviceTimeline.HOUR) {
+            return String.format(Locale.ROOT, "%.1fh", millis / (double) DeviceTimeline.HOUR);
+        }
+        if (millis >= DeviceTimeline.MINUTE) {
+            return String.format(Locale.ROOT, "%.1fm", millis / (double) DeviceTimeline.MINUTE);
+        }
+        return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+    }
+}
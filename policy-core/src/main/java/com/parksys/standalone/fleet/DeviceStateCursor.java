@@ -0,0 +1,77 @@
+package com.parksys.standalone.fleet;
+
+import com.parksys.standalone.policy.PolicyBackend;
+
+/**
+ * {@link DeviceStateTable} の1行を {@link PolicyBackend} として読むカーソル
+ * 端末上と同じ {@code RuleEngine} で1台ずつ評価するための参照実装用で、setter は何もしない。
+ */
+public final class DeviceStateCursor implements PolicyBackend {
+
+    private final DeviceStateTable table;
+    private int row;
+
+    public DeviceStateCursor(DeviceStateTable table) {
+        this.table = table;
+    }
+
+    public void moveTo(int row) {
+        this.row = row;
+    }
+
+    @Override
+    public boolean isAdminActive() {
+        return true;
+    }
+
+    @Override
+    public boolean getCameraDisabled() {
+        return table.getCameraDisabled(row);
+    }
+
+    @Override
+    public void setCameraDisabled(boolean disabled) {
+    }
+
+    @Override
+    public int getPasswordQuality() {
+        return table.getPasswordQuality(row);
+    }
+
+    @Override
+    public void setPasswordQuality(int quality) {
+    }
+
+    @Override
+    public int getPasswordMinimumLength() {
+        return table.getPasswordMinimumLength(row);
+    }
+
+    @Override
+    public void setPasswordMinimumLength(int length) {
+    }
+
+    @Override
+    public boolean isActivePasswordSufficient() {
+        return table.isPasswordSufficient(row);
+    }
+
+    @Override
+    public int getCurrentFailedPasswordAttempts() {
+        return table.getFailedPasswordAttempts(row);
+    }
+
+    @Override
+    public long getMaximumTimeToLock() {
+        return table.getMaximumTimeToLock(row);
+    }
+
+    @Override
+    public void setMaximumTimeToLock(long millis) {
+    }
+
+    @Override
+    public int getStorageEncryptionStatus() {
+        return table.getStorageEncryptionStatus(row);
+    }
+}
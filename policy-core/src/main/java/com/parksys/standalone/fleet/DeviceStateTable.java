@@ -0,0 +1,216 @@
+package com.parksys.standalone.fleet;
+
+import com.parksys.standalone.policy.PolicyBackend;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 端末状態の表（列指向、プリミティブ配列）
+ * 1行が1台の端末で、{@link PolicyBackend} の getter が返す値を列ごとの配列に保持する。
+ * 行ごとのオブジェクトを持たないため、数百万台分でも1台あたり約 30 バイトで済み、
+ * 評価は列を先頭から順に読むループになる。
+ * 追加・変更は1スレッドから行うこと（評価中は変更しないこと）。
+ */
+public final class DeviceStateTable {
+
+    static final int FLAG_CAMERA_DISABLED = 1;
+    static final int FLAG_PASSWORD_SUFFICIENT = 1 << 1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int size;
+    private long[] deviceIds;
+    private byte[] flags;
+    private int[] passwordQuality;
+    private short[] passwordMinLength;
+    private short[] failedAttempts;
+    private long[] maxTimeToLock;
+    private byte[] encryptionStatus;
+    private int[] policyVersion;
+
+    // 適用済みポリシーのバージョンの辞書（列には番号を保持する）
+    private final HashMap<String, Integer> versionIds = new HashMap<>();
+    private String[] versions = new String[] {""};
+
+    public DeviceStateTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DeviceStateTable(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        deviceIds = new long[capacity];
+        flags = new byte[capacity];
+        passwordQuality = new int[capacity];
+        passwordMinLength = new short[capacity];
+        failedAttempts = new short[capacity];
+        maxTimeToLock = new long[capacity];
+        encryptionStatus = new byte[capacity];
+        policyVersion = new int[capacity];
+        versionIds.put("", 0);
+    }
+
+    /**
+     * 端末を追加する（各列は未設定の値: カメラ有効・パスワードなし・暗号化非対応・ポリシー未適用）
+     *
+     * @return 追加した行
+     */
+    public int append(long deviceId) {
+        if (size == deviceIds.length) {
+            grow();
+        }
+        int row = size++;
+        deviceIds[row] = deviceId;
+        return row;
+    }
+
+    private void grow() {
+        int capacity = deviceIds.length * 2;
+        deviceIds = Arrays.copyOf(deviceIds, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        passwordQuality = Arrays.copyOf(passwordQuality, capacity);
+        passwordMinLength = Arrays.copyOf(passwordMinLength, capacity);
+        failedAttempts = Arrays.copyOf(failedAttempts, capacity);
+        maxTimeToLock = Arrays.copyOf(maxTimeToLock, capacity);
+        encryptionStatus = Arrays.copyOf(encryptionStatus, capacity);
+        policyVersion = Arrays.copyOf(policyVersion, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getDeviceId(int row) {
+        return deviceIds[row];
+    }
+
+    public void setCameraDisabled(int row, boolean disabled) {
+        setFlag(row, FLAG_CAMERA_DISABLED, disabled);
+    }
+
+    public boolean getCameraDisabled(int row) {
+        return (flags[row] & FLAG_CAMERA_DISABLED) != 0;
+    }
+
+    public void setPasswordQuality(int row, int quality) {
+        passwordQuality[row] = quality;
+    }
+
+    public int getPasswordQuality(int row) {
+        return passwordQuality[row];
+    }
+
+    /** 0〜65535 に丸める */
+    public void setPasswordMinimumLength(int row, int length) {
+        passwordMinLength[row] = (short) clampUnsigned16(length);
+    }
+
+    public int getPasswordMinimumLength(int row) {
+        return passwordMinLength[row] & 0xFFFF;
+    }
+
+    /** 現在のパスワードが端末に設定済みの品質・文字数を満たすか */
+    public void setPasswordSufficient(int row, boolean sufficient) {
+        setFlag(row, FLAG_PASSWORD_SUFFICIENT, sufficient);
+    }
+
+    public boolean isPasswordSufficient(int row) {
+        return (flags[row] & FLAG_PASSWORD_SUFFICIENT) != 0;
+    }
+
+    /** 0〜65535 に丸める */
+    public void setFailedPasswordAttempts(int row, int attempts) {
+        failedAttempts[row] = (short) clampUnsigned16(attempts);
+    }
+
+    public int getFailedPasswordAttempts(int row) {
+        return failedAttempts[row] & 0xFFFF;
+    }
+
+    /** 無操作から画面ロックまでの最大時間（ミリ秒、0 は制限なし） */
+    public void setMaximumTimeToLock(int row, long millis) {
+        maxTimeToLock[row] = millis;
+    }
+
+    public long getMaximumTimeToLock(int row) {
+        return maxTimeToLock[row];
+    }
+
+    /** {@link PolicyBackend#ENCRYPTION_STATUS_ACTIVE} など */
+    public void setStorageEncryptionStatus(int row, int status) {
+        encryptionStatus[row] = (byte) status;
+    }
+
+    public int getStorageEncryptionStatus(int row) {
+        return encryptionStatus[row];
+    }
+
+    /** 適用済みのポリシーのバージョン（未適用は空文字列） */
+    public void setPolicyVersion(int row, String version) {
+        policyVersion[row] = versionId(version);
+    }
+
+    public String getPolicyVersion(int row) {
+        return versions[policyVersion[row]];
+    }
+
+    /**
+     * バージョンの番号（表に存在しない場合は -1）
+     */
+    int findVersionId(String version) {
+        Integer id = versionIds.get(version);
+        return id != null ? id : -1;
+    }
+
+    private int versionId(String version) {
+        Integer id = versionIds.get(version);
+        if (id != null) {
+            return id;
+        }
+        int next = versionIds.size();
+        versionIds.put(version, next);
+        if (next == versions.length) {
+            versions = Arrays.copyOf(versions, next * 2);
+        }
+        versions[next] = version;
+        return next;
+    }
+
+    private void setFlag(int row, int flag, boolean set) {
+        flags[row] = (byte) (set ? flags[row] | flag : flags[row] & ~flag);
+    }
+
+    private static int clampUnsigned16(int value) {
+        return Math.max(0, Math.min(0xFFFF, value));
+    }
+
+    // 評価用の列（複製しない）
+
+    byte[] flagColumn() {
+        return flags;
+    }
+
+    int[] passwordQualityColumn() {
+        return passwordQuality;
+    }
+
+    short[] passwordMinLengthColumn() {
+        return passwordMinLength;
+    }
+
+    short[] failedAttemptsColumn() {
+        return failedAttempts;
+    }
+
+    long[] maxTimeToLockColumn() {
+        return maxTimeToLock;
+    }
+
+    byte[] encryptionStatusColumn() {
+        return encryptionStatus;
+    }
+
+    int[] policyVersionColumn() {
+        return policyVersion;
+    }
+}
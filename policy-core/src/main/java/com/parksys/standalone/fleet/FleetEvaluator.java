@@ -0,0 +1,312 @@
+package com.parksys.standalone.fleet;
+
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyRule;
+import com.parksys.standalone.policy.PolicyRules;
+import com.parksys.standalone.policy.ReconcileStats;
+import com.parksys.standalone.policy.RestrictionType;
+import com.parksys.standalone.policy.RuleEngine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ポリシーに対する端末群の一括評価（「v2 に準拠していない端末はどれか」）
+ * 判定は {@link PolicyRules} の各ルールと同じで、目標と異なる（端末上では修正・要対応となる）項目を違反とする。
+ * 対応していない項目（暗号化非対応など）は違反としない。
+ * 評価は {@link DeviceStateTable} の列ごとのループで行い、行の範囲を分割して fork/join で並行に処理する。
+ */
+public final class FleetEvaluator {
+
+    public static final int RULE_CAMERA = 0;
+    public static final int RULE_PASSWORD_QUALITY = 1;
+    public static final int RULE_PASSWORD_LENGTH = 2;
+    public static final int RULE_MAX_TIME_TO_LOCK = 3;
+    public static final int RULE_MAX_FAILED_ATTEMPTS = 4;
+    public static final int RULE_STORAGE_ENCRYPTION = 5;
+    /** 評価したポリシーと異なるバージョンを適用している */
+    public static final int RULE_POLICY_VERSION = 6;
+    public static final int RULE_COUNT = 7;
+
+    private static final String[] NAMES = {
+        PolicyRules.CAMERA,
+        PolicyRules.PASSWORD_QUALITY,
+        PolicyRules.PASSWORD_LENGTH,
+        PolicyRules.MAX_TIME_TO_LOCK,
+        PolicyRules.MAX_FAILED_ATTEMPTS,
+        PolicyRules.STORAGE_ENCRYPTION,
+        "policy_version",
+    };
+
+    // 1タスクで評価する行数（64 の倍数。全列の該当範囲が L2 キャッシュに収まる程度）
+    static final int CHUNK_ROWS = 1 << 14;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool 並行評価に使用するプール（{@link ForkJoinPool#commonPool()} など）
+     */
+    public FleetEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static String ruleName(int rule) {
+        return NAMES[rule];
+    }
+
+    /**
+     * 全端末を並行に評価する
+     */
+    public FleetResult evaluate(PolicyDocument desired, DeviceStateTable table) {
+        long start = System.nanoTime();
+        Targets targets = new Targets(desired, table);
+        int size = table.size();
+        byte[] violations = new byte[size];
+        long[] counts = pool.invoke(new RangeTask(targets, table, violations, 0, size));
+        return result(desired, violations, size, counts, start);
+    }
+
+    /**
+     * 全端末を呼び出し元のスレッドで順に評価する（比較用・小規模な表向け）
+     */
+    public static FleetResult evaluateSequential(PolicyDocument desired, DeviceStateTable table) {
+        long start = System.nanoTime();
+        Targets targets = new Targets(desired, table);
+        int size = table.size();
+        byte[] violations = new byte[size];
+        long[] counts = new long[RULE_COUNT + 1];
+        for (int from = 0; from < size; from += CHUNK_ROWS) {
+            evaluateChunk(targets, table, violations, from, Math.min(size, from + CHUNK_ROWS), counts);
+        }
+        return result(desired, violations, size, counts, start);
+    }
+
+    /**
+     * 端末上と同じ {@link RuleEngine} で1台ずつ評価する（参照実装。列ごとの評価と結果が一致すること）
+     */
+    public static FleetResult evaluateRowWise(PolicyDocument desired, DeviceStateTable table) {
+        long start = System.nanoTime();
+        DeviceStateCursor cursor = new DeviceStateCursor(table);
+        RuleEngine engine = new RuleEngine(PolicyRules.defaults(), cursor, new ReconcileStats());
+        int[] ruleBits = new int[engine.getRuleCount()];
+        for (int i = 0; i < ruleBits.length; i++) {
+            ruleBits[i] = 1 << indexOf(engine.getRule(i).getName());
+        }
+        String version = desired.getVersion();
+        int size = table.size();
+        byte[] violations = new byte[size];
+        long[] counts = new long[RULE_COUNT + 1];
+        for (int row = 0; row < size; row++) {
+            cursor.moveTo(row);
+            engine.evaluate(desired);
+            int mask = 0;
+            for (int i = 0; i < ruleBits.length; i++) {
+                int outcome = engine.getLastOutcome(i);
+                if (outcome == PolicyRule.CORRECTED || outcome == PolicyRule.NONCOMPLIANT) {
+                    mask |= ruleBits[i];
+                }
+            }
+            if (!version.equals(table.getPolicyVersion(row))) {
+                mask |= 1 << RULE_POLICY_VERSION;
+            }
+            violations[row] = (byte) mask;
+            for (int rule = 0; rule < RULE_COUNT; rule++) {
+                counts[rule] += (mask >>> rule) & 1;
+            }
+            if (mask != 0) {
+                counts[RULE_COUNT]++;
+            }
+        }
+        return result(desired, violations, size, counts, start);
+    }
+
+    private static int indexOf(String ruleName) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(ruleName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rule: " + ruleName);
+    }
+
+    private static FleetResult result(PolicyDocument desired, byte[] violations, int size, long[] counts,
+                                      long start) {
+        long[] ruleCounts = new long[RULE_COUNT];
+        System.arraycopy(counts, 0, ruleCounts, 0, RULE_COUNT);
+        return new FleetResult(desired.getVersion(), violations, size, ruleCounts, counts[RULE_COUNT],
+            System.nanoTime() - start);
+    }
+
+    /**
+     * 目標値（ポリシー文書から1回だけ取り出す）
+     */
+    private static final class Targets {
+        final boolean cameraDisabled;
+        final boolean checkQuality;
+        final int quality;
+        final boolean checkLength;
+        final int length;
+        final boolean checkTimeToLock;
+        final long timeToLockMillis;
+        final int maxFailedAttempts;
+        final boolean encryptionRequired;
+        // 表に存在しないバージョンの場合は -1（全端末が違反）
+        final int versionId;
+
+        Targets(PolicyDocument desired, DeviceStateTable table) {
+            cameraDisabled = desired.isRestricted(RestrictionType.CAMERA_DISABLED);
+            checkQuality = desired.hasRule(RestrictionType.PASSWORD_QUALITY);
+            quality = desired.getValue(RestrictionType.PASSWORD_QUALITY, 0);
+            checkLength = desired.hasRule(RestrictionType.PASSWORD_MIN_LENGTH);
+            length = desired.getValue(RestrictionType.PASSWORD_MIN_LENGTH, 0);
+            checkTimeToLock = desired.hasRule(RestrictionType.MAX_TIME_TO_LOCK_SECONDS);
+            timeToLockMillis = desired.getValue(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 0) * 1000L;
+            maxFailedAttempts = desired.getValue(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 0);
+            encryptionRequired = desired.isRestricted(RestrictionType.STORAGE_ENCRYPTION_REQUIRED);
+            versionId = table.findVersionId(desired.getVersion());
+        }
+    }
+
+    /**
+     * 行の範囲の評価（{@link #CHUNK_ROWS} 以下になるまで二分する）
+     * counts は各ルールの違反数と、末尾にいずれかに違反した端末数。
+     */
+    private static final class RangeTask extends RecursiveTask<long[]> {
+        private final Targets targets;
+        private final DeviceStateTable table;
+        private final byte[] violations;
+        private final int from;
+        private final int to;
+
+        RangeTask(Targets targets, DeviceStateTable table, byte[] violations, int from, int to) {
+            this.targets = targets;
+            this.table = table;
+            this.violations = violations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= CHUNK_ROWS) {
+                long[] counts = new long[RULE_COUNT + 1];
+                evaluateChunk(targets, table, violations, from, to, counts);
+                return counts;
+            }
+            int mid = from + (to - from) / 2;
+            RangeTask left = new RangeTask(targets, table, violations, from, mid);
+            RangeTask right = new RangeTask(targets, table, violations, mid, to);
+            left.fork();
+            long[] counts = right.compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * [from, to) の行をルールごとに1回ずつ走査し、違反のビットを violations に書き込む
+     * 各ループは分岐のない単純な列の走査で、JIT がベクトル化しやすい形にしている。
+     */
+    private static void evaluateChunk(Targets targets, DeviceStateTable table, byte[] violations, int from, int to,
+                                      long[] counts) {
+        byte[] flags = table.flagColumn();
+
+        // カメラ: 目標と異なる
+        int wantCamera = targets.cameraDisabled ? DeviceStateTable.FLAG_CAMERA_DISABLED : 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int bit = (flags[i] ^ wantCamera) & DeviceStateTable.FLAG_CAMERA_DISABLED;
+            violations[i] = (byte) bit;
+            count += bit;
+        }
+        counts[RULE_CAMERA] += count;
+
+        // パスワード品質・文字数: 目標と異なる、または現在のパスワードが満たさない
+        if (targets.checkQuality) {
+            int[] quality = table.passwordQualityColumn();
+            int want = targets.quality;
+            count = 0;
+            for (int i = from; i < to; i++) {
+                int insufficient = (~flags[i] >>> 1) & 1;
+                int bit = ((quality[i] != want ? 1 : 0) | insufficient);
+                violations[i] |= (byte) (bit << RULE_PASSWORD_QUALITY);
+                count += bit;
+            }
+            counts[RULE_PASSWORD_QUALITY] += count;
+        }
+        if (targets.checkLength) {
+            short[] length = table.passwordMinLengthColumn();
+            int want = targets.length;
+            count = 0;
+            for (int i = from; i < to; i++) {
+                int insufficient = (~flags[i] >>> 1) & 1;
+                int bit = (((length[i] & 0xFFFF) != want ? 1 : 0) | insufficient);
+                violations[i] |= (byte) (bit << RULE_PASSWORD_LENGTH);
+                count += bit;
+            }
+            counts[RULE_PASSWORD_LENGTH] += count;
+        }
+
+        // 画面ロックまでの時間: 目標と異なる
+        if (targets.checkTimeToLock) {
+            long[] timeToLock = table.maxTimeToLockColumn();
+            long want = targets.timeToLockMillis;
+            count = 0;
+            for (int i = from; i < to; i++) {
+                int bit = timeToLock[i] != want ? 1 : 0;
+                violations[i] |= (byte) (bit << RULE_MAX_TIME_TO_LOCK);
+                count += bit;
+            }
+            counts[RULE_MAX_TIME_TO_LOCK] += count;
+        }
+
+        // 連続失敗回数: 上限に達している（解除に成功するまで未準拠）
+        if (targets.maxFailedAttempts > 0) {
+            short[] attempts = table.failedAttemptsColumn();
+            int max = targets.maxFailedAttempts;
+            count = 0;
+            for (int i = from; i < to; i++) {
+                int bit = (attempts[i] & 0xFFFF) >= max ? 1 : 0;
+                violations[i] |= (byte) (bit << RULE_MAX_FAILED_ATTEMPTS);
+                count += bit;
+            }
+            counts[RULE_MAX_FAILED_ATTEMPTS] += count;
+        }
+
+        // 暗号化: 有効でない（非対応の端末は除く）
+        if (targets.encryptionRequired) {
+            byte[] status = table.encryptionStatusColumn();
+            count = 0;
+            for (int i = from; i < to; i++) {
+                int s = status[i];
+                int bit = s != PolicyBackend.ENCRYPTION_STATUS_UNSUPPORTED
+                    && (s < PolicyBackend.ENCRYPTION_STATUS_ACTIVE || s > PolicyBackend.ENCRYPTION_STATUS_ACTIVE_PER_USER)
+                    ? 1 : 0;
+                violations[i] |= (byte) (bit << RULE_STORAGE_ENCRYPTION);
+                count += bit;
+            }
+            counts[RULE_STORAGE_ENCRYPTION] += count;
+        }
+
+        // 適用済みのバージョン: 評価したポリシーと異なる
+        int[] version = table.policyVersionColumn();
+        int wantVersion = targets.versionId;
+        count = 0;
+        for (int i = from; i < to; i++) {
+            int bit = version[i] != wantVersion ? 1 : 0;
+            violations[i] |= (byte) (bit << RULE_POLICY_VERSION);
+            count += bit;
+        }
+        counts[RULE_POLICY_VERSION] += count;
+
+        count = 0;
+        for (int i = from; i < to; i++) {
+            count += violations[i] != 0 ? 1 : 0;
+        }
+        counts[RULE_COUNT] += count;
+    }
+}
@@ -0,0 +1,87 @@
+package com.parksys.standalone.fleet;
+
+/**
+ * 端末群の一括評価の結果
+ * 端末ごとに違反したルールのビット（{@code 1 << FleetEvaluator.RULE_*}）を1バイトで保持する。
+ */
+public final class FleetResult {
+
+    private final String policyVersion;
+    private final byte[] violations;
+    private final int size;
+    private final long[] ruleCounts;
+    private final long noncompliantCount;
+    private final long durationNanos;
+
+    FleetResult(String policyVersion, byte[] violations, int size, long[] ruleCounts, long noncompliantCount,
+                long durationNanos) {
+        this.policyVersion = policyVersion;
+        this.violations = violations;
+        this.size = size;
+        this.ruleCounts = ruleCounts;
+        this.noncompliantCount = noncompliantCount;
+        this.durationNanos = durationNanos;
+    }
+
+    /** 評価したポリシーのバージョン */
+    public String getPolicyVersion() {
+        return policyVersion;
+    }
+
+    /** 評価した端末数 */
+    public int size() {
+        return size;
+    }
+
+    /** いずれかのルールに違反した端末数 */
+    public long getNoncompliantCount() {
+        return noncompliantCount;
+    }
+
+    /** 指定したルールに違反した端末数 */
+    public long getRuleCount(int rule) {
+        return ruleCounts[rule];
+    }
+
+    /** 端末（行）が違反したルールのビット（違反なしは 0） */
+    public int getViolations(int row) {
+        return violations[row] & 0xFF;
+    }
+
+    /**
+     * 指定したルールのいずれかに違反した行（昇順）
+     *
+     * @param ruleMask {@code 1 << FleetEvaluator.RULE_*} の組み合わせ
+     */
+    public int[] findRows(int ruleMask) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if ((violations[i] & ruleMask) != 0) {
+                count++;
+            }
+        }
+        int[] rows = new int[count];
+        int next = 0;
+        for (int i = 0; i < size && next < count; i++) {
+            if ((violations[i] & ruleMask) != 0) {
+                rows[next++] = i;
+            }
+        }
+        return rows;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FleetResult{v").append(policyVersion)
+            .append(" devices=").append(size)
+            .append(" noncompliant=").append(noncompliantCount);
+        for (int rule = 0; rule < FleetEvaluator.RULE_COUNT; rule++) {
+            builder.append(' ').append(FleetEvaluator.ruleName(rule)).append('=').append(ruleCounts[rule]);
+        }
+        return builder.append(" took=").append(durationNanos / 1_000_000).append("ms}").toString();
+    }
+}
@@ -0,0 +1,257 @@
+package com.parksys.standalone.policy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ポリシー文書に含まれるアプリの禁止・許可リスト（不変）
+ * パッケージ名の 64 ビットハッシュを Bloom フィルタと昇順のハッシュ表で保持し、
+ * 読み込んだバッファを複製せずに参照する。
+ * 大半のパッケージは Bloom フィルタで除外され、候補のみハッシュ表を二分探索する。
+ *
+ * <pre>
+ * mode         u8   {@link #MODE_BLOCKLIST} / {@link #MODE_ALLOWLIST}
+ * bloomHashes  u8   Bloom フィルタのハッシュ関数の数
+ * bloomLog2    u8   Bloom フィルタのビット数（2 の冪）の指数
+ * hashCount    u32
+ * bloom        (1 &lt;&lt; bloomLog2) / 8 バイト
+ * hashes       hashCount × u64  昇順・重複なし
+ * </pre>
+ */
+public final class PackageIndex {
+
+    public static final int MODE_NONE = 0;
+    /** リストに含まれるパッケージを禁止する */
+    public static final int MODE_BLOCKLIST = 1;
+    /** リストに含まれないパッケージを禁止する */
+    public static final int MODE_ALLOWLIST = 2;
+
+    static final PackageIndex EMPTY = new PackageIndex(MODE_NONE, 0, 0, null, null, 0);
+
+    private static final int HEADER_SIZE = 1 + 1 + 1 + 4;
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final int MIN_BLOOM_LOG2 = 6;
+    private static final int MAX_BLOOM_LOG2 = 24;
+
+    private final int mode;
+    private final int bloomHashes;
+    private final int bloomMask;
+    private final ByteBuffer bloom;
+    private final ByteBuffer hashes;
+    private final int size;
+
+    private PackageIndex(int mode, int bloomHashes, int bloomMask, ByteBuffer bloom, ByteBuffer hashes, int size) {
+        this.mode = mode;
+        this.bloomHashes = bloomHashes;
+        this.bloomMask = bloomMask;
+        this.bloom = bloom;
+        this.hashes = hashes;
+        this.size = size;
+    }
+
+    /**
+     * パッケージ名のハッシュ（FNV-1a 64 ビットに攪拌を加えたもの。端末・サーバーで同じ値になる）
+     */
+    public static long hash(CharSequence packageName) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < packageName.length(); i++) {
+            h ^= packageName.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** {@link #MODE_NONE} など */
+    public int getMode() {
+        return mode;
+    }
+
+    public boolean isEmpty() {
+        return mode == MODE_NONE;
+    }
+
+    /** リストのパッケージ数 */
+    public int size() {
+        return size;
+    }
+
+    public long getHash(int index) {
+        return hashes.getLong(index * 8);
+    }
+
+    /**
+     * ポリシー上インストールが禁止されたパッケージか
+     */
+    public boolean isDisallowed(String packageName) {
+        if (mode == MODE_NONE) {
+            return false;
+        }
+        boolean listed = contains(hash(packageName));
+        return mode == MODE_BLOCKLIST ? listed : !listed;
+    }
+
+    /**
+     * リストにハッシュが含まれるか（Bloom フィルタで除外できない場合のみ二分探索する）
+     */
+    public boolean contains(long hash) {
+        return mightContain(hash) && indexOf(hash) >= 0;
+    }
+
+    /**
+     * Bloom フィルタの判定（false ならリストに含まれない）
+     */
+    public boolean mightContain(long hash) {
+        if (size == 0) {
+            return false;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < bloomHashes; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bloom.get(bit >>> 3) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ハッシュ表での位置（存在しない場合は -1）
+     */
+    public int indexOf(long hash) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = hashes.getLong(mid * 8);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 種類・内容が同じか（差分の生成用）
+     */
+    boolean sameEntries(PackageIndex other) {
+        if (mode != other.mode || size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (getHash(i) != other.getHash(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ハッシュ表の複製（昇順）
+     */
+    long[] copyHashes() {
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = getHash(i);
+        }
+        return copy;
+    }
+
+    static int encodedSize(int count) {
+        return HEADER_SIZE + (1 << bloomLog2(count)) / 8 + count * 8;
+    }
+
+    /**
+     * @param sortedHashes 昇順・重複なしのハッシュ
+     */
+    static void encode(ByteBuffer buffer, int mode, long[] sortedHashes) {
+        int log2 = bloomLog2(sortedHashes.length);
+        int mask = (1 << log2) - 1;
+        byte[] bits = new byte[(1 << log2) / 8];
+        for (long hash : sortedHashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                bits[bit >>> 3] |= (byte) (1 << (bit & 7));
+            }
+        }
+        buffer.put((byte) mode);
+        buffer.put((byte) BLOOM_HASHES);
+        buffer.put((byte) log2);
+        buffer.putInt(sortedHashes.length);
+        buffer.put(bits);
+        for (long hash : sortedHashes) {
+            buffer.putLong(hash);
+        }
+    }
+
+    /**
+     * バッファの現在位置からリストを読み込み、読み込んだ分だけ位置を進める
+     */
+    static PackageIndex decode(ByteBuffer buffer) throws PolicyFormatException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new PolicyFormatException("Truncated package list");
+        }
+        int mode = buffer.get() & 0xFF;
+        if (mode != MODE_BLOCKLIST && mode != MODE_ALLOWLIST) {
+            throw new PolicyFormatException("Unknown package list mode: " + mode);
+        }
+        int bloomHashes = buffer.get() & 0xFF;
+        int log2 = buffer.get() & 0xFF;
+        int count = buffer.getInt();
+        if (bloomHashes == 0 || log2 < 3 || log2 > MAX_BLOOM_LOG2 || count < 0) {
+            throw new PolicyFormatException("Bad package list header");
+        }
+        int bloomSize = (1 << log2) / 8;
+        if (buffer.remaining() < bloomSize + (long) count * 8) {
+            throw new PolicyFormatException("Truncated package list");
+        }
+        ByteBuffer bloom = slice(buffer, bloomSize);
+        ByteBuffer hashes = slice(buffer, count * 8);
+        for (int i = 1; i < count; i++) {
+            if (hashes.getLong((i - 1) * 8) >= hashes.getLong(i * 8)) {
+                throw new PolicyFormatException("Package hashes not sorted at index " + i);
+            }
+        }
+        return new PackageIndex(mode, bloomHashes, (1 << log2) - 1, bloom, hashes, count);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(view.position() + length);
+        buffer.position(buffer.position() + length);
+        return view.slice().order(ByteOrder.BIG_ENDIAN).asReadOnlyBuffer();
+    }
+
+    /**
+     * 1件あたり {@link #BITS_PER_ENTRY} ビット以上となる 2 の冪
+     */
+    private static int bloomLog2(int count) {
+        long bits = Math.max(1L, (long) count * BITS_PER_ENTRY);
+        int log2 = 64 - Long.numberOfLeadingZeros(bits - 1);
+        return Math.max(MIN_BLOOM_LOG2, Math.min(MAX_BLOOM_LOG2, log2));
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case MODE_BLOCKLIST:
+                return "blocklist(" + size + ")";
+            case MODE_ALLOWLIST:
+                return "allowlist(" + size + ")";
+            default:
+                return "none";
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.parksys.standalone.policy;
+
+/**
+ * 端末ポリシー操作の抽象
+ * Android では DevicePolicyManager の getter/setter に対応する。
+ */
+public interface PolicyBackend {
+
+    // DevicePolicyManager.ENCRYPTION_STATUS_* と同じ値
+    int ENCRYPTION_STATUS_UNSUPPORTED = 0;
+    int ENCRYPTION_STATUS_INACTIVE = 1;
+    int ENCRYPTION_STATUS_ACTIVATING = 2;
+    int ENCRYPTION_STATUS_ACTIVE = 3;
+    int ENCRYPTION_STATUS_ACTIVE_DEFAULT_KEY = 4;
+    int ENCRYPTION_STATUS_ACTIVE_PER_USER = 5;
+
+    boolean isAdminActive();
+
+    boolean getCameraDisabled();
+
+    void setCameraDisabled(boolean disabled);
+
+    int getPasswordQuality();
+
+    void setPasswordQuality(int quality);
+
+    int getPasswordMinimumLength();
+
+    void setPasswordMinimumLength(int length);
+
+    /** 現在のパスワードが設定済みの品質・文字数を満たすか */
+    boolean isActivePasswordSufficient();
+
+    int getCurrentFailedPasswordAttempts();
+
+    /** 無操作から画面ロックまでの最大時間（ミリ秒、0 は制限なし） */
+    long getMaximumTimeToLock();
+
+    void setMaximumTimeToLock(long millis);
+
+    int getStorageEncryptionStatus();
+}
@@ -0,0 +1,167 @@
+package com.parksys.standalone.policy;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 署名付きポリシー（管理サーバーから取得したポリシーの保存形式）
+ *
+ * 署名は本文（ポリシー文書のバイナリ形式）に対する SHA256withECDSA。
+ * 鍵 ID は署名鍵の公開鍵（X.509 形式）の SHA-256 の先頭 8 バイト。
+ *
+ * <pre>
+ * { magic u32 "PSBN", format u8, keyId[8], payloadLength u32, payload, signatureLength u16, signature }
+ * </pre>
+ */
+public final class PolicyBundle {
+
+    public static final int MAGIC = 0x5053424E; // "PSBN"
+    public static final int FORMAT = 1;
+    public static final int KEY_ID_SIZE = 8;
+
+    private static final int HEADER_SIZE = 4 + 1 + KEY_ID_SIZE + 4;
+    private static final int MAX_SIGNATURE_SIZE = 512;
+
+    private final ByteBuffer bundle;
+    private final ByteBuffer payload;
+    private final byte[] keyId;
+    private final byte[] signature;
+
+    private PolicyBundle(ByteBuffer bundle, ByteBuffer payload, byte[] keyId, byte[] signature) {
+        this.bundle = bundle;
+        this.payload = payload;
+        this.keyId = keyId;
+        this.signature = signature;
+    }
+
+    /**
+     * 本文と署名から保存形式を作る
+     */
+    public static byte[] wrap(byte[] payload, byte[] keyId, byte[] signature) {
+        if (keyId.length != KEY_ID_SIZE || signature.length > MAX_SIGNATURE_SIZE) {
+            throw new IllegalArgumentException("Invalid key id or signature");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + 2 + signature.length);
+        buffer.putInt(MAGIC)
+            .put((byte) FORMAT)
+            .put(keyId)
+            .putInt(payload.length)
+            .put(payload)
+            .putShort((short) signature.length)
+            .put(signature);
+        return buffer.array();
+    }
+
+    /**
+     * 署名ヘッダー（"鍵IDの16進:署名の16進"）と本文から保存形式を作る
+     *
+     * @throws PolicySignatureException ヘッダーがない・形式が不正な場合
+     */
+    public static byte[] wrap(byte[] payload, String signatureHeader) throws PolicySignatureException {
+        int separator = signatureHeader != null ? signatureHeader.indexOf(':') : -1;
+        if (separator < 0) {
+            throw new PolicySignatureException("Unsigned policy");
+        }
+        byte[] keyId = fromHex(signatureHeader.substring(0, separator).trim());
+        byte[] signature = fromHex(signatureHeader.substring(separator + 1).trim());
+        if (keyId == null || signature == null || keyId.length != KEY_ID_SIZE
+                || signature.length == 0 || signature.length > MAX_SIGNATURE_SIZE) {
+            throw new PolicySignatureException("Malformed policy signature");
+        }
+        return wrap(payload, keyId, signature);
+    }
+
+    /**
+     * 署名ヘッダーの値（管理サーバー側で使用）
+     */
+    public static String signatureHeader(byte[] keyId, byte[] signature) {
+        return toHex(keyId) + ":" + toHex(signature);
+    }
+
+    /**
+     * 保存形式を読み込む（本文はコピーせず元のバッファを参照する）
+     */
+    public static PolicyBundle parse(ByteBuffer buffer) throws PolicyFormatException {
+        ByteBuffer bundle = buffer.slice();
+        try {
+            ByteBuffer in = bundle.duplicate();
+            if (in.getInt() != MAGIC) {
+                throw new PolicyFormatException("Not a signed policy bundle");
+            }
+            if (in.get() != FORMAT) {
+                throw new PolicyFormatException("Unsupported bundle format");
+            }
+            byte[] keyId = new byte[KEY_ID_SIZE];
+            in.get(keyId);
+            int payloadLength = in.getInt();
+            if (payloadLength < 0 || payloadLength > in.remaining()) {
+                throw new PolicyFormatException("Truncated bundle");
+            }
+            ByteBuffer payload = in.slice();
+            payload.limit(payloadLength);
+            in.position(in.position() + payloadLength);
+            int signatureLength = in.getShort() & 0xFFFF;
+            if (signatureLength > MAX_SIGNATURE_SIZE) {
+                throw new PolicyFormatException("Invalid signature length");
+            }
+            byte[] signature = new byte[signatureLength];
+            in.get(signature);
+            bundle.limit(in.position());
+            return new PolicyBundle(bundle, payload, keyId, signature);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new PolicyFormatException("Truncated bundle");
+        }
+    }
+
+    /** 署名対象の本文（読み取り位置は呼び出し側で変更してよい複製） */
+    public ByteBuffer getPayload() {
+        return payload.duplicate();
+    }
+
+    public byte[] getKeyId() {
+        return keyId.clone();
+    }
+
+    public byte[] getSignature() {
+        return signature.clone();
+    }
+
+    /** 保存形式全体（検証結果のキャッシュの鍵に使う） */
+    ByteBuffer getBytes() {
+        return bundle.duplicate();
+    }
+
+    public int getSize() {
+        return bundle.remaining();
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return 16進でない場合 null
+     */
+    static byte[] fromHex(String hex) {
+        if ((hex.length() & 1) != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
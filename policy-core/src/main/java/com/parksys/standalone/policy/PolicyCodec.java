@@ -0,0 +1,140 @@
+package com.parksys.standalone.policy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ポリシー文書のバイナリ形式（ビッグエンディアン）
+ *
+ * <pre>
+ * magic        u32  "PPOL"
+ * format       u8   形式バージョン
+ * flags        u8   bit0: アプリの禁止・許可リストを含む
+ * ruleCount    u16
+ * versionLen   u8   + UTF-8 バイト列
+ * bannerLen    u16  + UTF-8 バイト列
+ * rules        ruleCount × { type u16, param u16, value i32 }  (type, param) 昇順
+ * packages     flags bit0 の場合のみ（{@link PackageIndex} の形式）
+ * </pre>
+ */
+public final class PolicyCodec {
+
+    static final int MAGIC = 0x50504F4C; // "PPOL"
+    static final int FORMAT_VERSION = 1;
+    static final int RULE_SIZE = 8;
+    static final int FLAG_PACKAGES = 1;
+    private static final int FIXED_HEADER_SIZE = 4 + 1 + 1 + 2;
+
+    private PolicyCodec() {
+    }
+
+    /**
+     * バッファからポリシー文書を読み込む。
+     * ルール部分は複製せず、読み取り専用のスライスとして参照する。
+     */
+    public static PolicyDocument decode(ByteBuffer source) throws PolicyFormatException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int start = buffer.position();
+        int size = buffer.remaining();
+        if (size < FIXED_HEADER_SIZE + 3) {
+            throw new PolicyFormatException("Policy too short: " + size);
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new PolicyFormatException("Bad policy magic");
+        }
+        int format = buffer.get() & 0xFF;
+        if (format != FORMAT_VERSION) {
+            throw new PolicyFormatException("Unsupported policy format: " + format);
+        }
+        int flags = buffer.get() & 0xFF;
+        int ruleCount = buffer.getShort() & 0xFFFF;
+
+        String version = readString(buffer, buffer.get() & 0xFF);
+        if (buffer.remaining() < 2) {
+            throw new PolicyFormatException("Truncated banner");
+        }
+        String banner = readString(buffer, buffer.getShort() & 0xFFFF);
+
+        int rulesSize = ruleCount * RULE_SIZE;
+        if (buffer.remaining() < rulesSize) {
+            throw new PolicyFormatException("Rule table size mismatch: " + buffer.remaining() + " < " + rulesSize);
+        }
+        ByteBuffer rulesView = buffer.duplicate();
+        rulesView.limit(rulesView.position() + rulesSize);
+        ByteBuffer rules = rulesView.slice().order(ByteOrder.BIG_ENDIAN).asReadOnlyBuffer();
+        buffer.position(buffer.position() + rulesSize);
+
+        long previousKey = -1;
+        for (int i = 0; i < ruleCount; i++) {
+            long key = rules.getInt(i * RULE_SIZE) & 0xFFFFFFFFL;
+            if (key <= previousKey) {
+                throw new PolicyFormatException("Rules not sorted at index " + i);
+            }
+            previousKey = key;
+        }
+
+        PackageIndex packages = PackageIndex.EMPTY;
+        if ((flags & FLAG_PACKAGES) != 0) {
+            packages = PackageIndex.decode(buffer);
+        }
+        if (buffer.hasRemaining()) {
+            throw new PolicyFormatException("Trailing bytes after policy: " + buffer.remaining());
+        }
+
+        return new PolicyDocument(version, banner, rules, ruleCount, packages, buffer.limit() - start);
+    }
+
+    static byte[] encode(String version, String banner, int[] types, int[] params, int[] values) {
+        return encode(version, banner, types, params, values, PackageIndex.MODE_NONE, null);
+    }
+
+    /**
+     * @param packageHashes 昇順・重複なしのパッケージ名ハッシュ（packageMode が {@link PackageIndex#MODE_NONE} の場合は無視）
+     */
+    static byte[] encode(String version, String banner, int[] types, int[] params, int[] values,
+                         int packageMode, long[] packageHashes) {
+        byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        byte[] bannerBytes = banner.getBytes(StandardCharsets.UTF_8);
+        if (versionBytes.length > 0xFF || bannerBytes.length > 0xFFFF || types.length > 0xFFFF) {
+            throw new IllegalArgumentException("Policy too large");
+        }
+        boolean hasPackages = packageMode != PackageIndex.MODE_NONE;
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_HEADER_SIZE + 1 + versionBytes.length
+            + 2 + bannerBytes.length + types.length * RULE_SIZE
+            + (hasPackages ? PackageIndex.encodedSize(packageHashes.length) : 0));
+        buffer.putInt(MAGIC);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.put((byte) (hasPackages ? FLAG_PACKAGES : 0));
+        buffer.putShort((short) types.length);
+        buffer.put((byte) versionBytes.length);
+        buffer.put(versionBytes);
+        buffer.putShort((short) bannerBytes.length);
+        buffer.put(bannerBytes);
+        for (int i = 0; i < types.length; i++) {
+            buffer.putShort((short) types[i]);
+            buffer.putShort((short) params[i]);
+            buffer.putInt(values[i]);
+        }
+        if (hasPackages) {
+            PackageIndex.encode(buffer, packageMode, packageHashes);
+        }
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer buffer, int length) throws PolicyFormatException {
+        if (buffer.remaining() < length) {
+            throw new PolicyFormatException("Truncated string");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
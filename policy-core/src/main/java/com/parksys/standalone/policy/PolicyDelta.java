@@ -0,0 +1,178 @@
+package com.parksys.standalone.policy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ポリシー文書の差分形式（ビッグエンディアン）
+ * 端末が保持している版（baseVersion）からの変更点のみを送る。
+ *
+ * <pre>
+ * magic         u32  "PDLT"
+ * format        u8   形式バージョン
+ * flags         u8   bit0: バナー文言を含む  bit1: アプリのリストを置き換える  bit2: アプリのリストを削除する
+ * baseVersion   u8   + UTF-8 バイト列
+ * version       u8   + UTF-8 バイト列
+ * bannerLen     u16  + UTF-8 バイト列（flags bit0 の場合のみ）
+ * upsertCount   u16  + upsertCount × { type u16, param u16, value i32 }
+ * removeCount   u16  + removeCount × { type u16, param u16 }
+ * packages      flags bit1 の場合のみ、リスト全体（{@link PackageIndex} の形式）
+ * </pre>
+ * アプリのリストは変更があった場合のみ全体を送り、それ以外は基準文書のものを引き継ぐ。
+ */
+public final class PolicyDelta {
+
+    static final int MAGIC = 0x50444C54; // "PDLT"
+    static final int FORMAT_VERSION = 1;
+    private static final int FLAG_BANNER = 1;
+    private static final int FLAG_PACKAGES = 1 << 1;
+    private static final int FLAG_CLEAR_PACKAGES = 1 << 2;
+
+    private PolicyDelta() {
+    }
+
+    /**
+     * 差分を基準文書に適用し、新しい文書をバイナリ形式で返す
+     *
+     * @throws PolicyFormatException 形式が不正な場合、または基準の版が一致しない場合
+     */
+    public static byte[] apply(PolicyDocument base, ByteBuffer source) throws PolicyFormatException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new PolicyFormatException("Bad delta magic");
+            }
+            int format = buffer.get() & 0xFF;
+            if (format != FORMAT_VERSION) {
+                throw new PolicyFormatException("Unsupported delta format: " + format);
+            }
+            int flags = buffer.get() & 0xFF;
+            String baseVersion = readString(buffer, buffer.get() & 0xFF);
+            if (!baseVersion.equals(base.getVersion())) {
+                throw new PolicyFormatException("Delta base " + baseVersion + " != " + base.getVersion());
+            }
+            String version = readString(buffer, buffer.get() & 0xFF);
+            String banner = (flags & FLAG_BANNER) != 0
+                ? readString(buffer, buffer.getShort() & 0xFFFF) : base.getBannerText();
+
+            int upsertCount = buffer.getShort() & 0xFFFF;
+            int upsertStart = buffer.position();
+            buffer.position(upsertStart + upsertCount * PolicyCodec.RULE_SIZE);
+            int removeCount = buffer.getShort() & 0xFFFF;
+            int removeStart = buffer.position();
+            buffer.position(removeStart + removeCount * 4);
+            PackageIndex packages = base.getPackages();
+            if ((flags & FLAG_PACKAGES) != 0) {
+                packages = PackageIndex.decode(buffer);
+            } else if ((flags & FLAG_CLEAR_PACKAGES) != 0) {
+                packages = PackageIndex.EMPTY;
+            }
+            if (buffer.hasRemaining()) {
+                throw new PolicyFormatException("Delta size mismatch");
+            }
+
+            PolicyDocument.Builder builder = PolicyDocument.builder().version(version).bannerText(banner);
+            builder.packageHashes(packages.getMode(), packages.copyHashes());
+            for (int i = 0; i < base.getRuleCount(); i++) {
+                int type = base.getRuleType(i);
+                int param = base.getRuleParam(i);
+                if (!contains(buffer, removeStart, removeCount, type, param)) {
+                    builder.rule(type, param, base.getRuleValue(i));
+                }
+            }
+            for (int i = 0; i < upsertCount; i++) {
+                int offset = upsertStart + i * PolicyCodec.RULE_SIZE;
+                builder.rule(buffer.getShort(offset) & 0xFFFF, buffer.getShort(offset + 2) & 0xFFFF,
+                    buffer.getInt(offset + 4));
+            }
+            return builder.encode();
+        } catch (RuntimeException e) {
+            // BufferUnderflowException / IndexOutOfBoundsException / IllegalArgumentException
+            throw new PolicyFormatException("Malformed delta: " + e);
+        }
+    }
+
+    /**
+     * 2つの文書の差分を生成する（管理サーバー・検証用）
+     */
+    public static byte[] diff(PolicyDocument from, PolicyDocument to) {
+        byte[] baseVersion = from.getVersion().getBytes(StandardCharsets.UTF_8);
+        byte[] version = to.getVersion().getBytes(StandardCharsets.UTF_8);
+        boolean bannerChanged = !from.getBannerText().equals(to.getBannerText());
+        byte[] banner = bannerChanged ? to.getBannerText().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        PackageIndex packages = to.getPackages();
+        boolean packagesChanged = !from.getPackages().sameEntries(packages);
+        int flags = bannerChanged ? FLAG_BANNER : 0;
+        if (packagesChanged) {
+            flags |= packages.isEmpty() ? FLAG_CLEAR_PACKAGES : FLAG_PACKAGES;
+        }
+        boolean sendPackages = (flags & FLAG_PACKAGES) != 0;
+
+        int upserts = 0;
+        for (int i = 0; i < to.getRuleCount(); i++) {
+            int index = from.indexOf(to.getRuleType(i), to.getRuleParam(i));
+            if (index < 0 || from.getRuleValue(index) != to.getRuleValue(i)) {
+                upserts++;
+            }
+        }
+        int removes = 0;
+        for (int i = 0; i < from.getRuleCount(); i++) {
+            if (to.indexOf(from.getRuleType(i), from.getRuleParam(i)) < 0) {
+                removes++;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 1 + 1 + baseVersion.length + 1 + version.length
+            + (bannerChanged ? 2 + banner.length : 0)
+            + 2 + upserts * PolicyCodec.RULE_SIZE + 2 + removes * 4
+            + (sendPackages ? PackageIndex.encodedSize(packages.size()) : 0));
+        buffer.putInt(MAGIC);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.put((byte) flags);
+        buffer.put((byte) baseVersion.length);
+        buffer.put(baseVersion);
+        buffer.put((byte) version.length);
+        buffer.put(version);
+        if (bannerChanged) {
+            buffer.putShort((short) banner.length);
+            buffer.put(banner);
+        }
+        buffer.putShort((short) upserts);
+        for (int i = 0; i < to.getRuleCount(); i++) {
+            int index = from.indexOf(to.getRuleType(i), to.getRuleParam(i));
+            if (index < 0 || from.getRuleValue(index) != to.getRuleValue(i)) {
+                buffer.putShort((short) to.getRuleType(i));
+                buffer.putShort((short) to.getRuleParam(i));
+                buffer.putInt(to.getRuleValue(i));
+            }
+        }
+        buffer.putShort((short) removes);
+        for (int i = 0; i < from.getRuleCount(); i++) {
+            if (to.indexOf(from.getRuleType(i), from.getRuleParam(i)) < 0) {
+                buffer.putShort((short) from.getRuleType(i));
+                buffer.putShort((short) from.getRuleParam(i));
+            }
+        }
+        if (sendPackages) {
+            PackageIndex.encode(buffer, packages.getMode(), packages.copyHashes());
+        }
+        return buffer.array();
+    }
+
+    private static boolean contains(ByteBuffer buffer, int start, int count, int type, int param) {
+        for (int i = 0; i < count; i++) {
+            int offset = start + i * 4;
+            if ((buffer.getShort(offset) & 0xFFFF) == type && (buffer.getShort(offset + 2) & 0xFFFF) == param) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
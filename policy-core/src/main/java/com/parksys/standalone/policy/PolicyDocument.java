@@ -0,0 +1,307 @@
+package com.parksys.standalone.policy;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ポリシー文書（不変）
+ * バージョン・バナー文言と、型付きの制限ルール一覧・アプリの禁止/許可リストを保持する。
+ * ルール・リストは読み込んだバッファを複製せずに直接参照する。
+ */
+public final class PolicyDocument {
+
+    private final String version;
+    private final String bannerText;
+    private final ByteBuffer rules;
+    private final int ruleCount;
+    private final PackageIndex packages;
+    private final int encodedSize;
+
+    PolicyDocument(String version, String bannerText, ByteBuffer rules, int ruleCount,
+                   PackageIndex packages, int encodedSize) {
+        this.version = version;
+        this.bannerText = bannerText;
+        this.rules = rules;
+        this.ruleCount = ruleCount;
+        this.packages = packages;
+        this.encodedSize = encodedSize;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getBannerText() {
+        return bannerText;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * アプリの禁止・許可リスト（含まれない場合は {@link PackageIndex#MODE_NONE} の空のリスト）
+     */
+    public PackageIndex getPackages() {
+        return packages;
+    }
+
+    /** バイナリ表現のサイズ（バイト） */
+    public int getEncodedSize() {
+        return encodedSize;
+    }
+
+    public int getRuleType(int index) {
+        return rules.getShort(index * PolicyCodec.RULE_SIZE) & 0xFFFF;
+    }
+
+    public int getRuleParam(int index) {
+        return rules.getShort(index * PolicyCodec.RULE_SIZE + 2) & 0xFFFF;
+    }
+
+    public int getRuleValue(int index) {
+        return rules.getInt(index * PolicyCodec.RULE_SIZE + 4);
+    }
+
+    /**
+     * 指定した種類・パラメータのルール位置を返す（存在しない場合は -1）
+     * ルールは (type, param) 順に並んでいるため二分探索する。
+     */
+    public int indexOf(int typeId, int param) {
+        long key = ((long) typeId << 16) | param;
+        int low = 0;
+        int high = ruleCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = ((long) getRuleType(mid) << 16) | getRuleParam(mid);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasRule(RestrictionType type) {
+        return indexOf(type.id, 0) >= 0;
+    }
+
+    public int getValue(RestrictionType type, int defaultValue) {
+        int index = indexOf(type.id, 0);
+        return index >= 0 ? getRuleValue(index) : defaultValue;
+    }
+
+    /**
+     * 真偽値ルールが有効（値が 0 以外）か
+     */
+    public boolean isRestricted(RestrictionType type) {
+        return getValue(type, 0) != 0;
+    }
+
+    /**
+     * 指定した種類のルールの値を param 順に返す（一覧形式のルール用、なければ空配列）
+     */
+    public int[] getValues(RestrictionType type) {
+        int first = indexOf(type.id, 0);
+        if (first < 0) {
+            return new int[0];
+        }
+        int end = first;
+        while (end < ruleCount && getRuleType(end) == type.id) {
+            end++;
+        }
+        int[] values = new int[end - first];
+        for (int i = first; i < end; i++) {
+            values[i - first] = getRuleValue(i);
+        }
+        return values;
+    }
+
+    /**
+     * Wi-Fi の SSID のハッシュ（{@link RestrictionType#WIFI_ALLOWED_SSID} の値。引用符は除いて比較する）
+     */
+    public static int ssidHash(String ssid) {
+        String name = ssid.length() >= 2 && ssid.startsWith("\"") && ssid.endsWith("\"")
+            ? ssid.substring(1, ssid.length() - 1) : ssid;
+        long hash = PackageIndex.hash(name);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ポリシー文書の組み立て（バイナリ形式を経由して不変の文書を生成する）
+     */
+    public static final class Builder {
+
+        private String version = "";
+        private String bannerText = "";
+        private final List<long[]> rules = new ArrayList<>();
+        private int packageMode = PackageIndex.MODE_NONE;
+        private long[] packageHashes;
+
+        Builder() {
+        }
+
+        public Builder version(String version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder bannerText(String bannerText) {
+            this.bannerText = bannerText;
+            return this;
+        }
+
+        public Builder restrict(RestrictionType type, boolean restricted) {
+            return rule(type.id, 0, restricted ? 1 : 0);
+        }
+
+        public Builder value(RestrictionType type, int value) {
+            return rule(type.id, 0, value);
+        }
+
+        public Builder rule(int typeId, int param, int value) {
+            if (typeId < 0 || typeId > 0xFFFF || param < 0 || param > 0xFFFF) {
+                throw new IllegalArgumentException("Rule key out of range: " + typeId + "/" + param);
+            }
+            for (long[] rule : rules) {
+                if (rule[0] == typeId && rule[1] == param) {
+                    rule[2] = value;
+                    return this;
+                }
+            }
+            rules.add(new long[] {typeId, param, value});
+            return this;
+        }
+
+        /**
+         * 接続を許可する Wi-Fi の一覧を設定する（既存の一覧は置き換える）
+         */
+        public Builder allowWifi(Collection<String> ssids) {
+            rules.removeIf(rule -> rule[0] == RestrictionType.WIFI_ALLOWED_SSID.id);
+            int[] hashes = new int[ssids.size()];
+            int i = 0;
+            for (String ssid : ssids) {
+                hashes[i++] = ssidHash(ssid);
+            }
+            Arrays.sort(hashes);
+            int param = 0;
+            for (int j = 0; j < hashes.length; j++) {
+                if (j == 0 || hashes[j] != hashes[j - 1]) {
+                    rule(RestrictionType.WIFI_ALLOWED_SSID.id, param++, hashes[j]);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 真偽値ルールを有効にする時間帯を追加する（例: 平日 8:00〜19:00 のみカメラを無効化）
+         *
+         * @param days        {@link PolicySchedule#MONDAY} などの組み合わせ（開始時刻の曜日）
+         * @param startMinute 開始時刻（0:00 からの分）
+         * @param endMinute   終了時刻（0:00 からの分、開始以前の場合は翌日、開始と同じ場合は24時間）
+         */
+        public Builder schedule(RestrictionType type, int days, int startMinute, int endMinute) {
+            if (!PolicySchedule.isSchedulable(type)) {
+                throw new IllegalArgumentException("Cannot schedule " + type);
+            }
+            int base = type.id * PolicySchedule.MAX_WINDOWS_PER_TYPE;
+            int next = 0;
+            for (long[] rule : rules) {
+                if (rule[0] == RestrictionType.SCHEDULE_WINDOW.id && rule[1] >= base
+                        && rule[1] < base + PolicySchedule.MAX_WINDOWS_PER_TYPE) {
+                    next = Math.max(next, (int) rule[1] - base + 1);
+                }
+            }
+            if (next == PolicySchedule.MAX_WINDOWS_PER_TYPE) {
+                throw new IllegalArgumentException("Too many windows for " + type);
+            }
+            return rule(RestrictionType.SCHEDULE_WINDOW.id, base + next,
+                PolicySchedule.window(days, startMinute, endMinute));
+        }
+
+        /**
+         * 指定したパッケージのインストールを禁止する
+         */
+        public Builder blockPackages(Collection<String> packageNames) {
+            return packages(PackageIndex.MODE_BLOCKLIST, packageNames);
+        }
+
+        /**
+         * 指定したパッケージ以外のインストールを禁止する
+         */
+        public Builder allowPackages(Collection<String> packageNames) {
+            return packages(PackageIndex.MODE_ALLOWLIST, packageNames);
+        }
+
+        private Builder packages(int mode, Collection<String> packageNames) {
+            long[] hashes = new long[packageNames.size()];
+            int i = 0;
+            for (String name : packageNames) {
+                hashes[i++] = PackageIndex.hash(name);
+            }
+            return packageHashes(mode, hashes);
+        }
+
+        /**
+         * ハッシュ済みのリストを設定する（mode が {@link PackageIndex#MODE_NONE} の場合はリストを含めない）
+         */
+        public Builder packageHashes(int mode, long[] hashes) {
+            if (mode == PackageIndex.MODE_NONE) {
+                packageMode = mode;
+                packageHashes = null;
+                return this;
+            }
+            if (mode != PackageIndex.MODE_BLOCKLIST && mode != PackageIndex.MODE_ALLOWLIST) {
+                throw new IllegalArgumentException("Unknown package list mode: " + mode);
+            }
+            long[] sorted = hashes.clone();
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[unique - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            packageMode = mode;
+            packageHashes = Arrays.copyOf(sorted, unique);
+            return this;
+        }
+
+        public byte[] encode() {
+            List<long[]> sorted = new ArrayList<>(rules);
+            Collections.sort(sorted, (a, b) -> {
+                int c = Long.compare(a[0], b[0]);
+                return c != 0 ? c : Long.compare(a[1], b[1]);
+            });
+            int[] types = new int[sorted.size()];
+            int[] params = new int[sorted.size()];
+            int[] values = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                long[] rule = sorted.get(i);
+                types[i] = (int) rule[0];
+                params[i] = (int) rule[1];
+                values[i] = (int) rule[2];
+            }
+            return PolicyCodec.encode(version, bannerText, types, params, values, packageMode, packageHashes);
+        }
+
+        public PolicyDocument build() {
+            try {
+                return PolicyCodec.decode(ByteBuffer.wrap(encode()));
+            } catch (PolicyFormatException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
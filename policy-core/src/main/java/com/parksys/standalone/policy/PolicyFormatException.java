@@ -0,0 +1,13 @@
+package com.parksys.standalone.policy;
+
+import java.io.IOException;
+
+/**
+ * ポリシー文書のバイナリ形式が不正な場合の例外
+ */
+public class PolicyFormatException extends IOException {
+
+    public PolicyFormatException(String message) {
+        super(message);
+    }
+}
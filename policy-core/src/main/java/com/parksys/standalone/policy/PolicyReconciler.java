@@ -0,0 +1,49 @@
+package com.parksys.standalone.policy;
+
+import java.util.List;
+
+/**
+ * ポリシーの差分適用
+ * 端末の現在状態を getter で観測して目標ポリシーと比較し、
+ * ずれている項目に対してのみ setter を呼び出す。
+ * 項目ごとの判定は {@link RuleEngine} のルールが行う。
+ * ポリシー実行スレッドからのみ呼び出すこと。
+ */
+public final class PolicyReconciler {
+
+    private final ReconcileStats stats = new ReconcileStats();
+    private final RuleEngine engine;
+
+    public PolicyReconciler(PolicyBackend backend) {
+        this(backend, PolicyRules.defaults());
+    }
+
+    public PolicyReconciler(PolicyBackend backend, List<PolicyRule> rules) {
+        this.engine = new RuleEngine(rules, backend, stats);
+    }
+
+    /**
+     * 目標ポリシーと端末状態を突き合わせ、ずれた項目のみ適用する
+     *
+     * @return ずれを検出して修正した項目数
+     */
+    public int reconcile(PolicyDocument desired) {
+        stats.recordReconcile();
+        return engine.evaluate(desired);
+    }
+
+    /**
+     * 観測済み状態を破棄する（管理者権限の変更時など）
+     */
+    public void invalidate() {
+        engine.invalidate();
+    }
+
+    public RuleEngine getEngine() {
+        return engine;
+    }
+
+    public ReconcileStats getStats() {
+        return stats;
+    }
+}
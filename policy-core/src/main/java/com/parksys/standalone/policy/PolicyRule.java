@@ -0,0 +1,33 @@
+package com.parksys.standalone.policy;
+
+/**
+ * 1種類の制限を担当するポリシールール
+ * 端末状態の読み取り・変更は {@link RuleContext} を経由し、同じ値の読み取りはパス内で共有する。
+ */
+public interface PolicyRule {
+
+    /** ポリシーに含まれず評価しなかった */
+    int SKIPPED = 0;
+    /** 端末状態が目標どおりだった */
+    int COMPLIANT = 1;
+    /** ずれを検出して修正した */
+    int CORRECTED = 2;
+    /** 目標を満たしていないが、デバイス管理者からは修正できない */
+    int NONCOMPLIANT = 3;
+    /** 端末・権限が対応していない（SecurityException など） */
+    int UNSUPPORTED = 4;
+
+    String getName();
+
+    /**
+     * 先に評価すべきルールの名前（なければ空配列）
+     */
+    String[] getDependencies();
+
+    /**
+     * 目標ポリシーと端末状態を比較し、必要なら修正する
+     *
+     * @return {@link #SKIPPED} など評価結果
+     */
+    int evaluate(PolicyDocument desired, RuleContext context);
+}
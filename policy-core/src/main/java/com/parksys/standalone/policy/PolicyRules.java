@@ -0,0 +1,202 @@
+package com.parksys.standalone.policy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 標準のポリシールール（device_admin_policies.xml で宣言した権限に対応）
+ */
+public final class PolicyRules {
+
+    public static final String CAMERA = "camera";
+    public static final String PASSWORD_QUALITY = "password_quality";
+    public static final String PASSWORD_LENGTH = "password_length";
+    public static final String MAX_TIME_TO_LOCK = "max_time_to_lock";
+    public static final String MAX_FAILED_ATTEMPTS = "max_failed_attempts";
+    public static final String STORAGE_ENCRYPTION = "storage_encryption";
+
+    private static final String[] NONE = new String[0];
+    private static final String[] AFTER_PASSWORD_QUALITY = {PASSWORD_QUALITY};
+
+    private PolicyRules() {
+    }
+
+    public static List<PolicyRule> defaults() {
+        return Arrays.asList(
+            new CameraRule(),
+            new PasswordQualityRule(),
+            new PasswordLengthRule(),
+            new MaxTimeToLockRule(),
+            new MaxFailedAttemptsRule(),
+            new StorageEncryptionRule());
+    }
+
+    /**
+     * カメラ無効化（ポリシーに含まれない場合も「無効化しない」を目標とする）
+     */
+    static final class CameraRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return CAMERA;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return NONE;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            boolean disabled = desired.isRestricted(RestrictionType.CAMERA_DISABLED);
+            if (context.getCameraDisabled() == disabled) {
+                return COMPLIANT;
+            }
+            context.setCameraDisabled(disabled);
+            return CORRECTED;
+        }
+    }
+
+    /**
+     * パスワード品質（現在のパスワードが満たさない場合は利用者の変更が必要）
+     */
+    static final class PasswordQualityRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return PASSWORD_QUALITY;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return NONE;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            if (!desired.hasRule(RestrictionType.PASSWORD_QUALITY)) {
+                return SKIPPED;
+            }
+            int quality = desired.getValue(RestrictionType.PASSWORD_QUALITY, 0);
+            int result = COMPLIANT;
+            if (context.getPasswordQuality() != quality) {
+                context.setPasswordQuality(quality);
+                result = CORRECTED;
+            }
+            return context.isActivePasswordSufficient() ? result : NONCOMPLIANT;
+        }
+    }
+
+    /**
+     * パスワード最小文字数（品質が設定されている場合のみ有効なため品質の後に評価する）
+     */
+    static final class PasswordLengthRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return PASSWORD_LENGTH;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return AFTER_PASSWORD_QUALITY;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            if (!desired.hasRule(RestrictionType.PASSWORD_MIN_LENGTH)) {
+                return SKIPPED;
+            }
+            int length = desired.getValue(RestrictionType.PASSWORD_MIN_LENGTH, 0);
+            int result = COMPLIANT;
+            if (context.getPasswordMinimumLength() != length) {
+                context.setPasswordMinimumLength(length);
+                result = CORRECTED;
+            }
+            return context.isActivePasswordSufficient() ? result : NONCOMPLIANT;
+        }
+    }
+
+    /**
+     * 無操作から画面ロックまでの最大時間
+     */
+    static final class MaxTimeToLockRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return MAX_TIME_TO_LOCK;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return NONE;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            if (!desired.hasRule(RestrictionType.MAX_TIME_TO_LOCK_SECONDS)) {
+                return SKIPPED;
+            }
+            long millis = desired.getValue(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 0) * 1000L;
+            if (context.getMaximumTimeToLock() == millis) {
+                return COMPLIANT;
+            }
+            context.setMaximumTimeToLock(millis);
+            return CORRECTED;
+        }
+    }
+
+    /**
+     * 連続失敗回数が上限に達していないか（確認のみ）
+     * 失敗回数は解除に成功するまで減らないため、ここでロックすると評価のたびにロックし直すことになる。
+     * 上限に達した時点のロックは LoginFailureTracker が行う。
+     */
+    static final class MaxFailedAttemptsRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return MAX_FAILED_ATTEMPTS;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return NONE;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            int max = desired.getValue(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 0);
+            if (max <= 0) {
+                return SKIPPED;
+            }
+            return context.getCurrentFailedPasswordAttempts() < max ? COMPLIANT : NONCOMPLIANT;
+        }
+    }
+
+    /**
+     * ストレージ暗号化（デバイス管理者からは有効化できないため状態の確認のみ）
+     */
+    static final class StorageEncryptionRule implements PolicyRule {
+        @Override
+        public String getName() {
+            return STORAGE_ENCRYPTION;
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return NONE;
+        }
+
+        @Override
+        public int evaluate(PolicyDocument desired, RuleContext context) {
+            if (!desired.isRestricted(RestrictionType.STORAGE_ENCRYPTION_REQUIRED)) {
+                return SKIPPED;
+            }
+            switch (context.getStorageEncryptionStatus()) {
+                case PolicyBackend.ENCRYPTION_STATUS_ACTIVE:
+                case PolicyBackend.ENCRYPTION_STATUS_ACTIVE_DEFAULT_KEY:
+                case PolicyBackend.ENCRYPTION_STATUS_ACTIVE_PER_USER:
+                    return COMPLIANT;
+                case PolicyBackend.ENCRYPTION_STATUS_UNSUPPORTED:
+                    return UNSUPPORTED;
+                default:
+                    return NONCOMPLIANT;
+            }
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.parksys.standalone.policy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * ポリシー文書の時間帯スケジュール（{@link RestrictionType#SCHEDULE_WINDOW}、不変）
+ * 全ての時間帯を1週間の分単位の境界（状態が変わる時刻）とその後の状態にまとめ、
+ * 現在の状態・次に状態が変わる時刻を二分探索で求める。
+ * 時間帯は端末のローカル時刻で判定するため、夏時間の切り替えで時刻が飛ぶ・戻る場合は
+ * 切り替えの瞬間にも状態が変わり得る（時刻が戻る場合は同じ時間帯を2回通る）。
+ * 状態は種類の id のビット（{@code 1 << RestrictionType.id}）の組み合わせ。
+ */
+public final class PolicySchedule {
+
+    public static final int MONDAY = 1;
+    public static final int TUESDAY = 1 << 1;
+    public static final int WEDNESDAY = 1 << 2;
+    public static final int THURSDAY = 1 << 3;
+    public static final int FRIDAY = 1 << 4;
+    public static final int SATURDAY = 1 << 5;
+    public static final int SUNDAY = 1 << 6;
+    public static final int WEEKDAYS = MONDAY | TUESDAY | WEDNESDAY | THURSDAY | FRIDAY;
+    public static final int EVERY_DAY = WEEKDAYS | SATURDAY | SUNDAY;
+
+    /** 1種類あたりの時間帯の上限（param の連番の範囲） */
+    public static final int MAX_WINDOWS_PER_TYPE = 1024;
+
+    /** 状態が変わらない場合の {@link #nextTransition} の値 */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    // 1970-01-01 は木曜日（月曜日を週の始まりとする）
+    private static final int EPOCH_MINUTE_OF_WEEK = 3 * MINUTES_PER_DAY;
+    // 次の境界を探す範囲（1週間に必ず境界があるため、夏時間の切り替えで戻る分を含めて余裕を持たせる）
+    private static final long HORIZON = 8L * MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+    // UTC からの時差の変化を探す間隔（時差は通常数か月に1回しか変わらない）
+    private static final long OFFSET_PROBE = 6 * 60 * MILLIS_PER_MINUTE;
+    private static final int[] NO_EDGES = new int[0];
+    // 時間帯で制御できる真偽値ルール
+    private static final int SCHEDULABLE = 1 << RestrictionType.CAMERA_DISABLED.id
+        | 1 << RestrictionType.MICROPHONE_DISABLED.id
+        | 1 << RestrictionType.SCREEN_CAPTURE_DISABLED.id
+        | 1 << RestrictionType.STORAGE_ENCRYPTION_REQUIRED.id
+        | 1 << RestrictionType.VPN_REQUIRED.id
+        | 1 << RestrictionType.OPEN_WIFI_FORBIDDEN.id;
+
+    private final PolicyDocument source;
+    private final int scheduledTypes;
+    private final int windowCount;
+    // 状態が変わる時刻（週の始まりからの分、昇順）と、その時刻から次の境界までの状態
+    private final int[] edges;
+    private final int[] states;
+    // 境界がない場合の状態
+    private final int constantState;
+
+    private PolicySchedule(PolicyDocument source, int scheduledTypes, int windowCount, int[] edges, int[] states,
+                           int constantState) {
+        this.source = source;
+        this.scheduledTypes = scheduledTypes;
+        this.windowCount = windowCount;
+        this.edges = edges;
+        this.states = states;
+        this.constantState = constantState;
+    }
+
+    /**
+     * 時間帯の値（{@link RestrictionType#SCHEDULE_WINDOW} のルールの値）
+     *
+     * @param days        曜日（{@link #MONDAY} などの組み合わせ）
+     * @param startMinute 開始時刻（0:00 からの分）
+     * @param endMinute   終了時刻（0:00 からの分、開始以前の場合は翌日、開始と同じ場合は24時間）
+     */
+    public static int window(int days, int startMinute, int endMinute) {
+        if ((days & ~EVERY_DAY) != 0 || startMinute < 0 || startMinute >= MINUTES_PER_DAY
+                || endMinute < 0 || endMinute >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Bad schedule window: " + days + " " + startMinute + "-" + endMinute);
+        }
+        return days << 22 | startMinute << 11 | endMinute;
+    }
+
+    /**
+     * 時間帯で制御できる種類（真偽値ルール）か
+     */
+    public static boolean isSchedulable(RestrictionType type) {
+        return (SCHEDULABLE & (1 << type.id)) != 0;
+    }
+
+    /**
+     * 文書の時間帯を集約する（時間帯を含まない場合は {@link #isEmpty()} のスケジュール）
+     * 対象にできない種類・範囲外の値の時間帯は無視する。
+     */
+    public static PolicySchedule from(PolicyDocument source) {
+        // param は種類ごとの連番のため、最初の時間帯を種類の id だけで探す
+        int first = lowerBound(source, RestrictionType.SCHEDULE_WINDOW.id);
+        int ruleCount = source.getRuleCount();
+        // 開始・終了の境界（週の始まりからの分 << 8 | 種類の id << 1 | 開始なら 1）
+        long[] events = new long[16];
+        int eventCount = 0;
+        int scheduledTypes = 0;
+        int windows = 0;
+        for (int i = first; i < ruleCount && source.getRuleType(i) == RestrictionType.SCHEDULE_WINDOW.id; i++) {
+            int type = source.getRuleParam(i) / MAX_WINDOWS_PER_TYPE;
+            int value = source.getRuleValue(i);
+            int days = value >>> 22;
+            int start = (value >>> 11) & 0x7FF;
+            int end = value & 0x7FF;
+            if (type >= Integer.SIZE || (SCHEDULABLE & (1 << type)) == 0 || (days & ~EVERY_DAY) != 0
+                    || start >= MINUTES_PER_DAY || end >= MINUTES_PER_DAY) {
+                continue;
+            }
+            scheduledTypes |= 1 << type;
+            windows++;
+            int length = end > start ? end - start : end + MINUTES_PER_DAY - start;
+            for (int day = 0; day < 7; day++) {
+                if ((days & (1 << day)) == 0) {
+                    continue;
+                }
+                if (eventCount + 4 > events.length) {
+                    events = Arrays.copyOf(events, events.length * 2);
+                }
+                int from = day * MINUTES_PER_DAY + start;
+                int to = from + length;
+                // 日曜日の夜から月曜日にまたがる時間帯は週の終わりと始まりに分ける
+                if (to > MINUTES_PER_WEEK) {
+                    events[eventCount++] = event(from, type, true);
+                    events[eventCount++] = event(MINUTES_PER_WEEK, type, false);
+                    events[eventCount++] = event(0, type, true);
+                    events[eventCount++] = event(to - MINUTES_PER_WEEK, type, false);
+                } else {
+                    events[eventCount++] = event(from, type, true);
+                    events[eventCount++] = event(to, type, false);
+                }
+            }
+        }
+        if (scheduledTypes == 0) {
+            return new PolicySchedule(source, 0, 0, NO_EDGES, NO_EDGES, 0);
+        }
+        Arrays.sort(events, 0, eventCount);
+
+        // 週の始まりから順に、種類ごとに重なっている時間帯の数を数えて状態の区間を作る
+        int[] open = new int[Integer.SIZE];
+        int[] segmentStarts = new int[eventCount + 1];
+        int[] segmentStates = new int[eventCount + 1];
+        int segments = 0;
+        int state = 0;
+        int i = 0;
+        while (i < eventCount) {
+            int minute = (int) (events[i] >>> 8);
+            while (i < eventCount && (int) (events[i] >>> 8) == minute) {
+                int type = (int) (events[i] >>> 1) & 0x7F;
+                boolean start = (events[i] & 1) != 0;
+                open[type] += start ? 1 : -1;
+                if (open[type] > 0) {
+                    state |= 1 << type;
+                } else {
+                    state &= ~(1 << type);
+                }
+                i++;
+            }
+            if (minute >= MINUTES_PER_WEEK) {
+                break;
+            }
+            if (segments == 0 && minute > 0) {
+                segmentStarts[segments] = 0;
+                segmentStates[segments++] = 0;
+            }
+            if (segments > 0 && segmentStates[segments - 1] == state) {
+                continue;
+            }
+            segmentStarts[segments] = minute;
+            segmentStates[segments++] = state;
+        }
+        if (segments == 0) {
+            segmentStarts[segments] = 0;
+            segmentStates[segments++] = 0;
+        }
+
+        // 週の終わりから始まりへの変化も含め、状態が変わる境界のみ残す
+        int[] edges = new int[segments];
+        int[] states = new int[segments];
+        int edgeCount = 0;
+        for (int s = 0; s < segments; s++) {
+            int previous = segmentStates[s == 0 ? segments - 1 : s - 1];
+            if (segmentStates[s] != previous) {
+                edges[edgeCount] = segmentStarts[s];
+                states[edgeCount++] = segmentStates[s];
+            }
+        }
+        if (edgeCount == 0) {
+            return new PolicySchedule(source, scheduledTypes, windows, NO_EDGES, NO_EDGES, segmentStates[0]);
+        }
+        return new PolicySchedule(source, scheduledTypes, windows, Arrays.copyOf(edges, edgeCount),
+            Arrays.copyOf(states, edgeCount), 0);
+    }
+
+    private static long event(int minute, int type, boolean start) {
+        return (long) minute << 8 | type << 1 | (start ? 1 : 0);
+    }
+
+    private static int lowerBound(PolicyDocument document, int typeId) {
+        int low = 0;
+        int high = document.getRuleCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (document.getRuleType(mid) < typeId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** 時間帯の元の文書 */
+    public PolicyDocument getSource() {
+        return source;
+    }
+
+    /** 時間帯を含まない */
+    public boolean isEmpty() {
+        return scheduledTypes == 0;
+    }
+
+    /** 時間帯で制御する種類（{@code 1 << RestrictionType.id} の組み合わせ） */
+    public int getScheduledTypes() {
+        return scheduledTypes;
+    }
+
+    public int getWindowCount() {
+        return windowCount;
+    }
+
+    /** 1週間の状態の境界の数 */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * 指定した時刻に有効な種類（{@code 1 << RestrictionType.id} の組み合わせ）
+     */
+    public int activeAt(long millis, TimeZone zone) {
+        if (edges.length == 0) {
+            return constantState;
+        }
+        return states[edgeIndex(minuteOfWeek(millis + zone.getOffset(millis)))];
+    }
+
+    /**
+     * 指定した時刻より後で、有効な種類が最初に変わる時刻
+     * 時差（夏時間・タイムゾーンの変更）を考慮し、ローカル時刻で次の境界を求めてから UTC に戻す。
+     * 境界までに時差が変わる場合は、変わった瞬間の状態を確認して、そこから探し直す。
+     *
+     * @return 時刻（ミリ秒、変わらない場合は {@link #NEVER}）
+     */
+    public long nextTransition(long millis, TimeZone zone) {
+        if (edges.length == 0) {
+            return NEVER;
+        }
+        int current = activeAt(millis, zone);
+        long limit = millis + HORIZON;
+        long from = millis;
+        while (from < limit) {
+            int offset = zone.getOffset(from);
+            long candidate = Math.min(nextEdgeLocal(from + offset) - offset, limit);
+            long change = findOffsetChange(zone, from, candidate, offset);
+            if (change < 0) {
+                return candidate;
+            }
+            // 時差が変わった瞬間にローカル時刻が境界をまたいだ（時間帯の途中へ飛んだ・戻った）か
+            if (activeAt(change, zone) != current) {
+                return change;
+            }
+            from = change;
+        }
+        return limit;
+    }
+
+    /**
+     * (from, to] の間で時差が offset から変わる最初の時刻（変わらない場合は -1）
+     */
+    private static long findOffsetChange(TimeZone zone, long from, long to, int offset) {
+        long probe = from;
+        while (probe < to) {
+            long next = Math.min(probe + OFFSET_PROBE, to);
+            if (zone.getOffset(next) != offset) {
+                long low = probe;
+                long high = next;
+                while (high - low > 1) {
+                    long mid = (low + high) >>> 1;
+                    if (zone.getOffset(mid) == offset) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return high;
+            }
+            probe = next;
+        }
+        return -1;
+    }
+
+    /**
+     * ローカル時刻より後の最初の境界（ローカル時刻のミリ秒）
+     */
+    private long nextEdgeLocal(long localMillis) {
+        long epochMinute = Math.floorDiv(localMillis, MILLIS_PER_MINUTE);
+        int minute = minuteOfWeek(localMillis);
+        long weekStart = epochMinute - minute;
+        int index = Arrays.binarySearch(edges, minute);
+        index = index >= 0 ? index + 1 : -index - 1;
+        // 週の最後の境界より後の場合は翌週の最初の境界
+        long edge = index < edges.length ? edges[index] : edges[0] + MINUTES_PER_WEEK;
+        return (weekStart + edge) * MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * 指定した分を含む区間の番号（最初の境界より前は前の週の最後の区間）
+     */
+    private int edgeIndex(int minute) {
+        int index = Arrays.binarySearch(edges, minute);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? edges.length - 1 : index;
+    }
+
+    private static int minuteOfWeek(long localMillis) {
+        return (int) Math.floorMod(Math.floorDiv(localMillis, MILLIS_PER_MINUTE) + EPOCH_MINUTE_OF_WEEK,
+            (long) MINUTES_PER_WEEK);
+    }
+
+    /**
+     * 時間帯で制御する種類の値を指定した状態に置き換えた文書（時間帯がない場合は元の文書）
+     * ルール以外（バージョン・アプリのリスト）は元の文書と共有する。
+     *
+     * @param active {@link #activeAt} の値
+     */
+    public PolicyDocument resolve(int active) {
+        if (scheduledTypes == 0) {
+            return source;
+        }
+        int ruleCount = source.getRuleCount();
+        long[] keys = new long[ruleCount + Integer.bitCount(scheduledTypes)];
+        int[] values = new int[keys.length];
+        int count = 0;
+        for (int i = 0; i < ruleCount; i++) {
+            int type = source.getRuleType(i);
+            int param = source.getRuleParam(i);
+            if (param == 0 && type < Integer.SIZE && (scheduledTypes & (1 << type)) != 0) {
+                continue;
+            }
+            keys[count] = (long) type << 16 | param;
+            values[count++] = source.getRuleValue(i);
+        }
+        for (int type = 0; type < Integer.SIZE; type++) {
+            if ((scheduledTypes & (1 << type)) != 0) {
+                keys[count] = (long) type << 16;
+                values[count++] = (active & (1 << type)) != 0 ? 1 : 0;
+            }
+        }
+        // ほぼ整列済みのため挿入ソートで (type, param) 順に並べ直す
+        for (int i = 1; i < count; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+        ByteBuffer rules = ByteBuffer.allocate(count * PolicyCodec.RULE_SIZE).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            rules.putShort((short) (keys[i] >>> 16));
+            rules.putShort((short) keys[i]);
+            rules.putInt(values[i]);
+        }
+        rules.flip();
+        return new PolicyDocument(source.getVersion(), source.getBannerText(), rules.asReadOnlyBuffer(), count,
+            source.getPackages(), source.getEncodedSize());
+    }
+
+    /**
+     * 有効な種類の名前のカンマ区切り（なければ "none"）
+     */
+    public static String describe(int active) {
+        if (active == 0) {
+            return "none";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int type = 0; type < Integer.SIZE; type++) {
+            if ((active & (1 << type)) != 0) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                RestrictionType restriction = RestrictionType.fromId(type);
+                builder.append(restriction != null ? restriction.name() : String.valueOf(type));
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "none";
+        }
+        return describe(scheduledTypes) + " windows=" + windowCount + " edges=" + edges.length;
+    }
+}
@@ -0,0 +1,11 @@
+package com.parksys.standalone.policy;
+
+/**
+ * ポリシーの署名を検証できない場合の例外（署名不正・未知の鍵・署名なし）
+ */
+public class PolicySignatureException extends PolicyFormatException {
+
+    public PolicySignatureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,158 @@
+package com.parksys.standalone.policy;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 署名付きポリシーの検証
+ *
+ * 署名の検証（ECDSA）は低性能な端末では起動のたびに行うと無視できないため、
+ * 検証に成功した保存形式のダイジェスト（SHA-256）を {@link Cache} に記録し、
+ * 同じバイト列であれば署名の検証を省略する。ダイジェストには信頼する鍵の組も含めるため、
+ * アプリ更新で鍵を入れ替えた場合は再検証される。
+ */
+public final class PolicyVerifier {
+
+    /**
+     * 検証済みダイジェストの保存先
+     */
+    public interface Cache {
+        boolean isVerified(byte[] digest);
+
+        void markVerified(byte[] digest);
+    }
+
+    public static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+    private static final String KEY_ALGORITHM = "EC";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final List<byte[]> keyIds = new ArrayList<>();
+    private final List<PublicKey> keys = new ArrayList<>();
+    private final byte[] trustFingerprint;
+
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param encodedKeys 信頼する公開鍵（X.509 形式）
+     */
+    public PolicyVerifier(List<byte[]> encodedKeys) throws GeneralSecurityException {
+        KeyFactory factory = KeyFactory.getInstance(KEY_ALGORITHM);
+        MessageDigest fingerprint = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        for (byte[] encoded : encodedKeys) {
+            keys.add(factory.generatePublic(new X509EncodedKeySpec(encoded)));
+            byte[] keyId = keyId(encoded);
+            keyIds.add(keyId);
+            fingerprint.update(keyId);
+        }
+        trustFingerprint = fingerprint.digest();
+    }
+
+    /**
+     * 公開鍵（X.509 形式）の鍵 ID
+     */
+    public static byte[] keyId(byte[] encodedPublicKey) {
+        return Arrays.copyOf(sha256().digest(encodedPublicKey), PolicyBundle.KEY_ID_SIZE);
+    }
+
+    /**
+     * 本文に署名する（管理サーバー側で使用）
+     */
+    public static byte[] sign(byte[] payload, PrivateKey key) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signature.initSign(key);
+        signature.update(payload);
+        return signature.sign();
+    }
+
+    public boolean hasKeys() {
+        return !keys.isEmpty();
+    }
+
+    /**
+     * 署名を検証する。検証済みのバイト列であれば署名の検証を省略する。
+     *
+     * @param cache 検証済みダイジェストの保存先（null の場合は常に検証する）
+     * @throws PolicySignatureException 未知の鍵・署名不正の場合
+     */
+    public void verify(PolicyBundle bundle, Cache cache) throws PolicySignatureException {
+        byte[] digest = null;
+        if (cache != null) {
+            digest = digest(bundle);
+            if (cache.isVerified(digest)) {
+                cacheHits.incrementAndGet();
+                return;
+            }
+        }
+        verifySignature(bundle);
+        if (cache != null) {
+            cache.markVerified(digest);
+        }
+    }
+
+    private void verifySignature(PolicyBundle bundle) throws PolicySignatureException {
+        verifications.incrementAndGet();
+        byte[] keyId = bundle.getKeyId();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!Arrays.equals(keyIds.get(i), keyId)) {
+                continue;
+            }
+            try {
+                Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+                signature.initVerify(keys.get(i));
+                signature.update(bundle.getPayload());
+                if (signature.verify(bundle.getSignature())) {
+                    return;
+                }
+            } catch (GeneralSecurityException e) {
+                // 署名の形式不正も検証失敗として扱う
+            }
+            failures.incrementAndGet();
+            throw new PolicySignatureException("Invalid policy signature");
+        }
+        failures.incrementAndGet();
+        throw new PolicySignatureException("Unknown policy signing key");
+    }
+
+    /**
+     * 検証結果のキャッシュの鍵（信頼する鍵の組と保存形式全体の SHA-256）
+     */
+    byte[] digest(PolicyBundle bundle) {
+        MessageDigest digest = sha256();
+        digest.update(trustFingerprint);
+        digest.update(bundle.getBytes());
+        return digest.digest();
+    }
+
+    /** 署名を検証した回数（キャッシュにより省略した回数を除く） */
+    public long getVerifications() {
+        return verifications.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.parksys.standalone.policy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 差分適用の統計
+ * 検出したドリフト数・省略した setter 呼び出し数・実行した setter 呼び出し数・getter による読み取り数
+ */
+public final class ReconcileStats {
+
+    private final AtomicLong reconciles = new AtomicLong();
+    private final AtomicLong driftDetected = new AtomicLong();
+    private final AtomicLong callsSkipped = new AtomicLong();
+    private final AtomicLong callsIssued = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong stateWritesSkipped = new AtomicLong();
+    private final AtomicLong stateWrites = new AtomicLong();
+
+    void recordReconcile() {
+        reconciles.incrementAndGet();
+    }
+
+    void recordDrift() {
+        driftDetected.incrementAndGet();
+    }
+
+    void recordSkipped() {
+        callsSkipped.incrementAndGet();
+    }
+
+    void recordIssued() {
+        callsIssued.incrementAndGet();
+    }
+
+    void recordRead() {
+        reads.incrementAndGet();
+    }
+
+    public void recordStateWrite(boolean written) {
+        if (written) {
+            stateWrites.incrementAndGet();
+        } else {
+            stateWritesSkipped.incrementAndGet();
+        }
+    }
+
+    public long getReconciles() {
+        return reconciles.get();
+    }
+
+    public long getDriftDetected() {
+        return driftDetected.get();
+    }
+
+    public long getCallsSkipped() {
+        return callsSkipped.get();
+    }
+
+    public long getCallsIssued() {
+        return callsIssued.get();
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    /** 端末への呼び出し（Binder）総数 = getter による読み取り + setter */
+    public long getBinderCalls() {
+        return reads.get() + callsIssued.get();
+    }
+
+    public long getStateWrites() {
+        return stateWrites.get();
+    }
+
+    public long getStateWritesSkipped() {
+        return stateWritesSkipped.get();
+    }
+
+    @Override
+    public String toString() {
+        return "reconciles=" + reconciles.get()
+            + " drift=" + driftDetected.get()
+            + " skipped=" + callsSkipped.get()
+            + " issued=" + callsIssued.get()
+            + " reads=" + reads.get()
+            + " stateWrites=" + stateWrites.get()
+            + " stateSkipped=" + stateWritesSkipped.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.parksys.standalone.policy;
+
+/**
+ * ポリシー制限の種類
+ * id はバイナリ形式に記録される値のため、既存の値は変更しないこと
+ */
+public enum RestrictionType {
+
+    CAMERA_DISABLED(1),
+    MICROPHONE_DISABLED(2),
+    SCREEN_CAPTURE_DISABLED(3),
+    /** 値: パスワード品質（DevicePolicyManager.PASSWORD_QUALITY_* と同じ値） */
+    PASSWORD_QUALITY(4),
+    /** 値: パスワード最小文字数 */
+    PASSWORD_MIN_LENGTH(5),
+    /** 値: 画面ロックまでに許容する連続失敗回数 */
+    MAX_FAILED_PASSWORD_ATTEMPTS(6),
+    /** 値: 無操作から画面ロックまでの最大時間（秒） */
+    MAX_TIME_TO_LOCK_SECONDS(7),
+    STORAGE_ENCRYPTION_REQUIRED(8),
+    /** インターネットに接続している場合は全トラフィックを通す VPN を必須とする */
+    VPN_REQUIRED(9),
+    /** 暗号化されていない Wi-Fi への接続を禁止する */
+    OPEN_WIFI_FORBIDDEN(10),
+    /** 接続を許可する Wi-Fi（param: 連番, 値: SSID のハッシュ。1件以上あれば一覧にない Wi-Fi を禁止する） */
+    WIFI_ALLOWED_SSID(11),
+    /**
+     * 真偽値ルールを有効にする時間帯（param: 対象の種類の id × 1024 + 連番, 値: {@link PolicySchedule#window} の形式）
+     * 時間帯が1件以上ある種類は、端末のローカル時刻でいずれかの時間帯に含まれる間のみ有効となる（固定の値より優先）。
+     */
+    SCHEDULE_WINDOW(12);
+
+    private static final RestrictionType[] BY_ID;
+
+    static {
+        int max = 0;
+        for (RestrictionType type : values()) {
+            max = Math.max(max, type.id);
+        }
+        BY_ID = new RestrictionType[max + 1];
+        for (RestrictionType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    public final int id;
+
+    RestrictionType(int id) {
+        this.id = id;
+    }
+
+    /**
+     * id から種類を取得する（未知の id の場合は null）
+     */
+    public static RestrictionType fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+}
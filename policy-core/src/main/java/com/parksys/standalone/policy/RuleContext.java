@@ -0,0 +1,152 @@
+package com.parksys.standalone.policy;
+
+/**
+ * 1回の評価パスで共有する端末状態
+ * 各 getter はパス内で最初の1回だけ backend を呼び、以降は記録した値を返す。
+ * setter は呼び出し後の値を記録するため、後続のルールは再読み込みしない。
+ * ポリシー実行スレッドからのみ使用すること。
+ */
+public final class RuleContext {
+
+    private static final int CAMERA_DISABLED = 1;
+    private static final int PASSWORD_QUALITY = 1 << 1;
+    private static final int PASSWORD_MIN_LENGTH = 1 << 2;
+    private static final int PASSWORD_SUFFICIENT = 1 << 3;
+    private static final int FAILED_ATTEMPTS = 1 << 4;
+    private static final int MAX_TIME_TO_LOCK = 1 << 5;
+    private static final int ENCRYPTION_STATUS = 1 << 6;
+
+    private final PolicyBackend backend;
+    private final ReconcileStats stats;
+
+    // 読み込み済みの項目（上記ビット）
+    private int loaded;
+    private boolean cameraDisabled;
+    private int passwordQuality;
+    private int passwordMinLength;
+    private boolean passwordSufficient;
+    private int failedAttempts;
+    private long maxTimeToLock;
+    private int encryptionStatus;
+
+    // パス開始からの呼び出し数（ルールごとのコスト計測用）
+    private int reads;
+    private int writes;
+
+    RuleContext(PolicyBackend backend, ReconcileStats stats) {
+        this.backend = backend;
+        this.stats = stats;
+    }
+
+    /**
+     * 新しい評価パスを開始する（読み込み済みの値を破棄）
+     */
+    void begin() {
+        loaded = 0;
+        reads = 0;
+        writes = 0;
+    }
+
+    int getReads() {
+        return reads;
+    }
+
+    int getWrites() {
+        return writes;
+    }
+
+    public boolean getCameraDisabled() {
+        if ((loaded & CAMERA_DISABLED) == 0) {
+            cameraDisabled = backend.getCameraDisabled();
+            markRead(CAMERA_DISABLED);
+        }
+        return cameraDisabled;
+    }
+
+    public void setCameraDisabled(boolean disabled) {
+        backend.setCameraDisabled(disabled);
+        cameraDisabled = disabled;
+        markWritten(CAMERA_DISABLED);
+    }
+
+    public int getPasswordQuality() {
+        if ((loaded & PASSWORD_QUALITY) == 0) {
+            passwordQuality = backend.getPasswordQuality();
+            markRead(PASSWORD_QUALITY);
+        }
+        return passwordQuality;
+    }
+
+    public void setPasswordQuality(int quality) {
+        backend.setPasswordQuality(quality);
+        passwordQuality = quality;
+        markWritten(PASSWORD_QUALITY);
+        // 品質の変更で現在のパスワードの充足状況が変わる
+        loaded &= ~PASSWORD_SUFFICIENT;
+    }
+
+    public int getPasswordMinimumLength() {
+        if ((loaded & PASSWORD_MIN_LENGTH) == 0) {
+            passwordMinLength = backend.getPasswordMinimumLength();
+            markRead(PASSWORD_MIN_LENGTH);
+        }
+        return passwordMinLength;
+    }
+
+    public void setPasswordMinimumLength(int length) {
+        backend.setPasswordMinimumLength(length);
+        passwordMinLength = length;
+        markWritten(PASSWORD_MIN_LENGTH);
+        loaded &= ~PASSWORD_SUFFICIENT;
+    }
+
+    public boolean isActivePasswordSufficient() {
+        if ((loaded & PASSWORD_SUFFICIENT) == 0) {
+            passwordSufficient = backend.isActivePasswordSufficient();
+            markRead(PASSWORD_SUFFICIENT);
+        }
+        return passwordSufficient;
+    }
+
+    public int getCurrentFailedPasswordAttempts() {
+        if ((loaded & FAILED_ATTEMPTS) == 0) {
+            failedAttempts = backend.getCurrentFailedPasswordAttempts();
+            markRead(FAILED_ATTEMPTS);
+        }
+        return failedAttempts;
+    }
+
+    public long getMaximumTimeToLock() {
+        if ((loaded & MAX_TIME_TO_LOCK) == 0) {
+            maxTimeToLock = backend.getMaximumTimeToLock();
+            markRead(MAX_TIME_TO_LOCK);
+        }
+        return maxTimeToLock;
+    }
+
+    public void setMaximumTimeToLock(long millis) {
+        backend.setMaximumTimeToLock(millis);
+        maxTimeToLock = millis;
+        markWritten(MAX_TIME_TO_LOCK);
+    }
+
+    public int getStorageEncryptionStatus() {
+        if ((loaded & ENCRYPTION_STATUS) == 0) {
+            encryptionStatus = backend.getStorageEncryptionStatus();
+            markRead(ENCRYPTION_STATUS);
+        }
+        return encryptionStatus;
+    }
+
+    private void markRead(int bit) {
+        loaded |= bit;
+        reads++;
+        stats.recordRead();
+    }
+
+    private void markWritten(int bit) {
+        loaded |= bit;
+        writes++;
+        stats.recordIssued();
+    }
+}
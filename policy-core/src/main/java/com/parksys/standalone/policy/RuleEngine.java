@@ -0,0 +1,190 @@
+package com.parksys.standalone.policy;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ポリシールールの評価
+ * ルールは依存関係順に並べ替えて1回のパスで評価し、端末状態の読み取りはパス内で共有する。
+ * ルールごとの所要時間・読み取り数・変更数を記録する。
+ * 評価はポリシー実行スレッドからのみ行うこと（統計の参照は任意のスレッドから可）。
+ */
+public final class RuleEngine {
+
+    private final PolicyRule[] rules;
+    private final RuleContext context;
+    private final ReconcileStats stats;
+
+    private final AtomicLongArray evaluations;
+    private final AtomicLongArray totalNanos;
+    private final AtomicLongArray reads;
+    private final AtomicLongArray writes;
+    private final AtomicIntegerArray lastOutcomes;
+
+    public RuleEngine(List<PolicyRule> rules, PolicyBackend backend, ReconcileStats stats) {
+        this.rules = sortByDependency(rules);
+        this.context = new RuleContext(backend, stats);
+        this.stats = stats;
+        int count = this.rules.length;
+        this.evaluations = new AtomicLongArray(count);
+        this.totalNanos = new AtomicLongArray(count);
+        this.reads = new AtomicLongArray(count);
+        this.writes = new AtomicLongArray(count);
+        this.lastOutcomes = new AtomicIntegerArray(count);
+    }
+
+    /**
+     * 全ルールを評価する
+     *
+     * @return ずれを検出して修正したルール数
+     */
+    public int evaluate(PolicyDocument desired) {
+        context.begin();
+        int drifted = 0;
+        for (int i = 0; i < rules.length; i++) {
+            int readsBefore = context.getReads();
+            int writesBefore = context.getWrites();
+            long start = System.nanoTime();
+            int outcome;
+            try {
+                outcome = rules[i].evaluate(desired, context);
+            } catch (SecurityException e) {
+                // 対象 SDK によってはデバイス管理者からの設定が許可されない
+                outcome = PolicyRule.UNSUPPORTED;
+            }
+            totalNanos.addAndGet(i, System.nanoTime() - start);
+            evaluations.incrementAndGet(i);
+            int ruleWrites = context.getWrites() - writesBefore;
+            reads.addAndGet(i, context.getReads() - readsBefore);
+            writes.addAndGet(i, ruleWrites);
+            lastOutcomes.set(i, outcome);
+
+            if (ruleWrites > 0) {
+                stats.recordDrift();
+                drifted++;
+            } else if (outcome == PolicyRule.COMPLIANT) {
+                stats.recordSkipped();
+            }
+        }
+        return drifted;
+    }
+
+    /**
+     * 直近の評価結果を破棄する（管理者権限の変更時など）
+     */
+    public void invalidate() {
+        for (int i = 0; i < rules.length; i++) {
+            lastOutcomes.set(i, PolicyRule.SKIPPED);
+        }
+    }
+
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    /** 評価順の i 番目のルール */
+    public PolicyRule getRule(int index) {
+        return rules[index];
+    }
+
+    public int getLastOutcome(int index) {
+        return lastOutcomes.get(index);
+    }
+
+    /** 直近の評価で目標を満たしていなかったルール数 */
+    public int getNoncompliantCount() {
+        int count = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (lastOutcomes.get(i) == PolicyRule.NONCOMPLIANT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getEvaluations(int index) {
+        return evaluations.get(index);
+    }
+
+    public long getTotalNanos(int index) {
+        return totalNanos.get(index);
+    }
+
+    /** backend への読み取り数（パス内で共有された読み取りは含まない） */
+    public long getReads(int index) {
+        return reads.get(index);
+    }
+
+    public long getWrites(int index) {
+        return writes.get(index);
+    }
+
+    public void dump(PrintWriter writer) {
+        writer.println("Rules:");
+        for (int i = 0; i < rules.length; i++) {
+            long n = evaluations.get(i);
+            writer.printf("  %-20s %-13s evals=%d mean=%dns reads=%d writes=%d%n",
+                rules[i].getName(), outcomeName(lastOutcomes.get(i)), n,
+                n == 0 ? 0 : totalNanos.get(i) / n, reads.get(i), writes.get(i));
+        }
+    }
+
+    public static String outcomeName(int outcome) {
+        switch (outcome) {
+            case PolicyRule.COMPLIANT:
+                return "compliant";
+            case PolicyRule.CORRECTED:
+                return "corrected";
+            case PolicyRule.NONCOMPLIANT:
+                return "noncompliant";
+            case PolicyRule.UNSUPPORTED:
+                return "unsupported";
+            default:
+                return "skipped";
+        }
+    }
+
+    /**
+     * 依存先が先に来るよう並べ替える（依存関係のないルールは登録順を保つ）
+     */
+    static PolicyRule[] sortByDependency(List<PolicyRule> rules) {
+        Map<String, PolicyRule> byName = new HashMap<>();
+        for (PolicyRule rule : rules) {
+            if (byName.put(rule.getName(), rule) != null) {
+                throw new IllegalArgumentException("Duplicate rule: " + rule.getName());
+            }
+        }
+        List<PolicyRule> sorted = new ArrayList<>(rules.size());
+        Map<String, Boolean> visiting = new HashMap<>();
+        for (PolicyRule rule : rules) {
+            visit(rule, byName, visiting, sorted);
+        }
+        return sorted.toArray(new PolicyRule[0]);
+    }
+
+    private static void visit(PolicyRule rule, Map<String, PolicyRule> byName,
+                              Map<String, Boolean> visiting, List<PolicyRule> sorted) {
+        Boolean state = visiting.get(rule.getName());
+        if (Boolean.FALSE.equals(state)) {
+            return;
+        }
+        if (Boolean.TRUE.equals(state)) {
+            throw new IllegalArgumentException("Rule dependency cycle at: " + rule.getName());
+        }
+        visiting.put(rule.getName(), Boolean.TRUE);
+        for (String dependency : rule.getDependencies()) {
+            PolicyRule target = byName.get(dependency);
+            if (target == null) {
+                throw new IllegalArgumentException(rule.getName() + " depends on unknown rule: " + dependency);
+            }
+            visit(target, byName, visiting, sorted);
+        }
+        visiting.put(rule.getName(), Boolean.FALSE);
+        sorted.add(rule);
+    }
+}
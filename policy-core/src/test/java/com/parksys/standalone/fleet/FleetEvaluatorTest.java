@@ -0,0 +1,177 @@
+package com.parksys.standalone.fleet;
+
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FleetEvaluatorTest {
+
+    private static final int QUALITY = 0x50000;
+    private static final int LENGTH = 8;
+    private static final int TIME_TO_LOCK_SECONDS = 300;
+    private static final int MAX_FAILED_ATTEMPTS = 10;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /** 全項目を指定したポリシー */
+    private static PolicyDocument full(String version) {
+        return PolicyDocument.builder()
+            .version(version)
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .value(RestrictionType.PASSWORD_QUALITY, QUALITY)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, LENGTH)
+            .value(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, TIME_TO_LOCK_SECONDS)
+            .value(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, MAX_FAILED_ATTEMPTS)
+            .restrict(RestrictionType.STORAGE_ENCRYPTION_REQUIRED, true)
+            .build();
+    }
+
+    /** パスワード・画面ロック・失敗回数・暗号化のルールがないポリシー */
+    private static PolicyDocument sparse(String version) {
+        return PolicyDocument.builder()
+            .version(version)
+            .restrict(RestrictionType.CAMERA_DISABLED, false)
+            .build();
+    }
+
+    private static int pick(SplittableRandom random, int... values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /** 目標どおりの値・境界の値・未設定の値を混ぜた表 */
+    private static DeviceStateTable randomTable(int devices, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DeviceStateTable table = new DeviceStateTable(16);
+        for (int i = 0; i < devices; i++) {
+            int row = table.append(i);
+            table.setCameraDisabled(row, random.nextBoolean());
+            table.setPasswordQuality(row, pick(random, QUALITY, QUALITY, 0, 0x10000, 0x60000));
+            table.setPasswordMinimumLength(row, pick(random, LENGTH, LENGTH, 0, LENGTH - 1, LENGTH + 1, 0xFFFF));
+            table.setPasswordSufficient(row, random.nextInt(4) != 0);
+            table.setMaximumTimeToLock(row, pick(random, TIME_TO_LOCK_SECONDS * 1000, 0,
+                TIME_TO_LOCK_SECONDS * 1000 - 1, TIME_TO_LOCK_SECONDS * 1000 + 1));
+            // 上限の手前・上限ちょうど・上限超え
+            table.setFailedPasswordAttempts(row, pick(random, 0, 1, MAX_FAILED_ATTEMPTS - 1,
+                MAX_FAILED_ATTEMPTS, MAX_FAILED_ATTEMPTS + 1, 0xFFFF));
+            table.setStorageEncryptionStatus(row, pick(random,
+                PolicyBackend.ENCRYPTION_STATUS_UNSUPPORTED,
+                PolicyBackend.ENCRYPTION_STATUS_INACTIVE,
+                PolicyBackend.ENCRYPTION_STATUS_ACTIVATING,
+                PolicyBackend.ENCRYPTION_STATUS_ACTIVE,
+                PolicyBackend.ENCRYPTION_STATUS_ACTIVE_DEFAULT_KEY,
+                PolicyBackend.ENCRYPTION_STATUS_ACTIVE_PER_USER));
+            // 未適用（空文字列）・旧バージョン・評価するポリシーが知らないバージョン
+            switch (random.nextInt(4)) {
+                case 0: table.setPolicyVersion(row, "2.0.0"); break;
+                case 1: table.setPolicyVersion(row, "1.0.0"); break;
+                case 2: table.setPolicyVersion(row, "9.9.9-unknown"); break;
+                default: break;
+            }
+        }
+        return table;
+    }
+
+    private static byte[] violations(FleetResult result) {
+        byte[] bytes = new byte[result.size()];
+        for (int row = 0; row < bytes.length; row++) {
+            bytes[row] = (byte) result.getViolations(row);
+        }
+        return bytes;
+    }
+
+    private static void assertSameResult(FleetResult expected, FleetResult actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(violations(expected), violations(actual));
+        assertEquals(expected.getNoncompliantCount(), actual.getNoncompliantCount());
+        for (int rule = 0; rule < FleetEvaluator.RULE_COUNT; rule++) {
+            assertEquals(FleetEvaluator.ruleName(rule), expected.getRuleCount(rule), actual.getRuleCount(rule));
+        }
+    }
+
+    /** 3通りの評価がバイト単位で一致する */
+    private static FleetResult assertAllAgree(PolicyDocument desired, DeviceStateTable table) {
+        FleetResult rowWise = FleetEvaluator.evaluateRowWise(desired, table);
+        assertSameResult(rowWise, FleetEvaluator.evaluateSequential(desired, table));
+        assertSameResult(rowWise, new FleetEvaluator(pool).evaluate(desired, table));
+        return rowWise;
+    }
+
+    @Test
+    public void columnarMatchesRowWiseOnRandomStates() {
+        // チャンクの境界をまたぎ、端数の残るサイズ
+        int devices = FleetEvaluator.CHUNK_ROWS * 3 + 1_234;
+        assertTrue(devices % FleetEvaluator.CHUNK_ROWS != 0);
+        DeviceStateTable table = randomTable(devices, 1);
+
+        FleetResult result = assertAllAgree(full("2.0.0"), table);
+        // 乱数の表ではどのルールにも違反と準拠の両方がある
+        for (int rule = 0; rule < FleetEvaluator.RULE_COUNT; rule++) {
+            long count = result.getRuleCount(rule);
+            assertTrue(FleetEvaluator.ruleName(rule), count > 0 && count < devices);
+        }
+    }
+
+    @Test
+    public void absentRulesAreNotViolated() {
+        DeviceStateTable table = randomTable(FleetEvaluator.CHUNK_ROWS + 1, 2);
+
+        FleetResult result = assertAllAgree(sparse("2.0.0"), table);
+        assertEquals(0, result.getRuleCount(FleetEvaluator.RULE_PASSWORD_QUALITY));
+        assertEquals(0, result.getRuleCount(FleetEvaluator.RULE_PASSWORD_LENGTH));
+        assertEquals(0, result.getRuleCount(FleetEvaluator.RULE_MAX_TIME_TO_LOCK));
+        assertEquals(0, result.getRuleCount(FleetEvaluator.RULE_MAX_FAILED_ATTEMPTS));
+        assertEquals(0, result.getRuleCount(FleetEvaluator.RULE_STORAGE_ENCRYPTION));
+    }
+
+    @Test
+    public void unsupportedEncryptionIsNotViolated() {
+        DeviceStateTable table = new DeviceStateTable();
+        int unsupported = table.append(1);
+        table.setStorageEncryptionStatus(unsupported, PolicyBackend.ENCRYPTION_STATUS_UNSUPPORTED);
+        int inactive = table.append(2);
+        table.setStorageEncryptionStatus(inactive, PolicyBackend.ENCRYPTION_STATUS_INACTIVE);
+
+        FleetResult result = assertAllAgree(full("2.0.0"), table);
+        int encryption = 1 << FleetEvaluator.RULE_STORAGE_ENCRYPTION;
+        assertEquals(0, result.getViolations(unsupported) & encryption);
+        assertEquals(encryption, result.getViolations(inactive) & encryption);
+    }
+
+    @Test
+    public void policyVersionMissingFromTableFlagsEveryDevice() {
+        int devices = 777;
+        DeviceStateTable table = randomTable(devices, 3);
+
+        FleetResult result = assertAllAgree(full("3.0.0"), table);
+        assertEquals(devices, result.getRuleCount(FleetEvaluator.RULE_POLICY_VERSION));
+        assertEquals(devices, result.getNoncompliantCount());
+    }
+
+    @Test
+    public void emptyAndSingleRowTables() {
+        assertEquals(0, assertAllAgree(full("2.0.0"), new DeviceStateTable()).size());
+        assertAllAgree(full("2.0.0"), randomTable(1, 4));
+        assertAllAgree(sparse(""), randomTable(63, 5));
+    }
+}
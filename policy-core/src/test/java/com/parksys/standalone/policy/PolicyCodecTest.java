@@ -0,0 +1,150 @@
+package com.parksys.standalone.policy;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PolicyCodecTest {
+
+    private static final int LARGE_RULE_COUNT = 500;
+
+    private static byte[] largePolicy() {
+        PolicyDocument.Builder builder = PolicyDocument.builder()
+            .version("2.0.0")
+            .bannerText("業務端末です")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 6);
+        for (int i = 2; i < LARGE_RULE_COUNT; i++) {
+            builder.rule(100 + i / 50, i % 50, i);
+        }
+        return builder.encode();
+    }
+
+    @Test
+    public void roundTripsRulesVersionAndBanner() throws Exception {
+        byte[] encoded = PolicyDocument.builder()
+            .version("1.2.3")
+            .bannerText("業務端末です")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .restrict(RestrictionType.MICROPHONE_DISABLED, false)
+            .value(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 300)
+            .allowWifi(Arrays.asList("\"Office\"", "Guest"))
+            .encode();
+
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(encoded));
+
+        assertEquals("1.2.3", document.getVersion());
+        assertEquals("業務端末です", document.getBannerText());
+        assertTrue(document.isRestricted(RestrictionType.CAMERA_DISABLED));
+        assertTrue(document.hasRule(RestrictionType.MICROPHONE_DISABLED));
+        assertFalse(document.isRestricted(RestrictionType.MICROPHONE_DISABLED));
+        assertFalse(document.hasRule(RestrictionType.SCREEN_CAPTURE_DISABLED));
+        assertEquals(300, document.getValue(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 0));
+        int[] ssids = {PolicyDocument.ssidHash("Office"), PolicyDocument.ssidHash("Guest")};
+        Arrays.sort(ssids);
+        assertArrayEquals(ssids, document.getValues(RestrictionType.WIFI_ALLOWED_SSID));
+        assertEquals(encoded.length, document.getEncodedSize());
+    }
+
+    @Test
+    public void decodesFromOffsetAndDirectBuffers() throws Exception {
+        byte[] encoded = largePolicy();
+        byte[] padded = new byte[encoded.length + 16];
+        System.arraycopy(encoded, 0, padded, 8, encoded.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 8, encoded.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+        direct.put(encoded).flip();
+
+        PolicyDocument heap = PolicyCodec.decode(ByteBuffer.wrap(encoded));
+        for (PolicyDocument document : new PolicyDocument[] {
+                PolicyCodec.decode(slice.slice()), PolicyCodec.decode(direct)}) {
+            assertEquals(heap.getVersion(), document.getVersion());
+            assertEquals(heap.getRuleCount(), document.getRuleCount());
+            for (int i = 0; i < heap.getRuleCount(); i++) {
+                assertEquals(heap.getRuleValue(i), document.getRuleValue(i));
+            }
+        }
+        // 読み込みは元のバッファの位置を変えない
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void rulesReferenceSourceBufferWithoutCopying() throws Exception {
+        byte[] encoded = largePolicy();
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(encoded));
+        int last = document.getRuleCount() - 1;
+        int before = document.getRuleValue(last);
+
+        // 最後のルールの値（末尾4バイト）を書き換えると文書から見える
+        ByteBuffer.wrap(encoded).putInt(encoded.length - 4, before + 1);
+
+        assertEquals(before + 1, document.getRuleValue(last));
+    }
+
+    @Test
+    public void residentSizeIsEightBytesPerRule() throws Exception {
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(largePolicy()));
+        int header = 4 + 1 + 1 + 2
+            + 1 + document.getVersion().length()
+            + 2 + document.getBannerText().getBytes("UTF-8").length;
+        assertEquals(LARGE_RULE_COUNT, document.getRuleCount());
+        assertEquals(header + LARGE_RULE_COUNT * PolicyCodec.RULE_SIZE, document.getEncodedSize());
+    }
+
+    @Test
+    public void largePolicyParsesWellUnderOneMillisecond() throws Exception {
+        ByteBuffer encoded = ByteBuffer.wrap(largePolicy());
+        for (int i = 0; i < 2_000; i++) {
+            PolicyCodec.decode(encoded);
+        }
+        long[] samples = new long[101];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            PolicyCodec.decode(encoded);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        assertTrue("median decode " + median + "ns for " + LARGE_RULE_COUNT + " rules", median < 1_000_000);
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        byte[] valid = largePolicy();
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] ^= 1;
+        assertRejected(badMagic);
+
+        byte[] badFormat = valid.clone();
+        badFormat[4] = (byte) (PolicyCodec.FORMAT_VERSION + 1);
+        assertRejected(badFormat);
+
+        assertRejected(Arrays.copyOf(valid, valid.length - 1));
+        assertRejected(Arrays.copyOf(valid, valid.length + 1));
+        assertRejected(new byte[4]);
+
+        // 先頭2件のルールを入れ替えて並び順を崩す
+        int rules = valid.length - LARGE_RULE_COUNT * PolicyCodec.RULE_SIZE;
+        byte[] unsorted = valid.clone();
+        System.arraycopy(valid, rules, unsorted, rules + PolicyCodec.RULE_SIZE, PolicyCodec.RULE_SIZE);
+        System.arraycopy(valid, rules + PolicyCodec.RULE_SIZE, unsorted, rules, PolicyCodec.RULE_SIZE);
+        assertRejected(unsorted);
+    }
+
+    private static void assertRejected(byte[] encoded) {
+        try {
+            PolicyCodec.decode(ByteBuffer.wrap(encoded));
+            fail("Expected PolicyFormatException");
+        } catch (PolicyFormatException expected) {
+            // 期待どおり
+        }
+    }
+}
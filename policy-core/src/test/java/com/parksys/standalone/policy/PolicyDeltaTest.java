@@ -0,0 +1,125 @@
+package com.parksys.standalone.policy;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PolicyDeltaTest {
+
+    private static PolicyDocument.Builder base() {
+        return PolicyDocument.builder()
+            .version("1.0.0")
+            .bannerText("業務端末です")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .restrict(RestrictionType.MICROPHONE_DISABLED, true)
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 6)
+            .blockPackages(Arrays.asList("com.example.game", "com.example.chat"));
+    }
+
+    private static PolicyDocument decode(byte[] encoded) throws PolicyFormatException {
+        return PolicyCodec.decode(ByteBuffer.wrap(encoded));
+    }
+
+    private static void assertRoundTrip(PolicyDocument.Builder from, PolicyDocument.Builder to) throws Exception {
+        PolicyDocument source = decode(from.encode());
+        byte[] target = to.encode();
+
+        byte[] delta = PolicyDelta.diff(source, decode(target));
+
+        // 差分を適用した結果は、目的の文書を直接符号化したものとバイト単位で一致する
+        assertArrayEquals(target, PolicyDelta.apply(source, ByteBuffer.wrap(delta)));
+    }
+
+    @Test
+    public void appliesUpsertsAndRemovals() throws Exception {
+        PolicyDocument.Builder target = base()
+            .version("1.1.0")
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 8)
+            .restrict(RestrictionType.SCREEN_CAPTURE_DISABLED, true);
+        assertRoundTrip(base(), target);
+
+        // 削除は作り直した文書で表す
+        PolicyDocument.Builder removed = PolicyDocument.builder()
+            .version("1.2.0")
+            .bannerText("業務端末です")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .blockPackages(Arrays.asList("com.example.game", "com.example.chat"));
+        assertRoundTrip(base(), removed);
+    }
+
+    @Test
+    public void carriesBannerAndPackageChanges() throws Exception {
+        assertRoundTrip(base(), base().version("1.0.1").bannerText("持ち出し禁止"));
+        assertRoundTrip(base(), base().version("1.0.2")
+            .allowPackages(Collections.singletonList("com.example.work")));
+        assertRoundTrip(base(), base().version("1.0.3").packageHashes(PackageIndex.MODE_NONE, null));
+        assertRoundTrip(base().packageHashes(PackageIndex.MODE_NONE, null), base().version("1.0.4"));
+    }
+
+    @Test
+    public void unchangedSectionsAreNotResent() throws Exception {
+        PolicyDocument source = base().build();
+        PolicyDocument target = base().version("1.0.1").value(RestrictionType.PASSWORD_MIN_LENGTH, 8).build();
+
+        byte[] delta = PolicyDelta.diff(source, target);
+        PolicyDocument applied = decode(PolicyDelta.apply(source, ByteBuffer.wrap(delta)));
+
+        // ヘッダ + 版2つ + 更新1件 + 削除0件のみ
+        assertEquals(4 + 1 + 1 + 1 + 5 + 1 + 5 + 2 + PolicyCodec.RULE_SIZE + 2, delta.length);
+        assertEquals("業務端末です", applied.getBannerText());
+        assertTrue(applied.getPackages().isDisallowed("com.example.game"));
+        assertFalse(applied.getPackages().isDisallowed("com.example.work"));
+        assertEquals(8, applied.getValue(RestrictionType.PASSWORD_MIN_LENGTH, 0));
+    }
+
+    @Test
+    public void rejectsDeltaForAnotherBaseVersion() throws Exception {
+        PolicyDocument source = base().build();
+        byte[] delta = PolicyDelta.diff(source, base().version("1.1.0").build());
+
+        PolicyDocument stale = base().version("0.9.0").build();
+        try {
+            PolicyDelta.apply(stale, ByteBuffer.wrap(delta));
+            fail("Expected PolicyFormatException");
+        } catch (PolicyFormatException expected) {
+            assertTrue(expected.getMessage().contains("0.9.0"));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedDelta() throws Exception {
+        PolicyDocument source = base().build();
+        byte[] valid = PolicyDelta.diff(source, base().version("1.1.0")
+            .value(RestrictionType.PASSWORD_MIN_LENGTH, 8).bannerText("持ち出し禁止").build());
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] ^= 1;
+        assertRejected(source, badMagic);
+
+        byte[] badFormat = valid.clone();
+        badFormat[4] = (byte) (PolicyDelta.FORMAT_VERSION + 1);
+        assertRejected(source, badFormat);
+
+        for (int length = 0; length < valid.length; length++) {
+            assertRejected(source, Arrays.copyOf(valid, length));
+        }
+        assertRejected(source, Arrays.copyOf(valid, valid.length + 1));
+    }
+
+    private static void assertRejected(PolicyDocument base, byte[] delta) {
+        try {
+            PolicyDelta.apply(base, ByteBuffer.wrap(delta));
+            fail("Expected PolicyFormatException for " + delta.length + " bytes");
+        } catch (PolicyFormatException expected) {
+            // 期待どおり
+        }
+    }
+}
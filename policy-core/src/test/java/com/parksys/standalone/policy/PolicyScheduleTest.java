@@ -0,0 +1,123 @@
+package com.parksys.standalone.policy;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PolicyScheduleTest {
+
+    private static final int CAMERA = 1 << RestrictionType.CAMERA_DISABLED.id;
+    private static final long MINUTE = 60 * 1000;
+
+    private static final TimeZone TOKYO = TimeZone.getTimeZone("Asia/Tokyo");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    private static PolicySchedule schedule(int days, int startMinute, int endMinute) {
+        return PolicySchedule.from(PolicyDocument.builder()
+            .version("1")
+            .schedule(RestrictionType.CAMERA_DISABLED, days, startMinute, endMinute)
+            .build());
+    }
+
+    /** 指定したタイムゾーンのローカル時刻（2024年） */
+    private static long local(TimeZone zone, int month, int day, int hour, int minute) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(2024, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void weekdayWindowInSingleZone() {
+        PolicySchedule schedule = schedule(PolicySchedule.WEEKDAYS, 8 * 60, 19 * 60);
+        // 2024-06-03 は月曜日
+        long monday10 = local(TOKYO, 6, 3, 10, 0);
+        long friday19 = local(TOKYO, 6, 7, 19, 0);
+
+        assertEquals(10, schedule.getEdgeCount());
+        assertEquals(CAMERA, schedule.activeAt(monday10, TOKYO));
+        assertEquals(local(TOKYO, 6, 3, 19, 0), schedule.nextTransition(monday10, TOKYO));
+        // 金曜日の終わりの次は月曜日の朝
+        assertEquals(0, schedule.activeAt(friday19, TOKYO));
+        assertEquals(local(TOKYO, 6, 10, 8, 0), schedule.nextTransition(friday19, TOKYO));
+    }
+
+    @Test
+    public void zoneSwitchBeforeNextTransitionIsResolvedInNewZone() {
+        PolicySchedule schedule = schedule(PolicySchedule.WEEKDAYS, 8 * 60, 19 * 60);
+        long monday10 = local(TOKYO, 6, 3, 10, 0);
+        long armed = schedule.nextTransition(monday10, TOKYO);
+
+        // 予約した境界（東京の 19:00）より前にニューヨークへ移動した（月曜 12:00 JST = 日曜 23:00 EDT）
+        long switchAt = local(TOKYO, 6, 3, 12, 0);
+        assertEquals(local(NEW_YORK, 6, 2, 23, 0), switchAt);
+
+        // タイムゾーンの変更を受けて求め直すと、状態と次の境界は移動先の時刻で決まる
+        assertEquals(0, schedule.activeAt(switchAt, NEW_YORK));
+        long rearmed = schedule.nextTransition(switchAt, NEW_YORK);
+        assertEquals(local(NEW_YORK, 6, 3, 8, 0), rearmed);
+        assertEquals(CAMERA, schedule.activeAt(rearmed, NEW_YORK));
+        // 移動前の予約のままでは境界を取り違える
+        assertNotEquals(armed, rearmed);
+    }
+
+    @Test
+    public void zoneSwitchIntoActiveWindowChangesStateAtSwitch() {
+        PolicySchedule schedule = schedule(PolicySchedule.EVERY_DAY, 20 * 60, 23 * 60);
+        // 東京 10:00（無効）にニューヨーク 21:00（有効）へ切り替わる
+        long switchAt = local(TOKYO, 6, 4, 10, 0);
+        assertEquals(0, schedule.activeAt(switchAt, TOKYO));
+        assertEquals(local(TOKYO, 6, 4, 20, 0), schedule.nextTransition(switchAt - MINUTE, TOKYO));
+
+        assertEquals(CAMERA, schedule.activeAt(switchAt, NEW_YORK));
+        assertEquals(local(NEW_YORK, 6, 3, 23, 0), schedule.nextTransition(switchAt, NEW_YORK));
+    }
+
+    @Test
+    public void springForwardIntoWindowTransitionsAtTheJump() {
+        // 2024-03-10 2:00 EST に 3:00 EDT へ進む。2:30〜4:00 の時間帯は 3:00 から有効になる
+        PolicySchedule schedule = schedule(PolicySchedule.EVERY_DAY, 2 * 60 + 30, 4 * 60);
+        long before = local(NEW_YORK, 3, 10, 1, 0);
+        long jump = local(NEW_YORK, 3, 10, 3, 0);
+        assertEquals(MINUTE * 60, jump - before);
+
+        assertEquals(0, schedule.activeAt(before, NEW_YORK));
+        assertEquals(jump, schedule.nextTransition(before, NEW_YORK));
+        assertEquals(CAMERA, schedule.activeAt(jump, NEW_YORK));
+        assertEquals(local(NEW_YORK, 3, 10, 4, 0), schedule.nextTransition(jump, NEW_YORK));
+    }
+
+    @Test
+    public void fallBackPassesWindowTwice() {
+        // 2024-11-03 2:00 EDT に 1:00 EST へ戻る。1:00〜1:30 の時間帯を2回通る
+        PolicySchedule schedule = schedule(PolicySchedule.EVERY_DAY, 60, 90);
+        long start = local(NEW_YORK, 11, 3, 0, 30);
+
+        long firstOn = schedule.nextTransition(start, NEW_YORK);
+        long firstOff = schedule.nextTransition(firstOn, NEW_YORK);
+        long secondOn = schedule.nextTransition(firstOff, NEW_YORK);
+        long secondOff = schedule.nextTransition(secondOn, NEW_YORK);
+
+        assertEquals(start + 30 * MINUTE, firstOn);
+        assertEquals(firstOn + 30 * MINUTE, firstOff);
+        assertEquals(firstOn + 60 * MINUTE, secondOn);
+        assertEquals(secondOn + 30 * MINUTE, secondOff);
+        assertEquals(CAMERA, schedule.activeAt(secondOn, NEW_YORK));
+    }
+
+    @Test
+    public void constantScheduleNeverTransitions() {
+        PolicySchedule allDay = schedule(PolicySchedule.EVERY_DAY, 0, 0);
+        PolicySchedule none = PolicySchedule.from(PolicyDocument.builder().version("1").build());
+
+        assertEquals(CAMERA, allDay.activeAt(0, TOKYO));
+        assertEquals(PolicySchedule.NEVER, allDay.nextTransition(0, TOKYO));
+        assertEquals(PolicySchedule.NEVER, none.nextTransition(0, NEW_YORK));
+        assertEquals(0, none.activeAt(0, NEW_YORK));
+    }
+}
@@ -0,0 +1,174 @@
+package com.parksys.standalone.policy;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class PolicyVerifierTest {
+
+    private static KeyPair trusted;
+    private static KeyPair other;
+
+    /** 検証済みダイジェストをメモリに保持するキャッシュ */
+    private static final class MemoryCache implements PolicyVerifier.Cache {
+        final Set<String> digests = new HashSet<>();
+
+        @Override
+        public boolean isVerified(byte[] digest) {
+            return digests.contains(PolicyBundle.toHex(digest));
+        }
+
+        @Override
+        public void markVerified(byte[] digest) {
+            digests.add(PolicyBundle.toHex(digest));
+        }
+    }
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        trusted = generator.generateKeyPair();
+        other = generator.generateKeyPair();
+    }
+
+    private static PolicyVerifier verifier(KeyPair... pairs) throws Exception {
+        return new PolicyVerifier(Arrays.asList(Arrays.stream(pairs)
+            .map(pair -> pair.getPublic().getEncoded()).toArray(byte[][]::new)));
+    }
+
+    private static byte[] payload() {
+        return PolicyDocument.builder()
+            .version("1.0.0")
+            .restrict(RestrictionType.CAMERA_DISABLED, true)
+            .encode();
+    }
+
+    private static byte[] signedBundle(byte[] payload, KeyPair pair) throws Exception {
+        byte[] keyId = PolicyVerifier.keyId(pair.getPublic().getEncoded());
+        return PolicyBundle.wrap(payload, keyId, PolicyVerifier.sign(payload, pair.getPrivate()));
+    }
+
+    private static PolicyBundle parse(byte[] bundle) throws PolicyFormatException {
+        return PolicyBundle.parse(ByteBuffer.wrap(bundle));
+    }
+
+    @Test
+    public void acceptsPolicySignedByTrustedKey() throws Exception {
+        byte[] payload = payload();
+        PolicyVerifier verifier = verifier(other, trusted);
+
+        PolicyBundle bundle = parse(signedBundle(payload, trusted));
+        verifier.verify(bundle, null);
+
+        assertEquals(1, verifier.getVerifications());
+        assertEquals(0, verifier.getFailures());
+        assertEquals(ByteBuffer.wrap(payload), bundle.getPayload());
+    }
+
+    @Test
+    public void acceptsSignatureHeaderFromServer() throws Exception {
+        byte[] payload = payload();
+        byte[] keyId = PolicyVerifier.keyId(trusted.getPublic().getEncoded());
+        String header = PolicyBundle.signatureHeader(keyId, PolicyVerifier.sign(payload, trusted.getPrivate()));
+
+        verifier(trusted).verify(parse(PolicyBundle.wrap(payload, header)), null);
+    }
+
+    @Test
+    public void rejectsTamperedPayload() throws Exception {
+        byte[] bundle = signedBundle(payload(), trusted);
+        // 本文の末尾（最後のルールの値）を書き換える
+        int payloadEnd = 4 + 1 + PolicyBundle.KEY_ID_SIZE + 4 + payload().length;
+        bundle[payloadEnd - 1] ^= 1;
+        PolicyVerifier verifier = verifier(trusted);
+
+        assertRejected(verifier, parse(bundle), null);
+        assertEquals(1, verifier.getFailures());
+    }
+
+    @Test
+    public void rejectsUnknownKeyAndUnsignedPolicy() throws Exception {
+        PolicyVerifier verifier = verifier(trusted);
+
+        assertRejected(verifier, parse(signedBundle(payload(), other)), null);
+        // 既知の鍵 ID を名乗っても別の鍵の署名は通らない
+        byte[] payload = payload();
+        byte[] forged = PolicyBundle.wrap(payload, PolicyVerifier.keyId(trusted.getPublic().getEncoded()),
+            PolicyVerifier.sign(payload, other.getPrivate()));
+        assertRejected(verifier, parse(forged), null);
+        assertEquals(2, verifier.getFailures());
+
+        try {
+            PolicyBundle.wrap(payload, (String) null);
+            fail("Expected PolicySignatureException");
+        } catch (PolicySignatureException expected) {
+            // 期待どおり
+        }
+        assertFalse(verifier(new KeyPair[0]).hasKeys());
+    }
+
+    @Test
+    public void cacheSkipsSignatureCheckOnlyForIdenticalBytes() throws Exception {
+        PolicyVerifier verifier = verifier(trusted);
+        MemoryCache cache = new MemoryCache();
+        byte[] bundle = signedBundle(payload(), trusted);
+
+        for (int i = 0; i < 100; i++) {
+            verifier.verify(parse(bundle), cache);
+        }
+        assertEquals(1, verifier.getVerifications());
+        assertEquals(99, verifier.getCacheHits());
+
+        // 同じ本文でも署名のバイト列が変われば別のダイジェストとして検証し直す
+        byte[] resigned = signedBundle(payload(), trusted);
+        verifier.verify(parse(resigned), cache);
+        assertEquals(2, verifier.getVerifications());
+        assertEquals(2, cache.digests.size());
+
+        // 検証に失敗したものはキャッシュに残らない
+        byte[] tampered = bundle.clone();
+        tampered[4 + 1 + PolicyBundle.KEY_ID_SIZE + 4] ^= 1;
+        assertRejected(verifier, parse(tampered), cache);
+        assertRejected(verifier, parse(tampered), cache);
+        assertEquals(2, verifier.getFailures());
+        assertEquals(2, cache.digests.size());
+    }
+
+    @Test
+    public void cacheIsInvalidatedWhenTrustedKeysChange() throws Exception {
+        MemoryCache cache = new MemoryCache();
+        byte[] bundle = signedBundle(payload(), trusted);
+        verifier(trusted).verify(parse(bundle), cache);
+
+        // 鍵の組が変わるとダイジェストも変わり、署名を検証し直す
+        PolicyVerifier rotated = verifier(trusted, other);
+        rotated.verify(parse(bundle), cache);
+        assertEquals(1, rotated.getVerifications());
+        assertEquals(0, rotated.getCacheHits());
+
+        PolicyVerifier withoutTrusted = verifier(other);
+        assertRejected(withoutTrusted, parse(bundle), cache);
+        assertEquals(2, cache.digests.size());
+    }
+
+    private static void assertRejected(PolicyVerifier verifier, PolicyBundle bundle, PolicyVerifier.Cache cache) {
+        try {
+            verifier.verify(bundle, cache);
+            fail("Expected PolicySignatureException");
+        } catch (PolicySignatureException expected) {
+            // 期待どおり
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.parksys.server;
+
+import com.parksys.standalone.sync.ComplianceReport;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 端末ごとの最新状態（メモリ上）
+ *
+ * 端末 ID のハッシュでストライプに分け、ストライプごとのロックで保護する。
+ * 異なる端末の更新はほとんど別のストライプに当たるため、全体のロックで待たない。
+ * 仮想スレッドがキャリアスレッドを占有しないよう、synchronized ではなく ReentrantLock を使う。
+ */
+final class DeviceIndex {
+
+    /** 保留コマンドの上限（端末ごと） */
+    static final int MAX_PENDING_COMMANDS = 16;
+
+    /**
+     * 端末1台分の状態（ストライプのロックで保護）
+     */
+    static final class Device {
+        final String id;
+        ComplianceReport lastReport;
+        /** 報告形式を使わないクライアント（iOS）の最後の状態（JSON） */
+        String lastStateJson;
+        long lastSeenMillis;
+        long reports;
+        ArrayDeque<String> pendingCommands;
+
+        Device(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, Device> devices = new HashMap<>();
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder deviceCount = new LongAdder();
+
+    DeviceIndex(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * 端末の状態を作成または取得し、ストライプのロックを保持したまま更新する
+     */
+    void update(String deviceId, Consumer<Device> updater) {
+        Stripe stripe = stripeFor(deviceId);
+        stripe.lock.lock();
+        try {
+            Device device = stripe.devices.get(deviceId);
+            if (device == null) {
+                device = new Device(deviceId);
+                stripe.devices.put(deviceId, device);
+                deviceCount.increment();
+            }
+            updater.accept(device);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 最後の報告（差分の基準）を取得する
+     */
+    ComplianceReport lastReport(String deviceId) {
+        Stripe stripe = stripeFor(deviceId);
+        stripe.lock.lock();
+        try {
+            Device device = stripe.devices.get(deviceId);
+            return device != null ? device.lastReport : null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 未取得のコマンドをすべて取り出す
+     */
+    String[] takeCommands(String deviceId) {
+        Stripe stripe = stripeFor(deviceId);
+        stripe.lock.lock();
+        try {
+            Device device = stripe.devices.get(deviceId);
+            if (device == null || device.pendingCommands == null || device.pendingCommands.isEmpty()) {
+                return new String[0];
+            }
+            String[] commands = device.pendingCommands.toArray(new String[0]);
+            device.pendingCommands = null;
+            return commands;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    long size() {
+        return deviceCount.sum();
+    }
+
+    /**
+     * 全端末の集計（ストライプを順にロックするため、取得中の更新は一部のみ反映される）
+     */
+    void forEach(Consumer<Device> visitor) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.devices.values().forEach(visitor);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripeFor(String deviceId) {
+        int hash = deviceId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,353 @@
+package com.parksys.server;
+
+import com.parksys.standalone.metrics.LatencyHistogram;
+import com.parksys.standalone.sync.ComplianceReport;
+import com.parksys.standalone.sync.PolicySyncClient;
+import com.parksys.standalone.sync.ReportCodec;
+import com.parksys.standalone.sync.ReportFormatException;
+import com.parksys.standalone.sync.ReportUploader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 管理サーバー
+ *
+ * <ul>
+ * <li>GET /policies - ポリシー取得（Android: バイナリ形式・差分・ETag、iOS: JSON）</li>
+ * <li>POST /device/state - 状態報告（Android: 差分形式のバッチ、iOS: JSON）</li>
+ * <li>POST /device/command - 送信元の端末へのコマンド登録、GET で端末が取り出す</li>
+ * <li>GET /stats - 処理件数・遅延・端末数・端末あたりのヒープ使用量（?gc=1 で GC 後に計測）</li>
+ * </ul>
+ * リクエストは1件ごとに別スレッド（JDK 21 以降は仮想スレッド）で処理する。
+ * 端末の認証は行わない（X-Device-ID をそのまま信用する）。負荷と容量の見積もり用であり、本番の管理には使わない。
+ */
+public final class FleetServer implements AutoCloseable {
+
+    public static final String PATH_COMMAND = "/device/command";
+    public static final String PATH_STATS = "/stats";
+
+    private static final int DEFAULT_STRIPES = 256;
+    private static final int MAX_JSON_SIZE = 16 * 1024;
+    private static final int MAX_BATCH_SIZE = 1024 * 1024;
+    private static final byte[] EMPTY_COMMANDS = "[]".getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // 応答のヘッダーと本文を別々に書き出すため、Nagle と遅延 ACK の待ち（約40ms）を避ける
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // 端末数に対して既定（200）では少なく、keep-alive の接続が閉じられて再接続が増える
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final PolicyStore policies;
+    private final DeviceIndex devices;
+
+    private final LatencyHistogram policyLatency = new LatencyHistogram("policies");
+    private final LatencyHistogram stateLatency = new LatencyHistogram("device_state");
+    private final LatencyHistogram commandLatency = new LatencyHistogram("device_command");
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder reports = new LongAdder();
+    private final LongAdder baseMismatches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final long startedAtNanos = System.nanoTime();
+    private volatile long baselineHeap;
+
+    public FleetServer(int port, byte[] policy) throws IOException {
+        this(port, policy, null, DEFAULT_STRIPES, 0);
+    }
+
+    /**
+     * @param signer  配信するポリシーの署名鍵（null の場合は署名しない。アプリは署名のないポリシーを使わない）
+     * @param backlog 接続待ちキューの長さ（0 はシステム既定）
+     */
+    public FleetServer(int port, byte[] policy, PolicySigner signer, int stripes, int backlog) throws IOException {
+        this.policies = new PolicyStore(policy, signer);
+        this.devices = new DeviceIndex(stripes);
+        this.executor = RequestExecutors.perRequest();
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        server.setExecutor(executor);
+        server.createContext(PolicySyncClient.PATH_POLICIES, timed(policyLatency, this::handlePolicies));
+        server.createContext(ReportUploader.PATH_DEVICE_STATE, timed(stateLatency, this::handleState));
+        server.createContext(PATH_COMMAND, timed(commandLatency, this::handleCommand));
+        server.createContext(PATH_STATS, this::handleStats);
+    }
+
+    /**
+     * FleetServer [port] [policy.ppol] [署名鍵の prefix]
+     */
+    public static void main(String[] args) throws IOException, GeneralSecurityException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        byte[] policy = Files.readAllBytes(Paths.get(args.length > 1 ? args[1]
+            : "app/src/main/assets/policy/embedded_policy.ppol"));
+        PolicySigner signer = args.length > 2 ? PolicySigner.load(args[2]) : null;
+        if (signer == null) {
+            System.out.println("No signing key - policies are served unsigned");
+        }
+        FleetServer fleetServer = new FleetServer(port, policy, signer, DEFAULT_STRIPES, 4096);
+        fleetServer.start();
+        System.out.println("Fleet server listening on :" + fleetServer.getPort()
+            + " (" + (RequestExecutors.usesVirtualThreads() ? "virtual" : "platform") + " threads)");
+    }
+
+    public void start() {
+        // 端末あたりのヒープ使用量は起動時からの増加分で求める
+        System.gc();
+        baselineHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** 新しいポリシーを公開する */
+    public void publishPolicy(byte[] policy) throws IOException {
+        policies.publish(policy);
+    }
+
+    public long getDeviceCount() {
+        return devices.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private HttpHandler timed(LatencyHistogram histogram, HttpHandler handler) {
+        return exchange -> {
+            long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                errors.increment();
+                try {
+                    exchange.sendResponseHeaders(500, -1);
+                } catch (IOException | RuntimeException ignored) {
+                    // 応答済み、または接続が切れている
+                }
+            } finally {
+                exchange.close();
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    private void handlePolicies(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        PolicyStore.Published published = policies.current();
+        String accept = header(exchange, "Accept");
+        boolean binary = accept != null && accept.contains(PolicySyncClient.CONTENT_TYPE_POLICY);
+        if (!binary) {
+            send(exchange, 200, "application/json", published.json);
+            return;
+        }
+        if (published.etag.equals(header(exchange, "If-None-Match"))) {
+            notModified.increment();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", published.etag);
+        if (published.signature != null) {
+            // 差分の場合も適用後の文書に対する署名
+            exchange.getResponseHeaders().set(PolicySyncClient.HEADER_POLICY_SIGNATURE, published.signature);
+        }
+        boolean gzip = accepts(header(exchange, "Accept-Encoding"), "gzip");
+        String baseVersion = header(exchange, PolicySyncClient.HEADER_POLICY_VERSION);
+        if (gzip && baseVersion != null && accept.contains(PolicySyncClient.CONTENT_TYPE_DELTA)) {
+            byte[] delta = policies.gzippedDelta(published, baseVersion);
+            if (delta != null) {
+                deltas.increment();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                send(exchange, 200, PolicySyncClient.CONTENT_TYPE_DELTA, delta);
+                return;
+            }
+        }
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            send(exchange, 200, PolicySyncClient.CONTENT_TYPE_POLICY, published.gzipped);
+        } else {
+            send(exchange, 200, PolicySyncClient.CONTENT_TYPE_POLICY, published.encoded);
+        }
+    }
+
+    private void handleState(HttpExchange exchange) throws IOException {
+        String deviceId = header(exchange, PolicySyncClient.HEADER_DEVICE_ID);
+        if (!"POST".equals(exchange.getRequestMethod()) || deviceId == null || deviceId.isEmpty()) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        String contentType = header(exchange, "Content-Type");
+        if (contentType == null || !contentType.startsWith(ReportUploader.CONTENT_TYPE_REPORTS)) {
+            // iOS クライアントの JSON はそのまま保持する
+            String json = new String(readBody(exchange, MAX_JSON_SIZE), StandardCharsets.UTF_8);
+            long now = System.currentTimeMillis();
+            devices.update(deviceId, device -> {
+                device.lastStateJson = json;
+                device.lastSeenMillis = now;
+                device.reports++;
+            });
+            reports.increment();
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        ByteBuffer batch = ByteBuffer.wrap(readBody(exchange, MAX_BATCH_SIZE));
+        List<ComplianceReport> received = new ArrayList<>();
+        // 基準の確認から更新までをストライプのロック内で行う（同じ端末の並行送信に対応）
+        int[] status = {200};
+        long now = System.currentTimeMillis();
+        devices.update(deviceId, device -> {
+            try {
+                ComplianceReport last = ReportCodec.decodeBatch(device.lastReport, batch, received);
+                device.lastReport = last;
+                device.lastSeenMillis = now;
+                device.reports += received.size();
+            } catch (ReportFormatException e) {
+                status[0] = 409;
+            }
+        });
+        if (status[0] == 409) {
+            baseMismatches.increment();
+        } else {
+            reports.add(received.size());
+        }
+        exchange.sendResponseHeaders(status[0], -1);
+    }
+
+    private void handleCommand(HttpExchange exchange) throws IOException {
+        String deviceId = header(exchange, PolicySyncClient.HEADER_DEVICE_ID);
+        if (deviceId == null || deviceId.isEmpty()) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        if ("GET".equals(exchange.getRequestMethod())) {
+            String[] commands = devices.takeCommands(deviceId);
+            if (commands.length == 0) {
+                send(exchange, 200, "application/json", EMPTY_COMMANDS);
+                return;
+            }
+            send(exchange, 200, "application/json",
+                ("[" + String.join(",", commands) + "]").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String command = new String(readBody(exchange, MAX_JSON_SIZE), StandardCharsets.UTF_8);
+        boolean[] accepted = {true};
+        // 認証がないため、登録先は送信元の端末自身に限る（他の端末の宛先は指定できない）
+        devices.update(deviceId, device -> {
+            if (device.pendingCommands == null) {
+                device.pendingCommands = new ArrayDeque<>(4);
+            }
+            if (device.pendingCommands.size() >= DeviceIndex.MAX_PENDING_COMMANDS) {
+                accepted[0] = false;
+                return;
+            }
+            device.pendingCommands.add(command);
+        });
+        exchange.sendResponseHeaders(accepted[0] ? 200 : 429, -1);
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.contains("gc=1")) {
+                System.gc();
+            }
+            StringWriter text = new StringWriter();
+            dump(new PrintWriter(text));
+            send(exchange, 200, "text/plain; charset=utf-8", text.toString().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 統計の出力（1行1項目の key=value）
+     */
+    public void dump(PrintWriter writer) {
+        long deviceCount = devices.size();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        double seconds = (System.nanoTime() - startedAtNanos) / 1e9;
+        writer.println("threads=" + (RequestExecutors.usesVirtualThreads() ? "virtual" : "platform"));
+        writer.println("uptime_s=" + (long) seconds);
+        writer.println("devices=" + deviceCount);
+        writer.println("reports=" + reports.sum());
+        writer.println("not_modified=" + notModified.sum());
+        writer.println("deltas=" + deltas.sum());
+        writer.println("base_mismatches=" + baseMismatches.sum());
+        writer.println("errors=" + errors.sum());
+        long deviceHeap = Math.max(0, heap.getUsed() - baselineHeap);
+        writer.println("heap_used=" + heap.getUsed());
+        writer.println("heap_per_device=" + (deviceCount > 0 ? deviceHeap / deviceCount : 0));
+        for (LatencyHistogram histogram : new LatencyHistogram[] {policyLatency, stateLatency, commandLatency}) {
+            writer.println(histogram.getName() + ".count=" + histogram.getCount());
+            writer.println(histogram.getName() + ".p50_us=" + histogram.getPercentileMicros(50));
+            writer.println(histogram.getName() + ".p99_us=" + histogram.getPercentileMicros(99));
+            writer.println(histogram.getName() + ".max_us=" + histogram.getMaxNanos() / 1000);
+        }
+        writer.flush();
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange, int limit) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(header(exchange, "Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        try (InputStream body = in) {
+            byte[] data = body.readNBytes(limit + 1);
+            if (data.length > limit) {
+                throw new IOException("Request body too large");
+            }
+            return data;
+        }
+    }
+
+    private static String header(HttpExchange exchange, String name) {
+        return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    private static boolean accepts(String header, String value) {
+        return header != null && header.contains(value);
+    }
+}
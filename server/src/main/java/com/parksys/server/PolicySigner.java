@@ -0,0 +1,68 @@
+package com.parksys.server;
+
+import com.parksys.standalone.policy.PolicyBundle;
+import com.parksys.standalone.policy.PolicyVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * 配信するポリシーへの署名
+ *
+ * 鍵は &lt;prefix&gt;.pk8（PKCS#8 秘密鍵）と &lt;prefix&gt;.pub（X.509 公開鍵）に保存する。
+ * 鍵の作成: {@code java com.parksys.server.PolicySigner <prefix>}。
+ * 出力される Base64 をアプリのマニフェストの com.parksys.standalone.POLICY_SIGNING_KEYS に設定する。
+ */
+public final class PolicySigner {
+
+    private final PrivateKey privateKey;
+    private final byte[] keyId;
+
+    public PolicySigner(PrivateKey privateKey, byte[] encodedPublicKey) {
+        this.privateKey = privateKey;
+        this.keyId = PolicyVerifier.keyId(encodedPublicKey);
+    }
+
+    public static PolicySigner load(String prefix) throws IOException, GeneralSecurityException {
+        byte[] privateKey = Files.readAllBytes(Paths.get(prefix + ".pk8"));
+        byte[] publicKey = Files.readAllBytes(Paths.get(prefix + ".pub"));
+        return new PolicySigner(KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(privateKey)),
+            publicKey);
+    }
+
+    public static KeyPair generate() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * 文書に署名し、X-Policy-Signature ヘッダーの値を返す
+     */
+    public String signatureHeader(byte[] encoded) throws GeneralSecurityException {
+        return PolicyBundle.signatureHeader(keyId, PolicyVerifier.sign(encoded, privateKey));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String prefix = args.length > 0 ? args[0] : "policy-signing";
+        Path privatePath = Paths.get(prefix + ".pk8");
+        if (Files.exists(privatePath)) {
+            throw new IOException(privatePath + " already exists");
+        }
+        KeyPair pair = generate();
+        Files.write(privatePath, pair.getPrivate().getEncoded());
+        Files.write(Paths.get(prefix + ".pub"), pair.getPublic().getEncoded());
+        System.out.println("Private key: " + privatePath + " (keep out of source control)");
+        System.out.println("POLICY_SIGNING_KEYS: " + Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()));
+    }
+}
@@ -0,0 +1,148 @@
+package com.parksys.server;
+
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDelta;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.PolicyFormatException;
+import com.parksys.standalone.policy.RestrictionType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 配信中のポリシー
+ *
+ * 公開時に全体（非圧縮・gzip）・署名と iOS クライアント向けの JSON を一度だけ作り、
+ * 以前の版からの差分は最初に要求されたときに作ってキャッシュする。
+ * リクエストごとにはエンコード・圧縮しない。
+ */
+final class PolicyStore {
+
+    /** 差分の基準として保持する以前の版の数 */
+    private static final int MAX_HISTORY = 16;
+
+    /**
+     * 公開中の版（不変）
+     */
+    static final class Published {
+        final PolicyDocument document;
+        final String etag;
+        final byte[] encoded;
+        final byte[] gzipped;
+        final byte[] json;
+        /** X-Policy-Signature の値（署名鍵がない場合は null） */
+        final String signature;
+        final Map<String, byte[]> gzippedDeltas = new ConcurrentHashMap<>();
+
+        Published(PolicyDocument document, byte[] encoded, String signature) throws IOException {
+            this.document = document;
+            this.etag = "\"" + document.getVersion() + "\"";
+            this.encoded = encoded;
+            this.gzipped = gzip(encoded);
+            this.json = toJson(document);
+            this.signature = signature;
+        }
+    }
+
+    private final Map<String, PolicyDocument> history = Collections.synchronizedMap(
+        new LinkedHashMap<String, PolicyDocument>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PolicyDocument> eldest) {
+                return size() > MAX_HISTORY;
+            }
+        });
+    private final PolicySigner signer;
+    private volatile Published current;
+
+    /**
+     * @param signer 署名鍵（null の場合は署名しない）
+     */
+    PolicyStore(byte[] encoded, PolicySigner signer) throws IOException {
+        this.signer = signer;
+        publish(encoded);
+    }
+
+    synchronized void publish(byte[] encoded) throws IOException {
+        PolicyDocument document = PolicyCodec.decode(ByteBuffer.wrap(encoded));
+        Published previous = current;
+        if (previous != null) {
+            history.put(previous.document.getVersion(), previous.document);
+        }
+        String signature = null;
+        if (signer != null) {
+            try {
+                signature = signer.signatureHeader(encoded);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Cannot sign policy", e);
+            }
+        }
+        current = new Published(document, encoded, signature);
+    }
+
+    Published current() {
+        return current;
+    }
+
+    /**
+     * 基準の版からの差分（gzip 済み）。基準を保持していない場合は null
+     */
+    byte[] gzippedDelta(Published published, String baseVersion) throws IOException {
+        byte[] cached = published.gzippedDeltas.get(baseVersion);
+        if (cached != null) {
+            return cached;
+        }
+        PolicyDocument base = history.get(baseVersion);
+        if (base == null) {
+            return null;
+        }
+        byte[] delta = gzip(PolicyDelta.diff(base, published.document));
+        published.gzippedDeltas.put(baseVersion, delta);
+        return delta;
+    }
+
+    static PolicyDocument decode(byte[] encoded) throws PolicyFormatException {
+        return PolicyCodec.decode(ByteBuffer.wrap(encoded));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * iOS クライアントの PolicyResponse 形式
+     */
+    private static byte[] toJson(PolicyDocument document) {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"policies\":[");
+        for (int i = 0; i < document.getRuleCount(); i++) {
+            RestrictionType type = RestrictionType.fromId(document.getRuleType(i));
+            String name = type != null ? type.name().toLowerCase(Locale.US)
+                : "rule_" + document.getRuleType(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(name);
+            if (document.getRuleParam(i) != 0) {
+                json.append('_').append(document.getRuleParam(i));
+            }
+            json.append("\",\"name\":\"").append(name)
+                .append("\",\"type\":\"").append(type != null ? "restriction" : "custom")
+                .append("\",\"value\":\"").append(document.getRuleValue(i))
+                .append("\",\"enforced\":true}");
+        }
+        json.append("],\"message\":\"").append(document.getVersion()).append("\"}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
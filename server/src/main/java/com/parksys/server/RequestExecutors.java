@@ -0,0 +1,50 @@
+package com.parksys.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * リクエストごとのスレッド
+ * JDK 21 以降では仮想スレッド、それ以前はプラットフォームスレッドのキャッシュプールを使う。
+ * 最低動作バージョンを 17 のまま保つため、仮想スレッドの API はリフレクションで取得する。
+ */
+final class RequestExecutors {
+
+    private static final MethodHandle VIRTUAL_FACTORY = findVirtualFactory();
+
+    private RequestExecutors() {
+    }
+
+    static boolean usesVirtualThreads() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    static ExecutorService perRequest() {
+        if (VIRTUAL_FACTORY != null) {
+            try {
+                return (ExecutorService) VIRTUAL_FACTORY.invoke();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create virtual thread executor", e);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static MethodHandle findVirtualFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class,
+                "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.parksys.server.load;
+
+import com.parksys.server.FleetServer;
+import com.parksys.standalone.metrics.LatencyHistogram;
+import com.parksys.standalone.sync.ComplianceReport;
+import com.parksys.standalone.sync.PolicySyncClient;
+import com.parksys.standalone.sync.ReportCodec;
+import com.parksys.standalone.sync.ReportUploader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 管理サーバーの負荷生成
+ *
+ * 多数の端末が一定間隔（既定1分）で状態を報告する状況を、開ループ（応答を待たずに予定時刻に送信）で再現する。
+ * 各端末の送信時刻は間隔内で均等にずらし、予定時刻になった送信を keep-alive 接続を持つ送信スレッドが処理する。
+ * 遅延は予定時刻から応答までを計測するため、サーバーが遅れて送信待ちになった時間も含まれる
+ * （coordinated omission の補正）。送信待ちが上限を超えた分は送らずに数える。
+ * --url を省略した場合は同じプロセス内でサーバーを起動する。
+ *
+ * <pre>
+ * LoadGenerator [--url http://host:8080] [--devices 20000] [--period 60] [--seconds 120]
+ *               [--warmup 10] [--connections 64] [--max-queued 65536] [--policy embedded_policy.ppol]
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final String VERSION = "1.1.0";
+    private static final int FLAGS = ComplianceReport.FLAG_APPLIED | ComplianceReport.FLAG_ADMIN_ACTIVE;
+    private static final int TIMEOUT = 30 * 1000;
+
+    private final URL stateUrl;
+    private final int devices;
+    private final long periodNanos;
+    private final BlockingQueue<long[]> due;
+    private final Thread[] senders;
+
+    // 端末ごとの送信状態（オブジェクトを持たず配列で保持する、送信スレッド間は this で保護）
+    private final long[] seq;
+    private final long[] ackedSeq;
+    private final long[] ackedTime;
+    private final int[] ackedDrifted;
+    private final long[] lastEnforce;
+
+    private volatile LatencyHistogram latency = new LatencyHistogram("device_state");
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    LoadGenerator(String baseUrl, int devices, long periodMillis, int connections, int maxQueued)
+            throws IOException {
+        this.stateUrl = new URL(baseUrl + ReportUploader.PATH_DEVICE_STATE);
+        this.devices = devices;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.due = new ArrayBlockingQueue<>(maxQueued);
+        this.seq = new long[devices];
+        this.ackedSeq = new long[devices];
+        this.ackedTime = new long[devices];
+        this.ackedDrifted = new int[devices];
+        this.lastEnforce = new long[devices];
+        // HttpURLConnection の keep-alive プールは既定で接続先ごとに5本まで
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+        this.senders = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            senders[i] = new Thread(this::sendLoop, "load-sender-" + i);
+            senders[i].setDaemon(true);
+            senders[i].start();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int devices = 20_000;
+        long periodSeconds = 60;
+        long seconds = 120;
+        long warmupSeconds = 10;
+        int connections = 64;
+        int maxQueued = 65_536;
+        String policy = "app/src/main/assets/policy/embedded_policy.ppol";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url": url = args[i + 1]; break;
+                case "--devices": devices = Integer.parseInt(args[i + 1]); break;
+                case "--period": periodSeconds = Long.parseLong(args[i + 1]); break;
+                case "--seconds": seconds = Long.parseLong(args[i + 1]); break;
+                case "--warmup": warmupSeconds = Long.parseLong(args[i + 1]); break;
+                case "--connections": connections = Integer.parseInt(args[i + 1]); break;
+                case "--max-queued": maxQueued = Integer.parseInt(args[i + 1]); break;
+                case "--policy": policy = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        FleetServer embedded = null;
+        if (url == null) {
+            embedded = new FleetServer(0, Files.readAllBytes(Paths.get(policy)), null, 256, 4096);
+            embedded.start();
+            url = "http://127.0.0.1:" + embedded.getPort();
+        }
+        LoadGenerator generator = new LoadGenerator(url, devices, periodSeconds * 1000, connections, maxQueued);
+        try {
+            System.out.printf(Locale.US, "devices=%d period=%ds target=%.1f req/s connections=%d url=%s%n",
+                devices, periodSeconds, devices / (double) periodSeconds, connections, url);
+            generator.run(TimeUnit.SECONDS.toNanos(warmupSeconds), TimeUnit.SECONDS.toNanos(seconds));
+            System.out.print(fetchStats(url));
+        } finally {
+            generator.close();
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    /**
+     * 予定時刻になった送信を送信待ちに入れる。ウォームアップ後に計測値をリセットする。
+     */
+    void run(long warmupNanos, long durationNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + warmupNanos + durationNanos;
+        long measureFrom = start + warmupNanos;
+        boolean measuring = warmupNanos == 0;
+        long intervalNanos = Math.max(1, periodNanos / devices);
+        long next = 0; // 予定に入れた送信の通し番号
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            if (!measuring && now >= measureFrom) {
+                resetCounters();
+                measuring = true;
+            }
+            long last = (now - start) / intervalNanos;
+            for (; next <= last; next++) {
+                if (!due.offer(new long[] {next % devices, start + next * intervalNanos})) {
+                    // 送信待ちが上限に達した（サーバーが処理しきれていない）
+                    skipped.incrementAndGet();
+                }
+            }
+            long sleepNanos = start + next * intervalNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(sleepNanos, 1_000_000));
+            }
+        }
+        long measuredNanos = System.nanoTime() - measureFrom;
+        // 送信待ちが空になるまで待つ（計測期間内に予定した送信の遅延を含めるため）
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!due.isEmpty() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        printSummary(measuredNanos);
+    }
+
+    private void sendLoop() {
+        try {
+            while (true) {
+                long[] task = due.take();
+                send((int) task[0], task[1]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(int device, long scheduledAtNanos) {
+        long nowMillis = System.currentTimeMillis();
+        byte[] body;
+        long reportSeq;
+        int drifted;
+        synchronized (this) {
+            reportSeq = ++seq[device];
+            // 端末の多くは変化がなく、まれにずれを修正する
+            drifted = (reportSeq + device) % 50 == 0 ? 1 : 0;
+            if (drifted > 0) {
+                lastEnforce[device] = nowMillis;
+            }
+            ComplianceReport base = ackedSeq[device] == 0 ? null : new ComplianceReport(ackedSeq[device],
+                ackedTime[device], VERSION, FLAGS, ackedDrifted[device], 0, lastEnforce[device]);
+            ComplianceReport report = new ComplianceReport(reportSeq, nowMillis, VERSION, FLAGS,
+                drifted, 0, lastEnforce[device]);
+            body = ReportCodec.encodeBatch(base, Collections.singletonList(report));
+        }
+        bytesSent.addAndGet(body.length);
+        sent.incrementAndGet();
+
+        int code;
+        try {
+            code = post(device, body);
+        } catch (IOException e) {
+            code = -1;
+        }
+        latency.record(System.nanoTime() - scheduledAtNanos);
+        synchronized (this) {
+            if (code == HttpURLConnection.HTTP_OK && reportSeq > ackedSeq[device]) {
+                ackedSeq[device] = reportSeq;
+                ackedTime[device] = nowMillis;
+                ackedDrifted[device] = drifted;
+            } else if (code == HttpURLConnection.HTTP_CONFLICT) {
+                // サーバーが基準を持っていない場合は次回を基準なしで送る
+                ackedSeq[device] = 0;
+            }
+        }
+        if (code == HttpURLConnection.HTTP_OK) {
+            ok.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    private int post(int device, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) stateUrl.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", ReportUploader.CONTENT_TYPE_REPORTS);
+        connection.setRequestProperty(PolicySyncClient.HEADER_DEVICE_ID, "load-" + device);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int code = connection.getResponseCode();
+        // 本文を読み切って接続をプールに戻す
+        try (InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (in != null) {
+                in.readAllBytes();
+            }
+        }
+        return code;
+    }
+
+    private void resetCounters() {
+        sent.set(0);
+        ok.set(0);
+        failed.set(0);
+        skipped.set(0);
+        bytesSent.set(0);
+        latency = new LatencyHistogram("device_state");
+    }
+
+    private void printSummary(long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        System.out.printf(Locale.US, "sent=%d ok=%d failed=%d skipped=%d%n",
+            sent.get(), ok.get(), failed.get(), skipped.get());
+        System.out.printf(Locale.US, "throughput=%.1f req/s bytes/req=%.1f%n",
+            ok.get() / seconds, sent.get() > 0 ? bytesSent.get() / (double) sent.get() : 0);
+        LatencyHistogram histogram = latency;
+        System.out.printf(Locale.US, "latency p50=%dus p99=%dus p99.9=%dus max=%dus%n",
+            histogram.getPercentileMicros(50), histogram.getPercentileMicros(99),
+            histogram.getPercentileMicros(99.9), histogram.getMaxNanos() / 1000);
+    }
+
+    private static String fetchStats(String baseUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + FleetServer.PATH_STATS + "?gc=1")
+            .openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            return "--- server ---\n" + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void close() {
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+    }
+}
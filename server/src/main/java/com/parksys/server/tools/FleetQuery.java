@@ -0,0 +1,121 @@
+package com.parksys.server.tools;
+
+import com.parksys.standalone.fleet.DeviceStateTable;
+import com.parksys.standalone.fleet.FleetEvaluator;
+import com.parksys.standalone.fleet.FleetResult;
+import com.parksys.standalone.policy.PolicyBackend;
+import com.parksys.standalone.policy.PolicyCodec;
+import com.parksys.standalone.policy.PolicyDocument;
+import com.parksys.standalone.policy.RestrictionType;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 端末群のポリシー準拠の一括評価（「このポリシーに準拠していない端末はどれか」）
+ *
+ * 端末状態の表を乱数で生成し、指定したポリシーに対して列ごとに並行評価して、ルールごとの違反数と所要時間を出力する。
+ * --verify を指定すると端末上と同じ RuleEngine で1台ずつ評価した結果と照合する。
+ *
+ * <pre>
+ * FleetQuery [--devices 5000000] [--policy embedded_policy.ppol] [--seed 1] [--parallelism N] [--verify]
+ * </pre>
+ */
+public final class FleetQuery {
+
+    private FleetQuery() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int devices = 5_000_000;
+        String policy = "app/src/main/assets/policy/embedded_policy.ppol";
+        long seed = 1;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean verify = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--devices": devices = Integer.parseInt(args[++i]); break;
+                case "--policy": policy = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--parallelism": parallelism = Integer.parseInt(args[++i]); break;
+                case "--verify": verify = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        PolicyDocument desired = PolicyCodec.decode(ByteBuffer.wrap(Files.readAllBytes(Paths.get(policy))));
+        long start = System.nanoTime();
+        DeviceStateTable table = generate(desired, devices, seed);
+        System.out.printf(Locale.US, "generated %d devices in %d ms (policy v%s)%n",
+            devices, (System.nanoTime() - start) / 1_000_000, desired.getVersion());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            FleetEvaluator evaluator = new FleetEvaluator(pool);
+            // JIT のコンパイルが済むまで数回評価し、最後の結果を出力する
+            FleetResult result = null;
+            for (int i = 0; i < 5; i++) {
+                result = evaluator.evaluate(desired, table);
+            }
+            print(result, parallelism);
+            if (verify) {
+                FleetResult expected = FleetEvaluator.evaluateRowWise(desired, table);
+                int mismatches = 0;
+                for (int row = 0; row < table.size(); row++) {
+                    if (expected.getViolations(row) != result.getViolations(row)) {
+                        mismatches++;
+                    }
+                }
+                System.out.printf(Locale.US, "verify: row-wise %d ms, %d mismatches%n",
+                    expected.getDurationNanos() / 1_000_000, mismatches);
+                if (mismatches != 0) {
+                    System.exit(1);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void print(FleetResult result, int parallelism) {
+        double millis = result.getDurationNanos() / 1e6;
+        System.out.printf(Locale.US, "evaluated %d devices in %.1f ms (%.1f M devices/s, parallelism=%d)%n",
+            result.size(), millis, result.size() / millis / 1000, parallelism);
+        System.out.printf(Locale.US, "noncompliant: %d (%.2f%%)%n",
+            result.getNoncompliantCount(), 100.0 * result.getNoncompliantCount() / Math.max(1, result.size()));
+        for (int rule = 0; rule < FleetEvaluator.RULE_COUNT; rule++) {
+            System.out.printf(Locale.US, "  %-20s %d%n", FleetEvaluator.ruleName(rule), result.getRuleCount(rule));
+        }
+    }
+
+    /**
+     * 大半がポリシーどおりで、一部の端末だけ設定がずれている・パスワード未変更・旧バージョンの表を生成する
+     */
+    static DeviceStateTable generate(PolicyDocument desired, int devices, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String version = desired.getVersion();
+        boolean camera = desired.isRestricted(RestrictionType.CAMERA_DISABLED);
+        int quality = desired.getValue(RestrictionType.PASSWORD_QUALITY, 0);
+        int length = desired.getValue(RestrictionType.PASSWORD_MIN_LENGTH, 0);
+        long timeToLock = desired.getValue(RestrictionType.MAX_TIME_TO_LOCK_SECONDS, 0) * 1000L;
+        int maxAttempts = Math.max(3, desired.getValue(RestrictionType.MAX_FAILED_PASSWORD_ATTEMPTS, 0));
+        DeviceStateTable table = new DeviceStateTable(devices);
+        for (int i = 0; i < devices; i++) {
+            int row = table.append(0x1000_0000_0000L + i);
+            table.setCameraDisabled(row, random.nextInt(100) < 97 == camera);
+            table.setPasswordQuality(row, random.nextInt(100) < 98 ? quality : 0);
+            table.setPasswordMinimumLength(row, random.nextInt(100) < 98 ? length : 0);
+            table.setPasswordSufficient(row, random.nextInt(100) < 95);
+            table.setMaximumTimeToLock(row, random.nextInt(100) < 96 ? timeToLock : 0);
+            table.setFailedPasswordAttempts(row, random.nextInt(100) < 99 ? random.nextInt(3) : maxAttempts);
+            table.setStorageEncryptionStatus(row, random.nextInt(100) < 97
+                ? PolicyBackend.ENCRYPTION_STATUS_ACTIVE_PER_USER : PolicyBackend.ENCRYPTION_STATUS_INACTIVE);
+            table.setPolicyVersion(row, random.nextInt(100) < 90 ? version : "0.9.0");
+        }
+        return table;
+    }
+}